@@ -207,4 +207,31 @@ public interface OperationContext extends Serializable {
      * Returns the current max number of items per batch.
      */
     int getMaxItemsPerPage();
+
+    /**
+     * Sets the number of pages that are fetched in the background while the
+     * current page of a list is consumed.
+     * 
+     * Prefetching only applies to iterations over all items of a list, not to
+     * single pages retrieved with {@link ItemIterable#getPage()}. Prefetched
+     * pages that are not consumed are discarded.
+     * 
+     * The default implementation ignores the value, so implementations that
+     * don't support prefetching don't have to implement this method.
+     * 
+     * @param prefetchDepth
+     *            max number of pages fetched ahead, 0 disables prefetching
+     *            (must not be negative)
+     */
+    default void setPrefetchDepth(int prefetchDepth) {
+    }
+
+    /**
+     * Returns the number of pages that are fetched in the background.
+     * 
+     * The default implementation returns 0, which disables prefetching.
+     */
+    default int getPrefetchDepth() {
+        return 0;
+    }
 }
@@ -29,6 +29,12 @@ public abstract class AbstractMapCacheLevel implements CacheLevel {
 
     private static final long serialVersionUID = 1L;
 
+    /**
+     * Replacement for the {@code null} key, which is not supported by all map
+     * implementations.
+     */
+    private static final String NULL_KEY = "\u0000";
+
     private Map<String, Object> fMap;
     private boolean fFallbackEnabled = false;
     private String fFallbackKey;
@@ -39,10 +45,10 @@ public abstract class AbstractMapCacheLevel implements CacheLevel {
 
     @Override
     public Object get(String key) {
-        Object value = fMap.get(key);
+        Object value = fMap.get(maskNull(key));
 
         if (value == null && fFallbackEnabled) {
-            value = fMap.get(fFallbackKey);
+            value = fMap.get(maskNull(fFallbackKey));
         }
 
         if (value == null && fSingleValueEnabled) {
@@ -56,12 +62,16 @@ public abstract class AbstractMapCacheLevel implements CacheLevel {
 
     @Override
     public void put(Object value, String key) {
-        fMap.put(key, value);
+        fMap.put(maskNull(key), value);
     }
 
     @Override
     public void remove(String key) {
-        fMap.remove(key);
+        fMap.remove(maskNull(key));
+    }
+
+    private static String maskNull(String key) {
+        return key == null ? NULL_KEY : key;
     }
 
     /**
@@ -0,0 +1,187 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.bindings.cache.impl;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.chemistry.opencmis.client.bindings.cache.CacheLevel;
+
+/**
+ * Thread-safe LRU cache.
+ * <p>
+ * Lookups don't lock. Each entry records the time of its last access and the
+ * least recently used entries are removed in batches when the level grows
+ * beyond its maximum size. The eviction order is therefore approximate under
+ * concurrent access.
+ */
+public class ConcurrentLruCacheLevelImpl implements CacheLevel {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final String MAX_ENTRIES = "maxEntries";
+
+    private static final String NULL_KEY = "\u0000";
+
+    private int maxEntries;
+    private int evictionBatchSize;
+    private ConcurrentHashMap<String, Entry> fMap;
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    @Override
+    public void initialize(Map<String, String> parameters) {
+        maxEntries = 100;
+        if (parameters != null && parameters.get(MAX_ENTRIES) != null) {
+            try {
+                maxEntries = Integer.parseInt(parameters.get(MAX_ENTRIES).trim());
+            } catch (NumberFormatException e) {
+                // use default
+            }
+        }
+
+        if (maxEntries < 1) {
+            maxEntries = 1;
+        }
+
+        // evict a few more entries than necessary so that not every put
+        // beyond the limit has to sort all entries
+        evictionBatchSize = Math.max(1, maxEntries / 16);
+
+        fMap = new ConcurrentHashMap<String, Entry>(maxEntries + maxEntries / 2);
+    }
+
+    @Override
+    public Object get(String key) {
+        Entry entry = fMap.get(maskNull(key));
+        if (entry == null) {
+            return null;
+        }
+
+        entry.touch();
+        return entry.value;
+    }
+
+    @Override
+    public void put(Object value, String key) {
+        fMap.put(maskNull(key), new Entry(value));
+
+        if (fMap.size() > maxEntries) {
+            evict();
+        }
+    }
+
+    @Override
+    public void remove(String key) {
+        fMap.remove(maskNull(key));
+    }
+
+    /**
+     * Removes the least recently used entries. If another thread is already
+     * evicting, this thread doesn't wait.
+     */
+    private void evict() {
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+
+        try {
+            int toRemove = fMap.size() - maxEntries;
+            if (toRemove <= 0) {
+                return;
+            }
+            // keep at least the most recently used entry
+            toRemove = Math.min(toRemove + evictionBatchSize, fMap.size() - 1);
+
+            // take a snapshot of the access times, they change while sorting
+            List<Candidate> candidates = new ArrayList<Candidate>(fMap.size());
+            for (Map.Entry<String, Entry> e : fMap.entrySet()) {
+                candidates.add(new Candidate(e.getKey(), e.getValue()));
+            }
+
+            Collections.sort(candidates, new Comparator<Candidate>() {
+                @Override
+                public int compare(Candidate c1, Candidate c2) {
+                    return c1.lastAccess < c2.lastAccess ? -1 : (c1.lastAccess == c2.lastAccess ? 0 : 1);
+                }
+            });
+
+            for (int i = 0; i < toRemove && i < candidates.size(); i++) {
+                Candidate c = candidates.get(i);
+                fMap.remove(c.key, c.entry);
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private static String maskNull(String key) {
+        return key == null ? NULL_KEY : key;
+    }
+
+    @Override
+    public String toString() {
+        return fMap == null ? "[]" : fMap.toString();
+    }
+
+    /**
+     * Eviction candidate.
+     */
+    private static class Candidate {
+        private final String key;
+        private final Entry entry;
+        private final long lastAccess;
+
+        public Candidate(String key, Entry entry) {
+            this.key = key;
+            this.entry = entry;
+            this.lastAccess = entry.lastAccess;
+        }
+    }
+
+    /**
+     * Cache entry.
+     */
+    private static class Entry implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Object value;
+        private volatile long lastAccess;
+
+        public Entry(Object value) {
+            this.value = value;
+            this.lastAccess = System.nanoTime();
+        }
+
+        public void touch() {
+            lastAccess = System.nanoTime();
+        }
+
+        @Override
+        public String toString() {
+            return String.valueOf(value);
+        }
+    }
+}
@@ -20,6 +20,7 @@ package org.apache.chemistry.opencmis.client.bindings.cache.impl;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Map cache.
@@ -31,6 +32,7 @@ public class MapCacheLevelImpl extends AbstractMapCacheLevel {
     public static final String CAPACITY = "capacity";
     public static final String LOAD_FACTOR = "loadFactor";
     public static final String SINGLE_VALUE = "singleValue";
+    public static final String CONCURRENT = "concurrent";
 
     /**
      * Constructor.
@@ -43,8 +45,13 @@ public class MapCacheLevelImpl extends AbstractMapCacheLevel {
         int initialCapacity = getIntParameter(parameters, CAPACITY, 32);
         float loadFactor = getFloatParameter(parameters, LOAD_FACTOR, 0.75f);
         boolean singleValue = getBooleanParameter(parameters, SINGLE_VALUE, false);
+        boolean concurrent = getBooleanParameter(parameters, CONCURRENT, false);
 
-        setMap(new HashMap<String, Object>(initialCapacity, loadFactor));
+        if (concurrent) {
+            setMap(new ConcurrentHashMap<String, Object>(initialCapacity, loadFactor));
+        } else {
+            setMap(new HashMap<String, Object>(initialCapacity, loadFactor));
+        }
         disableKeyFallback();
         if (singleValue) {
             enableSingeValueFallback();
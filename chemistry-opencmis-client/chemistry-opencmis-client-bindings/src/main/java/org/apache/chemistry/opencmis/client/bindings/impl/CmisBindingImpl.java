@@ -24,6 +24,7 @@ import java.util.Map;
 import org.apache.chemistry.opencmis.client.bindings.cache.TypeDefinitionCache;
 import org.apache.chemistry.opencmis.client.bindings.spi.BindingSession;
 import org.apache.chemistry.opencmis.client.bindings.spi.CmisSpi;
+import org.apache.chemistry.opencmis.client.bindings.spi.MetricsListener;
 import org.apache.chemistry.opencmis.client.bindings.spi.SessionAwareAuthenticationProvider;
 import org.apache.chemistry.opencmis.commons.SessionParameter;
 import org.apache.chemistry.opencmis.commons.enums.BindingType;
@@ -54,6 +55,17 @@ public final class CmisBindingImpl implements CmisBinding, Serializable {
     private final BindingsObjectFactory objectFactory;
     private final RepositoryService repositoryServiceWrapper;
 
+    // metrics proxies of the services
+    private final WrappedService<RepositoryService> repositoryService = new WrappedService<RepositoryService>();
+    private final WrappedService<NavigationService> navigationService = new WrappedService<NavigationService>();
+    private final WrappedService<ObjectService> objectService = new WrappedService<ObjectService>();
+    private final WrappedService<DiscoveryService> discoveryService = new WrappedService<DiscoveryService>();
+    private final WrappedService<RelationshipService> relationshipService = new WrappedService<RelationshipService>();
+    private final WrappedService<VersioningService> versioningService = new WrappedService<VersioningService>();
+    private final WrappedService<AclService> aclService = new WrappedService<AclService>();
+    private final WrappedService<MultiFilingService> multiFilingService = new WrappedService<MultiFilingService>();
+    private final WrappedService<PolicyService> policyService = new WrappedService<PolicyService>();
+
     /**
      * Constructor.
      * 
@@ -190,63 +202,73 @@ public final class CmisBindingImpl implements CmisBinding, Serializable {
     @Override
     public RepositoryService getRepositoryService() {
         checkSession();
-        return repositoryServiceWrapper;
+        return wrap(repositoryService, repositoryServiceWrapper);
     }
 
     @Override
     public NavigationService getNavigationService() {
         checkSession();
         CmisSpi spi = CmisBindingsHelper.getSPI(session);
-        return spi.getNavigationService();
+        return wrap(navigationService, spi.getNavigationService());
     }
 
     @Override
     public ObjectService getObjectService() {
         checkSession();
         CmisSpi spi = CmisBindingsHelper.getSPI(session);
-        return spi.getObjectService();
+        return wrap(objectService, spi.getObjectService());
     }
 
     @Override
     public DiscoveryService getDiscoveryService() {
         checkSession();
         CmisSpi spi = CmisBindingsHelper.getSPI(session);
-        return spi.getDiscoveryService();
+        return wrap(discoveryService, spi.getDiscoveryService());
     }
 
     @Override
     public RelationshipService getRelationshipService() {
         checkSession();
         CmisSpi spi = CmisBindingsHelper.getSPI(session);
-        return spi.getRelationshipService();
+        return wrap(relationshipService, spi.getRelationshipService());
     }
 
     @Override
     public VersioningService getVersioningService() {
         checkSession();
         CmisSpi spi = CmisBindingsHelper.getSPI(session);
-        return spi.getVersioningService();
+        return wrap(versioningService, spi.getVersioningService());
     }
 
     @Override
     public AclService getAclService() {
         checkSession();
         CmisSpi spi = CmisBindingsHelper.getSPI(session);
-        return spi.getAclService();
+        return wrap(aclService, spi.getAclService());
     }
 
     @Override
     public MultiFilingService getMultiFilingService() {
         checkSession();
         CmisSpi spi = CmisBindingsHelper.getSPI(session);
-        return spi.getMultiFilingService();
+        return wrap(multiFilingService, spi.getMultiFilingService());
     }
 
     @Override
     public PolicyService getPolicyService() {
         checkSession();
         CmisSpi spi = CmisBindingsHelper.getSPI(session);
-        return spi.getPolicyService();
+        return wrap(policyService, spi.getPolicyService());
+    }
+
+    /**
+     * Returns the metrics listener of this binding.
+     * 
+     * @return the metrics listener or <code>null</code> if no metrics listener
+     *         is configured
+     */
+    public MetricsListener getMetricsListener() {
+        return CmisBindingsHelper.getMetricsListener(session);
     }
 
     @Override
@@ -315,9 +337,36 @@ public final class CmisBindingImpl implements CmisBinding, Serializable {
 
     }
 
+    /**
+     * Wraps the service if a metrics listener is configured. The proxy is
+     * only created once per service instance.
+     */
+    private <T> T wrap(WrappedService<T> wrapped, T service) {
+        return wrapped.get(service, session);
+    }
+
     private void checkSession() {
         if (session == null) {
             throw new IllegalStateException("Already closed.");
         }
     }
+
+    /**
+     * Holds a service and its metrics proxy.
+     */
+    private static final class WrappedService<T> implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private transient T service;
+        private transient T proxy;
+
+        public synchronized T get(T current, BindingSession session) {
+            if (current != service || proxy == null) {
+                proxy = MetricsServiceInvocationHandler.wrap(current, CmisBindingsHelper.getMetricsListener(session));
+                service = current;
+            }
+            return proxy;
+        }
+    }
 }
@@ -24,7 +24,9 @@ import java.lang.reflect.InvocationTargetException;
 import org.apache.chemistry.opencmis.client.bindings.cache.TypeDefinitionCache;
 import org.apache.chemistry.opencmis.client.bindings.spi.BindingSession;
 import org.apache.chemistry.opencmis.client.bindings.spi.CmisSpi;
+import org.apache.chemistry.opencmis.client.bindings.spi.MetricsListener;
 import org.apache.chemistry.opencmis.client.bindings.spi.http.HttpInvoker;
+import org.apache.chemistry.opencmis.client.bindings.spi.http.MetricsHttpInvoker;
 import org.apache.chemistry.opencmis.commons.SessionParameter;
 import org.apache.chemistry.opencmis.commons.enums.CmisVersion;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisBaseException;
@@ -43,6 +45,7 @@ public final class CmisBindingsHelper {
     public static final String SPI_OBJECT = "org.apache.chemistry.opencmis.binding.spi.object";
     public static final String HTTP_INVOKER_OBJECT = "org.apache.chemistry.opencmis.binding.httpinvoker.object";
     public static final String AUTHENTICATION_PROVIDER_OBJECT = "org.apache.chemistry.opencmis.binding.auth.object";
+    public static final String METRICS_LISTENER_OBJECT = "org.apache.chemistry.opencmis.binding.metrics.object";
     public static final String ACCEPT_LANGUAGE = "org.apache.chemistry.opencmis.binding.acceptLanguage";
     public static final String FORCE_CMIS_VERSION = "org.apache.chemistry.opencmis.cmisversion";
 
@@ -133,6 +136,12 @@ public final class CmisBindingsHelper {
                 throw new CmisRuntimeException("HTTP invoker cannot be initialized: " + e.getMessage(), e);
             }
 
+            // report the HTTP requests to the metrics listener
+            MetricsListener metricsListener = getMetricsListener(session);
+            if (metricsListener != null) {
+                invoker = new MetricsHttpInvoker(invoker, metricsListener);
+            }
+
             // we have an Invoker object -> put it into the session
             session.put(HTTP_INVOKER_OBJECT, invoker, true);
         } finally {
@@ -144,6 +153,54 @@ public final class CmisBindingsHelper {
         return invoker;
     }
 
+    /**
+     * Gets the metrics listener from the session. If there is no metrics
+     * listener object in the session it will be created and put into the
+     * session.
+     * 
+     * @return the metrics listener or <code>null</code> if no metrics listener
+     *         is configured
+     */
+    public static MetricsListener getMetricsListener(BindingSession session) {
+        assert session != null;
+
+        MetricsListener listener = (MetricsListener) session.get(METRICS_LISTENER_OBJECT);
+        if (listener != null) {
+            return listener;
+        }
+
+        Object listenerName = session.get(SessionParameter.METRICS_LISTENER_CLASS);
+        if (!(listenerName instanceof String) || ((String) listenerName).trim().length() == 0) {
+            return null;
+        }
+
+        session.writeLock();
+        try {
+            // try again
+            listener = (MetricsListener) session.get(METRICS_LISTENER_OBJECT);
+            if (listener != null) {
+                return listener;
+            }
+
+            // ok, we have to create it...
+            try {
+                listener = (MetricsListener) ClassLoaderUtil.loadClass(((String) listenerName).trim())
+                        .getDeclaredConstructor().newInstance();
+            } catch (CmisBaseException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new CmisRuntimeException("Metrics listener cannot be initialized: " + e.getMessage(), e);
+            }
+
+            // we have a listener object -> put it into the session
+            session.put(METRICS_LISTENER_OBJECT, listener, true);
+        } finally {
+            session.writeUnlock();
+        }
+
+        return listener;
+    }
+
     /**
      * Returns a CMIS version if the user set one, <code>null</code> otherwise.
      */
@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.bindings.impl;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.apache.chemistry.opencmis.client.bindings.spi.MetricsListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reports the duration and the outcome of each service call to a
+ * {@link MetricsListener}.
+ * <p>
+ * The proxy implements all interfaces of the wrapped service, so that checks
+ * for extended service interfaces keep working.
+ */
+class MetricsServiceInvocationHandler implements InvocationHandler {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MetricsServiceInvocationHandler.class);
+
+    private final Object service;
+    private final MetricsListener listener;
+
+    private MetricsServiceInvocationHandler(Object service, MetricsListener listener) {
+        this.service = service;
+        this.listener = listener;
+    }
+
+    /**
+     * Wraps a service object. Returns the service object itself if it cannot
+     * be wrapped.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> T wrap(T service, MetricsListener listener) {
+        if (service == null || listener == null) {
+            return service;
+        }
+
+        Set<Class<?>> interfaces = new LinkedHashSet<Class<?>>();
+        for (Class<?> clazz = service.getClass(); clazz != null; clazz = clazz.getSuperclass()) {
+            Collections.addAll(interfaces, clazz.getInterfaces());
+        }
+
+        try {
+            return (T) Proxy.newProxyInstance(service.getClass().getClassLoader(),
+                    interfaces.toArray(new Class<?>[interfaces.size()]), new MetricsServiceInvocationHandler(
+                            service, listener));
+        } catch (IllegalArgumentException e) {
+            LOG.debug("Service {} cannot be wrapped: {}", service.getClass().getName(), e.toString(), e);
+            return service;
+        }
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (method.getDeclaringClass() == Object.class) {
+            return method.invoke(service, args);
+        }
+
+        String repositoryId = null;
+        if (args != null && args.length > 0 && args[0] instanceof String
+                && method.getParameterTypes()[0] == String.class) {
+            repositoryId = (String) args[0];
+        }
+
+        long start = System.nanoTime();
+        String outcome = MetricsListener.OUTCOME_OK;
+        try {
+            return method.invoke(service, args);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            outcome = cause.getClass().getSimpleName();
+            throw cause;
+        } finally {
+            try {
+                listener.operationCompleted(method.getName(), repositoryId, System.nanoTime() - start, -1, -1,
+                        outcome);
+            } catch (RuntimeException e) {
+                LOG.warn("Metrics listener failed: {}", e.toString(), e);
+            }
+        }
+    }
+}
@@ -27,6 +27,7 @@ import java.util.List;
 import org.apache.chemistry.opencmis.client.bindings.cache.TypeDefinitionCache;
 import org.apache.chemistry.opencmis.client.bindings.spi.BindingSession;
 import org.apache.chemistry.opencmis.client.bindings.spi.CmisSpi;
+import org.apache.chemistry.opencmis.client.bindings.spi.MetricsListener;
 import org.apache.chemistry.opencmis.commons.data.ExtensionsData;
 import org.apache.chemistry.opencmis.commons.data.RepositoryInfo;
 import org.apache.chemistry.opencmis.commons.definitions.TypeDefinition;
@@ -65,6 +66,7 @@ public class RepositoryServiceImpl implements RepositoryService, ExtendedReposit
         // if extension is not set, check the cache first
         if (!hasExtension) {
             result = cache.get(repositoryId);
+            cacheAccessed("repositoryInfo", repositoryId, result != null);
             if (result != null) {
                 return result;
             }
@@ -143,6 +145,7 @@ public class RepositoryServiceImpl implements RepositoryService, ExtendedReposit
         // check the cache first
         if (useCache && !hasExtension) {
             result = cache.get(repositoryId, typeId);
+            cacheAccessed("typeDefinition", repositoryId, result != null);
             if (result != null) {
                 return result;
             }
@@ -229,4 +232,10 @@ public class RepositoryServiceImpl implements RepositoryService, ExtendedReposit
         cache.remove(repositoryId, typeId);
     }
 
+    private void cacheAccessed(String cache, String repositoryId, boolean hit) {
+        MetricsListener listener = CmisBindingsHelper.getMetricsListener(session);
+        if (listener != null) {
+            listener.cacheAccessed(cache, repositoryId, hit);
+        }
+    }
 }
@@ -21,6 +21,8 @@ package org.apache.chemistry.opencmis.client.bindings.impl;
 import org.apache.chemistry.opencmis.client.bindings.cache.Cache;
 import org.apache.chemistry.opencmis.client.bindings.cache.TypeDefinitionCache;
 import org.apache.chemistry.opencmis.client.bindings.cache.impl.CacheImpl;
+import org.apache.chemistry.opencmis.client.bindings.cache.impl.ConcurrentBindingCacheImpl;
+import org.apache.chemistry.opencmis.client.bindings.cache.impl.ConcurrentLruCacheLevelImpl;
 import org.apache.chemistry.opencmis.client.bindings.cache.impl.LruCacheLevelImpl;
 import org.apache.chemistry.opencmis.client.bindings.cache.impl.MapCacheLevelImpl;
 import org.apache.chemistry.opencmis.client.bindings.spi.BindingSession;
@@ -59,11 +61,21 @@ public class TypeDefinitionCacheImpl implements TypeDefinitionCache {
             typeCount = SessionParameterDefaults.CACHE_SIZE_TYPES;
         }
 
-        cache = new CacheImpl("Type Definition Cache");
-        cache.initialize(new String[] {
-                MapCacheLevelImpl.class.getName() + " " + MapCacheLevelImpl.CAPACITY + "=" + repCount, // repository
-                LruCacheLevelImpl.class.getName() + " " + LruCacheLevelImpl.MAX_ENTRIES + "=" + typeCount // type
-        });
+        if (session.get(SessionParameter.CACHE_CONCURRENT, false)) {
+            cache = new ConcurrentBindingCacheImpl("Type Definition Cache");
+            cache.initialize(new String[] {
+                    MapCacheLevelImpl.class.getName() + " " + MapCacheLevelImpl.CAPACITY + "=" + repCount + ","
+                            + MapCacheLevelImpl.CONCURRENT + "=true", // repository
+                    ConcurrentLruCacheLevelImpl.class.getName() + " " + ConcurrentLruCacheLevelImpl.MAX_ENTRIES + "="
+                            + typeCount // type
+            });
+        } else {
+            cache = new CacheImpl("Type Definition Cache");
+            cache.initialize(new String[] {
+                    MapCacheLevelImpl.class.getName() + " " + MapCacheLevelImpl.CAPACITY + "=" + repCount, // repository
+                    LruCacheLevelImpl.class.getName() + " " + LruCacheLevelImpl.MAX_ENTRIES + "=" + typeCount // type
+            });
+        }
     }
 
     @Override
@@ -0,0 +1,63 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.bindings.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX view of the client metrics. All maps are keyed by operation or cache
+ * name; latencies are in milliseconds.
+ */
+public interface ClientMetricsMXBean {
+
+    Map<String, Long> getOperationCounts();
+
+    Map<String, Long> getErrorCounts();
+
+    Map<String, Double> getMeanLatencies();
+
+    Map<String, Double> getMedianLatencies();
+
+    Map<String, Double> get95thPercentileLatencies();
+
+    Map<String, Double> get99thPercentileLatencies();
+
+    Map<String, Double> getMaxLatencies();
+
+    Map<String, Long> getBytesSent();
+
+    Map<String, Long> getBytesReceived();
+
+    /**
+     * Returns the number of calls per operation and outcome, keyed by
+     * "&lt;operation&gt; &lt;outcome&gt;" (for example "HTTP GET 200").
+     */
+    Map<String, Long> getOutcomeCounts();
+
+    Map<String, Long> getCacheHits();
+
+    Map<String, Long> getCacheMisses();
+
+    Map<String, Double> getCacheHitRates();
+
+    /**
+     * Removes all metrics.
+     */
+    void reset();
+}
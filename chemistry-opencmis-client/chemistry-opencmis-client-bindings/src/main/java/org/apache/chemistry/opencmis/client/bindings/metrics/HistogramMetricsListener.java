@@ -0,0 +1,246 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.bindings.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.chemistry.opencmis.client.bindings.spi.MetricsListener;
+
+/**
+ * A {@link MetricsListener} that keeps latency histograms, byte counters,
+ * outcome counters and cache hit rates in memory.
+ * <p>
+ * The metrics are aggregated per operation and per cache across all
+ * repositories. The binding creates one listener per session; use
+ * {@link JmxMetricsListener} to aggregate the metrics of all sessions.
+ */
+public class HistogramMetricsListener implements MetricsListener {
+
+    private final ConcurrentMap<String, OperationMetrics> operations = new ConcurrentHashMap<String, OperationMetrics>();
+    private final ConcurrentMap<String, CacheMetrics> caches = new ConcurrentHashMap<String, CacheMetrics>();
+
+    public HistogramMetricsListener() {
+    }
+
+    @Override
+    public void operationCompleted(String operation, String repositoryId, long duration, long bytesSent,
+            long bytesReceived, String outcome) {
+        OperationMetrics metrics = operations.get(operation);
+        if (metrics == null) {
+            OperationMetrics newMetrics = new OperationMetrics();
+            metrics = operations.putIfAbsent(operation, newMetrics);
+            if (metrics == null) {
+                metrics = newMetrics;
+            }
+        }
+
+        metrics.record(duration, bytesSent, bytesReceived, outcome);
+    }
+
+    @Override
+    public void cacheAccessed(String cache, String repositoryId, boolean hit) {
+        CacheMetrics metrics = caches.get(cache);
+        if (metrics == null) {
+            CacheMetrics newMetrics = new CacheMetrics();
+            metrics = caches.putIfAbsent(cache, newMetrics);
+            if (metrics == null) {
+                metrics = newMetrics;
+            }
+        }
+
+        metrics.record(hit);
+    }
+
+    /**
+     * Returns the names of all operations that have been recorded.
+     */
+    public Set<String> getOperations() {
+        return Collections.unmodifiableSet(new TreeSet<String>(operations.keySet()));
+    }
+
+    /**
+     * Returns the metrics of an operation or <code>null</code> if the
+     * operation has not been recorded.
+     */
+    public OperationMetrics getOperationMetrics(String operation) {
+        return operations.get(operation);
+    }
+
+    /**
+     * Returns a snapshot of the metrics of all operations, sorted by operation
+     * name.
+     */
+    public Map<String, OperationMetrics> getAllOperationMetrics() {
+        return Collections.unmodifiableMap(new TreeMap<String, OperationMetrics>(operations));
+    }
+
+    /**
+     * Returns the names of all caches that have been accessed.
+     */
+    public Set<String> getCaches() {
+        return Collections.unmodifiableSet(new TreeSet<String>(caches.keySet()));
+    }
+
+    /**
+     * Returns the metrics of a cache or <code>null</code> if the cache has
+     * not been accessed.
+     */
+    public CacheMetrics getCacheMetrics(String cache) {
+        return caches.get(cache);
+    }
+
+    /**
+     * Returns a snapshot of the metrics of all caches, sorted by cache name.
+     */
+    public Map<String, CacheMetrics> getAllCacheMetrics() {
+        return Collections.unmodifiableMap(new TreeMap<String, CacheMetrics>(caches));
+    }
+
+    /**
+     * Removes all metrics.
+     */
+    public void reset() {
+        operations.clear();
+        caches.clear();
+    }
+
+    /**
+     * Returns whether the outcome is an error: an exception or a HTTP status
+     * code of 400 or higher.
+     */
+    protected static boolean isError(String outcome) {
+        if (OUTCOME_OK.equals(outcome)) {
+            return false;
+        }
+
+        try {
+            return Integer.parseInt(outcome) >= 400;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Metrics of one operation.
+     */
+    public static class OperationMetrics {
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final AtomicLong errors = new AtomicLong();
+        private final AtomicLong bytesSent = new AtomicLong();
+        private final AtomicLong bytesReceived = new AtomicLong();
+        private final ConcurrentMap<String, AtomicLong> outcomes = new ConcurrentHashMap<String, AtomicLong>();
+
+        void record(long duration, long sent, long received, String outcome) {
+            latency.record(duration);
+
+            if (sent > 0) {
+                bytesSent.addAndGet(sent);
+            }
+            if (received > 0) {
+                bytesReceived.addAndGet(received);
+            }
+
+            String key = outcome == null ? OUTCOME_OK : outcome;
+            if (isError(key)) {
+                errors.incrementAndGet();
+            }
+
+            AtomicLong counter = outcomes.get(key);
+            if (counter == null) {
+                AtomicLong newCounter = new AtomicLong();
+                counter = outcomes.putIfAbsent(key, newCounter);
+                if (counter == null) {
+                    counter = newCounter;
+                }
+            }
+            counter.incrementAndGet();
+        }
+
+        public long getCount() {
+            return latency.getCount();
+        }
+
+        public long getErrorCount() {
+            return errors.get();
+        }
+
+        public LatencyHistogram getLatency() {
+            return latency;
+        }
+
+        public long getBytesSent() {
+            return bytesSent.get();
+        }
+
+        public long getBytesReceived() {
+            return bytesReceived.get();
+        }
+
+        /**
+         * Returns the number of calls per outcome.
+         */
+        public Map<String, Long> getOutcomes() {
+            Map<String, Long> result = new TreeMap<String, Long>();
+            for (Map.Entry<String, AtomicLong> entry : outcomes.entrySet()) {
+                result.put(entry.getKey(), entry.getValue().get());
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Metrics of one cache.
+     */
+    public static class CacheMetrics {
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+
+        void record(boolean hit) {
+            if (hit) {
+                hits.incrementAndGet();
+            } else {
+                misses.incrementAndGet();
+            }
+        }
+
+        public long getHits() {
+            return hits.get();
+        }
+
+        public long getMisses() {
+            return misses.get();
+        }
+
+        /**
+         * Returns the hit rate between 0 and 1.
+         */
+        public double getHitRate() {
+            long h = hits.get();
+            long total = h + misses.get();
+            return total == 0 ? 0 : (double) h / total;
+        }
+    }
+}
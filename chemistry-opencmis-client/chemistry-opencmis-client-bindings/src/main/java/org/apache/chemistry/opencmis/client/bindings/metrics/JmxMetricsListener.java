@@ -0,0 +1,264 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.bindings.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.chemistry.opencmis.client.bindings.metrics.HistogramMetricsListener.CacheMetrics;
+import org.apache.chemistry.opencmis.client.bindings.metrics.HistogramMetricsListener.OperationMetrics;
+import org.apache.chemistry.opencmis.client.bindings.spi.MetricsListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link MetricsListener} that aggregates the metrics of all sessions and
+ * exports them via JMX.
+ * <p>
+ * The first instance registers a {@link ClientMetricsMXBean} with the name
+ * {@value #OBJECT_NAME} at the platform MBean server.
+ */
+public class JmxMetricsListener implements MetricsListener {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JmxMetricsListener.class);
+
+    public static final String OBJECT_NAME = "org.apache.chemistry.opencmis.client:type=Metrics";
+
+    private static final HistogramMetricsListener METRICS = new HistogramMetricsListener();
+    private static boolean registered;
+    private static boolean failureLogged;
+
+    public JmxMetricsListener() {
+        register();
+    }
+
+    @Override
+    public void operationCompleted(String operation, String repositoryId, long duration, long bytesSent,
+            long bytesReceived, String outcome) {
+        METRICS.operationCompleted(operation, repositoryId, duration, bytesSent, bytesReceived, outcome);
+    }
+
+    @Override
+    public void cacheAccessed(String cache, String repositoryId, boolean hit) {
+        METRICS.cacheAccessed(cache, repositoryId, hit);
+    }
+
+    /**
+     * Returns the metrics of all sessions.
+     */
+    public static HistogramMetricsListener getMetrics() {
+        return METRICS;
+    }
+
+    /**
+     * Registers the MBean if it is not registered yet.
+     * <p>
+     * Each new listener tries again, but only the first failure is logged as
+     * a warning. Later failures are logged at debug level.
+     */
+    public static synchronized void register() {
+        if (registered) {
+            return;
+        }
+
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(new ClientMetrics(METRICS), new ObjectName(OBJECT_NAME));
+            registered = true;
+            failureLogged = false;
+        } catch (InstanceAlreadyExistsException e) {
+            if (failureLogged) {
+                LOG.debug("Another OpenCMIS client has already registered {}.", OBJECT_NAME);
+            } else {
+                LOG.warn("Another OpenCMIS client has already registered {}.", OBJECT_NAME);
+                failureLogged = true;
+            }
+        } catch (JMException e) {
+            if (failureLogged) {
+                LOG.debug("Cannot register MBean {}: {}", OBJECT_NAME, e.toString(), e);
+            } else {
+                LOG.error("Cannot register MBean {}: {}", OBJECT_NAME, e.toString(), e);
+                failureLogged = true;
+            }
+        }
+    }
+
+    /**
+     * Unregisters the MBean, for example when the web application that uses
+     * the client is stopped.
+     */
+    public static synchronized void unregister() {
+        if (!registered) {
+            return;
+        }
+
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (JMException e) {
+            LOG.error("Cannot unregister MBean {}: {}", OBJECT_NAME, e.toString(), e);
+        }
+
+        registered = false;
+    }
+
+    /**
+     * The MBean.
+     */
+    private static class ClientMetrics implements ClientMetricsMXBean {
+
+        private final HistogramMetricsListener metrics;
+
+        public ClientMetrics(HistogramMetricsListener metrics) {
+            this.metrics = metrics;
+        }
+
+        @Override
+        public Map<String, Long> getOperationCounts() {
+            Map<String, Long> result = new TreeMap<String, Long>();
+            for (Map.Entry<String, OperationMetrics> operation : metrics.getAllOperationMetrics().entrySet()) {
+                result.put(operation.getKey(), operation.getValue().getCount());
+            }
+            return result;
+        }
+
+        @Override
+        public Map<String, Long> getErrorCounts() {
+            Map<String, Long> result = new TreeMap<String, Long>();
+            for (Map.Entry<String, OperationMetrics> operation : metrics.getAllOperationMetrics().entrySet()) {
+                result.put(operation.getKey(), operation.getValue().getErrorCount());
+            }
+            return result;
+        }
+
+        @Override
+        public Map<String, Double> getMeanLatencies() {
+            Map<String, Double> result = new TreeMap<String, Double>();
+            for (Map.Entry<String, OperationMetrics> operation : metrics.getAllOperationMetrics().entrySet()) {
+                result.put(operation.getKey(), operation.getValue().getLatency().getMean() / 1000.0);
+            }
+            return result;
+        }
+
+        @Override
+        public Map<String, Double> getMedianLatencies() {
+            return getPercentileLatencies(50);
+        }
+
+        @Override
+        public Map<String, Double> get95thPercentileLatencies() {
+            return getPercentileLatencies(95);
+        }
+
+        @Override
+        public Map<String, Double> get99thPercentileLatencies() {
+            return getPercentileLatencies(99);
+        }
+
+        private Map<String, Double> getPercentileLatencies(double percentile) {
+            Map<String, Double> result = new TreeMap<String, Double>();
+            for (Map.Entry<String, OperationMetrics> operation : metrics.getAllOperationMetrics().entrySet()) {
+                result.put(operation.getKey(),
+                        operation.getValue().getLatency().getPercentile(percentile) / 1000.0);
+            }
+            return result;
+        }
+
+        @Override
+        public Map<String, Double> getMaxLatencies() {
+            Map<String, Double> result = new TreeMap<String, Double>();
+            for (Map.Entry<String, OperationMetrics> operation : metrics.getAllOperationMetrics().entrySet()) {
+                result.put(operation.getKey(), operation.getValue().getLatency().getMax() / 1000.0);
+            }
+            return result;
+        }
+
+        @Override
+        public Map<String, Long> getBytesSent() {
+            Map<String, Long> result = new TreeMap<String, Long>();
+            for (Map.Entry<String, OperationMetrics> operation : metrics.getAllOperationMetrics().entrySet()) {
+                result.put(operation.getKey(), operation.getValue().getBytesSent());
+            }
+            return result;
+        }
+
+        @Override
+        public Map<String, Long> getBytesReceived() {
+            Map<String, Long> result = new TreeMap<String, Long>();
+            for (Map.Entry<String, OperationMetrics> operation : metrics.getAllOperationMetrics().entrySet()) {
+                result.put(operation.getKey(), operation.getValue().getBytesReceived());
+            }
+            return result;
+        }
+
+        @Override
+        public Map<String, Long> getOutcomeCounts() {
+            Map<String, Long> result = new TreeMap<String, Long>();
+            for (Map.Entry<String, OperationMetrics> operation : metrics.getAllOperationMetrics().entrySet()) {
+                OperationMetrics operationMetrics = operation.getValue();
+                for (Map.Entry<String, Long> entry : operationMetrics.getOutcomes().entrySet()) {
+                    result.put(operation.getKey() + " " + entry.getKey(), entry.getValue());
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public Map<String, Long> getCacheHits() {
+            Map<String, Long> result = new TreeMap<String, Long>();
+            for (Map.Entry<String, CacheMetrics> cache : metrics.getAllCacheMetrics().entrySet()) {
+                result.put(cache.getKey(), cache.getValue().getHits());
+            }
+            return result;
+        }
+
+        @Override
+        public Map<String, Long> getCacheMisses() {
+            Map<String, Long> result = new TreeMap<String, Long>();
+            for (Map.Entry<String, CacheMetrics> cache : metrics.getAllCacheMetrics().entrySet()) {
+                result.put(cache.getKey(), cache.getValue().getMisses());
+            }
+            return result;
+        }
+
+        @Override
+        public Map<String, Double> getCacheHitRates() {
+            Map<String, Double> result = new TreeMap<String, Double>();
+            for (Map.Entry<String, CacheMetrics> cache : metrics.getAllCacheMetrics().entrySet()) {
+                CacheMetrics cacheMetrics = cache.getValue();
+                result.put(cache.getKey(), cacheMetrics.getHitRate());
+            }
+            return result;
+        }
+
+        @Override
+        public void reset() {
+            metrics.reset();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.bindings.spi;
+
+/**
+ * Receives request and cache metrics from the client bindings.
+ * <p>
+ * The listener is configured with the session parameter
+ * {@link org.apache.chemistry.opencmis.commons.SessionParameter#METRICS_LISTENER_CLASS}.
+ * Implementations must have a public no-argument constructor and must be
+ * thread-safe. They are called synchronously by the thread that executes the
+ * request and should return quickly.
+ */
+public interface MetricsListener {
+
+    /** Outcome of an operation that has completed without an exception. */
+    String OUTCOME_OK = "OK";
+
+    /**
+     * Called when a binding operation or a HTTP request has completed.
+     * <p>
+     * Binding operations are reported with the name of the service method
+     * (for example "getObject"), HTTP requests with "HTTP" and the method (for
+     * example "HTTP GET").
+     *
+     * @param operation
+     *            the operation name
+     * @param repositoryId
+     *            the repository id or <code>null</code> if it is not known
+     * @param duration
+     *            the duration in nanoseconds
+     * @param bytesSent
+     *            the number of bytes sent or -1 if unknown
+     * @param bytesReceived
+     *            the number of bytes received or -1 if unknown
+     * @param outcome
+     *            {@link #OUTCOME_OK}, the HTTP status code for HTTP requests,
+     *            or the simple class name of the exception
+     */
+    void operationCompleted(String operation, String repositoryId, long duration, long bytesSent,
+            long bytesReceived, String outcome);
+
+    /**
+     * Called when a cache has been asked for an entry.
+     *
+     * @param cache
+     *            the cache name (for example "repositoryInfo",
+     *            "typeDefinition", "link" or "object")
+     * @param repositoryId
+     *            the repository id or <code>null</code> if it is not known
+     * @param hit
+     *            <code>true</code> if the entry was found,
+     *            <code>false</code> otherwise
+     */
+    void cacheAccessed(String cache, String repositoryId, boolean hit);
+}
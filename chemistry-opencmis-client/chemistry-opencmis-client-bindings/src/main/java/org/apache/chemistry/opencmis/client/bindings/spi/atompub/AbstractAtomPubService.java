@@ -36,6 +36,7 @@ import org.apache.chemistry.opencmis.client.bindings.impl.CmisBindingsHelper;
 import org.apache.chemistry.opencmis.client.bindings.impl.RepositoryInfoCache;
 import org.apache.chemistry.opencmis.client.bindings.spi.BindingSession;
 import org.apache.chemistry.opencmis.client.bindings.spi.LinkAccess;
+import org.apache.chemistry.opencmis.client.bindings.spi.MetricsListener;
 import org.apache.chemistry.opencmis.client.bindings.spi.atompub.objects.AtomAcl;
 import org.apache.chemistry.opencmis.client.bindings.spi.atompub.objects.AtomBase;
 import org.apache.chemistry.opencmis.client.bindings.spi.atompub.objects.AtomElement;
@@ -188,6 +189,16 @@ public abstract class AbstractAtomPubService implements LinkAccess {
         return linkCache;
     }
 
+    /**
+     * Reports a link cache access to the metrics listener.
+     */
+    protected void cacheAccessed(String cache, String repositoryId, boolean hit) {
+        MetricsListener listener = CmisBindingsHelper.getMetricsListener(getSession());
+        if (listener != null) {
+            listener.cacheAccessed(cache, repositoryId, hit);
+        }
+    }
+
     /**
      * Gets a link from the cache.
      */
@@ -217,6 +228,7 @@ public abstract class AbstractAtomPubService implements LinkAccess {
     @Override
     public String loadLink(String repositoryId, String id, String rel, String type) {
         String link = getLink(repositoryId, id, rel, type);
+        cacheAccessed("link", repositoryId, link != null);
         if (link == null) {
             getObjectInternal(repositoryId, IdentifierType.ID, id, ReturnVersion.THIS, "cmis:objectId", Boolean.FALSE,
                     IncludeRelationships.NONE, "cmis:none", Boolean.FALSE, Boolean.FALSE, null);
@@ -329,6 +341,7 @@ public abstract class AbstractAtomPubService implements LinkAccess {
      */
     protected String loadTypeLink(String repositoryId, String typeId, String rel, String type) {
         String link = getTypeLink(repositoryId, typeId, rel, type);
+        cacheAccessed("typeLink", repositoryId, link != null);
         if (link == null) {
             getTypeDefinitionInternal(repositoryId, typeId);
             link = getTypeLink(repositoryId, typeId, rel, type);
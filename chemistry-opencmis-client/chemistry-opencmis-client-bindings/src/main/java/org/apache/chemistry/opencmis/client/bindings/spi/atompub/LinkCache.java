@@ -25,6 +25,8 @@ import java.util.Set;
 
 import org.apache.chemistry.opencmis.client.bindings.cache.Cache;
 import org.apache.chemistry.opencmis.client.bindings.cache.impl.CacheImpl;
+import org.apache.chemistry.opencmis.client.bindings.cache.impl.ConcurrentBindingCacheImpl;
+import org.apache.chemistry.opencmis.client.bindings.cache.impl.ConcurrentLruCacheLevelImpl;
 import org.apache.chemistry.opencmis.client.bindings.cache.impl.ContentTypeCacheLevelImpl;
 import org.apache.chemistry.opencmis.client.bindings.cache.impl.LruCacheLevelImpl;
 import org.apache.chemistry.opencmis.client.bindings.cache.impl.MapCacheLevelImpl;
@@ -85,43 +87,67 @@ public class LinkCache implements Serializable {
             objCount = SessionParameterDefaults.CACHE_SIZE_LINKS;
         }
 
-        linkCache = new CacheImpl("Link Cache");
+        boolean concurrent = session.get(SessionParameter.CACHE_CONCURRENT, false);
+
+        linkCache = createCache("Link Cache", concurrent);
         linkCache.initialize(new String[] {
-                MapCacheLevelImpl.class.getName() + " " + MapCacheLevelImpl.CAPACITY + "=" + repCount, // repository
-                LruCacheLevelImpl.class.getName() + " " + LruCacheLevelImpl.MAX_ENTRIES + "=" + objCount, // id
-                MapCacheLevelImpl.class.getName() + " " + MapCacheLevelImpl.CAPACITY + "=12", // rel
-                ContentTypeCacheLevelImpl.class.getName() + " " + MapCacheLevelImpl.CAPACITY + "=3,"
-                        + MapCacheLevelImpl.SINGLE_VALUE + "=true" // type
+                mapLevel(repCount, concurrent), // repository
+                lruLevel(objCount, concurrent), // id
+                mapLevel(12, concurrent), // rel
+                contentTypeLevel(concurrent) // type
         });
 
-        typeLinkCache = new CacheImpl("Type Link Cache");
+        typeLinkCache = createCache("Type Link Cache", concurrent);
         typeLinkCache.initialize(new String[] {
-                MapCacheLevelImpl.class.getName() + " " + MapCacheLevelImpl.CAPACITY + "=" + repCount, // repository
-                LruCacheLevelImpl.class.getName() + " " + LruCacheLevelImpl.MAX_ENTRIES + "=" + typeCount, // id
-                MapCacheLevelImpl.class.getName() + " " + MapCacheLevelImpl.CAPACITY + "=12", // rel
-                ContentTypeCacheLevelImpl.class.getName() + " " + MapCacheLevelImpl.CAPACITY + "=3,"
-                        + MapCacheLevelImpl.SINGLE_VALUE + "=true"// type
+                mapLevel(repCount, concurrent), // repository
+                lruLevel(typeCount, concurrent), // id
+                mapLevel(12, concurrent), // rel
+                contentTypeLevel(concurrent) // type
         });
 
-        collectionLinkCache = new CacheImpl("Collection Link Cache");
+        collectionLinkCache = createCache("Collection Link Cache", concurrent);
         collectionLinkCache.initialize(new String[] {
-                MapCacheLevelImpl.class.getName() + " " + MapCacheLevelImpl.CAPACITY + "=" + repCount, // repository
-                MapCacheLevelImpl.class.getName() + " " + MapCacheLevelImpl.CAPACITY + "=8" // collection
+                mapLevel(repCount, concurrent), // repository
+                mapLevel(8, concurrent) // collection
         });
 
-        templateCache = new CacheImpl("URI Template Cache");
+        templateCache = createCache("URI Template Cache", concurrent);
         templateCache.initialize(new String[] {
-                MapCacheLevelImpl.class.getName() + " " + MapCacheLevelImpl.CAPACITY + "=" + repCount, // repository
-                MapCacheLevelImpl.class.getName() + " " + MapCacheLevelImpl.CAPACITY + "=6" // type
+                mapLevel(repCount, concurrent), // repository
+                mapLevel(6, concurrent) // type
         });
 
-        repositoryLinkCache = new CacheImpl("Repository Link Cache");
+        repositoryLinkCache = createCache("Repository Link Cache", concurrent);
         repositoryLinkCache.initialize(new String[] {
-                MapCacheLevelImpl.class.getName() + " " + MapCacheLevelImpl.CAPACITY + "=" + repCount, // repository
-                MapCacheLevelImpl.class.getName() + " " + MapCacheLevelImpl.CAPACITY + "=6" // rel
+                mapLevel(repCount, concurrent), // repository
+                mapLevel(6, concurrent) // rel
         });
     }
 
+    private static Cache createCache(String name, boolean concurrent) {
+        return concurrent ? new ConcurrentBindingCacheImpl(name) : new CacheImpl(name);
+    }
+
+    private static String mapLevel(int capacity, boolean concurrent) {
+        return MapCacheLevelImpl.class.getName() + " " + MapCacheLevelImpl.CAPACITY + "=" + capacity
+                + (concurrent ? "," + MapCacheLevelImpl.CONCURRENT + "=true" : "");
+    }
+
+    private static String lruLevel(int maxEntries, boolean concurrent) {
+        if (concurrent) {
+            return ConcurrentLruCacheLevelImpl.class.getName() + " " + ConcurrentLruCacheLevelImpl.MAX_ENTRIES + "="
+                    + maxEntries;
+        }
+
+        return LruCacheLevelImpl.class.getName() + " " + LruCacheLevelImpl.MAX_ENTRIES + "=" + maxEntries;
+    }
+
+    private static String contentTypeLevel(boolean concurrent) {
+        return ContentTypeCacheLevelImpl.class.getName() + " " + MapCacheLevelImpl.CAPACITY + "=3,"
+                + MapCacheLevelImpl.SINGLE_VALUE + "=true"
+                + (concurrent ? "," + MapCacheLevelImpl.CONCURRENT + "=true" : "");
+    }
+
     /**
      * Adds a link.
      */
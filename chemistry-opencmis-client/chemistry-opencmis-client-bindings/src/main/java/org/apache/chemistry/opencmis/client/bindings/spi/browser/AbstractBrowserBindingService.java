@@ -64,10 +64,13 @@ import org.apache.chemistry.opencmis.commons.impl.Constants;
 import org.apache.chemistry.opencmis.commons.impl.IOUtils;
 import org.apache.chemistry.opencmis.commons.impl.JSONConstants;
 import org.apache.chemistry.opencmis.commons.impl.JSONConverter;
+import org.apache.chemistry.opencmis.commons.impl.TypeCache;
 import org.apache.chemistry.opencmis.commons.impl.UrlBuilder;
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.RepositoryInfoBrowserBindingImpl;
 import org.apache.chemistry.opencmis.commons.impl.json.JSONObject;
 import org.apache.chemistry.opencmis.commons.impl.json.parser.ContainerFactory;
+import org.apache.chemistry.opencmis.commons.impl.json.parser.ConvertingContentHandler;
+import org.apache.chemistry.opencmis.commons.impl.json.parser.ConvertingContentHandler.ItemConverter;
 import org.apache.chemistry.opencmis.commons.impl.json.parser.JSONParseException;
 import org.apache.chemistry.opencmis.commons.impl.json.parser.JSONParser;
 import org.apache.chemistry.opencmis.commons.spi.Holder;
@@ -343,6 +346,79 @@ public abstract class AbstractBrowserBindingService implements LinkAccess {
 
     // ---- helpers ----
 
+    /**
+     * Returns a converter for the objects of an object list.
+     * 
+     * @see #getParseTypeCache(TypeCache)
+     */
+    protected static ItemConverter getObjectConverter(TypeCache typeCache) {
+        final TypeCache parseTypeCache = getParseTypeCache(typeCache);
+        return new ItemConverter() {
+            @Override
+            public Object convert(Map<String, Object> json) {
+                try {
+                    return JSONConverter.convertObject(json, parseTypeCache);
+                } catch (ClientTypeCacheImpl.TypeNotCachedException e) {
+                    return json;
+                }
+            }
+        };
+    }
+
+    /**
+     * Returns a converter for the objects of a folder list.
+     * 
+     * @see #getParseTypeCache(TypeCache)
+     */
+    protected static ItemConverter getObjectInFolderConverter(TypeCache typeCache) {
+        final TypeCache parseTypeCache = getParseTypeCache(typeCache);
+        return new ItemConverter() {
+            @Override
+            public Object convert(Map<String, Object> json) {
+                try {
+                    return JSONConverter.convertObjectInFolder(json, parseTypeCache);
+                } catch (ClientTypeCacheImpl.TypeNotCachedException e) {
+                    return json;
+                }
+            }
+        };
+    }
+
+    /**
+     * Returns a converter for the containers of a descendants or folder tree.
+     * 
+     * @see #getParseTypeCache(TypeCache)
+     */
+    protected static ItemConverter getDescendantConverter(TypeCache typeCache) {
+        final TypeCache parseTypeCache = getParseTypeCache(typeCache);
+        return new ItemConverter() {
+            @Override
+            public Object convert(Map<String, Object> json) {
+                try {
+                    return JSONConverter.convertDescendant(json, parseTypeCache);
+                } catch (ClientTypeCacheImpl.TypeNotCachedException e) {
+                    return json;
+                }
+            }
+        };
+    }
+
+    /**
+     * Returns the type cache the converters use while a response is parsed.
+     * <p>
+     * The connection of the response is in use until the response has been
+     * parsed, so the converters must not fetch types. Items with types that
+     * are not cached yet are kept as JSON and converted with the full type
+     * cache after the response has been closed.
+     */
+    private static TypeCache getParseTypeCache(TypeCache typeCache) {
+        if (typeCache instanceof ClientTypeCacheImpl) {
+            return ((ClientTypeCacheImpl) typeCache).getCachedTypesOnly();
+        }
+
+        return typeCache;
+    }
+
     /**
      * Parses an object from an input stream.
      */
@@ -371,6 +447,42 @@ public abstract class AbstractBrowserBindingService implements LinkAccess {
         throw new CmisConnectionException("Unexpected object!");
     }
 
+    /**
+     * Parses an object from an input stream and converts the elements of the
+     * array at the given path while the stream is parsed, so that the JSON
+     * tree of the whole list is never built.
+     * 
+     * @see ConvertingContentHandler
+     */
+    @SuppressWarnings("unchecked")
+    protected Map<String, Object> parseObject(InputStream stream, String charset, ItemConverter converter,
+            String... path) {
+        Object obj = parse(stream, charset, new ConvertingContentHandler(converter, path));
+
+        if (obj instanceof Map) {
+            return (Map<String, Object>) obj;
+        }
+
+        throw new CmisConnectionException("Unexpected object!");
+    }
+
+    /**
+     * Parses an array from an input stream and converts its elements while
+     * the stream is parsed.
+     * 
+     * @see ConvertingContentHandler
+     */
+    @SuppressWarnings("unchecked")
+    protected List<Object> parseArray(InputStream stream, String charset, ItemConverter converter) {
+        Object obj = parse(stream, charset, new ConvertingContentHandler(converter));
+
+        if (obj instanceof List) {
+            return (List<Object>) obj;
+        }
+
+        throw new CmisConnectionException("Unexpected object!");
+    }
+
     /**
      * Parses an input stream.
      */
@@ -397,6 +509,34 @@ public abstract class AbstractBrowserBindingService implements LinkAccess {
         return obj;
     }
 
+    /**
+     * Parses an input stream with a converting content handler.
+     */
+    private Object parse(InputStream stream, String charset, ConvertingContentHandler handler) {
+
+        InputStreamReader reader = null;
+
+        try {
+            reader = new InputStreamReader(stream, charset);
+            JSONParser parser = new JSONParser();
+            parser.parse(reader, handler);
+        } catch (CmisBaseException e) {
+            // thrown by the converter
+            throw e;
+        } catch (JSONParseException e) {
+            throw new CmisConnectionException("Parsing exception: " + e.getMessage(), e);
+        } catch (Exception e) {
+            throw new CmisConnectionException("Parsing exception!", e);
+        } finally {
+            IOUtils.consumeAndClose(reader);
+            if (reader == null) {
+                IOUtils.closeQuietly(stream);
+            }
+        }
+
+        return handler.getResult();
+    }
+
     /**
      * Performs a GET on an URL, checks the response code and returns the
      * result.
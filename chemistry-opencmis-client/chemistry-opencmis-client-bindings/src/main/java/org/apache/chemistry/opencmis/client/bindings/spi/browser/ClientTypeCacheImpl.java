@@ -50,6 +50,45 @@ public class ClientTypeCacheImpl implements TypeCache {
         return type;
     }
 
+    /**
+     * Returns a view of this cache that only returns types that are already
+     * in the type definition cache and throws a {@link TypeNotCachedException}
+     * for all other types.
+     * <p>
+     * The converters use it while a response is parsed. Fetching a type at
+     * that point would need a second connection while the response still
+     * holds the first one, which can exhaust a small connection pool.
+     */
+    public TypeCache getCachedTypesOnly() {
+        return new TypeCache() {
+            @Override
+            public TypeDefinition getTypeDefinition(String typeId) {
+                TypeDefinition type = CmisBindingsHelper.getTypeDefinitionCache(service.getSession()).get(
+                        repositoryId, typeId);
+                if (type == null) {
+                    throw new TypeNotCachedException(typeId);
+                }
+
+                return type;
+            }
+
+            @Override
+            public TypeDefinition reloadTypeDefinition(String typeId) {
+                throw new TypeNotCachedException(typeId);
+            }
+
+            @Override
+            public TypeDefinition getTypeDefinitionForObject(String objectId) {
+                return ClientTypeCacheImpl.this.getTypeDefinitionForObject(objectId);
+            }
+
+            @Override
+            public PropertyDefinition<?> getPropertyDefinition(String propId) {
+                return ClientTypeCacheImpl.this.getPropertyDefinition(propId);
+            }
+        };
+    }
+
     @Override
     public TypeDefinition reloadTypeDefinition(String typeId) {
 
@@ -75,4 +114,17 @@ public class ClientTypeCacheImpl implements TypeCache {
         assert false;
         return null;
     }
+
+    /**
+     * Thrown by {@link ClientTypeCacheImpl#getCachedTypesOnly()} if a type
+     * would have to be fetched from the repository.
+     */
+    static class TypeNotCachedException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        public TypeNotCachedException(String typeId) {
+            super("Type '" + typeId + "' is not cached!");
+        }
+    }
 }
@@ -78,7 +78,8 @@ public class DiscoveryServiceImpl extends AbstractBrowserBindingService implemen
 
         TypeCache typeCache = new ClientTypeCacheImpl(repositoryId, this);
 
-        Map<String, Object> json = parseObject(resp.getStream(), resp.getCharset());
+        Map<String, Object> json = parseObject(resp.getStream(), resp.getCharset(), getObjectConverter(typeCache),
+                JSONConstants.JSON_QUERYRESULTLIST_RESULTS);
         return JSONConverter.convertObjectList(json, typeCache, true);
     }
 
@@ -97,7 +98,9 @@ public class DiscoveryServiceImpl extends AbstractBrowserBindingService implemen
 
         // read and parse
         Response resp = read(url);
-        Map<String, Object> json = parseObject(resp.getStream(), resp.getCharset());
+        TypeCache typeCache = new ClientTypeCacheImpl(repositoryId, this);
+        Map<String, Object> json = parseObject(resp.getStream(), resp.getCharset(), getObjectConverter(typeCache),
+                JSONConstants.JSON_OBJECTLIST_OBJECTS);
 
         if (changeLogToken != null && json != null) {
             Object token = json.get(JSONConstants.JSON_OBJECTLIST_CHANGE_LOG_TOKEN);
@@ -106,8 +109,6 @@ public class DiscoveryServiceImpl extends AbstractBrowserBindingService implemen
             }
         }
 
-        TypeCache typeCache = new ClientTypeCacheImpl(repositoryId, this);
-
         return JSONConverter.convertObjectList(json, typeCache, false);
     }
 }
@@ -32,6 +32,7 @@ import org.apache.chemistry.opencmis.commons.data.ObjectList;
 import org.apache.chemistry.opencmis.commons.data.ObjectParentData;
 import org.apache.chemistry.opencmis.commons.enums.IncludeRelationships;
 import org.apache.chemistry.opencmis.commons.impl.Constants;
+import org.apache.chemistry.opencmis.commons.impl.JSONConstants;
 import org.apache.chemistry.opencmis.commons.impl.JSONConverter;
 import org.apache.chemistry.opencmis.commons.impl.TypeCache;
 import org.apache.chemistry.opencmis.commons.impl.UrlBuilder;
@@ -68,9 +69,9 @@ public class NavigationServiceImpl extends AbstractBrowserBindingService impleme
 
         // read and parse
         Response resp = read(url);
-        Map<String, Object> json = parseObject(resp.getStream(), resp.getCharset());
-
         TypeCache typeCache = new ClientTypeCacheImpl(repositoryId, this);
+        Map<String, Object> json = parseObject(resp.getStream(), resp.getCharset(),
+                getObjectInFolderConverter(typeCache), JSONConstants.JSON_OBJECTINFOLDERLIST_OBJECTS);
 
         return JSONConverter.convertObjectInFolderList(json, typeCache);
     }
@@ -92,9 +93,8 @@ public class NavigationServiceImpl extends AbstractBrowserBindingService impleme
 
         // read and parse
         Response resp = read(url);
-        List<Object> json = parseArray(resp.getStream(), resp.getCharset());
-
         TypeCache typeCache = new ClientTypeCacheImpl(repositoryId, this);
+        List<Object> json = parseArray(resp.getStream(), resp.getCharset(), getDescendantConverter(typeCache));
 
         return JSONConverter.convertDescendants(json, typeCache);
     }
@@ -116,9 +116,8 @@ public class NavigationServiceImpl extends AbstractBrowserBindingService impleme
 
         // read and parse
         Response resp = read(url);
-        List<Object> json = parseArray(resp.getStream(), resp.getCharset());
-
         TypeCache typeCache = new ClientTypeCacheImpl(repositoryId, this);
+        List<Object> json = parseArray(resp.getStream(), resp.getCharset(), getDescendantConverter(typeCache));
 
         return JSONConverter.convertDescendants(json, typeCache);
     }
@@ -182,9 +181,9 @@ public class NavigationServiceImpl extends AbstractBrowserBindingService impleme
 
         // read and parse
         Response resp = read(url);
-        Map<String, Object> json = parseObject(resp.getStream(), resp.getCharset());
-
         TypeCache typeCache = new ClientTypeCacheImpl(repositoryId, this);
+        Map<String, Object> json = parseObject(resp.getStream(), resp.getCharset(), getObjectConverter(typeCache),
+                JSONConstants.JSON_OBJECTLIST_OBJECTS);
 
         return JSONConverter.convertObjectList(json, typeCache, false);
     }
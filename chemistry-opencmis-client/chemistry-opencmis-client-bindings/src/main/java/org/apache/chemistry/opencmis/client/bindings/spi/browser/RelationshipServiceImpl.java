@@ -27,6 +27,7 @@ import org.apache.chemistry.opencmis.commons.data.ExtensionsData;
 import org.apache.chemistry.opencmis.commons.data.ObjectList;
 import org.apache.chemistry.opencmis.commons.enums.RelationshipDirection;
 import org.apache.chemistry.opencmis.commons.impl.Constants;
+import org.apache.chemistry.opencmis.commons.impl.JSONConstants;
 import org.apache.chemistry.opencmis.commons.impl.JSONConverter;
 import org.apache.chemistry.opencmis.commons.impl.TypeCache;
 import org.apache.chemistry.opencmis.commons.impl.UrlBuilder;
@@ -62,9 +63,9 @@ public class RelationshipServiceImpl extends AbstractBrowserBindingService imple
 
         // read and parse
         Response resp = read(url);
-        Map<String, Object> json = parseObject(resp.getStream(), resp.getCharset());
-
         TypeCache typeCache = new ClientTypeCacheImpl(repositoryId, this);
+        Map<String, Object> json = parseObject(resp.getStream(), resp.getCharset(), getObjectConverter(typeCache),
+                JSONConstants.JSON_OBJECTLIST_OBJECTS);
 
         return JSONConverter.convertObjectList(json, typeCache, false);
     }
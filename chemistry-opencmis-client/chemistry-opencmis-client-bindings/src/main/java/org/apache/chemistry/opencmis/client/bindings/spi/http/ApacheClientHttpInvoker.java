@@ -29,6 +29,7 @@ import javax.net.ssl.SSLSocketFactory;
 
 import org.apache.chemistry.opencmis.client.bindings.impl.CmisBindingsHelper;
 import org.apache.chemistry.opencmis.client.bindings.spi.BindingSession;
+import org.apache.chemistry.opencmis.commons.SessionParameter;
 import org.apache.chemistry.opencmis.commons.impl.UrlBuilder;
 import org.apache.chemistry.opencmis.commons.spi.AuthenticationProvider;
 import org.apache.http.client.params.ClientPNames;
@@ -76,8 +77,9 @@ public class ApacheClientHttpInvoker extends AbstractApacheClientHttpInvoker {
             } catch (NumberFormatException nfe) {
                 // ignore
             }
-            connManager.setDefaultMaxPerRoute(maxConn);
-            connManager.setMaxTotal(4 * maxConn);
+            connManager.setDefaultMaxPerRoute(session.get(SessionParameter.HTTP_POOL_MAX_CONNECTIONS_PER_HOST,
+                    maxConn));
+            connManager.setMaxTotal(session.get(SessionParameter.HTTP_POOL_MAX_CONNECTIONS, 4 * maxConn));
         }
 
         // set up proxy
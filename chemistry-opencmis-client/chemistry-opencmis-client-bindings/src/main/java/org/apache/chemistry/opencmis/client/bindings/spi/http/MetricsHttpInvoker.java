@@ -0,0 +1,268 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.bindings.spi.http;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.chemistry.opencmis.client.bindings.spi.BindingSession;
+import org.apache.chemistry.opencmis.client.bindings.spi.MetricsListener;
+import org.apache.chemistry.opencmis.commons.impl.UrlBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A HTTP Invoker that reports the duration, the transferred bytes and the
+ * status code of each request to a {@link MetricsListener}.
+ * <p>
+ * The bindings wrap the configured HTTP Invoker with this invoker if a metrics
+ * listener is configured. If the response has a body, the request is reported
+ * when the response stream is closed. The duration then includes reading the
+ * body and the received bytes are the bytes read from the (decoded) stream.
+ * Responses without a body are reported when the response headers have been
+ * received, with the <code>Content-Length</code> header as received bytes.
+ */
+public class MetricsHttpInvoker implements HttpInvoker {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MetricsHttpInvoker.class);
+
+    private final HttpInvoker invoker;
+    private final MetricsListener listener;
+
+    public MetricsHttpInvoker(HttpInvoker invoker, MetricsListener listener) {
+        assert invoker != null;
+        assert listener != null;
+
+        this.invoker = invoker;
+        this.listener = listener;
+    }
+
+    /**
+     * Returns the wrapped HTTP Invoker.
+     */
+    public HttpInvoker getHttpInvoker() {
+        return invoker;
+    }
+
+    @Override
+    public Response invokeGET(UrlBuilder url, BindingSession session) {
+        long start = System.nanoTime();
+        try {
+            Response resp = invoker.invokeGET(url, session);
+            report("HTTP GET", start, -1, resp);
+            return resp;
+        } catch (RuntimeException e) {
+            report("HTTP GET", start, -1, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public Response invokeGET(UrlBuilder url, BindingSession session, BigInteger offset, BigInteger length) {
+        long start = System.nanoTime();
+        try {
+            Response resp = invoker.invokeGET(url, session, offset, length);
+            report("HTTP GET", start, -1, resp);
+            return resp;
+        } catch (RuntimeException e) {
+            report("HTTP GET", start, -1, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public Response invokePOST(UrlBuilder url, String contentType, Output writer, BindingSession session) {
+        CountingOutput countingWriter = writer == null ? null : new CountingOutput(writer);
+        long start = System.nanoTime();
+        try {
+            Response resp = invoker.invokePOST(url, contentType, countingWriter, session);
+            report("HTTP POST", start, getBytesSent(countingWriter), resp);
+            return resp;
+        } catch (RuntimeException e) {
+            report("HTTP POST", start, getBytesSent(countingWriter), e);
+            throw e;
+        }
+    }
+
+    @Override
+    public Response invokePUT(UrlBuilder url, String contentType, Map<String, String> headers, Output writer,
+            BindingSession session) {
+        CountingOutput countingWriter = writer == null ? null : new CountingOutput(writer);
+        long start = System.nanoTime();
+        try {
+            Response resp = invoker.invokePUT(url, contentType, headers, countingWriter, session);
+            report("HTTP PUT", start, getBytesSent(countingWriter), resp);
+            return resp;
+        } catch (RuntimeException e) {
+            report("HTTP PUT", start, getBytesSent(countingWriter), e);
+            throw e;
+        }
+    }
+
+    @Override
+    public Response invokeDELETE(UrlBuilder url, BindingSession session) {
+        long start = System.nanoTime();
+        try {
+            Response resp = invoker.invokeDELETE(url, session);
+            report("HTTP DELETE", start, -1, resp);
+            return resp;
+        } catch (RuntimeException e) {
+            report("HTTP DELETE", start, -1, e);
+            throw e;
+        }
+    }
+
+    private static long getBytesSent(CountingOutput writer) {
+        return writer == null ? 0 : writer.getCount();
+    }
+
+    private void report(String operation, long start, long bytesSent, Response resp) {
+        String outcome = String.valueOf(resp.getResponseCode());
+
+        if (resp.hasResponseStream() && resp.getStream() != null) {
+            // report when the body has been read
+            resp.setStream(new CountingInputStream(resp.getStream(), operation, start, bytesSent, outcome));
+            return;
+        }
+
+        long bytesReceived = -1;
+        BigInteger contentLength = resp.getContentLengthHeader();
+        if (contentLength != null) {
+            bytesReceived = contentLength.longValue();
+        }
+
+        report(operation, System.nanoTime() - start, bytesSent, bytesReceived, outcome);
+    }
+
+    private void report(String operation, long start, long bytesSent, RuntimeException e) {
+        report(operation, System.nanoTime() - start, bytesSent, -1, e.getClass().getSimpleName());
+    }
+
+    private void report(String operation, long duration, long bytesSent, long bytesReceived, String outcome) {
+        try {
+            listener.operationCompleted(operation, null, duration, bytesSent, bytesReceived, outcome);
+        } catch (RuntimeException e) {
+            LOG.warn("Metrics listener failed: {}", e.toString(), e);
+        }
+    }
+
+    /**
+     * Counts the bytes read from a response stream and reports the request
+     * when the stream is closed.
+     */
+    private class CountingInputStream extends FilterInputStream {
+        private final String operation;
+        private final long start;
+        private final long bytesSent;
+        private final String outcome;
+        private final AtomicBoolean reported = new AtomicBoolean(false);
+        private long count;
+
+        public CountingInputStream(InputStream stream, String operation, long start, long bytesSent, String outcome) {
+            super(stream);
+            this.operation = operation;
+            this.start = start;
+            this.bytesSent = bytesSent;
+            this.outcome = outcome;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            if (skipped > 0) {
+                count += skipped;
+            }
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            // a reset would count bytes twice
+            return false;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                if (reported.compareAndSet(false, true)) {
+                    report(operation, System.nanoTime() - start, bytesSent, count, outcome);
+                }
+            }
+        }
+    }
+
+    /**
+     * Counts the bytes written by an {@link Output}.
+     */
+    private static class CountingOutput implements Output {
+        private final Output writer;
+        private volatile long count;
+
+        public CountingOutput(Output writer) {
+            this.writer = writer;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        @Override
+        public void write(OutputStream out) throws Exception {
+            writer.write(new FilterOutputStream(out) {
+                @Override
+                public void write(int b) throws IOException {
+                    out.write(b);
+                    count++;
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    out.write(b, off, len);
+                    count += len;
+                }
+            });
+        }
+    }
+}
@@ -263,10 +263,23 @@ public class OkHttpHttpInvoker implements HttpInvoker {
      * 
      * @return the builder
      */
-    @SuppressWarnings("deprecation")
     protected OkHttpClient.Builder createClientBuilder(BindingSession session) {
-        OkHttpClient.Builder clientBuilder = new OkHttpClient.Builder();
+        return configureClientBuilder(new OkHttpClient.Builder(), session);
+    }
 
+    /**
+     * Applies the timeouts and SSL settings of the session to the given
+     * builder.
+     * 
+     * @param clientBuilder
+     *            the builder
+     * @param session
+     *            the binding session
+     * 
+     * @return the builder
+     */
+    @SuppressWarnings("deprecation")
+    protected OkHttpClient.Builder configureClientBuilder(OkHttpClient.Builder clientBuilder, BindingSession session) {
         // timeouts
         int connectTimeout = session.get(SessionParameter.CONNECT_TIMEOUT, -1);
         if (connectTimeout >= 0) {
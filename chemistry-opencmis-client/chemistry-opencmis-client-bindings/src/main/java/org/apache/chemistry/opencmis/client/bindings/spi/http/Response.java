@@ -254,6 +254,13 @@ public class Response {
         return stream;
     }
 
+    /**
+     * Replaces the response stream, for example with a stream that wraps it.
+     */
+    void setStream(InputStream stream) {
+        this.stream = stream;
+    }
+
     public String getErrorContent() {
         return errorContent;
     }
@@ -0,0 +1,609 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.bindings.spi.http;
+
+import java.math.BigInteger;
+import java.util.Date;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.chemistry.opencmis.client.bindings.spi.BindingSession;
+import org.apache.chemistry.opencmis.commons.SessionParameter;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisBaseException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisConnectionException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
+import org.apache.chemistry.opencmis.commons.impl.ClassLoaderUtil;
+import org.apache.chemistry.opencmis.commons.impl.DateTimeHelper;
+import org.apache.chemistry.opencmis.commons.impl.UrlBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A HTTP Invoker that retries failed requests and protects the server from
+ * retry storms.
+ *
+ * This HTTP Invoker is only a wrapper that delegates the work to another HTTP
+ * Invoker, which is defined with the session parameter
+ * {@link SessionParameter#HTTP_RETRY_DELEGATE_CLASS}.
+ * <p>
+ * GET requests that fail with a connection error or with the status codes
+ * 429, 502, 503 or 504 are retried with a jittered exponential backoff. A
+ * <code>Retry-After</code> header sent by the server replaces the computed
+ * delay. POST and PUT requests are never retried because their request body
+ * cannot be replayed.
+ * <p>
+ * DELETE requests are only retried if
+ * {@link SessionParameter#HTTP_RETRY_DELETE} is set to <code>true</code>. If
+ * the connection fails after the server has deleted the object, the retry
+ * fails with a 404 and the client reports a
+ * <code>CmisObjectNotFoundException</code> for a delete that succeeded.
+ * <p>
+ * Each endpoint (scheme, host and port) has a circuit breaker that is shared
+ * by all sessions. It opens after a number of consecutive failures and
+ * rejects all requests until the open time has passed. Then a single trial
+ * request is let through, which either closes the circuit breaker or opens it
+ * again. If the circuit breaker opens while a request is retried, the retries
+ * stop and the last failure is reported. Optionally, the requests per
+ * endpoint are throttled by a token bucket.
+ */
+public class RetryingHttpInvoker implements HttpInvoker {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RetryingHttpInvoker.class);
+
+    public static final int DEFAULT_MAX_RETRIES = 3;
+    public static final int DEFAULT_INITIAL_DELAY = 500;
+    public static final int DEFAULT_MAX_DELAY = 30 * 1000;
+    public static final int DEFAULT_CIRCUIT_BREAKER_THRESHOLD = 5;
+    public static final int DEFAULT_CIRCUIT_BREAKER_OPEN_TIME = 30 * 1000;
+
+    protected static final String DELEGATE_HTTP_INVOKER = "org.apache.chemistry.opencmis.client.bindings.spi.http.retry.httpInvoker";
+
+    private static final Random RANDOM = new Random();
+
+    private static final ConcurrentMap<String, CircuitBreaker> CIRCUIT_BREAKERS = new ConcurrentHashMap<String, CircuitBreaker>();
+    private static final ConcurrentMap<String, RateLimiter> RATE_LIMITERS = new ConcurrentHashMap<String, RateLimiter>();
+
+    private static final AtomicLong REQUEST_COUNT = new AtomicLong();
+    private static final AtomicLong RETRY_COUNT = new AtomicLong();
+    private static final AtomicLong FAILURE_COUNT = new AtomicLong();
+    private static final AtomicLong REJECTED_COUNT = new AtomicLong();
+    private static final AtomicLong THROTTLED_COUNT = new AtomicLong();
+
+    public RetryingHttpInvoker() {
+    }
+
+    @Override
+    public Response invokeGET(final UrlBuilder url, final BindingSession session) {
+        return invoke(url, "GET", session, new Call() {
+            @Override
+            public Response execute(HttpInvoker invoker) {
+                return invoker.invokeGET(url, session);
+            }
+        });
+    }
+
+    @Override
+    public Response invokeGET(final UrlBuilder url, final BindingSession session, final BigInteger offset,
+            final BigInteger length) {
+        return invoke(url, "GET", session, new Call() {
+            @Override
+            public Response execute(HttpInvoker invoker) {
+                return invoker.invokeGET(url, session, offset, length);
+            }
+        });
+    }
+
+    @Override
+    public Response invokePOST(final UrlBuilder url, final String contentType, final Output writer,
+            final BindingSession session) {
+        return invoke(url, "POST", session, new Call() {
+            @Override
+            public Response execute(HttpInvoker invoker) {
+                return invoker.invokePOST(url, contentType, writer, session);
+            }
+        });
+    }
+
+    @Override
+    public Response invokePUT(final UrlBuilder url, final String contentType, final Map<String, String> headers,
+            final Output writer, final BindingSession session) {
+        return invoke(url, "PUT", session, new Call() {
+            @Override
+            public Response execute(HttpInvoker invoker) {
+                return invoker.invokePUT(url, contentType, headers, writer, session);
+            }
+        });
+    }
+
+    @Override
+    public Response invokeDELETE(final UrlBuilder url, final BindingSession session) {
+        return invoke(url, "DELETE", session, new Call() {
+            @Override
+            public Response execute(HttpInvoker invoker) {
+                return invoker.invokeDELETE(url, session);
+            }
+        });
+    }
+
+    protected Response invoke(UrlBuilder url, String method, BindingSession session, Call call) {
+        HttpInvoker invoker = getHttpInvoker(session);
+
+        String endpoint = getEndpoint(url);
+        CircuitBreaker circuitBreaker = getCircuitBreaker(endpoint, session);
+        RateLimiter rateLimiter = getRateLimiter(endpoint, session);
+
+        int maxRetries = isRetryable(method, session) ? session.get(SessionParameter.HTTP_RETRY_MAX_RETRIES,
+                DEFAULT_MAX_RETRIES) : 0;
+        int initialDelay = session.get(SessionParameter.HTTP_RETRY_INITIAL_DELAY, DEFAULT_INITIAL_DELAY);
+        int maxDelay = session.get(SessionParameter.HTTP_RETRY_MAX_DELAY, DEFAULT_MAX_DELAY);
+
+        // the result of the last failed attempt
+        CmisConnectionException lastException = null;
+        Response lastResponse = null;
+
+        for (int attempt = 0;; attempt++) {
+            Object permit = null;
+            if (circuitBreaker != null) {
+                permit = circuitBreaker.allowRequest();
+                if (permit == null) {
+                    if (lastException != null) {
+                        // the circuit breaker opened while retrying
+                        throw lastException;
+                    }
+                    if (lastResponse != null) {
+                        return lastResponse;
+                    }
+
+                    REJECTED_COUNT.incrementAndGet();
+                    throw new CmisConnectionException("Circuit breaker for " + endpoint + " is open!");
+                }
+            }
+
+            if (rateLimiter != null && rateLimiter.acquire()) {
+                THROTTLED_COUNT.incrementAndGet();
+            }
+
+            REQUEST_COUNT.incrementAndGet();
+
+            Response resp;
+            try {
+                resp = call.execute(invoker);
+            } catch (CmisConnectionException ce) {
+                FAILURE_COUNT.incrementAndGet();
+                if (circuitBreaker != null) {
+                    circuitBreaker.failure(permit);
+                }
+
+                if (attempt >= maxRetries) {
+                    throw ce;
+                }
+
+                long delay = getBackoffDelay(attempt, initialDelay, maxDelay);
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("Session {}: {} {} failed ({}). Retrying in {} ms.", session.getSessionId(), method,
+                            url, ce.getMessage(), delay);
+                }
+
+                if (!sleep(delay)) {
+                    throw ce;
+                }
+
+                RETRY_COUNT.incrementAndGet();
+                lastException = ce;
+                lastResponse = null;
+                continue;
+            } catch (RuntimeException re) {
+                // not a transient failure
+                if (circuitBreaker != null) {
+                    circuitBreaker.release(permit);
+                }
+                throw re;
+            }
+
+            if (!isTransientFailure(resp.getResponseCode())) {
+                if (circuitBreaker != null) {
+                    circuitBreaker.success();
+                }
+                return resp;
+            }
+
+            FAILURE_COUNT.incrementAndGet();
+            if (circuitBreaker != null) {
+                circuitBreaker.failure(permit);
+            }
+
+            if (attempt >= maxRetries) {
+                return resp;
+            }
+
+            long delay = getBackoffDelay(attempt, initialDelay, maxDelay);
+            long retryAfter = getRetryAfter(resp);
+            if (retryAfter > maxDelay) {
+                // the server won't be back soon enough
+                return resp;
+            } else if (retryAfter >= 0) {
+                delay = retryAfter;
+            }
+
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Session {}: {} {} returned status {}. Retrying in {} ms.", session.getSessionId(), method,
+                        url, resp.getResponseCode(), delay);
+            }
+
+            if (!sleep(delay)) {
+                return resp;
+            }
+
+            RETRY_COUNT.incrementAndGet();
+            lastException = null;
+            lastResponse = resp;
+        }
+    }
+
+    /**
+     * Returns whether requests with the given HTTP method can be sent again.
+     */
+    protected boolean isRetryable(String method, BindingSession session) {
+        if ("GET".equals(method)) {
+            return true;
+        }
+
+        return "DELETE".equals(method) && session.get(SessionParameter.HTTP_RETRY_DELETE, false);
+    }
+
+    /**
+     * Returns whether the given HTTP status code indicates a failure that
+     * might go away if the request is sent again.
+     */
+    protected boolean isTransientFailure(int responseCode) {
+        return responseCode == 429 || responseCode == 502 || responseCode == 503 || responseCode == 504;
+    }
+
+    /**
+     * Returns the delay before the next attempt. The delay is between the half
+     * and the full exponential backoff delay.
+     */
+    protected long getBackoffDelay(int attempt, int initialDelay, int maxDelay) {
+        long delay = Math.min((long) maxDelay, (long) Math.max(initialDelay, 0) << Math.min(attempt, 30));
+        if (delay <= 1) {
+            return Math.max(delay, 0);
+        }
+
+        long half = delay / 2;
+        synchronized (RANDOM) {
+            return half + (long) (RANDOM.nextDouble() * (delay - half));
+        }
+    }
+
+    /**
+     * Returns the value of the <code>Retry-After</code> header in
+     * milliseconds or -1 if the header is not set or cannot be parsed.
+     */
+    protected long getRetryAfter(Response resp) {
+        String retryAfter = resp.getHeader("Retry-After");
+        if (retryAfter == null) {
+            return -1;
+        }
+
+        retryAfter = retryAfter.trim();
+        try {
+            return Math.max(Long.parseLong(retryAfter) * 1000, 0);
+        } catch (NumberFormatException e) {
+            // not a number -> try date
+        }
+
+        Date date = DateTimeHelper.parseHttpDateTime(retryAfter);
+        if (date == null) {
+            return -1;
+        }
+
+        return Math.max(date.getTime() - System.currentTimeMillis(), 0);
+    }
+
+    private static boolean sleep(long delay) {
+        if (delay <= 0) {
+            return true;
+        }
+
+        try {
+            Thread.sleep(delay);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Returns the scheme, host and port part of the URL.
+     */
+    protected String getEndpoint(UrlBuilder url) {
+        String s = url.toString();
+
+        int x = s.indexOf("://");
+        int y = s.indexOf('/', x < 0 ? 0 : x + 3);
+
+        return y < 0 ? s : s.substring(0, y);
+    }
+
+    protected CircuitBreaker getCircuitBreaker(String endpoint, BindingSession session) {
+        int threshold = session.get(SessionParameter.HTTP_CIRCUIT_BREAKER_THRESHOLD,
+                DEFAULT_CIRCUIT_BREAKER_THRESHOLD);
+        if (threshold <= 0) {
+            return null;
+        }
+
+        int openTime = session.get(SessionParameter.HTTP_CIRCUIT_BREAKER_OPEN_TIME, DEFAULT_CIRCUIT_BREAKER_OPEN_TIME);
+
+        String key = endpoint + "|" + threshold + "|" + openTime;
+        CircuitBreaker circuitBreaker = CIRCUIT_BREAKERS.get(key);
+        if (circuitBreaker == null) {
+            CircuitBreaker newCircuitBreaker = new CircuitBreaker(threshold, openTime);
+            circuitBreaker = CIRCUIT_BREAKERS.putIfAbsent(key, newCircuitBreaker);
+            if (circuitBreaker == null) {
+                circuitBreaker = newCircuitBreaker;
+            }
+        }
+
+        return circuitBreaker;
+    }
+
+    protected RateLimiter getRateLimiter(String endpoint, BindingSession session) {
+        int rate = session.get(SessionParameter.HTTP_RATE_LIMIT, 0);
+        if (rate <= 0) {
+            return null;
+        }
+
+        int burst = session.get(SessionParameter.HTTP_RATE_LIMIT_BURST, rate);
+        if (burst <= 0) {
+            burst = 1;
+        }
+
+        String key = endpoint + "|" + rate + "|" + burst;
+        RateLimiter rateLimiter = RATE_LIMITERS.get(key);
+        if (rateLimiter == null) {
+            RateLimiter newRateLimiter = new RateLimiter(rate, burst);
+            rateLimiter = RATE_LIMITERS.putIfAbsent(key, newRateLimiter);
+            if (rateLimiter == null) {
+                rateLimiter = newRateLimiter;
+            }
+        }
+
+        return rateLimiter;
+    }
+
+    protected HttpInvoker getHttpInvoker(BindingSession session) {
+        HttpInvoker invoker = (HttpInvoker) session.get(DELEGATE_HTTP_INVOKER);
+
+        if (invoker != null) {
+            return invoker;
+        }
+
+        session.writeLock();
+        try {
+            // try again
+            invoker = (HttpInvoker) session.get(DELEGATE_HTTP_INVOKER);
+            if (invoker != null) {
+                return invoker;
+            }
+
+            // ok, we have to create it...
+            try {
+                String invokerName = (String) session.get(SessionParameter.HTTP_RETRY_DELEGATE_CLASS);
+                if (invokerName == null) {
+                    invoker = new DefaultHttpInvoker();
+                } else {
+                    invoker = (HttpInvoker) ClassLoaderUtil.loadClass(invokerName).getDeclaredConstructor()
+                            .newInstance();
+                }
+            } catch (CmisBaseException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new CmisRuntimeException("Delegate HTTP invoker cannot be initialized: " + e.getMessage(), e);
+            }
+
+            // we have an Invoker object -> put it into the session
+            session.put(DELEGATE_HTTP_INVOKER, invoker, true);
+        } finally {
+            session.writeUnlock();
+        }
+
+        return invoker;
+    }
+
+    // --- statistics ---
+
+    /**
+     * Returns the number of requests sent to the delegate invoker, including
+     * retries.
+     */
+    public static long getRequestCount() {
+        return REQUEST_COUNT.get();
+    }
+
+    /**
+     * Returns the number of retries.
+     */
+    public static long getRetryCount() {
+        return RETRY_COUNT.get();
+    }
+
+    /**
+     * Returns the number of requests that failed with a connection error or a
+     * transient status code.
+     */
+    public static long getFailureCount() {
+        return FAILURE_COUNT.get();
+    }
+
+    /**
+     * Returns the number of requests rejected by an open circuit breaker.
+     */
+    public static long getRejectedCount() {
+        return REJECTED_COUNT.get();
+    }
+
+    /**
+     * Returns the number of requests that had to wait for the rate limiter.
+     */
+    public static long getThrottledCount() {
+        return THROTTLED_COUNT.get();
+    }
+
+    /**
+     * Returns the number of open circuit breakers.
+     */
+    public static int getOpenCircuitBreakerCount() {
+        int count = 0;
+        for (CircuitBreaker circuitBreaker : CIRCUIT_BREAKERS.values()) {
+            if (circuitBreaker.isOpen()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // --- helper classes ---
+
+    /**
+     * A request that can be sent more than once.
+     */
+    protected interface Call {
+        Response execute(HttpInvoker invoker);
+    }
+
+    /**
+     * Counts consecutive failures of an endpoint.
+     */
+    protected static class CircuitBreaker {
+        private static final Object CLOSED = new Object();
+
+        private final int threshold;
+        private final long openTime;
+
+        private int failures;
+        private long openUntil;
+        private Object trial;
+
+        public CircuitBreaker(int threshold, long openTime) {
+            this.threshold = threshold;
+            this.openTime = openTime;
+        }
+
+        /**
+         * Returns whether a request may be sent. If the open time has passed,
+         * only one trial request is allowed until its outcome is known.
+         *
+         * @return a permit that has to be passed to {@link #failure(Object)}
+         *         and {@link #release(Object)}, or <code>null</code> if the
+         *         request must not be sent
+         */
+        public synchronized Object allowRequest() {
+            if (failures < threshold) {
+                return CLOSED;
+            }
+
+            if (trial != null || System.currentTimeMillis() < openUntil) {
+                return null;
+            }
+
+            trial = new Object();
+            return trial;
+        }
+
+        public synchronized void success() {
+            failures = 0;
+            trial = null;
+        }
+
+        public synchronized void failure(Object permit) {
+            failures++;
+            if (permit == trial) {
+                trial = null;
+            }
+            if (failures >= threshold) {
+                openUntil = System.currentTimeMillis() + openTime;
+            }
+        }
+
+        /**
+         * Ends a request without a result. If it was the trial request, the
+         * next request becomes the trial request.
+         */
+        public synchronized void release(Object permit) {
+            if (permit == trial) {
+                trial = null;
+            }
+        }
+
+        public synchronized boolean isOpen() {
+            return failures >= threshold;
+        }
+    }
+
+    /**
+     * Token bucket that limits the request rate of an endpoint.
+     */
+    protected static class RateLimiter {
+        private final double tokensPerMillis;
+        private final double capacity;
+
+        private double tokens;
+        private long lastRefill;
+
+        public RateLimiter(int requestsPerSecond, int burst) {
+            this.tokensPerMillis = requestsPerSecond / 1000.0;
+            this.capacity = burst;
+            this.tokens = burst;
+            this.lastRefill = System.currentTimeMillis();
+        }
+
+        /**
+         * Takes a token and waits until it is available.
+         *
+         * @return <code>true</code> if the caller had to wait,
+         *         <code>false</code> otherwise
+         */
+        public boolean acquire() {
+            long wait;
+            synchronized (this) {
+                long now = System.currentTimeMillis();
+                tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerMillis);
+                lastRefill = now;
+
+                // reserve the token, even if it is not there yet
+                tokens -= 1;
+                if (tokens >= 0) {
+                    return false;
+                }
+
+                wait = (long) Math.ceil(-tokens / tokensPerMillis);
+            }
+
+            if (!sleep(wait)) {
+                throw new CmisConnectionException("Interrupted while waiting for the rate limiter!");
+            }
+
+            return true;
+        }
+    }
+}
@@ -0,0 +1,316 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.bindings.spi.http;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.chemistry.opencmis.client.bindings.spi.BindingSession;
+import org.apache.chemistry.opencmis.commons.SessionParameter;
+
+import okhttp3.ConnectionPool;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.ForwardingSource;
+import okio.Okio;
+
+/**
+ * A {@link HttpInvoker} that uses OkHttp and shares its connection pool across
+ * all sessions.
+ * <p>
+ * Sessions with the same pool configuration use the same connection pool and
+ * dispatcher. Connections (and TLS sessions) opened by one session are reused
+ * by the next session that talks to the same host, and HTTP/2 multiplexes
+ * concurrent requests over a single connection if the server supports it.
+ * Timeouts and SSL settings are still configured per session. OkHttp only
+ * reuses a pooled connection if the SSL socket factory and hostname verifier
+ * match, so sessions with different client certificates don't share
+ * connections.
+ * <p>
+ * The pool is configured with the session parameters
+ * {@link SessionParameter#HTTP_POOL_MAX_IDLE_CONNECTIONS},
+ * {@link SessionParameter#HTTP_POOL_IDLE_TIMEOUT} and
+ * {@link SessionParameter#HTTP2}.
+ * <p>
+ * {@link SessionParameter#HTTP_POOL_MAX_CONNECTIONS} limits the number of
+ * concurrent requests of all sessions that share a pool and
+ * {@link SessionParameter#HTTP_POOL_MAX_CONNECTIONS_PER_HOST} limits the number
+ * of concurrent requests per host. A request counts until its response stream
+ * has been closed. If a limit is reached, the request waits until another
+ * request has finished. The OkHttp dispatcher limits cannot be used here
+ * because they only apply to asynchronous calls.
+ */
+public class SharedPoolOkHttpHttpInvoker extends OkHttpHttpInvoker {
+
+    public static final int DEFAULT_MAX_IDLE_CONNECTIONS = 5;
+    public static final int DEFAULT_IDLE_TIMEOUT = 5 * 60 * 1000;
+    public static final int DEFAULT_MAX_REQUESTS = 64;
+    public static final int DEFAULT_MAX_REQUESTS_PER_HOST = 5;
+
+    private static final ConcurrentMap<String, OkHttpClient> SHARED_CLIENTS = new ConcurrentHashMap<String, OkHttpClient>();
+
+    public SharedPoolOkHttpHttpInvoker() {
+    }
+
+    @Override
+    protected OkHttpClient.Builder createClientBuilder(BindingSession session) {
+        return configureClientBuilder(getSharedClient(session).newBuilder(), session);
+    }
+
+    /**
+     * Returns the shared client for the pool configuration of the given
+     * session.
+     *
+     * @param session
+     *            the binding session
+     *
+     * @return the shared client
+     */
+    protected OkHttpClient getSharedClient(BindingSession session) {
+        int maxIdleConnections = session.get(SessionParameter.HTTP_POOL_MAX_IDLE_CONNECTIONS,
+                DEFAULT_MAX_IDLE_CONNECTIONS);
+        int idleTimeout = session.get(SessionParameter.HTTP_POOL_IDLE_TIMEOUT, DEFAULT_IDLE_TIMEOUT);
+        int maxRequests = session.get(SessionParameter.HTTP_POOL_MAX_CONNECTIONS, DEFAULT_MAX_REQUESTS);
+        int maxRequestsPerHost = session.get(SessionParameter.HTTP_POOL_MAX_CONNECTIONS_PER_HOST,
+                DEFAULT_MAX_REQUESTS_PER_HOST);
+        boolean http2 = session.get(SessionParameter.HTTP2, true);
+
+        if (maxIdleConnections < 0) {
+            maxIdleConnections = DEFAULT_MAX_IDLE_CONNECTIONS;
+        }
+        if (idleTimeout <= 0) {
+            idleTimeout = DEFAULT_IDLE_TIMEOUT;
+        }
+        if (maxRequests <= 0) {
+            maxRequests = DEFAULT_MAX_REQUESTS;
+        }
+        if (maxRequestsPerHost <= 0) {
+            maxRequestsPerHost = DEFAULT_MAX_REQUESTS_PER_HOST;
+        }
+
+        String key = maxIdleConnections + "/" + idleTimeout + "/" + maxRequests + "/" + maxRequestsPerHost + "/"
+                + http2;
+
+        OkHttpClient client = SHARED_CLIENTS.get(key);
+        if (client == null) {
+            OkHttpClient.Builder clientBuilder = new OkHttpClient.Builder();
+            clientBuilder.connectionPool(new ConnectionPool(maxIdleConnections, idleTimeout, TimeUnit.MILLISECONDS));
+
+            clientBuilder.addInterceptor(new RequestLimiter(maxRequests, maxRequestsPerHost));
+
+            if (http2) {
+                clientBuilder.protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1));
+            } else {
+                clientBuilder.protocols(Collections.singletonList(Protocol.HTTP_1_1));
+            }
+
+            OkHttpClient newClient = clientBuilder.build();
+            client = SHARED_CLIENTS.putIfAbsent(key, newClient);
+            if (client == null) {
+                client = newClient;
+            }
+        }
+
+        return client;
+    }
+
+    /**
+     * Returns the request limiter of a client created by this invoker.
+     *
+     * @param client
+     *            the client
+     *
+     * @return the request limiter or {@code null} if the client has no
+     *         request limiter
+     */
+    protected static RequestLimiter getRequestLimiter(OkHttpClient client) {
+        for (Interceptor interceptor : client.interceptors()) {
+            if (interceptor instanceof RequestLimiter) {
+                return (RequestLimiter) interceptor;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Closes all idle connections of all shared pools.
+     */
+    public static void evictAll() {
+        for (OkHttpClient client : SHARED_CLIENTS.values()) {
+            client.connectionPool().evictAll();
+        }
+    }
+
+    /**
+     * Returns the total number of connections in all shared pools.
+     *
+     * @return the number of pooled connections
+     */
+    public static int getConnectionCount() {
+        int count = 0;
+        for (OkHttpClient client : SHARED_CLIENTS.values()) {
+            count += client.connectionPool().connectionCount();
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of idle connections in all shared pools.
+     *
+     * @return the number of idle connections
+     */
+    public static int getIdleConnectionCount() {
+        int count = 0;
+        for (OkHttpClient client : SHARED_CLIENTS.values()) {
+            count += client.connectionPool().idleConnectionCount();
+        }
+        return count;
+    }
+
+    /**
+     * Limits the number of concurrent requests, in total and per host.
+     * <p>
+     * A request holds its permits until the response body has been closed.
+     */
+    public static class RequestLimiter implements Interceptor {
+
+        private final int maxRequests;
+        private final int maxRequestsPerHost;
+        private final Semaphore requests;
+        private final ConcurrentMap<String, Semaphore> hostRequests = new ConcurrentHashMap<String, Semaphore>();
+
+        public RequestLimiter(int maxRequests, int maxRequestsPerHost) {
+            this.maxRequests = maxRequests;
+            this.maxRequestsPerHost = maxRequestsPerHost;
+            this.requests = new Semaphore(maxRequests, true);
+        }
+
+        public int getMaxRequests() {
+            return maxRequests;
+        }
+
+        public int getMaxRequestsPerHost() {
+            return maxRequestsPerHost;
+        }
+
+        /**
+         * Returns the number of requests that are currently running.
+         */
+        public int getRunningRequests() {
+            return maxRequests - requests.availablePermits();
+        }
+
+        @Override
+        public okhttp3.Response intercept(Chain chain) throws IOException {
+            Request request = chain.request();
+            final Semaphore hostPermits = getHostSemaphore(request.url().host() + ":" + request.url().port());
+
+            acquire(hostPermits);
+            try {
+                acquire(requests);
+            } catch (IOException e) {
+                hostPermits.release();
+                throw e;
+            }
+
+            final AtomicBoolean released = new AtomicBoolean(false);
+            okhttp3.Response response = null;
+            try {
+                response = chain.proceed(request);
+            } finally {
+                if (response == null) {
+                    release(hostPermits, released);
+                }
+            }
+
+            ResponseBody body = response.body();
+            if (body == null) {
+                release(hostPermits, released);
+                return response;
+            }
+
+            ForwardingSource source = new ForwardingSource(body.source()) {
+                @Override
+                public long read(Buffer sink, long byteCount) throws IOException {
+                    long read = super.read(sink, byteCount);
+                    if (read == -1) {
+                        // the stream has been consumed, the connection is
+                        // free again
+                        release(hostPermits, released);
+                    }
+                    return read;
+                }
+
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        release(hostPermits, released);
+                    }
+                }
+            };
+
+            return response.newBuilder()
+                    .body(ResponseBody.create(body.contentType(), body.contentLength(), Okio.buffer(source)))
+                    .build();
+        }
+
+        private Semaphore getHostSemaphore(String host) {
+            Semaphore semaphore = hostRequests.get(host);
+            if (semaphore == null) {
+                Semaphore newSemaphore = new Semaphore(maxRequestsPerHost, true);
+                semaphore = hostRequests.putIfAbsent(host, newSemaphore);
+                if (semaphore == null) {
+                    semaphore = newSemaphore;
+                }
+            }
+
+            return semaphore;
+        }
+
+        private static void acquire(Semaphore semaphore) throws IOException {
+            try {
+                semaphore.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for a connection!");
+            }
+        }
+
+        private void release(Semaphore hostPermits, AtomicBoolean released) {
+            if (released.compareAndSet(false, true)) {
+                requests.release();
+                hostPermits.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.bindings.cache;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.chemistry.opencmis.client.bindings.cache.impl.CacheImpl;
+import org.apache.chemistry.opencmis.client.bindings.cache.impl.ConcurrentBindingCacheImpl;
+import org.apache.chemistry.opencmis.client.bindings.cache.impl.ConcurrentLruCacheLevelImpl;
+import org.apache.chemistry.opencmis.client.bindings.cache.impl.ContentTypeCacheLevelImpl;
+import org.apache.chemistry.opencmis.client.bindings.cache.impl.LruCacheLevelImpl;
+import org.apache.chemistry.opencmis.client.bindings.cache.impl.MapCacheLevelImpl;
+
+/**
+ * Measures the lookup throughput of {@link CacheImpl} and
+ * {@link ConcurrentBindingCacheImpl} with the level configuration of the
+ * AtomPub link cache and an increasing number of threads. About 5% of the
+ * operations are puts.
+ * <p>
+ * This is not a unit test and is not run by the build. Start it with the test
+ * class path and optionally pass the thread counts as arguments, e.g.
+ * {@code java CacheLookupBenchmark 1 2 4 8}.
+ */
+public class CacheLookupBenchmark {
+
+    private static final int OBJECTS = 400;
+    private static final int OPERATIONS_PER_THREAD = 2000000;
+    private static final String[] RELS = { "self", "down", "up", "edit-media", "allowableactions" };
+
+    public static void main(String[] args) throws Exception {
+        int[] threadCounts = { 1, 2, 4, 8 };
+        if (args.length > 0) {
+            threadCounts = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                threadCounts[i] = Integer.parseInt(args[i]);
+            }
+        }
+
+        // warm up
+        run(createCache(false), 2);
+        run(createCache(true), 2);
+
+        for (int threads : threadCounts) {
+            long locked = run(createCache(false), threads);
+            long concurrent = run(createCache(true), threads);
+            System.out.println(String.format(
+                    "%2d threads: CacheImpl %,12d ops/s, ConcurrentBindingCacheImpl %,12d ops/s", threads, locked,
+                    concurrent));
+        }
+    }
+
+    private static Cache createCache(boolean concurrent) {
+        Cache cache;
+        String map = MapCacheLevelImpl.class.getName() + " " + MapCacheLevelImpl.CAPACITY;
+        String extra = "";
+
+        if (concurrent) {
+            cache = new ConcurrentBindingCacheImpl("Benchmark");
+            extra = "," + MapCacheLevelImpl.CONCURRENT + "=true";
+            cache.initialize(new String[] { map + "=10" + extra,
+                    ConcurrentLruCacheLevelImpl.class.getName() + " " + ConcurrentLruCacheLevelImpl.MAX_ENTRIES + "=" + OBJECTS,
+                    map + "=12" + extra,
+                    ContentTypeCacheLevelImpl.class.getName() + " " + MapCacheLevelImpl.CAPACITY + "=3,"
+                            + MapCacheLevelImpl.SINGLE_VALUE + "=true" + extra });
+        } else {
+            cache = new CacheImpl("Benchmark");
+            cache.initialize(new String[] { map + "=10",
+                    LruCacheLevelImpl.class.getName() + " " + LruCacheLevelImpl.MAX_ENTRIES + "=" + OBJECTS,
+                    map + "=12",
+                    ContentTypeCacheLevelImpl.class.getName() + " " + MapCacheLevelImpl.CAPACITY + "=3,"
+                            + MapCacheLevelImpl.SINGLE_VALUE + "=true" });
+        }
+
+        for (int i = 0; i < OBJECTS; i++) {
+            for (String rel : RELS) {
+                cache.put("http://host/" + i + "/" + rel, "repo", "id" + i, rel, null);
+            }
+        }
+
+        return cache;
+    }
+
+    /**
+     * Returns the operations per second.
+     */
+    private static long run(final Cache cache, int threadCount) throws InterruptedException {
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicLong found = new AtomicLong();
+        Thread[] threads = new Thread[threadCount];
+
+        for (int t = 0; t < threadCount; t++) {
+            final int seed = t * 7919;
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+
+                    long hits = 0;
+                    int x = seed;
+                    for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                        x = x * 1103515245 + 12345;
+                        int r = (x >>> 8) & 0xffff;
+                        String id = "id" + (r % (OBJECTS + OBJECTS / 10));
+                        String rel = RELS[r % RELS.length];
+                        if (r % 20 == 0) {
+                            cache.put("http://host/" + id + "/" + rel, "repo", id, rel, null);
+                        } else if (cache.get("repo", id, rel, null) != null) {
+                            hits++;
+                        }
+                    }
+                    found.addAndGet(hits);
+                }
+            };
+            threads[t].start();
+        }
+
+        long startTime = System.nanoTime();
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long nanos = System.nanoTime() - startTime;
+
+        if (found.get() == 0) {
+            throw new IllegalStateException("No cache hits!");
+        }
+
+        return (long) OPERATIONS_PER_THREAD * threadCount * 1000000000L / nanos;
+    }
+}
@@ -18,9 +18,14 @@
  */
 package org.apache.chemistry.opencmis.client.bindings.cache;
 
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import junit.framework.TestCase;
 
 import org.apache.chemistry.opencmis.client.bindings.cache.impl.CacheImpl;
+import org.apache.chemistry.opencmis.client.bindings.cache.impl.ConcurrentBindingCacheImpl;
+import org.apache.chemistry.opencmis.client.bindings.cache.impl.ConcurrentLruCacheLevelImpl;
 import org.apache.chemistry.opencmis.client.bindings.cache.impl.ContentTypeCacheLevelImpl;
 import org.apache.chemistry.opencmis.client.bindings.cache.impl.LruCacheLevelImpl;
 import org.apache.chemistry.opencmis.client.bindings.cache.impl.MapCacheLevelImpl;
@@ -32,6 +37,9 @@ public class CacheTest extends TestCase {
 
     public static final String MAP_CACHE_LEVEL = "org.apache.chemistry.opencmis.client.bindings.cache.impl.MapCacheLevelImpl";
     public static final String LRU_CACHE_LEVEL = "org.apache.chemistry.opencmis.client.bindings.cache.impl.LruCacheLevelImpl";
+    public static final String CONCURRENT_MAP_CACHE_LEVEL = MAP_CACHE_LEVEL + " " + MapCacheLevelImpl.CONCURRENT
+            + "=true";
+    public static final String CONCURRENT_LRU_CACHE_LEVEL = "org.apache.chemistry.opencmis.client.bindings.cache.impl.ConcurrentLruCacheLevelImpl";
 
     public void testCache() {
         Cache cache;
@@ -206,4 +214,147 @@ public class CacheTest extends TestCase {
         assertNull(cl.get("text/plain; param1=blah; charset=UTF-8"));
         assertNull(cl.get("text/plain; param1=test; charset=us-ascii"));
     }
+
+    public void testConcurrentCache() {
+        Cache cache;
+
+        cache = new ConcurrentBindingCacheImpl();
+        cache.initialize(new String[] { CONCURRENT_MAP_CACHE_LEVEL, CONCURRENT_LRU_CACHE_LEVEL,
+                CONCURRENT_MAP_CACHE_LEVEL, CONCURRENT_MAP_CACHE_LEVEL });
+
+        cache.put("value1", "l1", "l2a", "l3", "l4");
+        cache.put("value2", "l1", "l2b", "l3", "l4");
+        cache.put("value3", "l1", "l2b", "l3", null);
+
+        assertEquals("value1", cache.get("l1", "l2a", "l3", "l4"));
+        assertEquals("value2", cache.get("l1", "l2b", "l3", "l4"));
+        assertEquals("value3", cache.get("l1", "l2b", "l3", null));
+        assertNull(cache.get("l1", "l2c", "l3", "l4"));
+
+        assertEquals(4, cache.check("l1", "l2a", "l3", "l4"));
+        assertEquals(1, cache.check("l1", "l2c", "l3", "l4"));
+
+        // remove leaf
+        cache.remove("l1", "l2a", "l3", "l4");
+        assertNull(cache.get("l1", "l2a", "l3", "l4"));
+
+        // remove branch
+        cache.remove("l1", "l2b");
+        assertNull(cache.get("l1", "l2b", "l3", "l4"));
+        assertNull(cache.get("l1", "l2b", "l3", null));
+
+        // remove all
+        cache.put("value1", "l1", "l2a", "l3", "l4");
+        cache.removeAll();
+        assertNull(cache.get("l1", "l2a", "l3", "l4"));
+    }
+
+    public void testConcurrentLruCache() {
+        Cache cache;
+
+        cache = new ConcurrentBindingCacheImpl();
+        cache.initialize(new String[] { CONCURRENT_LRU_CACHE_LEVEL + " " + ConcurrentLruCacheLevelImpl.MAX_ENTRIES
+                + "=10" });
+
+        for (int i = 0; i < 100; i++) {
+            cache.put("value" + i, "key" + i);
+        }
+
+        for (int i = 0; i < 90; i++) {
+            assertNull(cache.get("key" + i));
+        }
+
+        for (int i = 90; i < 100; i++) {
+            assertEquals("value" + i, cache.get("key" + i));
+        }
+
+        // large levels are trimmed in batches but never exceed the limit
+        cache = new ConcurrentBindingCacheImpl();
+        cache.initialize(new String[] { CONCURRENT_LRU_CACHE_LEVEL + " " + ConcurrentLruCacheLevelImpl.MAX_ENTRIES
+                + "=1000" });
+
+        for (int i = 0; i < 5000; i++) {
+            cache.put("value" + i, "key" + i);
+        }
+
+        int count = 0;
+        for (int i = 0; i < 5000; i++) {
+            if (cache.get("key" + i) != null) {
+                count++;
+            }
+        }
+
+        assertTrue(count <= 1000);
+        assertTrue(count > 900);
+        assertEquals("value4999", cache.get("key4999"));
+
+        // tiny levels evict too and keep the latest entry
+        cache = new ConcurrentBindingCacheImpl();
+        cache.initialize(new String[] { CONCURRENT_LRU_CACHE_LEVEL + " " + ConcurrentLruCacheLevelImpl.MAX_ENTRIES
+                + "=1" });
+
+        for (int i = 0; i < 10; i++) {
+            cache.put("value" + i, "key" + i);
+            assertEquals("value" + i, cache.get("key" + i));
+        }
+
+        for (int i = 0; i < 9; i++) {
+            assertNull(cache.get("key" + i));
+        }
+    }
+
+    public void testConcurrentContentTypeCache() {
+        ContentTypeCacheLevelImpl cl = new ContentTypeCacheLevelImpl();
+        cl.initialize(Collections.singletonMap(MapCacheLevelImpl.CONCURRENT, "true"));
+
+        cl.put("type1", "text/plain; charset=UTF-8");
+        cl.put("type2", null);
+
+        assertEquals("type1", cl.get("text/plain;charset=utf-8"));
+        assertEquals("type2", cl.get(null));
+
+        cl.remove(null);
+        assertNull(cl.get(null));
+    }
+
+    public void testConcurrentCacheMultiThreaded() throws Exception {
+        final Cache cache = new ConcurrentBindingCacheImpl();
+        cache.initialize(new String[] { CONCURRENT_MAP_CACHE_LEVEL,
+                CONCURRENT_LRU_CACHE_LEVEL + " " + ConcurrentLruCacheLevelImpl.MAX_ENTRIES + "=100",
+                CONCURRENT_MAP_CACHE_LEVEL });
+
+        final AtomicInteger errors = new AtomicInteger();
+
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            final int offset = t * 10;
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = 0; i < 20000; i++) {
+                            String repId = "rep" + (i % 2);
+                            String id = "id" + ((offset + i) % 300);
+                            String rel = "rel" + (i % 5);
+                            Object value = cache.get(repId, id, rel);
+                            if (value == null) {
+                                cache.put(repId + id + rel, repId, id, rel);
+                            } else if (!value.equals(repId + id + rel)) {
+                                errors.incrementAndGet();
+                            }
+                        }
+                    } catch (Exception e) {
+                        errors.incrementAndGet();
+                    }
+                }
+            };
+            threads[t].start();
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(0, errors.get());
+    }
 }
@@ -0,0 +1,411 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.bindings.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigInteger;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.TabularData;
+
+import org.apache.chemistry.opencmis.client.bindings.impl.CmisBindingImpl;
+import org.apache.chemistry.opencmis.client.bindings.impl.SessionImpl;
+import org.apache.chemistry.opencmis.client.bindings.metrics.HistogramMetricsListener.OperationMetrics;
+import org.apache.chemistry.opencmis.client.bindings.spi.BindingSession;
+import org.apache.chemistry.opencmis.client.bindings.spi.CmisSpi;
+import org.apache.chemistry.opencmis.client.bindings.spi.http.HttpInvoker;
+import org.apache.chemistry.opencmis.client.bindings.spi.http.MetricsHttpInvoker;
+import org.apache.chemistry.opencmis.client.bindings.spi.http.Output;
+import org.apache.chemistry.opencmis.client.bindings.spi.http.Response;
+import org.apache.chemistry.opencmis.commons.SessionParameter;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisObjectNotFoundException;
+import org.apache.chemistry.opencmis.commons.impl.UrlBuilder;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.RepositoryInfoImpl;
+import org.apache.chemistry.opencmis.commons.spi.AclService;
+import org.apache.chemistry.opencmis.commons.spi.DiscoveryService;
+import org.apache.chemistry.opencmis.commons.spi.MultiFilingService;
+import org.apache.chemistry.opencmis.commons.spi.NavigationService;
+import org.apache.chemistry.opencmis.commons.spi.ObjectService;
+import org.apache.chemistry.opencmis.commons.spi.PolicyService;
+import org.apache.chemistry.opencmis.commons.spi.RelationshipService;
+import org.apache.chemistry.opencmis.commons.spi.RepositoryService;
+import org.apache.chemistry.opencmis.commons.spi.VersioningService;
+import org.junit.Test;
+
+public class MetricsListenerTest {
+
+    @Test
+    public void testHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L * 1000L); // i ms
+        }
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1000 * 1000, histogram.getMax());
+        assertEquals(500.5 * 1000, histogram.getMean(), 0.1);
+        assertWithin(500 * 1000, histogram.getPercentile(50));
+        assertWithin(990 * 1000, histogram.getPercentile(99));
+        assertEquals(1000 * 1000, histogram.getPercentile(100));
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentile(50));
+    }
+
+    @Test
+    public void testBuckets() {
+        for (long micros = 0; micros < 100000; micros++) {
+            int bucket = LatencyHistogram.getBucket(micros);
+            assertTrue(micros <= LatencyHistogram.getUpperBound(bucket));
+            assertTrue(bucket == 0 || micros > LatencyHistogram.getUpperBound(bucket - 1));
+        }
+    }
+
+    @Test
+    public void testHistogramListener() {
+        HistogramMetricsListener listener = new HistogramMetricsListener();
+        listener.operationCompleted("HTTP GET", null, 1000000, 0, 100, "200");
+        listener.operationCompleted("HTTP GET", null, 2000000, 0, 50, "404");
+        listener.operationCompleted("HTTP GET", null, 3000000, 0, -1, "CmisConnectionException");
+        listener.cacheAccessed("link", "repo", true);
+        listener.cacheAccessed("link", "repo", true);
+        listener.cacheAccessed("link", "repo", false);
+
+        OperationMetrics metrics = listener.getOperationMetrics("HTTP GET");
+        assertEquals(3, metrics.getCount());
+        assertEquals(2, metrics.getErrorCount());
+        assertEquals(150, metrics.getBytesReceived());
+        assertEquals(Long.valueOf(1), metrics.getOutcomes().get("404"));
+        assertEquals(2.0 / 3.0, listener.getCacheMetrics("link").getHitRate(), 0.001);
+
+        listener.reset();
+        assertTrue(listener.getOperations().isEmpty());
+        assertTrue(listener.getCaches().isEmpty());
+    }
+
+    @Test
+    public void testHttpInvoker() {
+        HistogramMetricsListener listener = new HistogramMetricsListener();
+        HttpInvoker invoker = new MetricsHttpInvoker(new StaticHttpInvoker(), listener);
+
+        invoker.invokeGET(new UrlBuilder("http://localhost/cmis"), new SessionImpl());
+        invoker.invokePOST(new UrlBuilder("http://localhost/cmis"), "text/plain", new Output() {
+            @Override
+            public void write(OutputStream out) throws Exception {
+                out.write(new byte[42]);
+                out.write(1);
+            }
+        }, new SessionImpl());
+
+        OperationMetrics get = listener.getOperationMetrics("HTTP GET");
+        assertEquals(1, get.getCount());
+        assertEquals(10, get.getBytesReceived());
+        assertEquals(Long.valueOf(1), get.getOutcomes().get("200"));
+
+        OperationMetrics post = listener.getOperationMetrics("HTTP POST");
+        assertEquals(1, post.getCount());
+        assertEquals(43, post.getBytesSent());
+    }
+
+    @Test
+    public void testHttpInvokerStream() throws Exception {
+        HistogramMetricsListener listener = new HistogramMetricsListener();
+        // chunked response without Content-Length
+        HttpInvoker invoker = new MetricsHttpInvoker(new StaticHttpInvoker(new byte[100]), listener);
+
+        Response resp = invoker.invokeGET(new UrlBuilder("http://localhost/cmis"), new SessionImpl());
+
+        // the request is reported when the stream is closed
+        assertNull(listener.getOperationMetrics("HTTP GET"));
+
+        InputStream stream = resp.getStream();
+        int count = 0;
+        while (stream.read() > -1) {
+            count++;
+        }
+        assertEquals(100, count);
+        stream.close();
+        stream.close();
+
+        OperationMetrics get = listener.getOperationMetrics("HTTP GET");
+        assertEquals(1, get.getCount());
+        assertEquals(100, get.getBytesReceived());
+        assertEquals(Long.valueOf(1), get.getOutcomes().get("200"));
+    }
+
+    @Test
+    public void testBinding() {
+        Map<String, String> parameters = new HashMap<String, String>();
+        parameters.put(SessionParameter.BINDING_SPI_CLASS, StubSpi.class.getName());
+        parameters.put(SessionParameter.TYPE_DEFINITION_CACHE_CLASS,
+                "org.apache.chemistry.opencmis.client.bindings.impl.TypeDefinitionCacheImpl");
+        parameters.put(SessionParameter.METRICS_LISTENER_CLASS, HistogramMetricsListener.class.getName());
+
+        CmisBindingImpl binding = new CmisBindingImpl(parameters);
+        HistogramMetricsListener listener = (HistogramMetricsListener) binding.getMetricsListener();
+        assertNotNull(listener);
+
+        binding.getRepositoryService().getRepositoryInfo("repo", null);
+        binding.getRepositoryService().getRepositoryInfo("repo", null);
+
+        try {
+            binding.getObjectService().getObject("repo", "123", null, null, null, null, null, null, null);
+            fail("Exception expected!");
+        } catch (CmisObjectNotFoundException e) {
+            // expected
+        }
+
+        assertEquals(2, listener.getOperationMetrics("getRepositoryInfo").getCount());
+        assertEquals(1, listener.getCacheMetrics("repositoryInfo").getHits());
+        assertEquals(1, listener.getCacheMetrics("repositoryInfo").getMisses());
+
+        OperationMetrics getObject = listener.getOperationMetrics("getObject");
+        assertEquals(1, getObject.getErrorCount());
+        assertEquals(Long.valueOf(1), getObject.getOutcomes().get("CmisObjectNotFoundException"));
+
+        // the proxy is created once per service
+        assertSame(binding.getObjectService(), binding.getObjectService());
+        assertSame(binding.getRepositoryService(), binding.getRepositoryService());
+    }
+
+    @Test
+    public void testJmxRegistrationFailure() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(JmxMetricsListener.OBJECT_NAME);
+        server.registerMBean(new OtherClientMetrics(), name);
+        try {
+            // the name is taken, so this listener can't register its MBean
+            new JmxMetricsListener();
+        } finally {
+            server.unregisterMBean(name);
+        }
+
+        // the next listener registers the MBean
+        new JmxMetricsListener();
+        try {
+            assertTrue(server.isRegistered(name));
+        } finally {
+            JmxMetricsListener.unregister();
+        }
+        assertTrue(!server.isRegistered(name));
+    }
+
+    @Test
+    public void testJmx() throws Exception {
+        JmxMetricsListener listener = new JmxMetricsListener();
+        listener.operationCompleted("getChildren", "repo", 5000000, -1, -1, "OK");
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(JmxMetricsListener.OBJECT_NAME);
+        try {
+            assertTrue(server.isRegistered(name));
+
+            TabularData counts = (TabularData) server.getAttribute(name, "OperationCounts");
+            assertEquals(1L, counts.get(new Object[] { "getChildren" }).get("value"));
+
+            TabularData latencies = (TabularData) server.getAttribute(name, "MaxLatencies");
+            assertEquals(5.0, (Double) latencies.get(new Object[] { "getChildren" }).get("value"), 0.001);
+
+            server.invoke(name, "reset", null, null);
+            assertTrue(JmxMetricsListener.getMetrics().getOperations().isEmpty());
+        } finally {
+            JmxMetricsListener.unregister();
+        }
+
+        assertTrue(!server.isRegistered(name));
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue("Expected about " + expected + " but was " + actual, Math.abs(expected - actual) <= expected / 8);
+    }
+
+    public interface OtherClientMetricsMXBean {
+        long getCount();
+    }
+
+    /**
+     * MBean registered by another client.
+     */
+    public static class OtherClientMetrics implements OtherClientMetricsMXBean {
+        @Override
+        public long getCount() {
+            return 0;
+        }
+    }
+
+    private static class StaticHttpInvoker implements HttpInvoker {
+
+        private final byte[] body;
+
+        public StaticHttpInvoker() {
+            this(null);
+        }
+
+        public StaticHttpInvoker(byte[] body) {
+            this.body = body;
+        }
+
+        private Response createResponse() {
+            if (body != null) {
+                return new Response(200, "OK", null, new ByteArrayInputStream(body), null);
+            }
+
+            Map<String, List<String>> headers = Collections.singletonMap("Content-Length",
+                    Collections.singletonList("10"));
+            return new Response(200, "OK", headers, null, null);
+        }
+
+        @Override
+        public Response invokeGET(UrlBuilder url, BindingSession session) {
+            return createResponse();
+        }
+
+        @Override
+        public Response invokeGET(UrlBuilder url, BindingSession session, BigInteger offset, BigInteger length) {
+            return createResponse();
+        }
+
+        @Override
+        public Response invokePOST(UrlBuilder url, String contentType, Output writer, BindingSession session) {
+            try {
+                writer.write(new ByteArrayOutputStream());
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+            return createResponse();
+        }
+
+        @Override
+        public Response invokePUT(UrlBuilder url, String contentType, Map<String, String> headers, Output writer,
+                BindingSession session) {
+            return createResponse();
+        }
+
+        @Override
+        public Response invokeDELETE(UrlBuilder url, BindingSession session) {
+            return createResponse();
+        }
+    }
+
+    /**
+     * SPI that returns a repository info and doesn't know any object.
+     */
+    public static class StubSpi implements CmisSpi, InvocationHandler {
+
+        private final RepositoryService repositoryService = proxy(RepositoryService.class);
+        private final ObjectService objectService = proxy(ObjectService.class);
+
+        public StubSpi(BindingSession session) {
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if ("getRepositoryInfo".equals(method.getName())) {
+                RepositoryInfoImpl info = new RepositoryInfoImpl();
+                info.setId((String) args[0]);
+                return info;
+            }
+            if ("getObject".equals(method.getName())) {
+                throw new CmisObjectNotFoundException("Unknown object!");
+            }
+            return null;
+        }
+
+        private <T> T proxy(Class<T> clazz) {
+            return clazz.cast(Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { clazz }, this));
+        }
+
+        @Override
+        public RepositoryService getRepositoryService() {
+            return repositoryService;
+        }
+
+        @Override
+        public NavigationService getNavigationService() {
+            return proxy(NavigationService.class);
+        }
+
+        @Override
+        public ObjectService getObjectService() {
+            return objectService;
+        }
+
+        @Override
+        public VersioningService getVersioningService() {
+            return proxy(VersioningService.class);
+        }
+
+        @Override
+        public RelationshipService getRelationshipService() {
+            return proxy(RelationshipService.class);
+        }
+
+        @Override
+        public DiscoveryService getDiscoveryService() {
+            return proxy(DiscoveryService.class);
+        }
+
+        @Override
+        public MultiFilingService getMultiFilingService() {
+            return proxy(MultiFilingService.class);
+        }
+
+        @Override
+        public AclService getAclService() {
+            return proxy(AclService.class);
+        }
+
+        @Override
+        public PolicyService getPolicyService() {
+            return proxy(PolicyService.class);
+        }
+
+        @Override
+        public void clearAllCaches() {
+        }
+
+        @Override
+        public void clearRepositoryCache(String repositoryId) {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
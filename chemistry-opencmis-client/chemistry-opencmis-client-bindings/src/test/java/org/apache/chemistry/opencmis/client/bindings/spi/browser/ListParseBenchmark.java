@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.bindings.spi.browser;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.data.ObjectInFolderData;
+import org.apache.chemistry.opencmis.commons.data.ObjectInFolderList;
+import org.apache.chemistry.opencmis.commons.enums.DateTimeFormat;
+import org.apache.chemistry.opencmis.commons.impl.JSONConstants;
+import org.apache.chemistry.opencmis.commons.impl.JSONConverter;
+import org.apache.chemistry.opencmis.commons.impl.TypeCache;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectDataImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectInFolderDataImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectInFolderListImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertiesImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyIdImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyIntegerImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyStringImpl;
+import org.apache.chemistry.opencmis.commons.impl.json.parser.ConvertingContentHandler;
+import org.apache.chemistry.opencmis.commons.impl.json.parser.JSONParser;
+
+/**
+ * Compares parsing a children response into a JSON tree and converting the
+ * tree afterwards with converting the objects while the response is parsed.
+ * Prints the time per response and the garbage collection time.
+ * <p>
+ * This is not a unit test and is not run by the build. Start it with the test
+ * class path and optionally pass the numbers of children as arguments, e.g.
+ * {@code java ListParseBenchmark 1000 10000 100000}.
+ */
+public class ListParseBenchmark {
+
+    private static final int PROPERTIES = 20;
+    private static final int ROUNDS = 10;
+
+    public static void main(String[] args) throws Exception {
+        int[] sizes = { 1000, 10000, 100000 };
+        if (args.length > 0) {
+            sizes = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                sizes[i] = Integer.parseInt(args[i]);
+            }
+        }
+
+        // warm up
+        String warmUp = createResponse(1000);
+        run(warmUp, false);
+        run(warmUp, true);
+
+        for (int size : sizes) {
+            String response = createResponse(size);
+            long[] tree = run(response, false);
+            long[] converting = run(response, true);
+            System.out.println(String.format(
+                    "%,8d children (%,12d chars): tree %,8d ms (gc %,6d ms), converting %,8d ms (gc %,6d ms)", size,
+                    response.length(), tree[0], tree[1], converting[0], converting[1]));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static long[] run(String response, boolean converting) throws Exception {
+        TypeCache typeCache = null;
+        System.gc();
+        long gcStart = getGcMillis();
+        long start = System.nanoTime();
+
+        for (int i = 0; i < ROUNDS; i++) {
+            Map<String, Object> json;
+            if (converting) {
+                ConvertingContentHandler handler = new ConvertingContentHandler(
+                        AbstractBrowserBindingService.getObjectInFolderConverter(typeCache),
+                        JSONConstants.JSON_OBJECTINFOLDERLIST_OBJECTS);
+                new JSONParser().parse(response, handler);
+                json = (Map<String, Object>) handler.getResult();
+            } else {
+                json = (Map<String, Object>) new JSONParser().parse(response);
+            }
+
+            ObjectInFolderList list = JSONConverter.convertObjectInFolderList(json, typeCache);
+            if (list.getObjects().isEmpty()) {
+                throw new IllegalStateException("No children!");
+            }
+        }
+
+        return new long[] { (System.nanoTime() - start) / ROUNDS / 1000000, (getGcMillis() - gcStart) / ROUNDS };
+    }
+
+    private static long getGcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(0, gc.getCollectionTime());
+        }
+        return millis;
+    }
+
+    private static String createResponse(int size) throws IOException {
+        List<ObjectInFolderData> objects = new ArrayList<ObjectInFolderData>();
+        for (int i = 0; i < size; i++) {
+            PropertiesImpl properties = new PropertiesImpl();
+            properties.addProperty(new PropertyIdImpl(PropertyIds.OBJECT_ID, "id" + i));
+            properties.addProperty(new PropertyIdImpl(PropertyIds.OBJECT_TYPE_ID, "cmis:document"));
+            properties.addProperty(new PropertyStringImpl(PropertyIds.NAME, "document" + i));
+            properties.addProperty(new PropertyIntegerImpl(PropertyIds.CONTENT_STREAM_LENGTH, BigInteger
+                    .valueOf(i)));
+            for (int p = 0; p < PROPERTIES; p++) {
+                properties.addProperty(new PropertyStringImpl("custom:property" + p, "value " + p + " of " + i));
+            }
+
+            ObjectDataImpl object = new ObjectDataImpl();
+            object.setProperties(properties);
+
+            ObjectInFolderDataImpl objectInFolder = new ObjectInFolderDataImpl();
+            objectInFolder.setObject(object);
+            objectInFolder.setPathSegment("document" + i);
+            objects.add(objectInFolder);
+        }
+
+        ObjectInFolderListImpl list = new ObjectInFolderListImpl();
+        list.setObjects(objects);
+        list.setHasMoreItems(Boolean.FALSE);
+        list.setNumItems(BigInteger.valueOf(size));
+
+        StringWriter sw = new StringWriter();
+        JSONConverter.convert(list, (TypeCache) null, false, DateTimeFormat.SIMPLE).writeJSONString(sw);
+        return sw.toString();
+    }
+}
@@ -0,0 +1,286 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.bindings.spi.browser;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.chemistry.opencmis.client.bindings.impl.CmisBindingsHelper;
+import org.apache.chemistry.opencmis.client.bindings.impl.SessionImpl;
+import org.apache.chemistry.opencmis.client.bindings.spi.BindingSession;
+import org.apache.chemistry.opencmis.client.bindings.spi.http.HttpInvoker;
+import org.apache.chemistry.opencmis.client.bindings.spi.http.Output;
+import org.apache.chemistry.opencmis.client.bindings.spi.http.Response;
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.SessionParameter;
+import org.apache.chemistry.opencmis.commons.data.ObjectInFolderData;
+import org.apache.chemistry.opencmis.commons.data.ObjectInFolderList;
+import org.apache.chemistry.opencmis.commons.definitions.PropertyDefinition;
+import org.apache.chemistry.opencmis.commons.definitions.TypeDefinition;
+import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
+import org.apache.chemistry.opencmis.commons.enums.Cardinality;
+import org.apache.chemistry.opencmis.commons.enums.DateTimeFormat;
+import org.apache.chemistry.opencmis.commons.enums.PropertyType;
+import org.apache.chemistry.opencmis.commons.enums.Updatability;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisConnectionException;
+import org.apache.chemistry.opencmis.commons.impl.Constants;
+import org.apache.chemistry.opencmis.commons.impl.IOUtils;
+import org.apache.chemistry.opencmis.commons.impl.JSONConverter;
+import org.apache.chemistry.opencmis.commons.impl.TypeCache;
+import org.apache.chemistry.opencmis.commons.impl.UrlBuilder;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.AbstractPropertyDefinition;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.DocumentTypeDefinitionImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectDataImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectInFolderDataImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectInFolderListImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertiesImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyIdDefinitionImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyIdImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyIntegerDefinitionImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyIntegerImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyStringDefinitionImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyStringImpl;
+import org.apache.chemistry.opencmis.commons.impl.json.JSONObject;
+import org.junit.Test;
+
+/**
+ * Lists whose objects have types that are not cached yet must not fetch these
+ * types while the connection of the list response is in use.
+ */
+public class TypeFetchWhileParsingTest {
+
+    private static final String REPOSITORY_ID = "repo";
+    private static final String TYPE_ID = "custom:document";
+    private static final String SIZE_PROPERTY = "custom:size";
+
+    @Test
+    public void testPoolOfOne() {
+        SinglePoolHttpInvoker invoker = new SinglePoolHttpInvoker(createChildren(5));
+        NavigationServiceImpl service = new NavigationServiceImpl(createSession(invoker));
+
+        ObjectInFolderList children = service.getChildren(REPOSITORY_ID, "folder", null, null, null, null, null,
+                null, null, null, null);
+
+        assertEquals(5, children.getObjects().size());
+        for (int i = 0; i < 5; i++) {
+            ObjectInFolderData child = children.getObjects().get(i);
+            assertEquals(TYPE_ID,
+                    child.getObject().getProperties().getProperties().get(PropertyIds.OBJECT_TYPE_ID).getFirstValue());
+            // the custom property has been converted with its type
+            assertEquals(BigInteger.valueOf(i),
+                    child.getObject().getProperties().getProperties().get(SIZE_PROPERTY).getFirstValue());
+        }
+        assertEquals(1, invoker.typeRequests);
+
+        // now the type is cached and the objects are converted while parsing
+        children = service.getChildren(REPOSITORY_ID, "folder", null, null, null, null, null, null, null, null,
+                null);
+        assertEquals(5, children.getObjects().size());
+        assertEquals(1, invoker.typeRequests);
+    }
+
+    private static BindingSession createSession(HttpInvoker invoker) {
+        SessionImpl session = new SessionImpl();
+        session.put(SessionParameter.BROWSER_URL, "http://localhost/cmis/browser");
+        session.put(SessionParameter.TYPE_DEFINITION_CACHE_CLASS,
+                "org.apache.chemistry.opencmis.client.bindings.impl.TypeDefinitionCacheImpl");
+        session.put(CmisBindingsHelper.HTTP_INVOKER_OBJECT, invoker, true);
+
+        RepositoryUrlCache urlCache = new RepositoryUrlCache();
+        urlCache.addRepository(REPOSITORY_ID, "http://localhost/cmis/browser/repo",
+                "http://localhost/cmis/browser/repo/root");
+        session.put(SpiSessionParameter.REPOSITORY_URL_CACHE, urlCache, true);
+
+        return session;
+    }
+
+    private static TypeDefinition createType() {
+        DocumentTypeDefinitionImpl type = new DocumentTypeDefinitionImpl();
+        type.setId(TYPE_ID);
+        type.setLocalName(TYPE_ID);
+        type.setQueryName(TYPE_ID);
+        type.setBaseTypeId(BaseTypeId.CMIS_DOCUMENT);
+        type.setParentTypeId(BaseTypeId.CMIS_DOCUMENT.value());
+        type.addPropertyDefinition(initDefinition(new PropertyIdDefinitionImpl(), PropertyIds.OBJECT_TYPE_ID,
+                PropertyType.ID));
+        type.addPropertyDefinition(initDefinition(new PropertyStringDefinitionImpl(), PropertyIds.NAME,
+                PropertyType.STRING));
+        type.addPropertyDefinition(initDefinition(new PropertyIntegerDefinitionImpl(), SIZE_PROPERTY,
+                PropertyType.INTEGER));
+        return type;
+    }
+
+    private static PropertyDefinition<?> initDefinition(AbstractPropertyDefinition<?> definition, String id,
+            PropertyType propertyType) {
+        definition.setId(id);
+        definition.setLocalName(id);
+        definition.setQueryName(id);
+        definition.setPropertyType(propertyType);
+        definition.setCardinality(Cardinality.SINGLE);
+        definition.setUpdatability(Updatability.READWRITE);
+        return definition;
+    }
+
+    private static ObjectInFolderList createChildren(int count) {
+        List<ObjectInFolderData> objects = new ArrayList<ObjectInFolderData>();
+        for (int i = 0; i < count; i++) {
+            PropertiesImpl properties = new PropertiesImpl();
+            properties.addProperty(new PropertyIdImpl(PropertyIds.OBJECT_TYPE_ID, TYPE_ID));
+            properties.addProperty(new PropertyStringImpl(PropertyIds.NAME, "doc" + i));
+            properties.addProperty(new PropertyIntegerImpl(SIZE_PROPERTY, BigInteger.valueOf(i)));
+
+            ObjectDataImpl object = new ObjectDataImpl();
+            object.setProperties(properties);
+
+            ObjectInFolderDataImpl objectInFolder = new ObjectInFolderDataImpl();
+            objectInFolder.setObject(object);
+            objects.add(objectInFolder);
+        }
+
+        ObjectInFolderListImpl children = new ObjectInFolderListImpl();
+        children.setObjects(objects);
+        children.setHasMoreItems(Boolean.FALSE);
+        return children;
+    }
+
+    private static String toJSON(JSONObject json) {
+        StringWriter sw = new StringWriter();
+        try {
+            json.writeJSONString(sw);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return sw.toString();
+    }
+
+    /**
+     * HTTP invoker with a connection pool of size one. A request fails if the
+     * connection is still held by the stream of another response.
+     */
+    private static class SinglePoolHttpInvoker implements HttpInvoker {
+
+        private final Semaphore pool = new Semaphore(1);
+        private final String childrenJson;
+        private final String typeJson;
+        private int typeRequests;
+
+        public SinglePoolHttpInvoker(ObjectInFolderList children) {
+            final TypeDefinition type = createType();
+            TypeCache serverTypeCache = new TypeCache() {
+                @Override
+                public TypeDefinition getTypeDefinition(String typeId) {
+                    return type;
+                }
+
+                @Override
+                public TypeDefinition reloadTypeDefinition(String typeId) {
+                    return type;
+                }
+
+                @Override
+                public TypeDefinition getTypeDefinitionForObject(String objectId) {
+                    return type;
+                }
+
+                @Override
+                public PropertyDefinition<?> getPropertyDefinition(String propId) {
+                    return type.getPropertyDefinitions().get(propId);
+                }
+            };
+
+            childrenJson = toJSON(JSONConverter.convert(children, serverTypeCache, true, DateTimeFormat.SIMPLE));
+            typeJson = toJSON(JSONConverter.convert(type, DateTimeFormat.SIMPLE));
+        }
+
+        @Override
+        public Response invokeGET(UrlBuilder url, BindingSession session) {
+            try {
+                if (!pool.tryAcquire(1, TimeUnit.SECONDS)) {
+                    throw new CmisConnectionException("Connection pool exhausted!");
+                }
+            } catch (InterruptedException e) {
+                throw new CmisConnectionException("Interrupted!", e);
+            }
+
+            String json;
+            if (url.toString().contains(Constants.PARAM_SELECTOR + "=" + Constants.SELECTOR_TYPE_DEFINITION)) {
+                typeRequests++;
+                json = typeJson;
+            } else {
+                json = childrenJson;
+            }
+
+            return new Response(200, "OK", null, new PooledInputStream(IOUtils.toUTF8Bytes(json), pool), null);
+        }
+
+        @Override
+        public Response invokeGET(UrlBuilder url, BindingSession session, BigInteger offset, BigInteger length) {
+            return invokeGET(url, session);
+        }
+
+        @Override
+        public Response invokePOST(UrlBuilder url, String contentType, Output writer, BindingSession session) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Response invokePUT(UrlBuilder url, String contentType, Map<String, String> headers, Output writer,
+                BindingSession session) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Response invokeDELETE(UrlBuilder url, BindingSession session) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Response stream that returns its connection to the pool when it is
+     * closed.
+     */
+    private static class PooledInputStream extends ByteArrayInputStream {
+
+        private final Semaphore pool;
+        private boolean closed;
+
+        public PooledInputStream(byte[] data, Semaphore pool) {
+            super(data);
+            this.pool = pool;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!closed) {
+                closed = true;
+                pool.release();
+            }
+            super.close();
+        }
+    }
+}
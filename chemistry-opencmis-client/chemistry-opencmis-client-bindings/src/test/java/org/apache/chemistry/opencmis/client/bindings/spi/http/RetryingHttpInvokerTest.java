@@ -0,0 +1,327 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.bindings.spi.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.math.BigInteger;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.chemistry.opencmis.client.bindings.impl.SessionImpl;
+import org.apache.chemistry.opencmis.client.bindings.spi.BindingSession;
+import org.apache.chemistry.opencmis.commons.SessionParameter;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisConnectionException;
+import org.apache.chemistry.opencmis.commons.impl.UrlBuilder;
+import org.junit.Test;
+
+public class RetryingHttpInvokerTest {
+
+    @Test
+    public void testRetryConnectionFailures() {
+        ScriptedHttpInvoker delegate = new ScriptedHttpInvoker();
+        delegate.fail().fail().respond(200, null);
+
+        long retries = RetryingHttpInvoker.getRetryCount();
+        Response resp = new RetryingHttpInvoker().invokeGET(url("retry1"), createSession(delegate));
+
+        assertEquals(200, resp.getResponseCode());
+        assertEquals(3, delegate.calls);
+        assertTrue(RetryingHttpInvoker.getRetryCount() - retries >= 2);
+    }
+
+    @Test
+    public void testGiveUp() {
+        ScriptedHttpInvoker delegate = new ScriptedHttpInvoker();
+        delegate.respond(503, null).respond(503, null).respond(503, null).respond(503, null).respond(200, null);
+
+        Response resp = new RetryingHttpInvoker().invokeGET(url("retry2"), createSession(delegate));
+
+        assertEquals(503, resp.getResponseCode());
+        assertEquals(4, delegate.calls);
+    }
+
+    @Test
+    public void testNoRetryOfPost() {
+        ScriptedHttpInvoker delegate = new ScriptedHttpInvoker();
+        delegate.respond(503, null).respond(200, null);
+
+        Response resp = new RetryingHttpInvoker().invokePOST(url("retry3"), "text/plain", null,
+                createSession(delegate));
+
+        assertEquals(503, resp.getResponseCode());
+        assertEquals(1, delegate.calls);
+    }
+
+    @Test
+    public void testDeleteRetryIsOptIn() {
+        ScriptedHttpInvoker delegate = new ScriptedHttpInvoker();
+        delegate.respond(503, null).respond(200, null);
+
+        SessionImpl session = createSession(delegate);
+        Response resp = new RetryingHttpInvoker().invokeDELETE(url("retry5"), session);
+
+        assertEquals(503, resp.getResponseCode());
+        assertEquals(1, delegate.calls);
+
+        delegate = new ScriptedHttpInvoker();
+        delegate.respond(503, null).respond(200, null);
+
+        session = createSession(delegate);
+        session.put(SessionParameter.HTTP_RETRY_DELETE, "true");
+        resp = new RetryingHttpInvoker().invokeDELETE(url("retry5"), session);
+
+        assertEquals(200, resp.getResponseCode());
+        assertEquals(2, delegate.calls);
+    }
+
+    @Test
+    public void testRetryAfter() {
+        ScriptedHttpInvoker delegate = new ScriptedHttpInvoker();
+        delegate.respond(429, "0").respond(200, null);
+
+        Response resp = new RetryingHttpInvoker().invokeGET(url("retry4"), createSession(delegate));
+        assertEquals(200, resp.getResponseCode());
+        assertEquals(2, delegate.calls);
+
+        // Retry-After exceeds the maximum delay -> no retry
+        delegate = new ScriptedHttpInvoker();
+        delegate.respond(503, "3600").respond(200, null);
+
+        resp = new RetryingHttpInvoker().invokeGET(url("retry4"), createSession(delegate));
+        assertEquals(503, resp.getResponseCode());
+        assertEquals(1, delegate.calls);
+    }
+
+    @Test
+    public void testCircuitBreaker() {
+        ScriptedHttpInvoker delegate = new ScriptedHttpInvoker();
+        delegate.fail().fail().respond(200, null);
+
+        SessionImpl session = createSession(delegate);
+        session.put(SessionParameter.HTTP_RETRY_MAX_RETRIES, "0");
+        session.put(SessionParameter.HTTP_CIRCUIT_BREAKER_THRESHOLD, "2");
+        session.put(SessionParameter.HTTP_CIRCUIT_BREAKER_OPEN_TIME, "60000");
+
+        RetryingHttpInvoker invoker = new RetryingHttpInvoker();
+        for (int i = 0; i < 2; i++) {
+            try {
+                invoker.invokeGET(url("breaker1"), session);
+                fail("Connection exception expected!");
+            } catch (CmisConnectionException e) {
+                // expected
+            }
+        }
+
+        long rejected = RetryingHttpInvoker.getRejectedCount();
+        try {
+            invoker.invokeGET(url("breaker1"), session);
+            fail("Circuit breaker should be open!");
+        } catch (CmisConnectionException e) {
+            // expected
+        }
+
+        assertEquals(2, delegate.calls);
+        assertEquals(1, RetryingHttpInvoker.getRejectedCount() - rejected);
+        assertTrue(RetryingHttpInvoker.getOpenCircuitBreakerCount() >= 1);
+
+        // other endpoints are not affected
+        assertEquals(200, invoker.invokeGET(url("breaker2"), session).getResponseCode());
+    }
+
+    @Test
+    public void testCircuitBreakerTrialRequest() throws InterruptedException {
+        ScriptedHttpInvoker delegate = new ScriptedHttpInvoker();
+        delegate.fail().respond(200, null).respond(200, null);
+
+        SessionImpl session = createSession(delegate);
+        session.put(SessionParameter.HTTP_RETRY_MAX_RETRIES, "0");
+        session.put(SessionParameter.HTTP_CIRCUIT_BREAKER_THRESHOLD, "1");
+        session.put(SessionParameter.HTTP_CIRCUIT_BREAKER_OPEN_TIME, "50");
+
+        RetryingHttpInvoker invoker = new RetryingHttpInvoker();
+        try {
+            invoker.invokeGET(url("breaker3"), session);
+            fail("Connection exception expected!");
+        } catch (CmisConnectionException e) {
+            // expected
+        }
+
+        Thread.sleep(100);
+
+        assertEquals(200, invoker.invokeGET(url("breaker3"), session).getResponseCode());
+        assertEquals(200, invoker.invokeGET(url("breaker3"), session).getResponseCode());
+        assertEquals(3, delegate.calls);
+    }
+
+    @Test
+    public void testCircuitBreakerOpensWhileRetrying() {
+        ScriptedHttpInvoker delegate = new ScriptedHttpInvoker();
+        delegate.fail().fail().respond(200, null);
+
+        SessionImpl session = createSession(delegate);
+        session.put(SessionParameter.HTTP_CIRCUIT_BREAKER_THRESHOLD, "2");
+        session.put(SessionParameter.HTTP_CIRCUIT_BREAKER_OPEN_TIME, "60000");
+
+        // the last connection failure is reported, not the circuit breaker
+        long rejected = RetryingHttpInvoker.getRejectedCount();
+        try {
+            new RetryingHttpInvoker().invokeGET(url("breaker4"), session);
+            fail("Connection exception expected!");
+        } catch (CmisConnectionException e) {
+            assertEquals("Connection reset", e.getMessage());
+        }
+        assertEquals(2, delegate.calls);
+        assertEquals(rejected, RetryingHttpInvoker.getRejectedCount());
+
+        // the last response is returned
+        delegate = new ScriptedHttpInvoker();
+        delegate.respond(503, null).respond(502, null).respond(200, null);
+
+        session = createSession(delegate);
+        session.put(SessionParameter.HTTP_CIRCUIT_BREAKER_THRESHOLD, "2");
+        session.put(SessionParameter.HTTP_CIRCUIT_BREAKER_OPEN_TIME, "60000");
+
+        Response resp = new RetryingHttpInvoker().invokeGET(url("breaker5"), session);
+        assertEquals(502, resp.getResponseCode());
+        assertEquals(2, delegate.calls);
+    }
+
+    @Test
+    public void testCircuitBreakerTrialPermit() throws InterruptedException {
+        RetryingHttpInvoker.CircuitBreaker circuitBreaker = new RetryingHttpInvoker.CircuitBreaker(1, 10);
+
+        Object oldPermit = circuitBreaker.allowRequest();
+        assertNotNull(oldPermit);
+        circuitBreaker.failure(circuitBreaker.allowRequest());
+        assertTrue(circuitBreaker.isOpen());
+        assertNull(circuitBreaker.allowRequest());
+
+        Thread.sleep(50);
+
+        Object trial = circuitBreaker.allowRequest();
+        assertNotNull(trial);
+        assertNull(circuitBreaker.allowRequest());
+
+        // a request that was sent before the circuit breaker opened doesn't
+        // end the trial
+        circuitBreaker.release(oldPermit);
+        assertNull(circuitBreaker.allowRequest());
+
+        circuitBreaker.release(trial);
+        assertNotNull(circuitBreaker.allowRequest());
+    }
+
+    @Test
+    public void testRateLimiter() {
+        ScriptedHttpInvoker delegate = new ScriptedHttpInvoker();
+        delegate.respond(200, null).respond(200, null).respond(200, null);
+
+        SessionImpl session = createSession(delegate);
+        session.put(SessionParameter.HTTP_RATE_LIMIT, "20");
+        session.put(SessionParameter.HTTP_RATE_LIMIT_BURST, "1");
+
+        RetryingHttpInvoker invoker = new RetryingHttpInvoker();
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < 3; i++) {
+            invoker.invokeGET(url("limiter1"), session);
+        }
+        long time = System.currentTimeMillis() - start;
+
+        // 20 requests per second -> 50 ms between two requests
+        assertTrue("Time: " + time, time >= 90);
+        assertEquals(3, delegate.calls);
+    }
+
+    private static UrlBuilder url(String host) {
+        return new UrlBuilder("http://" + host + ":8080/cmis/browser");
+    }
+
+    private static SessionImpl createSession(HttpInvoker delegate) {
+        SessionImpl session = new SessionImpl();
+        session.put(RetryingHttpInvoker.DELEGATE_HTTP_INVOKER, delegate, true);
+        session.put(SessionParameter.HTTP_RETRY_INITIAL_DELAY, "1");
+        session.put(SessionParameter.HTTP_RETRY_MAX_DELAY, "10");
+        session.put(SessionParameter.HTTP_CIRCUIT_BREAKER_THRESHOLD, "0");
+        return session;
+    }
+
+    /**
+     * Returns prepared responses or throws connection exceptions.
+     */
+    private static class ScriptedHttpInvoker implements HttpInvoker {
+        private final LinkedList<Object> script = new LinkedList<Object>();
+        private int calls;
+
+        public ScriptedHttpInvoker fail() {
+            script.add(new CmisConnectionException("Connection reset"));
+            return this;
+        }
+
+        public ScriptedHttpInvoker respond(int code, String retryAfter) {
+            Map<String, List<String>> headers = null;
+            if (retryAfter != null) {
+                headers = Collections.singletonMap("Retry-After", Collections.singletonList(retryAfter));
+            }
+            script.add(new Response(code, "", headers, null, null));
+            return this;
+        }
+
+        private Response next() {
+            calls++;
+            Object next = script.removeFirst();
+            if (next instanceof CmisConnectionException) {
+                throw (CmisConnectionException) next;
+            }
+            return (Response) next;
+        }
+
+        @Override
+        public Response invokeGET(UrlBuilder url, BindingSession session) {
+            return next();
+        }
+
+        @Override
+        public Response invokeGET(UrlBuilder url, BindingSession session, BigInteger offset, BigInteger length) {
+            return next();
+        }
+
+        @Override
+        public Response invokePOST(UrlBuilder url, String contentType, Output writer, BindingSession session) {
+            return next();
+        }
+
+        @Override
+        public Response invokePUT(UrlBuilder url, String contentType, Map<String, String> headers, Output writer,
+                BindingSession session) {
+            return next();
+        }
+
+        @Override
+        public Response invokeDELETE(UrlBuilder url, BindingSession session) {
+            return next();
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.bindings.spi.http;
+
+import static org.apache.chemistry.opencmis.client.bindings.spi.http.SharedPoolOkHttpHttpInvoker.getRequestLimiter;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.chemistry.opencmis.client.bindings.impl.SessionImpl;
+import org.apache.chemistry.opencmis.client.bindings.spi.BindingSession;
+import org.apache.chemistry.opencmis.client.bindings.spi.http.SharedPoolOkHttpHttpInvoker.RequestLimiter;
+import org.apache.chemistry.opencmis.commons.SessionParameter;
+import org.apache.chemistry.opencmis.commons.impl.IOUtils;
+import org.apache.chemistry.opencmis.commons.impl.UrlBuilder;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import okhttp3.OkHttpClient;
+
+public class SharedPoolOkHttpHttpInvokerTest {
+
+    @Test
+    public void testSharedPool() {
+        SharedPoolOkHttpHttpInvoker invoker = new SharedPoolOkHttpHttpInvoker();
+
+        BindingSession session1 = createSession("42", "7");
+        BindingSession session2 = createSession("42", "7");
+        session2.put(SessionParameter.READ_TIMEOUT, "1000");
+
+        OkHttpClient client1 = invoker.createClientBuilder(session1).build();
+        OkHttpClient client2 = invoker.createClientBuilder(session2).build();
+
+        // the sessions share the pool and the limits, but not the timeouts
+        assertSame(client1.connectionPool(), client2.connectionPool());
+        assertSame(getRequestLimiter(client1), getRequestLimiter(client2));
+        assertEquals(1000, client2.readTimeoutMillis());
+
+        // the limits are applied
+        assertEquals(42, getRequestLimiter(client1).getMaxRequests());
+        assertEquals(7, getRequestLimiter(client1).getMaxRequestsPerHost());
+    }
+
+    @Test
+    public void testDifferentLimits() {
+        SharedPoolOkHttpHttpInvoker invoker = new SharedPoolOkHttpHttpInvoker();
+
+        OkHttpClient client1 = invoker.getSharedClient(createSession("43", "8"));
+        OkHttpClient client2 = invoker.getSharedClient(createSession("43", "9"));
+
+        assertNotSame(getRequestLimiter(client1), getRequestLimiter(client2));
+        assertEquals(8, getRequestLimiter(client1).getMaxRequestsPerHost());
+        assertEquals(9, getRequestLimiter(client2).getMaxRequestsPerHost());
+    }
+
+    @Test
+    public void testDefaults() {
+        SharedPoolOkHttpHttpInvoker invoker = new SharedPoolOkHttpHttpInvoker();
+
+        OkHttpClient client = invoker.getSharedClient(createSession("0", "-1"));
+
+        assertEquals(SharedPoolOkHttpHttpInvoker.DEFAULT_MAX_REQUESTS, getRequestLimiter(client).getMaxRequests());
+        assertEquals(SharedPoolOkHttpHttpInvoker.DEFAULT_MAX_REQUESTS_PER_HOST, getRequestLimiter(client)
+                .getMaxRequestsPerHost());
+        assertSame(client, invoker.getSharedClient(new SessionImpl()));
+    }
+
+    @Test
+    public void testLimitsEnforced() throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                byte[] body = IOUtils.toUTF8Bytes("hello");
+                exchange.sendResponseHeaders(200, body.length);
+                exchange.getResponseBody().write(body);
+                exchange.close();
+            }
+        });
+        server.start();
+
+        try {
+            final SharedPoolOkHttpHttpInvoker invoker = new SharedPoolOkHttpHttpInvoker();
+            final BindingSession session = createSession("44", "1");
+            final UrlBuilder url = new UrlBuilder("http://127.0.0.1:" + server.getAddress().getPort() + "/");
+
+            // the first request holds the only permit for the host until its
+            // stream has been closed
+            Response first = invoker.invokeGET(url, session);
+            assertEquals(200, first.getResponseCode());
+            RequestLimiter limiter = getRequestLimiter((OkHttpClient) session
+                    .get(OkHttpHttpInvoker.HTTP_CLIENT));
+            assertEquals(1, limiter.getRunningRequests());
+
+            final CountDownLatch secondDone = new CountDownLatch(1);
+            Thread second = new Thread() {
+                @Override
+                public void run() {
+                    Response response = invoker.invokeGET(url, session);
+                    IOUtils.consumeAndClose(response.getStream());
+                    secondDone.countDown();
+                }
+            };
+            second.start();
+
+            assertFalse(secondDone.await(300, TimeUnit.MILLISECONDS));
+
+            first.getStream().close();
+            assertTrue(secondDone.await(5, TimeUnit.SECONDS));
+            second.join();
+
+            assertEquals(0, limiter.getRunningRequests());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    private static BindingSession createSession(String maxRequests, String maxRequestsPerHost) {
+        SessionImpl session = new SessionImpl();
+        session.put(SessionParameter.HTTP_POOL_MAX_CONNECTIONS, maxRequests);
+        session.put(SessionParameter.HTTP_POOL_MAX_CONNECTIONS_PER_HOST, maxRequestsPerHost);
+        return session;
+    }
+}
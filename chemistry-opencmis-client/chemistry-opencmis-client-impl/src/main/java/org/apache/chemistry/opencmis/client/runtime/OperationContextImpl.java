@@ -49,6 +49,7 @@ public class OperationContextImpl implements OperationContext, Serializable {
     private boolean cacheEnabled;
     private String cacheKey;
     private int maxItemsPerPage;
+    private int prefetchDepth;
 
     /**
      * Default constructor.
@@ -87,6 +88,7 @@ public class OperationContextImpl implements OperationContext, Serializable {
         generateCacheKey();
 
         setMaxItemsPerPage(source.getMaxItemsPerPage());
+        setPrefetchDepth(source.getPrefetchDepth());
     }
 
     /**
@@ -413,4 +415,18 @@ public class OperationContextImpl implements OperationContext, Serializable {
 
         this.maxItemsPerPage = maxItemsPerPage;
     }
+
+    @Override
+    public final int getPrefetchDepth() {
+        return prefetchDepth;
+    }
+
+    @Override
+    public final void setPrefetchDepth(int prefetchDepth) {
+        if (prefetchDepth < 0) {
+            throw new IllegalArgumentException("prefetchDepth must be >= 0!");
+        }
+
+        this.prefetchDepth = prefetchDepth;
+    }
 }
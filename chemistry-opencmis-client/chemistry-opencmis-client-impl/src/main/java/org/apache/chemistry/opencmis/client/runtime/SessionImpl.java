@@ -52,6 +52,8 @@ import org.apache.chemistry.opencmis.client.api.SecondaryType;
 import org.apache.chemistry.opencmis.client.api.Session;
 import org.apache.chemistry.opencmis.client.api.Tree;
 import org.apache.chemistry.opencmis.client.bindings.cache.TypeDefinitionCache;
+import org.apache.chemistry.opencmis.client.bindings.impl.CmisBindingImpl;
+import org.apache.chemistry.opencmis.client.bindings.spi.MetricsListener;
 import org.apache.chemistry.opencmis.client.runtime.cache.Cache;
 import org.apache.chemistry.opencmis.client.runtime.cache.CacheImpl;
 import org.apache.chemistry.opencmis.client.runtime.repository.ObjectFactoryImpl;
@@ -309,7 +311,8 @@ public class SessionImpl implements Session {
         final ObjectFactory of = getObjectFactory();
         final OperationContext ctxt = new OperationContextImpl(context);
 
-        return new CollectionIterable<Document>(new AbstractPageFetcher<Document>(ctxt.getMaxItemsPerPage()) {
+        return new CollectionIterable<Document>(new AbstractPageFetcher<Document>(ctxt.getMaxItemsPerPage(),
+                ctxt.getPrefetchDepth()) {
 
             @Override
             protected AbstractPageFetcher.Page<Document> fetchPage(long skipCount) {
@@ -523,6 +526,7 @@ public class SessionImpl implements Session {
         // ask the cache first
         if (context.isCacheEnabled()) {
             result = cache.getById(objectId, context.getCacheKey());
+            cacheAccessed("object", result != null);
             if (result != null) {
                 return result;
             }
@@ -558,6 +562,7 @@ public class SessionImpl implements Session {
         // ask the cache first
         if (context.isCacheEnabled() && !cachePathOmit) {
             result = cache.getByPath(path, context.getCacheKey());
+            cacheAccessed("objectPath", result != null);
             if (result != null) {
                 return result;
             }
@@ -991,7 +996,8 @@ public class SessionImpl implements Session {
         final ObjectFactory of = getObjectFactory();
         final OperationContext ctxt = new OperationContextImpl(context);
 
-        return new CollectionIterable<QueryResult>(new AbstractPageFetcher<QueryResult>(ctxt.getMaxItemsPerPage()) {
+        return new CollectionIterable<QueryResult>(new AbstractPageFetcher<QueryResult>(ctxt.getMaxItemsPerPage(),
+                ctxt.getPrefetchDepth()) {
 
             @Override
             protected AbstractPageFetcher.Page<QueryResult> fetchPage(long skipCount) {
@@ -1058,7 +1064,8 @@ public class SessionImpl implements Session {
             statement.append(orderBy);
         }
 
-        return new CollectionIterable<CmisObject>(new AbstractPageFetcher<CmisObject>(ctxt.getMaxItemsPerPage()) {
+        return new CollectionIterable<CmisObject>(new AbstractPageFetcher<CmisObject>(ctxt.getMaxItemsPerPage(),
+                ctxt.getPrefetchDepth()) {
 
             @Override
             protected AbstractPageFetcher.Page<CmisObject> fetchPage(long skipCount) {
@@ -1133,6 +1140,19 @@ public class SessionImpl implements Session {
         }
     }
 
+    /**
+     * Reports an object cache access to the metrics listener of the binding.
+     */
+    private void cacheAccessed(String cacheName, boolean hit) {
+        CmisBinding currentBinding = getBinding();
+        if (currentBinding instanceof CmisBindingImpl) {
+            MetricsListener listener = ((CmisBindingImpl) currentBinding).getMetricsListener();
+            if (listener != null) {
+                listener.cacheAccessed(cacheName, getRepositoryId(), hit);
+            }
+        }
+    }
+
     public Cache getCache() {
         lock.readLock().lock();
         try {
@@ -1449,7 +1469,8 @@ public class SessionImpl implements Session {
         final RelationshipService relationshipService = getBinding().getRelationshipService();
         final OperationContext ctxt = new OperationContextImpl(context);
 
-        return new CollectionIterable<Relationship>(new AbstractPageFetcher<Relationship>(ctxt.getMaxItemsPerPage()) {
+        return new CollectionIterable<Relationship>(new AbstractPageFetcher<Relationship>(ctxt.getMaxItemsPerPage(),
+                ctxt.getPrefetchDepth()) {
 
             @Override
             protected AbstractPageFetcher.Page<Relationship> fetchPage(long skipCount) {
@@ -0,0 +1,416 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.runtime.cache;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.lang.ref.SoftReference;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.chemistry.opencmis.client.api.CmisObject;
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.SessionParameter;
+import org.apache.chemistry.opencmis.commons.SessionParameterDefaults;
+
+/**
+ * Cache implementation for sessions that are shared by many threads.
+ * <p>
+ * The entries are distributed over independent LRU segments, each guarded by
+ * its own lock. Threads that access different objects rarely wait for each
+ * other and there is no lock that is held across the whole cache. Small caches
+ * use a single segment and behave like a plain LRU cache.
+ * <p>
+ * The size and time-to-live parameters are the same as for {@link CacheImpl}.
+ * To use this cache, set the session parameter
+ * {@link SessionParameter#CACHE_CLASS} to the name of this class.
+ */
+public class ConcurrentCacheImpl implements Cache {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int MAX_SEGMENTS = 16;
+    private static final int MIN_SEGMENT_SIZE = 64;
+
+    private int cacheSize;
+    private int cacheTtl;
+    private int pathToIdSize;
+    private int pathToIdTtl;
+
+    private volatile SegmentedLruMap<Map<String, CmisObject>> objectMap;
+    private volatile SegmentedLruMap<String> pathToIdMap;
+
+    /**
+     * Default constructor.
+     */
+    public ConcurrentCacheImpl() {
+    }
+
+    @Override
+    public void initialize(Session session, Map<String, String> parameters) {
+        assert parameters != null;
+
+        // cache size
+        try {
+            cacheSize = Integer.valueOf(parameters.get(SessionParameter.CACHE_SIZE_OBJECTS));
+            if (cacheSize < 0) {
+                cacheSize = 0;
+            }
+        } catch (Exception e) {
+            cacheSize = SessionParameterDefaults.CACHE_SIZE_OBJECTS;
+        }
+
+        // cache time-to-live
+        try {
+            cacheTtl = Integer.valueOf(parameters.get(SessionParameter.CACHE_TTL_OBJECTS));
+            if (cacheTtl < 0) {
+                cacheTtl = SessionParameterDefaults.CACHE_TTL_OBJECTS;
+            }
+        } catch (Exception e) {
+            cacheTtl = SessionParameterDefaults.CACHE_TTL_OBJECTS;
+        }
+
+        // path-to-id size
+        try {
+            pathToIdSize = Integer.valueOf(parameters.get(SessionParameter.CACHE_SIZE_PATHTOID));
+            if (pathToIdSize < 0) {
+                pathToIdSize = 0;
+            }
+        } catch (Exception e) {
+            pathToIdSize = SessionParameterDefaults.CACHE_SIZE_PATHTOID;
+        }
+
+        // path-to-id time-to-live
+        try {
+            pathToIdTtl = Integer.valueOf(parameters.get(SessionParameter.CACHE_TTL_PATHTOID));
+            if (pathToIdTtl < 0) {
+                pathToIdTtl = SessionParameterDefaults.CACHE_TTL_PATHTOID;
+            }
+        } catch (Exception e) {
+            pathToIdTtl = SessionParameterDefaults.CACHE_TTL_PATHTOID;
+        }
+
+        initializeInternals();
+    }
+
+    /**
+     * Sets up the internal objects.
+     */
+    private void initializeInternals() {
+        objectMap = new SegmentedLruMap<Map<String, CmisObject>>(cacheSize);
+        pathToIdMap = new SegmentedLruMap<String>(pathToIdSize);
+    }
+
+    @Override
+    public void clear() {
+        initializeInternals();
+    }
+
+    @Override
+    public boolean containsId(String objectId, String cacheKey) {
+        return objectMap.get(objectId) != null;
+    }
+
+    @Override
+    public boolean containsPath(String path, String cacheKey) {
+        CacheItem<String> item = pathToIdMap.get(path);
+        if (item == null) {
+            return false;
+        }
+
+        String objectId = item.getItem();
+        if (objectId == null || !containsId(objectId, cacheKey)) {
+            pathToIdMap.remove(path, item);
+            return false;
+        }
+
+        return true;
+    }
+
+    @Override
+    public CmisObject getById(String objectId, String cacheKey) {
+        CacheItem<Map<String, CmisObject>> item = objectMap.get(objectId);
+        if (item == null) {
+            return null;
+        }
+
+        Map<String, CmisObject> cacheKeyMap = item.getItem();
+        return cacheKeyMap == null ? null : cacheKeyMap.get(cacheKey);
+    }
+
+    @Override
+    public CmisObject getByPath(String path, String cacheKey) {
+        String objectId = getObjectIdByPath(path);
+        if (objectId == null) {
+            return null;
+        }
+
+        return getById(objectId, cacheKey);
+    }
+
+    @Override
+    public String getObjectIdByPath(String path) {
+        CacheItem<String> item = pathToIdMap.get(path);
+        return item == null ? null : item.getItem();
+    }
+
+    @Override
+    public void put(CmisObject object, String cacheKey) {
+        // no object, no cache key - no cache
+        if ((object == null) || (cacheKey == null)) {
+            return;
+        }
+
+        // no id - no cache
+        if (object.getId() == null) {
+            return;
+        }
+
+        // get cache key map
+        CacheItem<Map<String, CmisObject>> cacheKeyMap = objectMap.get(object.getId());
+        if (cacheKeyMap == null) {
+            cacheKeyMap = objectMap.putIfAbsent(object.getId(), new CacheItem<Map<String, CmisObject>>(
+                    new ConcurrentHashMap<String, CmisObject>(), cacheTtl));
+        }
+
+        // put into id cache
+        Map<String, CmisObject> m = cacheKeyMap.getItem();
+        if (m != null) {
+            m.put(cacheKey, object);
+        }
+
+        // folders may have a path, use it!
+        String path = object.getPropertyValue(PropertyIds.PATH);
+        if (path != null) {
+            pathToIdMap.put(path, new CacheItem<String>(object.getId(), pathToIdTtl));
+        }
+    }
+
+    @Override
+    public void putPath(String path, CmisObject object, String cacheKey) {
+        if (path == null) {
+            return;
+        }
+
+        put(object, cacheKey);
+
+        if ((object != null) && (object.getId() != null) && (cacheKey != null)) {
+            pathToIdMap.put(path, new CacheItem<String>(object.getId(), pathToIdTtl));
+        }
+    }
+
+    @Override
+    public void remove(String objectId) {
+        if (objectId == null) {
+            return;
+        }
+
+        objectMap.remove(objectId);
+    }
+
+    @Override
+    public void removePath(String path) {
+        if (path == null) {
+            return;
+        }
+
+        pathToIdMap.remove(path);
+    }
+
+    @Override
+    public int getCacheSize() {
+        return this.cacheSize;
+    }
+
+    // --- segmented LRU map ---
+
+    /**
+     * A size limited map that is split into segments. Each segment is a LRU
+     * map with its own lock. Expired entries are removed when they are
+     * accessed.
+     */
+    private static class SegmentedLruMap<T> implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Segment<T>[] segments;
+        private final int segmentMask;
+
+        @SuppressWarnings("unchecked")
+        public SegmentedLruMap(int maxSize) {
+            int segmentCount = 1;
+            while (segmentCount < MAX_SEGMENTS && segmentCount * 2 * MIN_SEGMENT_SIZE <= maxSize) {
+                segmentCount *= 2;
+            }
+
+            int segmentSize = (maxSize + segmentCount - 1) / segmentCount;
+
+            segments = new Segment[segmentCount];
+            for (int i = 0; i < segmentCount; i++) {
+                segments[i] = new Segment<T>(segmentSize);
+            }
+            segmentMask = segmentCount - 1;
+        }
+
+        private Segment<T> getSegment(String key) {
+            int h = key.hashCode();
+            h ^= (h >>> 16);
+            return segments[h & segmentMask];
+        }
+
+        public CacheItem<T> get(String key) {
+            if (key == null) {
+                return null;
+            }
+
+            return getSegment(key).get(key);
+        }
+
+        public void put(String key, CacheItem<T> item) {
+            getSegment(key).put(key, item);
+        }
+
+        public CacheItem<T> putIfAbsent(String key, CacheItem<T> item) {
+            return getSegment(key).putIfAbsent(key, item);
+        }
+
+        public void remove(String key) {
+            getSegment(key).remove(key, null);
+        }
+
+        public void remove(String key, CacheItem<T> item) {
+            getSegment(key).remove(key, item);
+        }
+    }
+
+    private static class Segment<T> implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private static final float HASHTABLE_LOAD_FACTOR = 0.75f;
+
+        private final LinkedHashMap<String, CacheItem<T>> map;
+
+        public Segment(final int maxSize) {
+            int hashTableCapacity = (int) Math.ceil(maxSize / HASHTABLE_LOAD_FACTOR) + 1;
+
+            map = new LinkedHashMap<String, CacheItem<T>>(hashTableCapacity, HASHTABLE_LOAD_FACTOR, true) {
+
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CacheItem<T>> eldest) {
+                    return size() > maxSize;
+                }
+            };
+        }
+
+        public synchronized CacheItem<T> get(String key) {
+            CacheItem<T> item = map.get(key);
+            if (item != null && item.isExpired()) {
+                map.remove(key);
+                return null;
+            }
+
+            return item;
+        }
+
+        public synchronized void put(String key, CacheItem<T> item) {
+            map.put(key, item);
+        }
+
+        public synchronized CacheItem<T> putIfAbsent(String key, CacheItem<T> item) {
+            CacheItem<T> current = get(key);
+            if (current != null) {
+                return current;
+            }
+
+            map.put(key, item);
+            return item;
+        }
+
+        public synchronized void remove(String key, CacheItem<T> item) {
+            if (item == null || map.get(key) == item) {
+                map.remove(key);
+            }
+        }
+
+        private synchronized void writeObject(ObjectOutputStream out) throws IOException {
+            out.defaultWriteObject();
+        }
+    }
+
+    // --- cache item ---
+
+    /**
+     * Immutable cache item. It can be read by multiple threads without
+     * synchronization.
+     */
+    private static class CacheItem<T> implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private transient SoftReference<T> item;
+        private transient long timestamp;
+        private transient int ttl;
+
+        public CacheItem(T item, int ttl) {
+            this.item = new SoftReference<T>(item);
+            timestamp = System.currentTimeMillis();
+            this.ttl = ttl;
+        }
+
+        public boolean isExpired() {
+            if ((item == null) || (item.get() == null)) {
+                return true;
+            }
+
+            return timestamp + ttl < System.currentTimeMillis();
+        }
+
+        public T getItem() {
+            if (isExpired()) {
+                return null;
+            }
+
+            return item.get();
+        }
+
+        private void writeObject(ObjectOutputStream out) throws IOException {
+            out.writeObject(isExpired() ? null : item.get());
+            out.writeLong(timestamp);
+            out.writeInt(ttl);
+        }
+
+        private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+            @SuppressWarnings("unchecked")
+            T object = (T) in.readObject();
+            timestamp = in.readLong();
+            ttl = in.readInt();
+
+            if ((object != null) && (timestamp + ttl >= System.currentTimeMillis())) {
+                this.item = new SoftReference<T>(object);
+            }
+        }
+    }
+}
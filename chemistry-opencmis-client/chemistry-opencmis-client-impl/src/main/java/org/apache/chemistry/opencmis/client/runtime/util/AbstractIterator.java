@@ -34,6 +34,7 @@ public abstract class AbstractIterator<T> implements Iterator<T> {
     private long skipCount;
     private int skipOffset;
     private final AbstractPageFetcher<T> pageFetcher;
+    private final PagePrefetcher<T> prefetcher;
 
     private Page<T> page;
     private Long totalNumItems;
@@ -43,8 +44,21 @@ public abstract class AbstractIterator<T> implements Iterator<T> {
      * Constructor.
      */
     protected AbstractIterator(long skipCount, AbstractPageFetcher<T> pageFetcher) {
+        this(skipCount, pageFetcher, false);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param prefetch
+     *            if <code>true</code> and the page fetcher has a prefetch
+     *            depth, the following pages are fetched in the background
+     */
+    protected AbstractIterator(long skipCount, AbstractPageFetcher<T> pageFetcher, boolean prefetch) {
         this.skipCount = skipCount;
         this.pageFetcher = pageFetcher;
+        this.prefetcher = prefetch && pageFetcher.getPrefetchDepth() > 0 ? new PagePrefetcher<T>(pageFetcher,
+                pageFetcher.getPrefetchDepth()) : null;
     }
 
     public long getPosition() {
@@ -94,6 +108,20 @@ public abstract class AbstractIterator<T> implements Iterator<T> {
         throw new UnsupportedOperationException();
     }
 
+    /**
+     * Stops fetching pages in the background.
+     * <p>
+     * Calling this method is optional. If the iteration ends early, the
+     * background fetches stop by themselves after the prefetch depth has been
+     * reached, and the prefetched pages are released together with the
+     * iterator. This method only stops them earlier.
+     */
+    public void close() {
+        if (prefetcher != null) {
+            prefetcher.cancel();
+        }
+    }
+
     /**
      * Gets current skip count
      *
@@ -128,7 +156,7 @@ public abstract class AbstractIterator<T> implements Iterator<T> {
      */
     protected Page<T> getCurrentPage() {
         if (page == null) {
-            page = pageFetcher.fetchPage(skipCount);
+            page = fetchPage(skipCount);
         }
         return page;
     }
@@ -143,8 +171,15 @@ public abstract class AbstractIterator<T> implements Iterator<T> {
         skipOffset = 0;
         totalNumItems = null;
         hasMoreItems = null;
-        page = pageFetcher.fetchPage(skipCount);
+        page = fetchPage(skipCount);
         return page;
     }
 
+    private Page<T> fetchPage(long skipCount) {
+        if (prefetcher != null) {
+            return prefetcher.fetchPage(skipCount);
+        }
+        return pageFetcher.fetchPage(skipCount);
+    }
+
 }
@@ -29,9 +29,20 @@ import java.util.List;
 public abstract class AbstractPageFetcher<T> {
 
     protected long maxNumItems;
+    protected int prefetchDepth;
 
     protected AbstractPageFetcher(long maxNumItems) {
+        this(maxNumItems, 0);
+    }
+
+    /**
+     * @param maxNumItems max number of items per page
+     * @param prefetchDepth number of pages fetched in the background while
+     *            iterating, 0 disables prefetching
+     */
+    protected AbstractPageFetcher(long maxNumItems, int prefetchDepth) {
         this.maxNumItems = maxNumItems;
+        this.prefetchDepth = prefetchDepth;
     }
 
     /**
@@ -81,4 +92,12 @@ public abstract class AbstractPageFetcher<T> {
         this.maxNumItems = maxNumItems;
     }
 
+    public int getPrefetchDepth() {
+        return prefetchDepth;
+    }
+
+    public void setPrefetchDepth(int prefetchDepth) {
+        this.prefetchDepth = prefetchDepth;
+    }
+
 }
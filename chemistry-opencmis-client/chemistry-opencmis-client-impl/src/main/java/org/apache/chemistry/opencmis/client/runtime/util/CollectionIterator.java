@@ -33,7 +33,7 @@ public class CollectionIterator<T> extends AbstractIterator<T> {
      * Constructor.
      */
     public CollectionIterator(long skipCount, AbstractPageFetcher<T> pageFetcher) {
-        super(skipCount, pageFetcher);
+        super(skipCount, pageFetcher, true);
     }
 
     @Override
@@ -0,0 +1,218 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.runtime.util;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.chemistry.opencmis.client.runtime.util.AbstractPageFetcher.Page;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
+
+/**
+ * Fetches the pages following the current page in the background.
+ * <p>
+ * The skip count of a page is only known when the previous page has been
+ * fetched, so the pages are fetched one after the other. At most
+ * <code>prefetchDepth</code> pages are fetched ahead of the page that is
+ * currently consumed. The fetches are self-limiting: a page is only fetched
+ * when the consumer takes a page or when the previous page arrived and the
+ * limit hasn't been reached. If the consumer stops, at most
+ * <code>prefetchDepth</code> pages are fetched, no task stays behind, and
+ * the pages become garbage with the iterator. {@link #cancel()} stops the
+ * fetches earlier.
+ * <p>
+ * The fetches run on shared daemon threads, which don't keep the JVM alive
+ * and terminate when they are idle.
+ *
+ * @param <T>
+ *            the type of items fetched
+ */
+class PagePrefetcher<T> {
+
+    private static final AtomicInteger THREAD_NUMBER = new AtomicInteger();
+
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "cmis-page-prefetch-" + THREAD_NUMBER.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private final AbstractPageFetcher<T> pageFetcher;
+    private final int prefetchDepth;
+
+    // pages fetched ahead, in skip count order; guarded by this
+    private final LinkedList<PrefetchTask> pending = new LinkedList<PrefetchTask>();
+    private boolean cancelled;
+
+    PagePrefetcher(AbstractPageFetcher<T> pageFetcher, int prefetchDepth) {
+        this.pageFetcher = pageFetcher;
+        this.prefetchDepth = prefetchDepth;
+    }
+
+    /**
+     * Returns the page at the given skip count and starts prefetching the
+     * next pages.
+     */
+    Page<T> fetchPage(long skipCount) {
+        PrefetchTask task;
+        synchronized (this) {
+            task = pending.peekFirst();
+            if (task != null && task.skipCount == skipCount) {
+                pending.removeFirst();
+            } else {
+                // not the expected page -> start over
+                cancelPending();
+                task = null;
+            }
+        }
+
+        Page<T> page = null;
+        if (task != null) {
+            page = task.get();
+        }
+        if (page == null) {
+            page = pageFetcher.fetchPage(skipCount);
+        }
+
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                if (!cancelled && hasMoreItems(skipCount, page)) {
+                    submit(skipCount + page.getItems().size());
+                }
+            } else {
+                PrefetchTask last = pending.getLast();
+                if (last.done) {
+                    scheduleNext(last);
+                }
+            }
+        }
+
+        return page;
+    }
+
+    /**
+     * Cancels all running and scheduled fetches.
+     */
+    synchronized void cancel() {
+        cancelled = true;
+        cancelPending();
+    }
+
+    private void cancelPending() {
+        for (PrefetchTask task : pending) {
+            task.future.cancel(false);
+        }
+        pending.clear();
+    }
+
+    private void submit(long skipCount) {
+        PrefetchTask task = new PrefetchTask(skipCount);
+        pending.addLast(task);
+        task.future = EXECUTOR.submit(task);
+    }
+
+    /**
+     * Schedules the page following the given page if the prefetch depth
+     * allows it. Must be called with the lock held.
+     */
+    private void scheduleNext(PrefetchTask task) {
+        if (cancelled || task.next || pending.peekLast() != task || pending.size() >= prefetchDepth) {
+            return;
+        }
+        if (!hasMoreItems(task.skipCount, task.page)) {
+            return;
+        }
+
+        task.next = true;
+        submit(task.skipCount + task.page.getItems().size());
+    }
+
+    private static boolean hasMoreItems(long skipCount, Page<?> page) {
+        if (page == null) {
+            return false;
+        }
+
+        List<?> items = page.getItems();
+        if (items == null || items.isEmpty() || !Boolean.TRUE.equals(page.getHasMoreItems())) {
+            return false;
+        }
+
+        Long totalNumItems = page.getTotalNumItems();
+        return totalNumItems == null || totalNumItems.longValue() < 0
+                || skipCount + items.size() < totalNumItems.longValue();
+    }
+
+    private class PrefetchTask implements Callable<Page<T>> {
+        private final long skipCount;
+        private Future<Page<T>> future;
+        private Page<T> page;
+        private boolean done;
+        private boolean next;
+
+        public PrefetchTask(long skipCount) {
+            this.skipCount = skipCount;
+        }
+
+        @Override
+        public Page<T> call() {
+            Page<T> result = pageFetcher.fetchPage(skipCount);
+            synchronized (PagePrefetcher.this) {
+                page = result;
+                done = true;
+                scheduleNext(this);
+            }
+            return result;
+        }
+
+        /**
+         * Waits for the page. Returns <code>null</code> if the fetch has been
+         * cancelled.
+         */
+        public Page<T> get() {
+            try {
+                return future.get();
+            } catch (CancellationException e) {
+                return null;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CmisRuntimeException("Interrupted while waiting for page!", e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new CmisRuntimeException(String.valueOf(cause), cause);
+            }
+        }
+    }
+}
@@ -0,0 +1,565 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.runtime.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.chemistry.opencmis.client.api.CmisObject;
+import org.apache.chemistry.opencmis.client.api.Document;
+import org.apache.chemistry.opencmis.client.api.ObjectId;
+import org.apache.chemistry.opencmis.client.api.OperationContext;
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.apache.chemistry.opencmis.client.runtime.OperationContextImpl;
+import org.apache.chemistry.opencmis.client.util.ContentStreamUtils;
+import org.apache.chemistry.opencmis.client.util.OperationContextUtils;
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.data.ContentStream;
+import org.apache.chemistry.opencmis.commons.spi.Holder;
+
+/**
+ * An OutputStream that overwrites and appends to the content of a document
+ * like {@link AppendOutputStream}, but sends the chunks in a background
+ * thread.
+ *
+ * While one chunk is sent to the repository, the next chunks are filled. The
+ * memory is bounded by the number of chunk buffers: if all buffers are full
+ * or in flight, writing blocks until a chunk has been sent. Chunks are sent
+ * one after the other in the order they were written.
+ *
+ * An interrupted upload can be resumed with
+ * {@link #resume(Session, ObjectId, String, String, int, int)}, which appends
+ * to the content the repository has already stored. The number of bytes to
+ * skip in the source is provided by {@link #getStartOffset()}, and
+ * {@link #transferFrom(InputStream)} skips them automatically.
+ *
+ * If the document is versioned, it's the responsibility of the caller to check
+ * it out and check it in.
+ *
+ * This class is not thread safe. Only one thread may write to the stream.
+ */
+public class PipelinedAppendOutputStream extends OutputStream {
+
+    public final static OperationContext DOCUMENT_OPERATION_CONTEXT = OperationContextUtils
+            .createMinimumOperationContext(PropertyIds.CONTENT_STREAM_FILE_NAME, PropertyIds.CONTENT_STREAM_MIME_TYPE,
+                    PropertyIds.CONTENT_STREAM_LENGTH, PropertyIds.CHANGE_TOKEN);
+
+    private final static int DEFAULT_CHUNK_SIZE = 1024 * 1024;
+    private final static int DEFAULT_BUFFERS = 3;
+
+    private static final AtomicInteger THREAD_NUMBER = new AtomicInteger();
+
+    /**
+     * Receives progress notifications. The listener is called from the upload
+     * thread.
+     */
+    public interface ProgressListener {
+        /**
+         * Called after a chunk has been stored by the repository.
+         *
+         * @param position
+         *            the length of the content stored by the repository,
+         *            including the start offset
+         */
+        void chunkSent(long position);
+    }
+
+    private final Session session;
+    private final String repId;
+    private final String filename;
+    private final String mimeType;
+    private final int chunkSize;
+    private final int maxBuffers;
+    private final long startOffset;
+
+    // upload thread state
+    private String documentId;
+    private String changeToken;
+    private boolean overwrite;
+
+    // writer state
+    private final BlockingQueue<byte[]> freeBuffers;
+    private final BlockingQueue<Chunk> sendQueue;
+    private int allocatedBuffers;
+    private byte[] buffer;
+    private int pos;
+    private long enqueuedChunks;
+    private boolean isClosed;
+    private Thread uploadThread;
+
+    // shared state, guarded by this
+    private long completedChunks;
+    private long position;
+    private IOException failure;
+
+    private volatile ProgressListener progressListener;
+
+    public PipelinedAppendOutputStream(Session session, Document doc, boolean overwrite, String filename,
+            String mimeType) {
+        this(session, doc, overwrite, filename, mimeType, DEFAULT_CHUNK_SIZE, DEFAULT_BUFFERS);
+    }
+
+    /**
+     * Creates an OutputStream that appends content to a document.
+     *
+     * @param session
+     *            the session object, must not be {@code null}
+     * @param doc
+     *            the document, must not be {@code null}
+     * @param overwrite
+     *            if {@code true} the first call to repository sets a new
+     *            content, if {@code false} the all calls append to the current
+     *            content
+     * @param filename
+     *            the file name, may be {@code null}
+     * @param mimeType
+     *            the MIME type, may be {@code null}
+     * @param chunkSize
+     *            the size of a chunk
+     * @param buffers
+     *            the max number of chunk buffers, at least 2
+     */
+    public PipelinedAppendOutputStream(Session session, Document doc, boolean overwrite, String filename,
+            String mimeType, int chunkSize, int buffers) {
+        this(session, doc, overwrite, filename, mimeType, chunkSize, buffers, 0);
+    }
+
+    private PipelinedAppendOutputStream(Session session, Document doc, boolean overwrite, String filename,
+            String mimeType, int chunkSize, int buffers, long startOffset) {
+        if (session == null) {
+            throw new IllegalArgumentException("Session must be set!");
+        }
+        if (doc == null) {
+            throw new IllegalArgumentException("Document must be set!");
+        }
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be positive!");
+        }
+        if (buffers < 2) {
+            throw new IllegalArgumentException("At least two buffers are required!");
+        }
+
+        this.filename = filename == null ? doc.getContentStreamFileName() : filename;
+        this.mimeType = mimeType == null ? doc.getContentStreamMimeType() : mimeType;
+        this.session = session;
+        this.repId = session.getRepositoryInfo().getId();
+        this.documentId = doc.getId();
+        this.changeToken = doc.getChangeToken();
+        this.overwrite = overwrite;
+        this.chunkSize = chunkSize;
+        this.maxBuffers = buffers;
+        this.startOffset = startOffset;
+        this.position = startOffset;
+
+        this.freeBuffers = new ArrayBlockingQueue<byte[]>(buffers);
+        this.sendQueue = new ArrayBlockingQueue<Chunk>(buffers);
+        this.isClosed = false;
+    }
+
+    /**
+     * Creates an OutputStream that continues an interrupted upload.
+     *
+     * The document is reloaded and all data is appended to the content the
+     * repository has already stored. The caller must skip the first
+     * {@link #getStartOffset()} bytes of the source or use
+     * {@link #transferFrom(InputStream)}.
+     *
+     * @param session
+     *            the session object, must not be {@code null}
+     * @param docId
+     *            the id of the document, must not be {@code null}
+     * @param filename
+     *            the file name, may be {@code null}
+     * @param mimeType
+     *            the MIME type, may be {@code null}
+     * @param chunkSize
+     *            the size of a chunk
+     * @param buffers
+     *            the max number of chunk buffers, at least 2
+     */
+    public static PipelinedAppendOutputStream resume(Session session, ObjectId docId, String filename,
+            String mimeType, int chunkSize, int buffers) {
+        if (session == null) {
+            throw new IllegalArgumentException("Session must be set!");
+        }
+        if (docId == null) {
+            throw new IllegalArgumentException("Document id must be set!");
+        }
+
+        // the cached document may be out of date
+        OperationContext context = new OperationContextImpl(DOCUMENT_OPERATION_CONTEXT);
+        context.setCacheEnabled(false);
+
+        CmisObject object = session.getObject(docId, context);
+        if (!(object instanceof Document)) {
+            throw new IllegalArgumentException("Object is not a document!");
+        }
+
+        Document doc = (Document) object;
+        long length = doc.getContentStreamLength();
+
+        return new PipelinedAppendOutputStream(session, doc, false, filename, mimeType, chunkSize, buffers,
+                length < 0 ? 0 : length);
+    }
+
+    /**
+     * Returns the length of the content that was stored in the repository
+     * when this stream was created, or 0 if the content is overwritten.
+     */
+    public long getStartOffset() {
+        return startOffset;
+    }
+
+    /**
+     * Returns the length of the content stored by the repository so far,
+     * including the start offset.
+     */
+    public synchronized long getPosition() {
+        return position;
+    }
+
+    /**
+     * Sets the progress listener.
+     */
+    public void setProgressListener(ProgressListener progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    /**
+     * Writes the content of a stream, skipping the first
+     * {@link #getStartOffset()} bytes. The source stream is not closed.
+     *
+     * @return the number of bytes written
+     */
+    public long transferFrom(InputStream source) throws IOException {
+        long skip = startOffset;
+        while (skip > 0) {
+            long skipped = source.skip(skip);
+            if (skipped <= 0) {
+                if (source.read() == -1) {
+                    throw new IOException("Source is shorter than the stored content!");
+                }
+                skipped = 1;
+            }
+            skip -= skipped;
+        }
+
+        long count = 0;
+        byte[] b = new byte[64 * 1024];
+        int n;
+        while ((n = source.read(b)) > -1) {
+            write(b, 0, n);
+            count += n;
+        }
+
+        return count;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] { (byte) (b & 0xFF) }, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b) throws IOException {
+        write(b, 0, b.length);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (isClosed) {
+            throw new IOException("Stream is already closed!");
+        }
+
+        if (b == null) {
+            throw new IllegalArgumentException("Data must not be null!");
+        } else if (off < 0 || off > b.length) {
+            throw new IndexOutOfBoundsException("Invalid offset!");
+        } else if (len < 0 || (off + len) > b.length || (off + len) < 0) {
+            throw new IndexOutOfBoundsException("Invalid length!");
+        } else if (len == 0) {
+            return;
+        }
+
+        while (len > 0) {
+            if (buffer == null) {
+                buffer = takeBuffer();
+                pos = 0;
+            }
+
+            int n = Math.min(len, buffer.length - pos);
+            System.arraycopy(b, off, buffer, pos, n);
+            pos += n;
+            off += n;
+            len -= n;
+
+            if (pos == buffer.length) {
+                enqueue(false);
+            }
+        }
+    }
+
+    /**
+     * Sends the current buffer and waits until all chunks have been stored by
+     * the repository.
+     */
+    @Override
+    public void flush() throws IOException {
+        flush(false);
+    }
+
+    /**
+     * Sends the current buffer and waits until all chunks have been stored by
+     * the repository.
+     *
+     * @param isLastChunk
+     *            indicates if this is the last chunk of the content
+     * @throws IOException
+     *             if an error occurs
+     */
+    public void flush(boolean isLastChunk) throws IOException {
+        if (isClosed) {
+            throw new IOException("Stream is already closed!");
+        }
+
+        enqueue(isLastChunk);
+        awaitCompletion();
+    }
+
+    @Override
+    public void close() throws IOException {
+        close(true);
+    }
+
+    /**
+     * Sends the remaining data, waits until it has been stored and stops the
+     * upload thread.
+     *
+     * @param isLastChunk
+     *            indicates if this is the last chunk of the content
+     * @throws IOException
+     *             if an error occurs
+     */
+    public void close(boolean isLastChunk) throws IOException {
+        if (isClosed) {
+            throw new IOException("Stream is already closed!");
+        }
+
+        try {
+            enqueue(isLastChunk);
+            awaitCompletion();
+        } finally {
+            isClosed = true;
+            stopUploadThread();
+        }
+    }
+
+    private byte[] takeBuffer() throws IOException {
+        checkFailure();
+
+        byte[] result = freeBuffers.poll();
+        if (result == null) {
+            if (allocatedBuffers < maxBuffers) {
+                allocatedBuffers++;
+                return new byte[chunkSize];
+            }
+
+            try {
+                result = freeBuffers.take();
+            } catch (InterruptedException e) {
+                abort();
+                throw new InterruptedIOException("Upload interrupted!");
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Hands the current buffer over to the upload thread.
+     */
+    private void enqueue(boolean isLastChunk) throws IOException {
+        checkFailure();
+
+        if (buffer == null || pos == 0) {
+            return;
+        }
+
+        if (uploadThread == null) {
+            uploadThread = new Thread(new Uploader(), "cmis-append-" + THREAD_NUMBER.getAndIncrement());
+            uploadThread.setDaemon(true);
+            uploadThread.start();
+        }
+
+        try {
+            sendQueue.put(new Chunk(buffer, pos, isLastChunk));
+        } catch (InterruptedException e) {
+            abort();
+            throw new InterruptedIOException("Upload interrupted!");
+        }
+
+        enqueuedChunks++;
+        buffer = null;
+        pos = 0;
+    }
+
+    private synchronized void awaitCompletion() throws IOException {
+        while (completedChunks < enqueuedChunks && failure == null) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                abort();
+                throw new InterruptedIOException("Upload interrupted!");
+            }
+        }
+
+        checkFailure();
+    }
+
+    private synchronized void checkFailure() throws IOException {
+        if (failure != null) {
+            isClosed = true;
+            throw new IOException(failure.getMessage(), failure);
+        }
+    }
+
+    private void abort() {
+        isClosed = true;
+        stopUploadThread();
+    }
+
+    private void stopUploadThread() {
+        if (uploadThread != null) {
+            uploadThread.interrupt();
+            uploadThread = null;
+        }
+    }
+
+    private synchronized long advance(int length) {
+        position += length;
+        return position;
+    }
+
+    private synchronized void chunkDone(IOException exception) {
+        completedChunks++;
+        if (exception != null && failure == null) {
+            failure = exception;
+        }
+        notifyAll();
+    }
+
+    /**
+     * Sends a chunk to the repository. Called from the upload thread.
+     */
+    private void send(Chunk chunk) throws IOException {
+        ContentStream contentStream = ContentStreamUtils.createByteArrayContentStream(filename, chunk.buffer, 0,
+                chunk.length, mimeType);
+
+        Holder<String> objectIdHolder = new Holder<String>(documentId);
+        Holder<String> changeTokenHolder = changeToken != null ? new Holder<String>(changeToken) : null;
+
+        try {
+            if (overwrite) {
+                // start a new content stream
+                session.getBinding()
+                        .getObjectService()
+                        .setContentStream(repId, objectIdHolder, Boolean.TRUE, changeTokenHolder,
+                                session.getObjectFactory().convertContentStream(contentStream), null);
+
+                // the following calls should append, not overwrite
+                overwrite = false;
+            } else {
+                // append to content stream
+                session.getBinding()
+                        .getObjectService()
+                        .appendContentStream(repId, objectIdHolder, changeTokenHolder,
+                                session.getObjectFactory().convertContentStream(contentStream), chunk.isLastChunk,
+                                null);
+            }
+        } catch (Exception e) {
+            throw new IOException("Could not append to document: " + e.toString(), e);
+        }
+
+        if (objectIdHolder.getValue() != null) {
+            documentId = objectIdHolder.getValue();
+        }
+        if (changeTokenHolder != null) {
+            changeToken = changeTokenHolder.getValue();
+        }
+    }
+
+    private static class Chunk {
+        private final byte[] buffer;
+        private final int length;
+        private final boolean isLastChunk;
+
+        public Chunk(byte[] buffer, int length, boolean isLastChunk) {
+            this.buffer = buffer;
+            this.length = length;
+            this.isLastChunk = isLastChunk;
+        }
+    }
+
+    /**
+     * Sends the queued chunks. After a failure, the remaining chunks are
+     * discarded.
+     */
+    private class Uploader implements Runnable {
+        @Override
+        public void run() {
+            boolean failed = false;
+            while (true) {
+                Chunk chunk;
+                try {
+                    chunk = sendQueue.take();
+                } catch (InterruptedException e) {
+                    return;
+                }
+
+                IOException exception = null;
+                if (!failed) {
+                    try {
+                        send(chunk);
+
+                        long newPosition = advance(chunk.length);
+                        ProgressListener listener = progressListener;
+                        if (listener != null) {
+                            listener.chunkSent(newPosition);
+                        }
+                    } catch (IOException e) {
+                        exception = e;
+                        failed = true;
+                    } catch (RuntimeException e) {
+                        // the progress listener failed
+                        exception = new IOException("Upload aborted: " + e.toString(), e);
+                        failed = true;
+                    }
+                }
+
+                freeBuffers.offer(chunk.buffer);
+                chunkDone(exception);
+            }
+        }
+    }
+}
@@ -282,6 +282,40 @@ public final class FileUtils {
         }
     }
 
+    /**
+     * Downloads a document by its id or path over several connections in
+     * parallel.
+     * 
+     * @param docIdOrPath
+     *            the id or path of the document
+     * @param destinationPath
+     *            the destination path
+     * @param session
+     *            the session
+     * @param threads
+     *            the number of parallel connections
+     * 
+     * @throws IOException
+     *             if the download fails because of an IO problem or the
+     *             content doesn't match the content stream hash
+     * @throws CmisBaseException
+     *             if something go wrong, for example the document doesn't exist
+     * 
+     * @see ParallelContentDownloader
+     */
+    public static void download(String docIdOrPath, String destinationPath, Session session, int threads)
+            throws IOException {
+        CmisObject doc = getObject(docIdOrPath, session);
+
+        if (doc instanceof Document) {
+            ParallelContentDownloader downloader = new ParallelContentDownloader(session);
+            downloader.setThreads(threads);
+            downloader.download((Document) doc, new File(destinationPath));
+        } else {
+            throw new IllegalArgumentException("Object is not a document!");
+        }
+    }
+
     /**
      * Deletes an object by path or id (string identifier).
      * 
@@ -264,6 +264,16 @@ public final class OperationContextUtils {
                 return context.getMaxItemsPerPage();
             }
 
+            @Override
+            public void setPrefetchDepth(int prefetchDepth) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public int getPrefetchDepth() {
+                return context.getPrefetchDepth();
+            }
+
             @Override
             public String toString() {
                 return context.toString();
@@ -0,0 +1,438 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.util;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.chemistry.opencmis.client.api.Document;
+import org.apache.chemistry.opencmis.client.api.ObjectId;
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.apache.chemistry.opencmis.commons.data.ContentStream;
+import org.apache.chemistry.opencmis.commons.data.ContentStreamHash;
+import org.apache.chemistry.opencmis.commons.data.PartialContentStream;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisBaseException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisConnectionException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
+import org.apache.chemistry.opencmis.commons.impl.IOUtils;
+
+/**
+ * Downloads a content stream over several connections in parallel.
+ * <p>
+ * The content is split into segments that are fetched with ranged requests (
+ * {@code offset} and {@code length}) on separate threads and written to their
+ * position in the destination file. A segment that fails because of a
+ * connection problem is resumed from the last byte received, up to the
+ * configured number of retries. If the document provides content stream hashes
+ * ({@code cmis:contentStreamHash}), the downloaded file is verified against
+ * them.
+ * <p>
+ * Small documents, documents with an unknown length and repositories that
+ * ignore the range parameters are downloaded over a single connection.
+ */
+public class ParallelContentDownloader {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Session session;
+    private int threads;
+    private long minSegmentSize;
+    private int maxRetries;
+    private long retryDelay;
+
+    /**
+     * Creates a downloader with 4 threads, a minimum segment size of 1 MiB and
+     * 3 retries per segment.
+     */
+    public ParallelContentDownloader(Session session) {
+        if (session == null) {
+            throw new IllegalArgumentException("Session must be set!");
+        }
+
+        this.session = session;
+        this.threads = 4;
+        this.minSegmentSize = 1024 * 1024;
+        this.maxRetries = 3;
+        this.retryDelay = 500;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Sets the number of parallel connections.
+     */
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be > 0!");
+        }
+        this.threads = threads;
+    }
+
+    public long getMinSegmentSize() {
+        return minSegmentSize;
+    }
+
+    /**
+     * Sets the minimum size of a segment in bytes. Documents smaller than two
+     * segments are downloaded over a single connection.
+     */
+    public void setMinSegmentSize(long minSegmentSize) {
+        if (minSegmentSize < 1) {
+            throw new IllegalArgumentException("minSegmentSize must be > 0!");
+        }
+        this.minSegmentSize = minSegmentSize;
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    /**
+     * Sets how often a failed segment is retried.
+     */
+    public void setMaxRetries(int maxRetries) {
+        if (maxRetries < 0) {
+            throw new IllegalArgumentException("maxRetries must be >= 0!");
+        }
+        this.maxRetries = maxRetries;
+    }
+
+    public long getRetryDelay() {
+        return retryDelay;
+    }
+
+    /**
+     * Sets the delay in milliseconds before the first retry of a segment. The
+     * delay grows with each retry.
+     */
+    public void setRetryDelay(long retryDelay) {
+        if (retryDelay < 0) {
+            throw new IllegalArgumentException("retryDelay must be >= 0!");
+        }
+        this.retryDelay = retryDelay;
+    }
+
+    /**
+     * Downloads the main content stream of a document.
+     *
+     * @param doc
+     *            the document
+     * @param destination
+     *            the destination file
+     *
+     * @throws IOException
+     *             if the download fails because of an IO problem or the
+     *             content doesn't match the content stream hash
+     * @throws CmisBaseException
+     *             if something go wrong, for example the document doesn't exist
+     */
+    public void download(Document doc, File destination) throws IOException {
+        if (doc == null) {
+            throw new IllegalArgumentException("Document must be set!");
+        }
+
+        download(doc, null, doc.getContentStreamLength(), doc.getContentStreamHashes(), destination);
+    }
+
+    /**
+     * Downloads a content stream.
+     *
+     * @param docId
+     *            the id of the document
+     * @param streamId
+     *            the stream id or {@code null} for the main content stream
+     * @param length
+     *            the length of the content stream or -1 if unknown
+     * @param hashes
+     *            the expected content stream hashes, may be {@code null}
+     * @param destination
+     *            the destination file
+     *
+     * @throws IOException
+     *             if the download fails because of an IO problem or the
+     *             content doesn't match a content stream hash
+     * @throws CmisBaseException
+     *             if something go wrong, for example the document doesn't exist
+     */
+    public void download(ObjectId docId, String streamId, long length, List<ContentStreamHash> hashes,
+            File destination) throws IOException {
+        if (docId == null || docId.getId() == null) {
+            throw new IllegalArgumentException("Document id must be set!");
+        }
+        if (destination == null) {
+            throw new IllegalArgumentException("Destination must be set!");
+        }
+
+        boolean success = false;
+        try {
+            int segments = (int) Math.min(threads, length / minSegmentSize);
+            if (segments < 2 || !downloadSegments(docId, streamId, length, segments, destination)) {
+                downloadSingle(docId, streamId, destination);
+            }
+
+            verifyHashes(hashes, destination);
+            success = true;
+        } finally {
+            if (!success) {
+                destination.delete();
+            }
+        }
+    }
+
+    private void downloadSingle(ObjectId docId, String streamId, File destination) throws IOException {
+        ContentStream contentStream = session.getContentStream(docId, streamId, null, null);
+        if (contentStream == null) {
+            throw new CmisRuntimeException("Document has no content!");
+        }
+
+        ContentStreamUtils.writeContentStreamToFile(contentStream, destination);
+    }
+
+    /**
+     * Downloads the segments in parallel.
+     *
+     * @return {@code false} if the repository doesn't support ranges
+     */
+    private boolean downloadSegments(ObjectId docId, String streamId, long length, int segments, File destination)
+            throws IOException {
+        RandomAccessFile file = new RandomAccessFile(destination, "rw");
+        ExecutorService executor = Executors.newFixedThreadPool(segments);
+        try {
+            file.setLength(length);
+            FileChannel channel = file.getChannel();
+
+            long segmentSize = (length + segments - 1) / segments;
+            List<Future<Void>> futures = new ArrayList<Future<Void>>(segments);
+            for (long start = 0; start < length; start += segmentSize) {
+                futures.add(executor.submit(new SegmentTask(docId, streamId, channel, start, Math.min(length,
+                        start + segmentSize))));
+            }
+
+            try {
+                for (Future<Void> future : futures) {
+                    future.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Download interrupted!");
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RangeNotSupportedException) {
+                    return false;
+                }
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new CmisRuntimeException(String.valueOf(cause), cause);
+            } finally {
+                for (Future<Void> future : futures) {
+                    future.cancel(true);
+                }
+            }
+
+            return true;
+        } finally {
+            executor.shutdownNow();
+            IOUtils.closeQuietly(file);
+        }
+    }
+
+    /**
+     * Compares the file with all hashes that use a supported algorithm.
+     */
+    private static void verifyHashes(List<ContentStreamHash> hashes, File file) throws IOException {
+        if (hashes == null || hashes.isEmpty()) {
+            return;
+        }
+
+        List<MessageDigest> digests = new ArrayList<MessageDigest>();
+        List<ContentStreamHash> expected = new ArrayList<ContentStreamHash>();
+        for (ContentStreamHash hash : hashes) {
+            if (hash == null || hash.getAlgorithm() == null || hash.getHash() == null) {
+                continue;
+            }
+            try {
+                digests.add(MessageDigest.getInstance(hash.getAlgorithm()));
+                expected.add(hash);
+            } catch (NoSuchAlgorithmException e) {
+                // unknown algorithm -> can't check
+            }
+        }
+
+        if (digests.isEmpty()) {
+            return;
+        }
+
+        InputStream stream = new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE);
+        try {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int b;
+            while ((b = stream.read(buffer)) > -1) {
+                for (MessageDigest digest : digests) {
+                    digest.update(buffer, 0, b);
+                }
+            }
+        } finally {
+            IOUtils.closeQuietly(stream);
+        }
+
+        for (int i = 0; i < digests.size(); i++) {
+            String actual = toHex(digests.get(i).digest());
+            if (!actual.equalsIgnoreCase(expected.get(i).getHash())) {
+                throw new IOException("Content doesn't match the " + expected.get(i).getAlgorithm() + " hash!");
+            }
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0x0F, 16));
+            sb.append(Character.forDigit(b & 0x0F, 16));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Thrown if the repository returned more or less than the requested range.
+     */
+    private static class RangeNotSupportedException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        public RangeNotSupportedException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Downloads the bytes <code>[start, end)</code>.
+     */
+    private class SegmentTask implements Callable<Void> {
+        private final ObjectId docId;
+        private final String streamId;
+        private final FileChannel channel;
+        private final long end;
+        private long position;
+
+        public SegmentTask(ObjectId docId, String streamId, FileChannel channel, long start, long end) {
+            this.docId = docId;
+            this.streamId = streamId;
+            this.channel = channel;
+            this.position = start;
+            this.end = end;
+        }
+
+        @Override
+        public Void call() throws IOException, InterruptedException {
+            int retries = 0;
+            while (true) {
+                try {
+                    fetch();
+                    return null;
+                } catch (RangeNotSupportedException e) {
+                    throw e;
+                } catch (IOException e) {
+                    if (retries >= maxRetries || Thread.currentThread().isInterrupted()) {
+                        throw e;
+                    }
+                } catch (CmisConnectionException e) {
+                    if (retries >= maxRetries) {
+                        throw e;
+                    }
+                }
+
+                retries++;
+                Thread.sleep(retryDelay * retries);
+            }
+        }
+
+        /**
+         * Fetches the remaining bytes of the segment. Bytes that have been
+         * written are not requested again.
+         */
+        private void fetch() throws IOException {
+            long requested = end - position;
+            ContentStream contentStream = session.getContentStream(docId, streamId, BigInteger.valueOf(position),
+                    BigInteger.valueOf(requested));
+            if (contentStream == null) {
+                throw new CmisRuntimeException("Document has no content!");
+            }
+
+            InputStream stream = contentStream.getStream();
+            try {
+                // a repository that ignores the range sends the content from
+                // the beginning, possibly without a length
+                if (position > 0 && !(contentStream instanceof PartialContentStream)) {
+                    throw new RangeNotSupportedException("Requested range at offset " + position
+                            + " but got the full content!");
+                }
+
+                long contentLength = contentStream.getLength();
+                if (contentLength >= 0 && contentLength != requested) {
+                    throw new RangeNotSupportedException("Requested " + requested + " bytes but got " + contentLength
+                            + " bytes!");
+                }
+
+                byte[] buffer = new byte[BUFFER_SIZE];
+                while (position < end) {
+                    int b = stream.read(buffer, 0, (int) Math.min(buffer.length, end - position));
+                    if (b == -1) {
+                        break;
+                    }
+
+                    ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0, b);
+                    while (byteBuffer.hasRemaining()) {
+                        position += channel.write(byteBuffer, position);
+                    }
+                }
+
+                if (position < end) {
+                    throw new IOException("Unexpected end of stream at " + position + "!");
+                }
+            } finally {
+                IOUtils.closeQuietly(stream);
+            }
+        }
+    }
+}
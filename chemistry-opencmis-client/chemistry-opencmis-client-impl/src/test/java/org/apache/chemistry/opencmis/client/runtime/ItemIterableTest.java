@@ -28,8 +28,10 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.chemistry.opencmis.client.api.ItemIterable;
+import org.apache.chemistry.opencmis.client.runtime.util.AbstractIterator;
 import org.apache.chemistry.opencmis.client.runtime.util.AbstractPageFetcher;
 import org.apache.chemistry.opencmis.client.runtime.util.CollectionIterable;
 import org.junit.Test;
@@ -54,10 +56,16 @@ public class ItemIterableTest {
     private final String[] data0 = {};
 
     private ItemIterable<String> getIterable(final String[] data, long pageSize) {
-        return new CollectionIterable<String>(new AbstractPageFetcher<String>(pageSize) {
+        return getIterable(data, pageSize, 0, new AtomicInteger());
+    }
+
+    private ItemIterable<String> getIterable(final String[] data, long pageSize, int prefetchDepth,
+            final AtomicInteger fetchCount) {
+        return new CollectionIterable<String>(new AbstractPageFetcher<String>(pageSize, prefetchDepth) {
 
             @Override
             protected Page<String> fetchPage(long skipCount) {
+                fetchCount.incrementAndGet();
                 boolean hasMoreItems = true;
                 List<String> page = new ArrayList<String>();
 
@@ -104,6 +112,42 @@ public class ItemIterableTest {
         this.loopAll(this.data0, 5);
     }
 
+    @Test
+    public void loopAllPrefetch() {
+        this.loopAllPrefetch(this.data10, 100, 1);
+        this.loopAllPrefetch(this.data10, 3, 1);
+        this.loopAllPrefetch(this.data10, 2, 2);
+        this.loopAllPrefetch(this.data10, 1, 4);
+
+        this.loopAllPrefetch(this.data1, 1, 2);
+        this.loopAllPrefetch(this.data0, 1, 2);
+    }
+
+    @Test
+    public void prefetchStopsAtDepth() throws InterruptedException {
+        AtomicInteger fetchCount = new AtomicInteger();
+        ItemIterable<String> p = this.getIterable(this.data10, 1, 2, fetchCount);
+
+        Iterator<String> iterator = p.iterator();
+        assertEquals("A0", iterator.next());
+
+        // the current page and two pages ahead, then the prefetching stops
+        // by itself although the pages are not consumed
+        waitForFetches(fetchCount, 3);
+        assertNoMoreFetches(fetchCount, 3);
+
+        // consuming a page prefetches one more page
+        assertEquals("A1", iterator.next());
+        waitForFetches(fetchCount, 4);
+        assertNoMoreFetches(fetchCount, 4);
+
+        // after closing, pages are fetched on demand only
+        ((AbstractIterator<String>) iterator).close();
+        assertEquals("A2", iterator.next());
+        assertEquals(5, fetchCount.get());
+        assertNoMoreFetches(fetchCount, 5);
+    }
+
     @Test
     public void loopSubPage() {
         this.loopSubPage(this.data10, 0, 3, 5);
@@ -279,6 +323,42 @@ public class ItemIterableTest {
         assertEquals(data.length, count);
     }
 
+    private void loopAllPrefetch(String[] data, int pageSize, int prefetchDepth) {
+        ItemIterableTest.LOG.info("loopAllPrefetch (" + pageSize + ", " + prefetchDepth + ")");
+
+        AtomicInteger fetchCount = new AtomicInteger();
+        ItemIterable<String> p = this.getIterable(data, pageSize, prefetchDepth, fetchCount);
+        assertNotNull(p);
+
+        int count = 0;
+        for (String s : p) {
+            assertNotNull(s);
+            assertEquals("A" + count, s);
+            count++;
+        }
+        assertEquals(data.length, count);
+
+        // every page is fetched exactly once
+        int pages = Math.max(1, (data.length + pageSize - 1) / pageSize);
+        assertEquals(pages, fetchCount.get());
+    }
+
+    private static void waitForFetches(AtomicInteger fetchCount, int expected) throws InterruptedException {
+        long end = System.currentTimeMillis() + 5000;
+        while (fetchCount.get() < expected && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, fetchCount.get());
+    }
+
+    private static void assertNoMoreFetches(AtomicInteger fetchCount, int expected) throws InterruptedException {
+        long end = System.currentTimeMillis() + 100;
+        while (System.currentTimeMillis() < end) {
+            assertEquals(expected, fetchCount.get());
+            Thread.sleep(10);
+        }
+    }
+
     private void loopPage(String[] data, int skipCount, int pageSize) {
         ItemIterableTest.LOG.info("loopPage (" + skipCount + ", " + pageSize + ")");
         String msg = "";
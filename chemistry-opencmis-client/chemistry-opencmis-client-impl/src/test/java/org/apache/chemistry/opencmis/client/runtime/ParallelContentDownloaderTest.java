@@ -0,0 +1,272 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.runtime;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.apache.chemistry.opencmis.client.util.ParallelContentDownloader;
+import org.apache.chemistry.opencmis.commons.data.ContentStreamHash;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
+import org.apache.chemistry.opencmis.commons.impl.IOUtils;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ContentStreamHashImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ContentStreamImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PartialContentStreamImpl;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ParallelContentDownloaderTest {
+
+    private static final int SIZE = 100 * 1000 + 7;
+
+    private byte[] content;
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        content = new byte[SIZE];
+        new Random(42).nextBytes(content);
+        file = File.createTempFile("opencmis", ".bin");
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void testParallelDownload() throws Exception {
+        RangeSession rangeSession = new RangeSession(content, true);
+        ParallelContentDownloader downloader = createDownloader(rangeSession);
+
+        downloader.download(new ObjectIdImpl("doc"), null, SIZE, hashes(content), file);
+
+        assertArrayEquals(content, readFile());
+        assertEquals(4, rangeSession.ranged.get());
+        assertEquals(0, rangeSession.full.get());
+    }
+
+    @Test
+    public void testRetryResumesSegment() throws Exception {
+        RangeSession rangeSession = new RangeSession(content, true);
+        rangeSession.failures.set(3);
+        ParallelContentDownloader downloader = createDownloader(rangeSession);
+
+        downloader.download(new ObjectIdImpl("doc"), null, SIZE, hashes(content), file);
+
+        assertArrayEquals(content, readFile());
+        assertEquals(4 + 3, rangeSession.ranged.get());
+    }
+
+    @Test
+    public void testRangeNotSupported() throws Exception {
+        RangeSession rangeSession = new RangeSession(content, false);
+        ParallelContentDownloader downloader = createDownloader(rangeSession);
+
+        downloader.download(new ObjectIdImpl("doc"), null, SIZE, null, file);
+
+        assertArrayEquals(content, readFile());
+        assertEquals(1, rangeSession.full.get());
+    }
+
+    @Test
+    public void testRangeIgnoredWithoutLength() throws Exception {
+        // the repository ignores the range and sends a chunked response
+        RangeSession rangeSession = new RangeSession(content, false);
+        rangeSession.chunked = true;
+        ParallelContentDownloader downloader = createDownloader(rangeSession);
+
+        downloader.download(new ObjectIdImpl("doc"), null, SIZE, null, file);
+
+        assertArrayEquals(content, readFile());
+        assertEquals(1, rangeSession.full.get());
+    }
+
+    @Test
+    public void testNoContentIsNotRetried() throws Exception {
+        RangeSession rangeSession = new RangeSession(null, true);
+        ParallelContentDownloader downloader = createDownloader(rangeSession);
+
+        try {
+            downloader.download(new ObjectIdImpl("doc"), null, SIZE, null, file);
+            fail("Missing content not detected!");
+        } catch (CmisRuntimeException e) {
+            // expected
+        }
+
+        // at most one request per segment, no retries; the remaining
+        // segments are cancelled after the first failure
+        assertTrue(rangeSession.ranged.get() <= 4);
+    }
+
+    @Test
+    public void testSmallDocument() throws Exception {
+        RangeSession rangeSession = new RangeSession(content, true);
+        ParallelContentDownloader downloader = createDownloader(rangeSession);
+        downloader.setMinSegmentSize(SIZE);
+
+        downloader.download(new ObjectIdImpl("doc"), null, SIZE, null, file);
+
+        assertArrayEquals(content, readFile());
+        assertEquals(0, rangeSession.ranged.get());
+        assertEquals(1, rangeSession.full.get());
+    }
+
+    @Test
+    public void testHashMismatch() throws Exception {
+        RangeSession rangeSession = new RangeSession(content, true);
+        ParallelContentDownloader downloader = createDownloader(rangeSession);
+
+        try {
+            downloader.download(new ObjectIdImpl("doc"), null, SIZE, hashes(new byte[] { 1, 2, 3 }), file);
+            fail("Hash mismatch not detected!");
+        } catch (IOException e) {
+            // expected
+        }
+
+        assertFalse(file.exists());
+    }
+
+    private ParallelContentDownloader createDownloader(RangeSession rangeSession) {
+        ParallelContentDownloader downloader = new ParallelContentDownloader(rangeSession.createSession());
+        downloader.setThreads(4);
+        downloader.setMinSegmentSize(1000);
+        downloader.setRetryDelay(0);
+        return downloader;
+    }
+
+    private static List<ContentStreamHash> hashes(byte[] bytes) throws Exception {
+        byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+        return Collections.<ContentStreamHash> singletonList(new ContentStreamHashImpl(
+                ContentStreamHashImpl.ALGORITHM_SHA256, digest));
+    }
+
+    private byte[] readFile() throws IOException {
+        InputStream stream = new FileInputStream(file);
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            IOUtils.copy(stream, out);
+            return out.toByteArray();
+        } finally {
+            stream.close();
+        }
+    }
+
+    /**
+     * Session that serves ranges of a byte array and can simulate broken
+     * connections and repositories that ignore ranges.
+     */
+    private static class RangeSession implements InvocationHandler {
+        private final byte[] content;
+        private final boolean supportsRanges;
+        private final AtomicInteger ranged = new AtomicInteger();
+        private final AtomicInteger full = new AtomicInteger();
+        private final AtomicInteger failures = new AtomicInteger();
+        private volatile boolean chunked;
+
+        public RangeSession(byte[] content, boolean supportsRanges) {
+            this.content = content;
+            this.supportsRanges = supportsRanges;
+        }
+
+        public Session createSession() {
+            return (Session) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Session.class },
+                    this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (!"getContentStream".equals(method.getName()) || args.length != 4) {
+                throw new UnsupportedOperationException(method.getName());
+            }
+
+            BigInteger offset = (BigInteger) args[2];
+            BigInteger length = (BigInteger) args[3];
+            if (offset == null || !supportsRanges) {
+                if (offset == null) {
+                    full.incrementAndGet();
+                }
+                return new ContentStreamImpl("file", chunked ? null : BigInteger.valueOf(content.length),
+                        "application/octet-stream", new ByteArrayInputStream(content));
+            }
+
+            ranged.incrementAndGet();
+            if (content == null) {
+                return null;
+            }
+            int from = offset.intValue();
+            int to = Math.min(content.length, from + length.intValue());
+            InputStream stream = new ByteArrayInputStream(content, from, to - from);
+            if (failures.getAndDecrement() > 0) {
+                // connection breaks after half of the range
+                stream = new BrokenInputStream(stream, (to - from) / 2);
+            }
+
+            return new PartialContentStreamImpl("file", BigInteger.valueOf(to - from), "application/octet-stream",
+                    stream);
+        }
+    }
+
+    private static class BrokenInputStream extends InputStream {
+        private final InputStream stream;
+        private int remaining;
+
+        public BrokenInputStream(InputStream stream, int limit) {
+            this.stream = stream;
+            this.remaining = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) == -1 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                throw new IOException("Connection reset");
+            }
+            int n = stream.read(b, off, Math.min(len, remaining));
+            remaining -= n;
+            return n;
+        }
+    }
+}
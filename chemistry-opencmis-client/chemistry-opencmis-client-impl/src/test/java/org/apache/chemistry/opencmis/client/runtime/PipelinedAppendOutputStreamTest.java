@@ -0,0 +1,223 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.runtime;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.chemistry.opencmis.client.api.Document;
+import org.apache.chemistry.opencmis.client.api.ObjectFactory;
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.apache.chemistry.opencmis.client.runtime.util.PipelinedAppendOutputStream;
+import org.apache.chemistry.opencmis.commons.data.ContentStream;
+import org.apache.chemistry.opencmis.commons.data.RepositoryInfo;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisConnectionException;
+import org.apache.chemistry.opencmis.commons.impl.IOUtils;
+import org.apache.chemistry.opencmis.commons.spi.CmisBinding;
+import org.apache.chemistry.opencmis.commons.spi.ObjectService;
+import org.junit.Test;
+
+public class PipelinedAppendOutputStreamTest {
+
+    private static final int CHUNK_SIZE = 1000;
+
+    @Test
+    public void testPipelinedUpload() throws IOException {
+        byte[] data = createData(10 * CHUNK_SIZE + 500);
+        Repository repository = new Repository();
+
+        PipelinedAppendOutputStream out = new PipelinedAppendOutputStream(repository.session, repository.document,
+                true, null, null, CHUNK_SIZE, 3);
+        final AtomicLong progress = new AtomicLong();
+        out.setProgressListener(new PipelinedAppendOutputStream.ProgressListener() {
+            @Override
+            public void chunkSent(long position) {
+                progress.set(position);
+            }
+        });
+
+        out.write(data, 0, 1);
+        out.write(data[1]);
+        out.write(data, 2, 2500);
+        out.write(data, 2502, data.length - 2502);
+        out.close();
+
+        assertArrayEquals(data, repository.content.toByteArray());
+        assertEquals(1, repository.setCalls.get());
+        assertEquals(10, repository.appendCalls.get());
+        assertTrue(repository.lastChunk);
+        assertEquals(data.length, progress.get());
+        assertEquals(data.length, out.getPosition());
+    }
+
+    @Test
+    public void testBoundedBuffers() throws Exception {
+        final byte[] data = createData(6 * CHUNK_SIZE);
+        final Repository repository = new Repository();
+        repository.block = new CountDownLatch(1);
+
+        final PipelinedAppendOutputStream out = new PipelinedAppendOutputStream(repository.session,
+                repository.document, false, null, null, CHUNK_SIZE, 2);
+        final AtomicInteger writtenChunks = new AtomicInteger();
+        final AtomicInteger errors = new AtomicInteger();
+
+        Thread writer = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    for (int i = 0; i < 6; i++) {
+                        out.write(data, i * CHUNK_SIZE, CHUNK_SIZE);
+                        writtenChunks.incrementAndGet();
+                    }
+                    out.close();
+                } catch (IOException e) {
+                    errors.incrementAndGet();
+                }
+            }
+        };
+        writer.start();
+
+        // one chunk in flight and one chunk queued, the writer waits for a
+        // free buffer
+        Thread.sleep(300);
+        assertEquals(2, writtenChunks.get());
+
+        repository.block.countDown();
+        writer.join(10000);
+
+        assertEquals(0, errors.get());
+        assertEquals(6, writtenChunks.get());
+        assertArrayEquals(data, repository.content.toByteArray());
+    }
+
+    @Test
+    public void testResume() throws IOException {
+        byte[] data = createData(5 * CHUNK_SIZE + 10);
+        Repository repository = new Repository();
+        repository.failAt = 3;
+
+        PipelinedAppendOutputStream out = new PipelinedAppendOutputStream(repository.session, repository.document,
+                true, null, null, CHUNK_SIZE, 2);
+        try {
+            out.transferFrom(new ByteArrayInputStream(data));
+            out.close();
+            fail("Upload should fail!");
+        } catch (IOException e) {
+            // expected
+        }
+
+        assertEquals(3 * CHUNK_SIZE, repository.content.size());
+
+        out = PipelinedAppendOutputStream.resume(repository.session, repository.document, null, null, CHUNK_SIZE, 2);
+        assertEquals(3 * CHUNK_SIZE, out.getStartOffset());
+        out.transferFrom(new ByteArrayInputStream(data));
+        out.close();
+
+        assertArrayEquals(data, repository.content.toByteArray());
+    }
+
+    private static byte[] createData(int length) {
+        byte[] data = new byte[length];
+        new Random(length).nextBytes(data);
+        return data;
+    }
+
+    /**
+     * Simulates a repository that stores the content of one document.
+     */
+    private static class Repository implements InvocationHandler {
+        private final ByteArrayOutputStream content = new ByteArrayOutputStream();
+        private final AtomicInteger setCalls = new AtomicInteger();
+        private final AtomicInteger appendCalls = new AtomicInteger();
+        private volatile boolean lastChunk;
+        private volatile CountDownLatch block;
+        private volatile int failAt = -1;
+
+        private final Session session = proxy(Session.class, this);
+        private final Document document = proxy(Document.class, this);
+        private final ObjectService objectService = proxy(ObjectService.class, this);
+        private final CmisBinding binding = proxy(CmisBinding.class, this);
+        private final ObjectFactory objectFactory = proxy(ObjectFactory.class, this);
+        private final RepositoryInfo repositoryInfo = proxy(RepositoryInfo.class, this);
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if ("getRepositoryInfo".equals(name)) {
+                return repositoryInfo;
+            } else if ("getBinding".equals(name)) {
+                return binding;
+            } else if ("getObjectService".equals(name)) {
+                return objectService;
+            } else if ("getObjectFactory".equals(name)) {
+                return objectFactory;
+            } else if ("getObject".equals(name)) {
+                return document;
+            } else if ("convertContentStream".equals(name)) {
+                return args[0];
+            } else if ("getId".equals(name)) {
+                return proxy == repositoryInfo ? "repo" : "doc";
+            } else if ("getContentStreamLength".equals(name)) {
+                return Long.valueOf(content.size());
+            } else if ("setContentStream".equals(name)) {
+                setCalls.incrementAndGet();
+                content.reset();
+                store((ContentStream) args[4]);
+                return null;
+            } else if ("appendContentStream".equals(name)) {
+                if (block != null) {
+                    block.await();
+                }
+                if (appendCalls.incrementAndGet() == failAt) {
+                    failAt = -1;
+                    throw new CmisConnectionException("Connection reset");
+                }
+                store((ContentStream) args[3]);
+                lastChunk = (Boolean) args[4];
+                return null;
+            } else if (method.getReturnType().isPrimitive() && method.getReturnType() != void.class) {
+                throw new UnsupportedOperationException(name);
+            }
+            return null;
+        }
+
+        private synchronized void store(ContentStream contentStream) throws IOException {
+            IOUtils.copy(contentStream.getStream(), content);
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> T proxy(Class<T> clazz, InvocationHandler handler) {
+            return (T) Proxy.newProxyInstance(PipelinedAppendOutputStreamTest.class.getClassLoader(),
+                    new Class<?>[] { clazz }, handler);
+        }
+    }
+}
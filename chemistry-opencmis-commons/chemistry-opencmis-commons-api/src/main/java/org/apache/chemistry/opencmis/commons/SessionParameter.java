@@ -231,11 +231,148 @@ package org.apache.chemistry.opencmis.commons;
  * <td>JVM default</td>
  * </tr>
  * <tr>
+ * <td>{@link #HTTP_POOL_MAX_CONNECTIONS}</td>
+ * <td>Maximum number of pooled connections<br>(ApacheClientHttpInvoker), maximum number of concurrent
+ * requests of all sessions sharing the pool, further requests wait until a response stream has been
+ * closed<br>(SharedPoolOkHttpHttpInvoker)</td>
+ * <td>AtomPub, Web Services, Browser</td>
+ * <td>number</td>
+ * <td>no</td>
+ * <td>4 * http.maxConnections (ApacheClientHttpInvoker), 64 (SharedPoolOkHttpHttpInvoker)</td>
+ * </tr>
+ * <tr>
+ * <td>{@link #HTTP_POOL_MAX_CONNECTIONS_PER_HOST}</td>
+ * <td>Maximum number of pooled connections per host<br>(ApacheClientHttpInvoker), maximum number of
+ * concurrent requests per host of all sessions sharing the pool, further requests wait until a response
+ * stream has been closed<br>(SharedPoolOkHttpHttpInvoker)</td>
+ * <td>AtomPub, Web Services, Browser</td>
+ * <td>number</td>
+ * <td>no</td>
+ * <td>http.maxConnections (ApacheClientHttpInvoker), 5 (SharedPoolOkHttpHttpInvoker)</td>
+ * </tr>
+ * <tr>
+ * <td>{@link #HTTP_POOL_MAX_IDLE_CONNECTIONS}</td>
+ * <td>Maximum number of idle connections kept in the shared pool<br>(SharedPoolOkHttpHttpInvoker only)</td>
+ * <td>AtomPub, Web Services, Browser</td>
+ * <td>number</td>
+ * <td>no</td>
+ * <td>5</td>
+ * </tr>
+ * <tr>
+ * <td>{@link #HTTP_POOL_IDLE_TIMEOUT}</td>
+ * <td>Time after which idle connections are evicted from the shared pool<br>(SharedPoolOkHttpHttpInvoker only)</td>
+ * <td>AtomPub, Web Services, Browser</td>
+ * <td>time in milliseconds</td>
+ * <td>no</td>
+ * <td>300000</td>
+ * </tr>
+ * <tr>
+ * <td>{@link #HTTP2}</td>
+ * <td>Switch to turn HTTP/2 on or off<br>(SharedPoolOkHttpHttpInvoker only)</td>
+ * <td>AtomPub, Web Services, Browser</td>
+ * <td>"true", "false"</td>
+ * <td>no</td>
+ * <td>true</td>
+ * </tr>
+ * <tr>
+ * <td colspan="6"><b>Retry settings (RetryingHttpInvoker only)</b></td>
+ * </tr>
+ * <tr>
+ * <td>{@link #HTTP_RETRY_DELEGATE_CLASS}</td>
+ * <td>HTTP invoker class that executes the requests</td>
+ * <td>AtomPub, Browser</td>
+ * <td>class name</td>
+ * <td>no</td>
+ * <td>org.apache.chemistry.opencmis.client.bindings.spi.http.DefaultHttpInvoker</td>
+ * </tr>
+ * <tr>
+ * <td>{@link #HTTP_RETRY_MAX_RETRIES}</td>
+ * <td>Maximum number of retries of GET requests (and DELETE requests, see {@link #HTTP_RETRY_DELETE})</td>
+ * <td>AtomPub, Browser</td>
+ * <td>number</td>
+ * <td>no</td>
+ * <td>3</td>
+ * </tr>
+ * <tr>
+ * <td>{@link #HTTP_RETRY_DELETE}</td>
+ * <td>Switch to retry DELETE requests<br>(a retry after a lost response can report a successful delete as
+ * CmisObjectNotFoundException)</td>
+ * <td>AtomPub, Browser</td>
+ * <td>"true", "false"</td>
+ * <td>no</td>
+ * <td>false</td>
+ * </tr>
+ * <tr>
+ * <td>{@link #HTTP_RETRY_INITIAL_DELAY}</td>
+ * <td>Base delay of the exponential backoff</td>
+ * <td>AtomPub, Browser</td>
+ * <td>time in milliseconds</td>
+ * <td>no</td>
+ * <td>500</td>
+ * </tr>
+ * <tr>
+ * <td>{@link #HTTP_RETRY_MAX_DELAY}</td>
+ * <td>Maximum delay between two attempts<br>(longer Retry-After delays are not honored)</td>
+ * <td>AtomPub, Browser</td>
+ * <td>time in milliseconds</td>
+ * <td>no</td>
+ * <td>30000</td>
+ * </tr>
+ * <tr>
+ * <td>{@link #HTTP_CIRCUIT_BREAKER_THRESHOLD}</td>
+ * <td>Number of consecutive failures that open the circuit breaker of an endpoint<br>(0 turns the circuit breaker off)</td>
+ * <td>AtomPub, Browser</td>
+ * <td>number</td>
+ * <td>no</td>
+ * <td>5</td>
+ * </tr>
+ * <tr>
+ * <td>{@link #HTTP_CIRCUIT_BREAKER_OPEN_TIME}</td>
+ * <td>Time the circuit breaker stays open before a trial request is let through</td>
+ * <td>AtomPub, Browser</td>
+ * <td>time in milliseconds</td>
+ * <td>no</td>
+ * <td>30000</td>
+ * </tr>
+ * <tr>
+ * <td>{@link #HTTP_RATE_LIMIT}</td>
+ * <td>Maximum number of requests per second and endpoint<br>(0 turns rate limiting off)</td>
+ * <td>AtomPub, Browser</td>
+ * <td>number</td>
+ * <td>no</td>
+ * <td>0</td>
+ * </tr>
+ * <tr>
+ * <td>{@link #HTTP_RATE_LIMIT_BURST}</td>
+ * <td>Maximum number of requests that can be sent in a burst</td>
+ * <td>AtomPub, Browser</td>
+ * <td>number</td>
+ * <td>no</td>
+ * <td>rate limit</td>
+ * </tr>
+ * <tr>
+ * <td colspan="6"><b>Metrics settings</b></td>
+ * </tr>
+ * <tr>
+ * <td>{@link #METRICS_LISTENER_CLASS}</td>
+ * <td>Metrics listener class<br>
+ * (org.apache.chemistry.opencmis.client.bindings.metrics.HistogramMetricsListener
+ * keeps the metrics in memory,
+ * org.apache.chemistry.opencmis.client.bindings.metrics.JmxMetricsListener
+ * exports them via JMX)</td>
+ * <td>AtomPub, Web Services, Browser, Local</td>
+ * <td>class name</td>
+ * <td>no</td>
+ * <td>-</td>
+ * </tr>
+ * <tr>
  * <td colspan="6"><b>Cache settings</b></td>
  * </tr>
  * <tr>
  * <td>{@link #CACHE_CLASS}</td>
- * <td>Cache implementation class</td>
+ * <td>Cache implementation class<br>
+ * (org.apache.chemistry.opencmis.client.runtime.cache.ConcurrentCacheImpl
+ * scales better for sessions that are shared by many threads)</td>
  * <td>all</td>
  * <td>class name</td>
  * <td>no</td>
@@ -315,6 +452,15 @@ package org.apache.chemistry.opencmis.commons;
  * <td>400</td>
  * </tr>
  * <tr>
+ * <td>{@link #CACHE_CONCURRENT}</td>
+ * <td>Use lock-free type definition and link caches for bindings that are
+ * shared by many threads</td>
+ * <td>all</td>
+ * <td>"true", "false"</td>
+ * <td>no</td>
+ * <td>false</td>
+ * </tr>
+ * <tr>
  * <td colspan="6"><b>AtomPub Binding settings</b></td>
  * </tr>
  * <tr>
@@ -725,6 +871,27 @@ public final class SessionParameter {
     public static final String CONNECT_TIMEOUT = "org.apache.chemistry.opencmis.binding.connecttimeout";
     public static final String READ_TIMEOUT = "org.apache.chemistry.opencmis.binding.readtimeout";
 
+    public static final String HTTP_POOL_MAX_CONNECTIONS = "org.apache.chemistry.opencmis.binding.pool.maxconnections";
+    public static final String HTTP_POOL_MAX_CONNECTIONS_PER_HOST = "org.apache.chemistry.opencmis.binding.pool.maxconnectionsperhost";
+    public static final String HTTP_POOL_MAX_IDLE_CONNECTIONS = "org.apache.chemistry.opencmis.binding.pool.maxidleconnections";
+    public static final String HTTP_POOL_IDLE_TIMEOUT = "org.apache.chemistry.opencmis.binding.pool.idletimeout";
+
+    public static final String HTTP2 = "org.apache.chemistry.opencmis.binding.http2";
+
+    public static final String HTTP_RETRY_DELEGATE_CLASS = "org.apache.chemistry.opencmis.binding.httpinvoker.retry.delegate.classname";
+    public static final String HTTP_RETRY_MAX_RETRIES = "org.apache.chemistry.opencmis.binding.retry.maxretries";
+    public static final String HTTP_RETRY_DELETE = "org.apache.chemistry.opencmis.binding.retry.delete";
+    public static final String HTTP_RETRY_INITIAL_DELAY = "org.apache.chemistry.opencmis.binding.retry.initialdelay";
+    public static final String HTTP_RETRY_MAX_DELAY = "org.apache.chemistry.opencmis.binding.retry.maxdelay";
+    public static final String HTTP_CIRCUIT_BREAKER_THRESHOLD = "org.apache.chemistry.opencmis.binding.circuitbreaker.threshold";
+    public static final String HTTP_CIRCUIT_BREAKER_OPEN_TIME = "org.apache.chemistry.opencmis.binding.circuitbreaker.opentime";
+    public static final String HTTP_RATE_LIMIT = "org.apache.chemistry.opencmis.binding.ratelimit";
+    public static final String HTTP_RATE_LIMIT_BURST = "org.apache.chemistry.opencmis.binding.ratelimit.burst";
+
+    // --- metrics ---
+
+    public static final String METRICS_LISTENER_CLASS = "org.apache.chemistry.opencmis.binding.metrics.classname";
+
     public static final String PROXY_USER = "org.apache.chemistry.opencmis.binding.proxyuser";
     public static final String PROXY_PASSWORD = "org.apache.chemistry.opencmis.binding.proxypassword";
 
@@ -743,6 +910,7 @@ public final class SessionParameter {
     public static final String CACHE_SIZE_REPOSITORIES = "org.apache.chemistry.opencmis.binding.cache.repositories.size";
     public static final String CACHE_SIZE_TYPES = "org.apache.chemistry.opencmis.binding.cache.types.size";
     public static final String CACHE_SIZE_LINKS = "org.apache.chemistry.opencmis.binding.cache.links.size";
+    public static final String CACHE_CONCURRENT = "org.apache.chemistry.opencmis.binding.cache.concurrent";
 
     // --- session control ---
 
@@ -0,0 +1,48 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.commons.data;
+
+import java.io.File;
+
+/**
+ * Content stream that is backed by a file. The AtomPub binding and the Browser
+ * binding send the content directly from the file instead of copying the
+ * stream. (AtomPub binding and Browser binding server only.)
+ * <p>
+ * The content consists of {@link #getBigLength()} bytes of the file, starting
+ * at {@link #getFileOffset()}. If the length is not set, the content ends at
+ * the end of the file. {@link #getStream()} must nevertheless return a stream
+ * that provides the same content for all other bindings.
+ */
+public interface FileContentStream extends ContentStream {
+
+    /**
+     * Returns the file that contains the content.
+     * 
+     * @return the file
+     */
+    File getFile();
+
+    /**
+     * Returns the position of the first content byte within the file.
+     * 
+     * @return the offset, 0 if the content starts at the beginning of the file
+     */
+    long getFileOffset();
+}
@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.commons.server;
+
+import java.util.List;
+
+import org.apache.chemistry.opencmis.commons.data.ObjectData;
+import org.apache.chemistry.opencmis.commons.enums.IncludeRelationships;
+
+/**
+ * CmisService classes that implement this interface can collect the
+ * {@link ObjectInfo} objects of a whole list of objects at once.
+ *
+ * The AtomPub binding needs an {@link ObjectInfo} for each entry of a feed.
+ * Before it writes a feed, it calls
+ * {@link #collectObjectInfos(String, String, List, String, IncludeRelationships, String)}
+ * with the objects of the feed page and then calls
+ * {@link #getObjectInfo(String, String)} for each entry as usual. Repositories
+ * that fetch object infos lazily can use this call to share repository
+ * information and type information between all objects of the page and to
+ * reuse the objects that the service has already returned.
+ *
+ * Other bindings don't call this method.
+ */
+public interface ObjectInfoBatchCmisService extends CmisService {
+
+    /**
+     * Collects the object infos of a list of objects. Object infos that are
+     * already known are not collected again.
+     *
+     * @param repositoryId
+     *            the repository id
+     * @param parentId
+     *            the id of the folder that contains all objects, or
+     *            {@code null} if the objects are not the children of one
+     *            folder
+     * @param objects
+     *            the objects as returned by the service
+     * @param filter
+     *            the property filter the objects have been fetched with
+     * @param includeRelationships
+     *            the relationships the objects have been fetched with
+     * @param renditionFilter
+     *            the rendition filter the objects have been fetched with
+     */
+    void collectObjectInfos(String repositoryId, String parentId, List<ObjectData> objects, String filter,
+            IncludeRelationships includeRelationships, String renditionFilter);
+}
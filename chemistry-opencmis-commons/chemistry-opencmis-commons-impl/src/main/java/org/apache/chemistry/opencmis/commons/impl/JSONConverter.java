@@ -165,6 +165,7 @@ import org.apache.chemistry.opencmis.commons.impl.dataobjects.TypeDefinitionList
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.TypeMutabilityImpl;
 import org.apache.chemistry.opencmis.commons.impl.json.JSONArray;
 import org.apache.chemistry.opencmis.commons.impl.json.JSONObject;
+import org.apache.chemistry.opencmis.commons.impl.json.JSONStreamingArray;
 
 /**
  * OpenCMIS objects to JSON converter.
@@ -1424,17 +1425,45 @@ public final class JSONConverter {
      */
     public static JSONObject convert(final ObjectList list, final TypeCache typeCache, final PropertyMode propertyMode,
             final boolean succinct, final DateTimeFormat dateTimeFormat) {
+        return convert(list, typeCache, propertyMode, succinct, dateTimeFormat, false);
+    }
+
+    /**
+     * Converts a query object list. The objects are converted one by one when
+     * the returned JSON object is written.
+     * 
+     * @see JSONStreamingArray
+     */
+    public static JSONObject convertStreaming(final ObjectList list, final TypeCache typeCache,
+            final PropertyMode propertyMode, final boolean succinct, final DateTimeFormat dateTimeFormat) {
+        return convert(list, typeCache, propertyMode, succinct, dateTimeFormat, true);
+    }
+
+    private static JSONObject convert(final ObjectList list, final TypeCache typeCache,
+            final PropertyMode propertyMode, final boolean succinct, final DateTimeFormat dateTimeFormat,
+            final boolean streaming) {
         if (list == null) {
             return null;
         }
 
         JSONObject result = new JSONObject();
 
-        JSONArray objects = new JSONArray();
-        if (list.getObjects() != null) {
-            for (ObjectData object : list.getObjects()) {
-                objects.add(convert(object, typeCache, propertyMode, succinct, dateTimeFormat));
+        Object objects;
+        if (streaming) {
+            objects = new JSONStreamingArray<ObjectData>(list.getObjects()) {
+                @Override
+                protected Object convert(ObjectData object) {
+                    return JSONConverter.convert(object, typeCache, propertyMode, succinct, dateTimeFormat);
+                }
+            };
+        } else {
+            JSONArray objectArray = new JSONArray();
+            if (list.getObjects() != null) {
+                for (ObjectData object : list.getObjects()) {
+                    objectArray.add(convert(object, typeCache, propertyMode, succinct, dateTimeFormat));
+                }
             }
+            objects = objectArray;
         }
 
         if (propertyMode == PropertyMode.QUERY) {
@@ -1478,6 +1507,22 @@ public final class JSONConverter {
      */
     public static JSONObject convert(final ObjectInFolderList objectInFolderList, final TypeCache typeCache,
             final boolean succinct, final DateTimeFormat dateTimeFormat) {
+        return convert(objectInFolderList, typeCache, succinct, dateTimeFormat, false);
+    }
+
+    /**
+     * Converts a folder list. The objects are converted one by one when the
+     * returned JSON object is written.
+     * 
+     * @see JSONStreamingArray
+     */
+    public static JSONObject convertStreaming(final ObjectInFolderList objectInFolderList,
+            final TypeCache typeCache, final boolean succinct, final DateTimeFormat dateTimeFormat) {
+        return convert(objectInFolderList, typeCache, succinct, dateTimeFormat, true);
+    }
+
+    private static JSONObject convert(final ObjectInFolderList objectInFolderList, final TypeCache typeCache,
+            final boolean succinct, final DateTimeFormat dateTimeFormat, final boolean streaming) {
         if (objectInFolderList == null) {
             return null;
         }
@@ -1485,13 +1530,23 @@ public final class JSONConverter {
         JSONObject result = new JSONObject();
 
         if (objectInFolderList.getObjects() != null) {
-            JSONArray objects = new JSONArray();
+            if (streaming) {
+                result.put(JSON_OBJECTINFOLDERLIST_OBJECTS,
+                        new JSONStreamingArray<ObjectInFolderData>(objectInFolderList.getObjects()) {
+                            @Override
+                            protected Object convert(ObjectInFolderData object) {
+                                return JSONConverter.convert(object, typeCache, succinct, dateTimeFormat);
+                            }
+                        });
+            } else {
+                JSONArray objects = new JSONArray();
 
-            for (ObjectInFolderData object : objectInFolderList.getObjects()) {
-                objects.add(convert(object, typeCache, succinct, dateTimeFormat));
-            }
+                for (ObjectInFolderData object : objectInFolderList.getObjects()) {
+                    objects.add(convert(object, typeCache, succinct, dateTimeFormat));
+                }
 
-            result.put(JSON_OBJECTINFOLDERLIST_OBJECTS, objects);
+                result.put(JSON_OBJECTINFOLDERLIST_OBJECTS, objects);
+            }
         }
 
         setIfNotNull(JSON_OBJECTINFOLDERLIST_HAS_MORE_ITEMS, objectInFolderList.hasMoreItems(), result);
@@ -1507,6 +1562,29 @@ public final class JSONConverter {
      */
     public static JSONObject convert(final ObjectInFolderContainer container, final TypeCache typeCache,
             final boolean succinct, final DateTimeFormat dateTimeFormat) {
+        return convert(container, typeCache, succinct, dateTimeFormat, false);
+    }
+
+    /**
+     * Converts a list of folder containers, for example the result of a
+     * getDescendants or getFolderTree call. The containers and their children
+     * are converted one by one when the returned JSON array is written.
+     * 
+     * @see JSONStreamingArray
+     */
+    public static JSONStreamingArray<ObjectInFolderContainer> convertStreaming(
+            final List<ObjectInFolderContainer> containers, final TypeCache typeCache, final boolean succinct,
+            final DateTimeFormat dateTimeFormat) {
+        return new JSONStreamingArray<ObjectInFolderContainer>(containers) {
+            @Override
+            protected Object convert(ObjectInFolderContainer container) {
+                return JSONConverter.convert(container, typeCache, succinct, dateTimeFormat, true);
+            }
+        };
+    }
+
+    private static JSONObject convert(final ObjectInFolderContainer container, final TypeCache typeCache,
+            final boolean succinct, final DateTimeFormat dateTimeFormat, final boolean streaming) {
         if (container == null) {
             return null;
         }
@@ -1516,12 +1594,17 @@ public final class JSONConverter {
                 convert(container.getObject(), typeCache, succinct, dateTimeFormat));
 
         if (isNotEmpty(container.getChildren())) {
-            JSONArray children = new JSONArray();
-            for (ObjectInFolderContainer descendant : container.getChildren()) {
-                children.add(JSONConverter.convert(descendant, typeCache, succinct, dateTimeFormat));
-            }
+            if (streaming) {
+                result.put(JSON_OBJECTINFOLDERCONTAINER_CHILDREN,
+                        convertStreaming(container.getChildren(), typeCache, succinct, dateTimeFormat));
+            } else {
+                JSONArray children = new JSONArray();
+                for (ObjectInFolderContainer descendant : container.getChildren()) {
+                    children.add(JSONConverter.convert(descendant, typeCache, succinct, dateTimeFormat));
+                }
 
-            result.put(JSON_OBJECTINFOLDERCONTAINER_CHILDREN, children);
+                result.put(JSON_OBJECTINFOLDERCONTAINER_CHILDREN, children);
+            }
         }
 
         convertExtension(container, result);
@@ -2445,7 +2528,10 @@ public final class JSONConverter {
     }
 
     /**
-     * Converts a object list.
+     * Converts a object list. The list may contain objects that have already
+     * been converted while the JSON was parsed.
+     * 
+     * @see org.apache.chemistry.opencmis.commons.impl.json.parser.ConvertingContentHandler
      */
     public static ObjectInFolderList convertObjectInFolderList(final Map<String, Object> json,
             final TypeCache typeCache) {
@@ -2460,6 +2546,10 @@ public final class JSONConverter {
 
         if (jsonChildren != null) {
             for (Object obj : jsonChildren) {
+                if (obj instanceof ObjectInFolderData) {
+                    objects.add((ObjectInFolderData) obj);
+                    continue;
+                }
                 Map<String, Object> jsonObject = getMap(obj);
                 if (jsonObject != null) {
                     objects.add(convertObjectInFolder(jsonObject, typeCache));
@@ -2495,7 +2585,10 @@ public final class JSONConverter {
     }
 
     /**
-     * Converts a descendants tree.
+     * Converts a descendants tree. The list may contain descendants that have
+     * already been converted while the JSON was parsed.
+     * 
+     * @see org.apache.chemistry.opencmis.commons.impl.json.parser.ConvertingContentHandler
      */
     public static List<ObjectInFolderContainer> convertDescendants(final List<Object> json, final TypeCache typeCache) {
         if (json == null) {
@@ -2505,6 +2598,10 @@ public final class JSONConverter {
         List<ObjectInFolderContainer> result = new ArrayList<ObjectInFolderContainer>();
 
         for (Object obj : json) {
+            if (obj instanceof ObjectInFolderContainer) {
+                result.add((ObjectInFolderContainer) obj);
+                continue;
+            }
             Map<String, Object> desc = getMap(obj);
             if (desc != null) {
                 result.add(convertDescendant(desc, typeCache));
@@ -2572,7 +2669,10 @@ public final class JSONConverter {
     }
 
     /**
-     * Converts a object list.
+     * Converts a object list. The list may contain objects that have already
+     * been converted while the JSON was parsed.
+     * 
+     * @see org.apache.chemistry.opencmis.commons.impl.json.parser.ConvertingContentHandler
      */
     public static ObjectList convertObjectList(final Map<String, Object> json, final TypeCache typeCache,
             final boolean isQueryResult) {
@@ -2588,6 +2688,10 @@ public final class JSONConverter {
 
         if (jsonChildren != null) {
             for (Object obj : jsonChildren) {
+                if (obj instanceof ObjectData) {
+                    objects.add((ObjectData) obj);
+                    continue;
+                }
                 Map<String, Object> jsonObject = getMap(obj);
                 if (jsonObject != null) {
                     objects.add(convertObject(jsonObject, typeCache));
@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.commons.impl.dataobjects;
+
+import java.io.File;
+import java.io.InputStream;
+import java.math.BigInteger;
+
+import org.apache.chemistry.opencmis.commons.data.FileContentStream;
+
+/**
+ * Content stream data backed by a file.
+ */
+public class FileContentStreamImpl extends ContentStreamImpl implements FileContentStream {
+
+    private static final long serialVersionUID = 1L;
+
+    private File file;
+    private long fileOffset;
+
+    /**
+     * Constructor.
+     */
+    public FileContentStreamImpl() {
+    }
+
+    /**
+     * Constructor.
+     */
+    public FileContentStreamImpl(String filename, BigInteger length, String mimetype, InputStream stream, File file,
+            long fileOffset) {
+        super(filename, length, mimetype, stream);
+        this.file = file;
+        this.fileOffset = fileOffset;
+    }
+
+    @Override
+    public File getFile() {
+        return file;
+    }
+
+    public void setFile(File file) {
+        this.file = file;
+    }
+
+    @Override
+    public long getFileOffset() {
+        return fileOffset;
+    }
+
+    public void setFileOffset(long fileOffset) {
+        this.fileOffset = fileOffset;
+    }
+}
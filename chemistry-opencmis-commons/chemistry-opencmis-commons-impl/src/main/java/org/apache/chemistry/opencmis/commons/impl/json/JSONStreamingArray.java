@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.commons.impl.json;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Collection;
+
+/**
+ * A JSON array that converts its values one at a time while it is written.
+ * Only the JSON representation of the current value exists while the array is
+ * written, which keeps the memory needed for large lists small.
+ * <p>
+ * The written JSON text is the same as the JSON text of a {@link JSONArray}
+ * that contains all converted values.
+ * 
+ * @param <T>
+ *            the type of the items that are converted
+ */
+public abstract class JSONStreamingArray<T> implements JSONAware, JSONStreamAware {
+
+    private final Collection<? extends T> items;
+
+    /**
+     * Constructor.
+     * 
+     * @param items
+     *            the items, {@code null} for an empty array
+     */
+    public JSONStreamingArray(Collection<? extends T> items) {
+        this.items = items;
+    }
+
+    /**
+     * Converts an item into a JSON value.
+     */
+    protected abstract Object convert(T item);
+
+    @Override
+    public void writeJSONString(Writer out) throws IOException {
+        out.write('[');
+        if (items != null) {
+            boolean first = true;
+            for (T item : items) {
+                if (first) {
+                    first = false;
+                } else {
+                    out.write(',');
+                }
+
+                JSONValue.writeJSONString(convert(item), out);
+            }
+        }
+        out.write(']');
+    }
+
+    @Override
+    public String toJSONString() {
+        StringWriter sw = new StringWriter(1024);
+        try {
+            writeJSONString(sw);
+        } catch (IOException e) {
+            // StringWriter doesn't throw IOExceptions
+        }
+        return sw.toString();
+    }
+
+    @Override
+    public String toString() {
+        return toJSONString();
+    }
+}
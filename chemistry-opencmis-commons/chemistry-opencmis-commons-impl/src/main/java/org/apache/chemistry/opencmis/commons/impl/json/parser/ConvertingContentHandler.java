@@ -0,0 +1,180 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.commons.impl.json.parser;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Content handler that builds the same tree of maps and lists as
+ * {@link JSONParser#parse(java.io.Reader, ContainerFactory)}, except for the
+ * elements of one array: each of these elements is converted as soon as it
+ * has been parsed and the tree holds the converted element instead of its
+ * JSON object.
+ * <p>
+ * This keeps only the JSON objects of one element in memory, which matters
+ * for large lists such as folder children or query results.
+ */
+public class ConvertingContentHandler implements ContentHandler {
+
+    /**
+     * Converts an element of the array. A converter that cannot convert an
+     * element yet may return the JSON object unchanged and leave the
+     * conversion to the caller of the parser.
+     */
+    public interface ItemConverter {
+        Object convert(Map<String, Object> json);
+    }
+
+    private final List<String> path;
+    private final ItemConverter converter;
+
+    private final Deque<Object> containers = new ArrayDeque<Object>();
+    private final Deque<String> keys = new ArrayDeque<String>();
+    private final Deque<Boolean> pathStack = new ArrayDeque<Boolean>();
+    private List<Object> items;
+    private Object result;
+
+    /**
+     * Constructor.
+     * 
+     * @param converter
+     *            the converter for the array elements
+     * @param path
+     *            the keys of the objects that lead from the root to the array,
+     *            no keys if the root is the array
+     */
+    public ConvertingContentHandler(ItemConverter converter, String... path) {
+        this.converter = converter;
+        this.path = Arrays.asList(path);
+    }
+
+    /**
+     * Returns the root of the parsed tree.
+     */
+    public Object getResult() {
+        return result;
+    }
+
+    @Override
+    public void startJSON() {
+        containers.clear();
+        keys.clear();
+        pathStack.clear();
+        items = null;
+        result = null;
+    }
+
+    @Override
+    public void endJSON() {
+    }
+
+    @Override
+    public boolean startObject() {
+        pathStack.addFirst(isOnPath() && keys.size() < path.size() && matchesPath());
+        containers.addFirst(new LinkedHashMap<String, Object>());
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public boolean endObject() {
+        pathStack.removeFirst();
+        Map<String, Object> map = (Map<String, Object>) containers.removeFirst();
+        if (items != null && containers.peekFirst() == items) {
+            addValue(converter.convert(map));
+        } else {
+            addValue(map);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean startObjectEntry(String key) {
+        keys.addFirst(key);
+        return true;
+    }
+
+    @Override
+    public boolean endObjectEntry() {
+        keys.removeFirst();
+        return true;
+    }
+
+    @Override
+    public boolean startArray() {
+        List<Object> list = new ArrayList<Object>();
+        if (items == null && isOnPath() && keys.size() == path.size() && matchesPath()) {
+            items = list;
+        }
+        pathStack.addFirst(Boolean.FALSE);
+        containers.addFirst(list);
+        return true;
+    }
+
+    @Override
+    public boolean endArray() {
+        pathStack.removeFirst();
+        addValue(containers.removeFirst());
+        return true;
+    }
+
+    @Override
+    public boolean primitive(Object value) {
+        addValue(value);
+        return true;
+    }
+
+    /**
+     * Returns whether all containers from the root to the current position
+     * are objects on the path to the array. Containers on the path are
+     * objects, so a value in such a container is the value of an entry.
+     */
+    private boolean isOnPath() {
+        Boolean onPath = pathStack.peekFirst();
+        return onPath == null ? containers.isEmpty() : onPath.booleanValue();
+    }
+
+    private boolean matchesPath() {
+        int i = keys.size() - 1;
+        for (String key : keys) {
+            if (!key.equals(path.get(i--))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void addValue(Object value) {
+        Object parent = containers.peekFirst();
+        if (parent == null) {
+            result = value;
+        } else if (parent instanceof Map) {
+            ((Map<String, Object>) parent).put(keys.peekFirst(), value);
+        } else {
+            ((List<Object>) parent).add(value);
+        }
+    }
+}
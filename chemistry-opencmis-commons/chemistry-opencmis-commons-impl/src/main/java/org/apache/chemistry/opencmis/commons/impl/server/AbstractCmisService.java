@@ -55,6 +55,7 @@ import org.apache.chemistry.opencmis.commons.definitions.TypeDefinitionList;
 import org.apache.chemistry.opencmis.commons.enums.AclPropagation;
 import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
 import org.apache.chemistry.opencmis.commons.enums.CapabilityAcl;
+import org.apache.chemistry.opencmis.commons.enums.CapabilityRenditions;
 import org.apache.chemistry.opencmis.commons.enums.IncludeRelationships;
 import org.apache.chemistry.opencmis.commons.enums.RelationshipDirection;
 import org.apache.chemistry.opencmis.commons.enums.UnfileObject;
@@ -66,18 +67,24 @@ import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.TypeDefinitionContainerImpl;
 import org.apache.chemistry.opencmis.commons.server.CmisService;
 import org.apache.chemistry.opencmis.commons.server.ObjectInfo;
+import org.apache.chemistry.opencmis.commons.server.ObjectInfoBatchCmisService;
 import org.apache.chemistry.opencmis.commons.server.ObjectInfoHandler;
 import org.apache.chemistry.opencmis.commons.server.RenditionInfo;
 import org.apache.chemistry.opencmis.commons.spi.Holder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public abstract class AbstractCmisService implements CmisService, ObjectInfoHandler {
+public abstract class AbstractCmisService implements CmisService, ObjectInfoHandler, ObjectInfoBatchCmisService {
 
     private static final Logger LOG = LoggerFactory.getLogger(AbstractCmisService.class);
 
+    private static final int RELATIONSHIPS = 0;
+    private static final int POLICIES = 1;
+
     private Map<String, ObjectInfo> objectInfoMap;
     private boolean addObjectInfos = true;
+    private ObjectInfoBatch objectInfoBatch;
+    private int objectInfoCalls;
 
     // --- repository service ---
 
@@ -1101,6 +1108,17 @@ public abstract class AbstractCmisService implements CmisService, ObjectInfoHand
      */
     @Override
     public ObjectInfo getObjectInfo(String repositoryId, String objectId) {
+        return getObjectInfo(repositoryId, objectId, null);
+    }
+
+    /**
+     * Returns the object info of an object and creates it if it is not known.
+     * 
+     * @param object
+     *            the object if it is already present, {@code null} if it has
+     *            to be fetched
+     */
+    private ObjectInfo getObjectInfo(String repositoryId, String objectId, ObjectData object) {
         Map<String, ObjectInfo> oim = getObjectInfoMap();
         ObjectInfo info = oim.get(objectId);
         if (info == null) {
@@ -1110,8 +1128,11 @@ public abstract class AbstractCmisService implements CmisService, ObjectInfoHand
                 addObjectInfos = false;
 
                 // get the object and its info
-                ObjectData object = getObject(repositoryId, objectId, null, Boolean.TRUE, IncludeRelationships.BOTH,
-                        "*", Boolean.TRUE, Boolean.FALSE, null);
+                if (object == null) {
+                    objectInfoCalls++;
+                    object = getObject(repositoryId, objectId, null, Boolean.TRUE, IncludeRelationships.BOTH, "*",
+                            Boolean.TRUE, Boolean.FALSE, null);
+                }
                 info = getObjectInfoIntern(repositoryId, object);
 
                 // switch on object info collection
@@ -1133,6 +1154,143 @@ public abstract class AbstractCmisService implements CmisService, ObjectInfoHand
         return info;
     }
 
+    /**
+     * {@inheritDoc}
+     * 
+     * <p>
+     * <b>Implementation Hints:</b>
+     * <ul>
+     * <li>Bindings: AtomPub</li>
+     * <li>The repository info and the base types are fetched once for all
+     * objects. Objects that have been fetched with all properties, relationships
+     * and renditions are not fetched again. Objects in a folder are known to
+     * have a parent. If you want to change this behavior, override this
+     * method.</li>
+     * </ul>
+     */
+    @Override
+    public void collectObjectInfos(String repositoryId, String parentId, List<ObjectData> objects, String filter,
+            IncludeRelationships includeRelationships, String renditionFilter) {
+        if (objects == null || objects.isEmpty() || !addObjectInfos) {
+            return;
+        }
+
+        ObjectInfoBatch previousBatch = objectInfoBatch;
+        objectInfoBatch = new ObjectInfoBatch(repositoryId, parentId);
+        try {
+            Boolean reuseObjects = null;
+            for (ObjectData object : objects) {
+                if (object == null || object.getId() == null || getObjectInfoMap().containsKey(object.getId())) {
+                    continue;
+                }
+
+                if (reuseObjects == null) {
+                    reuseObjects = isCompleteForObjectInfo(repositoryId, filter, includeRelationships,
+                            renditionFilter);
+                }
+
+                boolean hasProperties = object.getProperties() != null
+                        && object.getProperties().getProperties() != null;
+                getObjectInfo(repositoryId, object.getId(), reuseObjects && hasProperties ? object : null);
+            }
+        } finally {
+            objectInfoBatch = previousBatch;
+        }
+    }
+
+    /**
+     * Checks whether objects fetched with the given parameters contain all the
+     * data {@link #getObjectInfo(String, String)} would fetch.
+     */
+    private boolean isCompleteForObjectInfo(String repositoryId, String filter,
+            IncludeRelationships includeRelationships, String renditionFilter) {
+        if (filter != null && !"*".equals(filter.trim())) {
+            return false;
+        }
+
+        try {
+            if (includeRelationships != IncludeRelationships.BOTH
+                    && getObjectInfoBaseTypes(repositoryId)[RELATIONSHIPS]) {
+                return false;
+            }
+
+            if (!"*".equals(renditionFilter)) {
+                RepositoryCapabilities capabilities = getObjectInfoRepositoryInfo(repositoryId).getCapabilities();
+                if (capabilities == null || capabilities.getRenditionsCapability() != CapabilityRenditions.NONE) {
+                    return false;
+                }
+            }
+        } catch (Exception e) {
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns the number of backend calls that have been made to collect
+     * object infos since the object infos have been cleared.
+     */
+    public int getObjectInfoCalls() {
+        return objectInfoCalls;
+    }
+
+    /**
+     * Returns the repository info for collecting object infos. Within a batch
+     * the repository info is only fetched once.
+     */
+    private RepositoryInfo getObjectInfoRepositoryInfo(String repositoryId) {
+        ObjectInfoBatch batch = getObjectInfoBatch(repositoryId);
+        if (batch != null && batch.repositoryInfo != null) {
+            return batch.repositoryInfo;
+        }
+
+        objectInfoCalls++;
+        RepositoryInfo repositoryInfo = getRepositoryInfo(repositoryId, null);
+        if (batch != null) {
+            batch.repositoryInfo = repositoryInfo;
+        }
+
+        return repositoryInfo;
+    }
+
+    /**
+     * Returns whether relationships and policies are supported. Within a batch
+     * the base types are only fetched once.
+     */
+    private boolean[] getObjectInfoBaseTypes(String repositoryId) {
+        ObjectInfoBatch batch = getObjectInfoBatch(repositoryId);
+        if (batch != null && batch.baseTypes != null) {
+            return batch.baseTypes;
+        }
+
+        boolean[] baseTypes = new boolean[2];
+        objectInfoCalls++;
+        TypeDefinitionList baseTypesList = getTypeChildren(repositoryId, null, Boolean.FALSE, BigInteger.valueOf(6),
+                BigInteger.ZERO, null);
+        for (TypeDefinition type : baseTypesList.getList()) {
+            if (BaseTypeId.CMIS_RELATIONSHIP.value().equals(type.getId())) {
+                baseTypes[RELATIONSHIPS] = true;
+            } else if (BaseTypeId.CMIS_POLICY.value().equals(type.getId())) {
+                baseTypes[POLICIES] = true;
+            }
+        }
+
+        if (batch != null) {
+            batch.baseTypes = baseTypes;
+        }
+
+        return baseTypes;
+    }
+
+    private ObjectInfoBatch getObjectInfoBatch(String repositoryId) {
+        if (objectInfoBatch != null && objectInfoBatch.repositoryId.equals(repositoryId)) {
+            return objectInfoBatch;
+        }
+
+        return null;
+    }
+
     /**
      * Collects the {@link ObjectInfo} about an object.
      * 
@@ -1153,7 +1311,7 @@ public abstract class AbstractCmisService implements CmisService, ObjectInfoHand
         // get the repository info
         RepositoryInfo repositoryInfo = null;
         try {
-            repositoryInfo = getRepositoryInfo(repositoryId, null);
+            repositoryInfo = getObjectInfoRepositoryInfo(repositoryId);
         } catch (CmisRuntimeException e) {
             LOG.error("getRepositoryInfo returned an error while compiling object info for object {}.", object.getId(),
                     e);
@@ -1186,6 +1344,7 @@ public abstract class AbstractCmisService implements CmisService, ObjectInfoHand
 
                 // get latest version
                 try {
+                    objectInfoCalls++;
                     List<ObjectData> versions = getAllVersions(repositoryId, object.getId(), info.getVersionSeriesId(),
                             null, Boolean.FALSE, null);
                     if (isNotEmpty(versions)) {
@@ -1221,8 +1380,12 @@ public abstract class AbstractCmisService implements CmisService, ObjectInfoHand
             info.setHasParent(false);
         } else if (object.getBaseTypeId() == BaseTypeId.CMIS_FOLDER) {
             info.setHasParent(!object.getId().equals(repositoryInfo.getRootFolderId()));
+        } else if (getObjectInfoBatch(repositoryId) != null && objectInfoBatch.parentId != null) {
+            // all objects of the batch are in this folder
+            info.setHasParent(true);
         } else {
             try {
+                objectInfoCalls++;
                 List<ObjectParentData> parents = getObjectParents(repositoryId, object.getId(), null, Boolean.FALSE,
                         IncludeRelationships.NONE, "cmis:none", Boolean.FALSE, null);
                 info.setHasParent(isNotEmpty(parents));
@@ -1241,15 +1404,9 @@ public abstract class AbstractCmisService implements CmisService, ObjectInfoHand
         info.setSupportsPolicies(false);
 
         try {
-            TypeDefinitionList baseTypesList = getTypeChildren(repositoryId, null, Boolean.FALSE,
-                    BigInteger.valueOf(6), BigInteger.ZERO, null);
-            for (TypeDefinition type : baseTypesList.getList()) {
-                if (BaseTypeId.CMIS_RELATIONSHIP.value().equals(type.getId())) {
-                    info.setSupportsRelationships(true);
-                } else if (BaseTypeId.CMIS_POLICY.value().equals(type.getId())) {
-                    info.setSupportsPolicies(true);
-                }
-            }
+            boolean[] baseTypes = getObjectInfoBaseTypes(repositoryId);
+            info.setSupportsRelationships(baseTypes[RELATIONSHIPS]);
+            info.setSupportsPolicies(baseTypes[POLICIES]);
         } catch (CmisNotSupportedException nse) {
             if (LOG.isWarnEnabled()) {
                 LOG.warn("getTypeChildren is not implemented! Object info for object {} might be incorrect.",
@@ -1336,13 +1493,33 @@ public abstract class AbstractCmisService implements CmisService, ObjectInfoHand
      */
     public void clearObjectInfos() {
         objectInfoMap = null;
+        objectInfoCalls = 0;
     }
 
     @Override
     public void close() {
+        if (objectInfoCalls > 0 && LOG.isDebugEnabled()) {
+            LOG.debug("Collecting object infos took {} backend calls.", objectInfoCalls);
+        }
+
         clearObjectInfos();
     }
 
+    /**
+     * Data shared by the object infos of a batch.
+     */
+    private static class ObjectInfoBatch {
+        final String repositoryId;
+        final String parentId;
+        RepositoryInfo repositoryInfo;
+        boolean[] baseTypes;
+
+        public ObjectInfoBatch(String repositoryId, String parentId) {
+            this.repositoryId = repositoryId;
+            this.parentId = parentId;
+        }
+    }
+
     // --- helpers ---
 
     protected String getStringProperty(ObjectData object, String name) {
@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.commons.impl.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.chemistry.opencmis.commons.impl.json.parser.ConvertingContentHandler;
+import org.apache.chemistry.opencmis.commons.impl.json.parser.ConvertingContentHandler.ItemConverter;
+import org.apache.chemistry.opencmis.commons.impl.json.parser.JSONParseException;
+import org.apache.chemistry.opencmis.commons.impl.json.parser.JSONParser;
+import org.junit.Test;
+
+public class ConvertingContentHandlerTest {
+
+    private static final String LIST = "{\"objects\":[{\"id\":\"a\",\"objects\":[{\"id\":\"x\"}]},{\"id\":\"b\"}],"
+            + "\"other\":{\"objects\":[{\"id\":\"y\"}]},\"numItems\":2,\"hasMoreItems\":false}";
+
+    private static final String TREE = "[{\"object\":{\"id\":\"a\"},\"children\":[{\"object\":{\"id\":\"c\"}}]},"
+            + "{\"object\":{\"id\":\"b\"}},[{\"id\":\"z\"}]]";
+
+    @Test
+    public void testObjectList() throws JSONParseException {
+        List<Map<String, Object>> converted = new ArrayList<Map<String, Object>>();
+        Object result = parse(LIST, converted, "objects");
+
+        // only the elements of the array at the path have been converted
+        assertEquals(2, converted.size());
+        assertEquals("a", converted.get(0).get("id"));
+        assertEquals("b", converted.get(1).get("id"));
+        assertEquals(replaceItems(new JSONParser().parse(LIST), converted, "objects"), result);
+    }
+
+    @Test
+    public void testNestedPath() throws JSONParseException {
+        List<Map<String, Object>> converted = new ArrayList<Map<String, Object>>();
+        Object result = parse(LIST, converted, "other", "objects");
+
+        assertEquals(1, converted.size());
+        assertEquals("y", converted.get(0).get("id"));
+        assertEquals(replaceItems(new JSONParser().parse(LIST), converted, "other", "objects"), result);
+    }
+
+    @Test
+    public void testRootArray() throws JSONParseException {
+        List<Map<String, Object>> converted = new ArrayList<Map<String, Object>>();
+        Object result = parse(TREE, converted);
+
+        // nested arrays are part of the converted elements or not converted
+        assertEquals(2, converted.size());
+        assertTrue(converted.get(0).containsKey("children"));
+        assertEquals(replaceItems(new JSONParser().parse(TREE), converted), result);
+    }
+
+    @Test
+    public void testNoMatch() throws JSONParseException {
+        List<Map<String, Object>> converted = new ArrayList<Map<String, Object>>();
+        Object result = parse(LIST, converted, "results");
+
+        assertEquals(0, converted.size());
+        assertEquals(new JSONParser().parse(LIST), result);
+
+        result = parse(TREE, converted, "objects");
+
+        assertEquals(0, converted.size());
+        assertEquals(new JSONParser().parse(TREE), result);
+    }
+
+    private Object parse(String json, final List<Map<String, Object>> converted, String... path)
+            throws JSONParseException {
+        ConvertingContentHandler handler = new ConvertingContentHandler(new ItemConverter() {
+            @Override
+            public Object convert(Map<String, Object> json) {
+                converted.add(json);
+                return new Converted(json);
+            }
+        }, path);
+
+        new JSONParser().parse(json, handler);
+
+        return handler.getResult();
+    }
+
+    /**
+     * Replaces the elements of the array at the path of a parsed tree with
+     * the expected converted elements.
+     */
+    @SuppressWarnings("unchecked")
+    private Object replaceItems(Object root, List<Map<String, Object>> converted, String... path) {
+        Object array = root;
+        for (String key : path) {
+            array = ((Map<String, Object>) array).get(key);
+        }
+
+        List<Object> items = (List<Object>) array;
+        for (int i = 0; i < items.size(); i++) {
+            if (items.get(i) instanceof Map) {
+                assertEquals(items.get(i), converted.get(i));
+                items.set(i, new Converted(converted.get(i)));
+            }
+        }
+
+        return root;
+    }
+
+    private static class Converted {
+        private final Map<String, Object> json;
+
+        public Converted(Map<String, Object> json) {
+            this.json = json;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Converted && ((Converted) obj).json.equals(json);
+        }
+
+        @Override
+        public int hashCode() {
+            return json.hashCode();
+        }
+    }
+}
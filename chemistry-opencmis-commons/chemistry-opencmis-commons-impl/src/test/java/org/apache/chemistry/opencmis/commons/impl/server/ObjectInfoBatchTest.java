@@ -0,0 +1,220 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.commons.impl.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.data.ExtensionsData;
+import org.apache.chemistry.opencmis.commons.data.ObjectData;
+import org.apache.chemistry.opencmis.commons.data.ObjectInFolderList;
+import org.apache.chemistry.opencmis.commons.data.ObjectParentData;
+import org.apache.chemistry.opencmis.commons.data.RepositoryInfo;
+import org.apache.chemistry.opencmis.commons.definitions.TypeDefinition;
+import org.apache.chemistry.opencmis.commons.definitions.TypeDefinitionList;
+import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
+import org.apache.chemistry.opencmis.commons.enums.CapabilityAcl;
+import org.apache.chemistry.opencmis.commons.enums.CapabilityRenditions;
+import org.apache.chemistry.opencmis.commons.enums.IncludeRelationships;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.DocumentTypeDefinitionImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.FolderTypeDefinitionImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectDataImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectParentDataImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertiesImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyIdImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyStringImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.RepositoryCapabilitiesImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.RepositoryInfoImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.TypeDefinitionListImpl;
+import org.apache.chemistry.opencmis.commons.server.ObjectInfo;
+import org.junit.Test;
+
+public class ObjectInfoBatchTest {
+
+    private static final String REPOSITORY_ID = "repo";
+    private static final String FOLDER_ID = "folder";
+    private static final int PAGE_SIZE = 500;
+
+    @Test
+    public void testWithoutBatch() {
+        TestService service = new TestService();
+        List<ObjectData> page = createPage();
+
+        for (ObjectData object : page) {
+            assertNotNull(service.getObjectInfo(REPOSITORY_ID, object.getId()));
+        }
+
+        // getObject, getRepositoryInfo, getObjectParents and getTypeChildren
+        // for each object
+        assertEquals(4 * PAGE_SIZE, service.getObjectInfoCalls());
+        assertEquals(4 * PAGE_SIZE, service.calls);
+    }
+
+    @Test
+    public void testBatchWithFilter() {
+        TestService service = new TestService();
+        List<ObjectData> page = createPage();
+
+        service.collectObjectInfos(REPOSITORY_ID, FOLDER_ID, page, PropertyIds.NAME, IncludeRelationships.NONE, null);
+        for (ObjectData object : page) {
+            assertNotNull(service.getObjectInfo(REPOSITORY_ID, object.getId()));
+        }
+
+        // getObject for each object, repository info and base types once
+        assertEquals(PAGE_SIZE + 2, service.getObjectInfoCalls());
+        assertEquals(PAGE_SIZE + 2, service.calls);
+        assertSameInfos(page, service);
+    }
+
+    @Test
+    public void testBatchWithCompleteObjects() {
+        TestService service = new TestService();
+        List<ObjectData> page = createPage();
+
+        service.collectObjectInfos(REPOSITORY_ID, FOLDER_ID, page, "*", IncludeRelationships.NONE, null);
+        for (ObjectData object : page) {
+            assertNotNull(service.getObjectInfo(REPOSITORY_ID, object.getId()));
+        }
+
+        // the repository supports neither relationships nor renditions
+        assertEquals(2, service.getObjectInfoCalls());
+        assertEquals(2, service.calls);
+        assertSameInfos(page, service);
+
+        service.close();
+        assertEquals(0, service.getObjectInfoCalls());
+    }
+
+    private void assertSameInfos(List<ObjectData> page, TestService batchService) {
+        TestService service = new TestService();
+        for (ObjectData object : page) {
+            ObjectInfo expected = service.getObjectInfo(REPOSITORY_ID, object.getId());
+            ObjectInfo actual = batchService.getObjectInfo(REPOSITORY_ID, object.getId());
+
+            assertEquals(expected.getId(), actual.getId());
+            assertEquals(expected.getName(), actual.getName());
+            assertEquals(expected.getTypeId(), actual.getTypeId());
+            assertEquals(expected.getBaseType(), actual.getBaseType());
+            assertEquals(expected.hasParent(), actual.hasParent());
+            assertEquals(expected.hasAcl(), actual.hasAcl());
+            assertEquals(expected.supportsRelationships(), actual.supportsRelationships());
+            assertEquals(expected.supportsPolicies(), actual.supportsPolicies());
+        }
+    }
+
+    private static List<ObjectData> createPage() {
+        List<ObjectData> result = new ArrayList<ObjectData>();
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            result.add(createObject("doc" + i));
+        }
+        return result;
+    }
+
+    private static ObjectData createObject(String id) {
+        PropertiesImpl properties = new PropertiesImpl();
+        properties.addProperty(new PropertyIdImpl(PropertyIds.OBJECT_ID, id));
+        properties.addProperty(new PropertyIdImpl(PropertyIds.BASE_TYPE_ID, BaseTypeId.CMIS_DOCUMENT.value()));
+        properties.addProperty(new PropertyIdImpl(PropertyIds.OBJECT_TYPE_ID, BaseTypeId.CMIS_DOCUMENT.value()));
+        properties.addProperty(new PropertyStringImpl(PropertyIds.NAME, "name of " + id));
+
+        ObjectDataImpl object = new ObjectDataImpl();
+        object.setProperties(properties);
+        return object;
+    }
+
+    /**
+     * Counts all backend calls that compile object infos.
+     */
+    private static class TestService extends AbstractCmisService {
+
+        int calls;
+
+        @Override
+        public List<RepositoryInfo> getRepositoryInfos(ExtensionsData extension) {
+            calls++;
+
+            RepositoryCapabilitiesImpl capabilities = new RepositoryCapabilitiesImpl();
+            capabilities.setCapabilityAcl(CapabilityAcl.DISCOVER);
+            capabilities.setCapabilityRendition(CapabilityRenditions.NONE);
+
+            RepositoryInfoImpl repositoryInfo = new RepositoryInfoImpl();
+            repositoryInfo.setId(REPOSITORY_ID);
+            repositoryInfo.setRootFolder("root");
+            repositoryInfo.setCapabilities(capabilities);
+
+            return Collections.<RepositoryInfo> singletonList(repositoryInfo);
+        }
+
+        @Override
+        public TypeDefinitionList getTypeChildren(String repositoryId, String typeId,
+                Boolean includePropertyDefinitions, BigInteger maxItems, BigInteger skipCount,
+                ExtensionsData extension) {
+            calls++;
+
+            DocumentTypeDefinitionImpl documentType = new DocumentTypeDefinitionImpl();
+            documentType.setId(BaseTypeId.CMIS_DOCUMENT.value());
+            FolderTypeDefinitionImpl folderType = new FolderTypeDefinitionImpl();
+            folderType.setId(BaseTypeId.CMIS_FOLDER.value());
+
+            List<TypeDefinition> types = new ArrayList<TypeDefinition>();
+            types.add(documentType);
+            types.add(folderType);
+
+            return new TypeDefinitionListImpl(types);
+        }
+
+        @Override
+        public TypeDefinition getTypeDefinition(String repositoryId, String typeId, ExtensionsData extension) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ObjectInFolderList getChildren(String repositoryId, String folderId, String filter, String orderBy,
+                Boolean includeAllowableActions, IncludeRelationships includeRelationships, String renditionFilter,
+                Boolean includePathSegment, BigInteger maxItems, BigInteger skipCount, ExtensionsData extension) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<ObjectParentData> getObjectParents(String repositoryId, String objectId, String filter,
+                Boolean includeAllowableActions, IncludeRelationships includeRelationships, String renditionFilter,
+                Boolean includeRelativePathSegment, ExtensionsData extension) {
+            calls++;
+
+            ObjectParentDataImpl parent = new ObjectParentDataImpl();
+            parent.setObject(createObject(FOLDER_ID));
+            return Collections.<ObjectParentData> singletonList(parent);
+        }
+
+        @Override
+        public ObjectData getObject(String repositoryId, String objectId, String filter,
+                Boolean includeAllowableActions, IncludeRelationships includeRelationships, String renditionFilter,
+                Boolean includePolicyIds, Boolean includeAcl, ExtensionsData extension) {
+            calls++;
+
+            return createObject(objectId);
+        }
+    }
+}
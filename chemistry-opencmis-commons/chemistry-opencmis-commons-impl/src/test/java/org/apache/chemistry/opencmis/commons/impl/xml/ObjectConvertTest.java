@@ -62,6 +62,7 @@ import org.apache.chemistry.opencmis.commons.enums.CmisVersion;
 import org.apache.chemistry.opencmis.commons.enums.DateTimeFormat;
 import org.apache.chemistry.opencmis.commons.enums.PropertyType;
 import org.apache.chemistry.opencmis.commons.impl.JSONConverter;
+import org.apache.chemistry.opencmis.commons.impl.JSONConverter.PropertyMode;
 import org.apache.chemistry.opencmis.commons.impl.TypeCache;
 import org.apache.chemistry.opencmis.commons.impl.WSConverter;
 import org.apache.chemistry.opencmis.commons.impl.XMLConverter;
@@ -92,7 +93,9 @@ import org.apache.chemistry.opencmis.commons.impl.jaxb.CmisObjectInFolderContain
 import org.apache.chemistry.opencmis.commons.impl.jaxb.CmisObjectInFolderListType;
 import org.apache.chemistry.opencmis.commons.impl.jaxb.CmisObjectListType;
 import org.apache.chemistry.opencmis.commons.impl.jaxb.CmisObjectType;
+import org.apache.chemistry.opencmis.commons.impl.json.JSONArray;
 import org.apache.chemistry.opencmis.commons.impl.json.JSONObject;
+import org.apache.chemistry.opencmis.commons.impl.json.JSONStreamAware;
 import org.apache.chemistry.opencmis.commons.impl.json.parser.JSONParser;
 import org.junit.Test;
 
@@ -469,6 +472,17 @@ public class ObjectConvertTest extends AbstractXMLConverterTest {
 
         assertNotNull(result);
         assertDataObjectsEquals("ObjectList", children, result, null);
+
+        for (boolean succinct : new boolean[] { false, true }) {
+            for (DateTimeFormat dateTimeFormat : DateTimeFormat.values()) {
+                for (PropertyMode propertyMode : new PropertyMode[] { PropertyMode.OBJECT, PropertyMode.CHANGE }) {
+                    assertJsonEquals(
+                            JSONConverter.convert(children, typeCache, propertyMode, succinct, dateTimeFormat),
+                            JSONConverter.convertStreaming(children, typeCache, propertyMode, succinct,
+                                    dateTimeFormat));
+                }
+            }
+        }
     }
 
     protected void assertWsObjectInFolderList(ObjectInFolderList children) throws Exception {
@@ -494,6 +508,13 @@ public class ObjectConvertTest extends AbstractXMLConverterTest {
 
         assertNotNull(result);
         assertDataObjectsEquals("ObjectInFolderList", children, result, null);
+
+        for (boolean succinct : new boolean[] { false, true }) {
+            for (DateTimeFormat dateTimeFormat : DateTimeFormat.values()) {
+                assertJsonEquals(JSONConverter.convert(children, typeCache, succinct, dateTimeFormat),
+                        JSONConverter.convertStreaming(children, typeCache, succinct, dateTimeFormat));
+            }
+        }
     }
 
     protected void assertObjectContainer(ObjectInFolderContainer container) throws Exception {
@@ -524,6 +545,25 @@ public class ObjectConvertTest extends AbstractXMLConverterTest {
 
         assertNotNull(result);
         assertDataObjectsEquals("ObjectContainer", container, result, null);
+
+        for (boolean succinct : new boolean[] { false, true }) {
+            for (DateTimeFormat dateTimeFormat : DateTimeFormat.values()) {
+                JSONArray expected = new JSONArray();
+                expected.add(JSONConverter.convert(container, typeCache, succinct, dateTimeFormat));
+                assertJsonEquals(expected, JSONConverter.convertStreaming(Collections.singletonList(container),
+                        typeCache, succinct, dateTimeFormat));
+            }
+        }
+    }
+
+    protected void assertJsonEquals(JSONStreamAware expected, JSONStreamAware actual) throws Exception {
+        StringWriter expectedWriter = new StringWriter();
+        expected.writeJSONString(expectedWriter);
+
+        StringWriter actualWriter = new StringWriter();
+        actual.writeJSONString(actualWriter);
+
+        assertEquals(expectedWriter.toString(), actualWriter.toString());
     }
 
     private static class TestTypeCache implements TypeCache {
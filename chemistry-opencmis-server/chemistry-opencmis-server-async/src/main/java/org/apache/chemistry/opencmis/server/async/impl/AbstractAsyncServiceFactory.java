@@ -26,25 +26,108 @@ import javax.servlet.http.HttpServletResponse;
 import org.apache.chemistry.opencmis.commons.impl.server.AbstractServiceFactory;
 import org.apache.chemistry.opencmis.server.async.AsyncCmisExecutor;
 import org.apache.chemistry.opencmis.server.async.AsyncCmisServiceFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
- * An {@link AsyncCmisServiceFactory} implementation that sets up one simple
- * {@code ThreadPoolExecutor} for executing asynchronous all CMIS requests.
+ * An {@link AsyncCmisServiceFactory} implementation that sets up one executor
+ * for executing asynchronous all CMIS requests.
+ * <p>
+ * By default a simple {@code ThreadPoolExecutor} is used. The parameter
+ * {@value #PARAM_EXECUTOR} selects a {@link BoundedAsyncCmisExecutor} with a
+ * thread pool (<code>bounded</code>) or with one virtual thread per request (
+ * <code>virtual</code>) instead, which is configured by the other parameters.
  */
 public abstract class AbstractAsyncServiceFactory extends AbstractServiceFactory implements AsyncCmisServiceFactory {
 
-    private SimpleAsyncCmisExecutor executor;
+    private static final Logger LOG = LoggerFactory.getLogger(AbstractAsyncServiceFactory.class);
+
+    /** Executor type: <code>simple</code>, <code>bounded</code> or <code>virtual</code>. */
+    public static final String PARAM_EXECUTOR = "async.executor";
+    /** Maximum number of requests executed at the same time. */
+    public static final String PARAM_MAX_REQUESTS = "async.maxRequests";
+    /** Maximum number of requests per repository executed at the same time. */
+    public static final String PARAM_MAX_REQUESTS_PER_REPOSITORY = "async.maxRequestsPerRepository";
+    /** Maximum number of waiting requests. */
+    public static final String PARAM_QUEUE_SIZE = "async.queueSize";
+    /** Maximum time in milliseconds a request may wait in the queue. */
+    public static final String PARAM_QUEUE_TIMEOUT = "async.queueTimeout";
+    /** Value of the <code>Retry-After</code> header of rejected requests in seconds. */
+    public static final String PARAM_RETRY_AFTER = "async.retryAfter";
+    /** Timeout of the AsyncContext in milliseconds. */
+    public static final String PARAM_TIMEOUT = "async.timeout";
+
+    public static final String EXECUTOR_SIMPLE = "simple";
+    public static final String EXECUTOR_BOUNDED = "bounded";
+    public static final String EXECUTOR_VIRTUAL = "virtual";
+
+    private AsyncCmisExecutor executor;
 
     @Override
     public void init(Map<String, String> parameters) {
         super.init(parameters);
-        executor = new SimpleAsyncCmisExecutor();
+        executor = createAsyncCmisExecutor(parameters);
+    }
+
+    /**
+     * Creates the executor from the factory parameters.
+     */
+    protected AsyncCmisExecutor createAsyncCmisExecutor(Map<String, String> parameters) {
+        String type = parameters.get(PARAM_EXECUTOR);
+        if (type == null || type.trim().length() == 0 || EXECUTOR_SIMPLE.equalsIgnoreCase(type.trim())) {
+            SimpleAsyncCmisExecutor simpleExecutor = new SimpleAsyncCmisExecutor();
+            simpleExecutor.setTimeout(getLong(parameters, PARAM_TIMEOUT, simpleExecutor.getTimeout()));
+            return simpleExecutor;
+        }
+
+        boolean virtual;
+        if (EXECUTOR_VIRTUAL.equalsIgnoreCase(type.trim())) {
+            virtual = true;
+        } else if (EXECUTOR_BOUNDED.equalsIgnoreCase(type.trim())) {
+            virtual = false;
+        } else {
+            throw new IllegalArgumentException("Unknown async executor: " + type);
+        }
+
+        int processors = Runtime.getRuntime().availableProcessors();
+        int maxRequests = (int) getLong(parameters, PARAM_MAX_REQUESTS, virtual ? 0 : processors * 50);
+        int maxPerRepository = (int) getLong(parameters, PARAM_MAX_REQUESTS_PER_REPOSITORY, 0);
+        int queueSize = (int) getLong(parameters, PARAM_QUEUE_SIZE, processors * 50);
+
+        BoundedAsyncCmisExecutor boundedExecutor = new BoundedAsyncCmisExecutor(maxRequests, maxPerRepository,
+                queueSize, virtual);
+        boundedExecutor.setTimeout(getLong(parameters, PARAM_TIMEOUT, boundedExecutor.getTimeout()));
+        boundedExecutor.setQueueTimeout(getLong(parameters, PARAM_QUEUE_TIMEOUT, boundedExecutor.getQueueTimeout()));
+        boundedExecutor.setRetryAfter((int) getLong(parameters, PARAM_RETRY_AFTER, boundedExecutor.getRetryAfter()));
+
+        if (LOG.isInfoEnabled()) {
+            LOG.info("Async executor: {} threads, max requests: {}, max requests per repository: {}, queue size: {}",
+                    boundedExecutor.isVirtualThreads() ? "virtual" : "platform", maxRequests, maxPerRepository,
+                    queueSize);
+        }
+
+        return boundedExecutor;
+    }
+
+    private static long getLong(Map<String, String> parameters, String key, long defaultValue) {
+        String value = parameters.get(key);
+        if (value == null || value.trim().length() == 0) {
+            return defaultValue;
+        }
+
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid value for " + key + ": " + value, e);
+        }
     }
 
     @Override
     public void destroy() {
-        if (executor != null) {
-            executor.destroy();
+        if (executor instanceof SimpleAsyncCmisExecutor) {
+            ((SimpleAsyncCmisExecutor) executor).destroy();
+        } else if (executor instanceof BoundedAsyncCmisExecutor) {
+            ((BoundedAsyncCmisExecutor) executor).destroy();
         }
 
         super.destroy();
@@ -52,7 +135,7 @@ public abstract class AbstractAsyncServiceFactory extends AbstractServiceFactory
 
     @Override
     public AsyncCmisExecutor getAsyncCmisExecutor(HttpServletRequest request, HttpServletResponse response) {
-        // all requests share one thread pool
+        // all requests share one executor
         return executor;
     }
 }
@@ -0,0 +1,662 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.server.async.impl;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletRequest;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.chemistry.opencmis.server.async.AsyncCmisExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link AsyncCmisExecutor} with admission control.
+ * <p>
+ * At most <code>maxConcurrentRequests</code> requests are executed at the
+ * same time and at most <code>maxRequestsPerRepository</code> of them may
+ * target the same repository. Requests that cannot be executed immediately are
+ * queued per repository and the queues are served round-robin, so that a busy
+ * repository cannot starve the others. If more than <code>queueSize</code>
+ * requests are waiting, new requests are rejected with a
+ * {@link CmisRejectedExecutionException}, which is turned into a HTTP 503
+ * response with a <code>Retry-After</code> header. Requests that wait longer
+ * than the queue timeout are removed from the queue and rejected the same way,
+ * even if no running request finishes in the meantime.
+ * <p>
+ * The requests are either executed by a fixed pool of platform threads or, if
+ * the Java runtime supports it, by one virtual thread per request. The
+ * repository of a request is derived from the first segment of the path info,
+ * which matches the URL layout of the AtomPub and the Browser binding.
+ */
+public class BoundedAsyncCmisExecutor implements AsyncCmisExecutor {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BoundedAsyncCmisExecutor.class);
+
+    private static final AtomicInteger THREAD_NUMBER = new AtomicInteger();
+
+    private final ExecutorService executorService;
+    private final ScheduledThreadPoolExecutor expiryTimer;
+    private final boolean virtualThreads;
+    private final int maxConcurrentRequests;
+    private final int maxRequestsPerRepository;
+    private final int queueSize;
+    private long timeout;
+    private long queueTimeout;
+    private int retryAfter;
+
+    private final Object lock = new Object();
+    private final Map<String, RepositoryQueue> repositoryQueues = new HashMap<String, RepositoryQueue>();
+    private final LinkedList<RepositoryQueue> readyQueues = new LinkedList<RepositoryQueue>();
+    private int activeCount;
+    private int queuedCount;
+    private boolean shutdown;
+
+    private final AtomicLong completedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong expiredCount = new AtomicLong();
+    private final AtomicLong startedCount = new AtomicLong();
+    private final AtomicLong totalWaitTime = new AtomicLong();
+    private final AtomicLong maxWaitTime = new AtomicLong();
+
+    /**
+     * Creates an executor.
+     *
+     * @param maxConcurrentRequests
+     *            maximum number of requests executed at the same time, a value
+     *            less than 1 means unlimited (only allowed for virtual threads)
+     * @param maxRequestsPerRepository
+     *            maximum number of requests per repository executed at the
+     *            same time, a value less than 1 means unlimited
+     * @param queueSize
+     *            maximum number of waiting requests
+     * @param useVirtualThreads
+     *            <code>true</code> to execute each request in its own virtual
+     *            thread, <code>false</code> to use a fixed thread pool
+     */
+    public BoundedAsyncCmisExecutor(int maxConcurrentRequests, int maxRequestsPerRepository, int queueSize,
+            boolean useVirtualThreads) {
+        if (maxConcurrentRequests < 1 && !useVirtualThreads) {
+            throw new IllegalArgumentException("A thread pool requires a maximum number of concurrent requests!");
+        }
+
+        this.maxConcurrentRequests = maxConcurrentRequests < 1 ? Integer.MAX_VALUE : maxConcurrentRequests;
+        this.maxRequestsPerRepository = maxRequestsPerRepository < 1 ? Integer.MAX_VALUE : maxRequestsPerRepository;
+        this.queueSize = Math.max(0, queueSize);
+        this.timeout = 24 * 60 * 60 * 1000; // 24 hours
+        this.queueTimeout = 0;
+        this.retryAfter = 1;
+
+        ExecutorService virtualThreadExecutor = useVirtualThreads ? createVirtualThreadExecutor() : null;
+        if (virtualThreadExecutor != null) {
+            executorService = virtualThreadExecutor;
+            virtualThreads = true;
+        } else {
+            executorService = createThreadPool(maxConcurrentRequests);
+            virtualThreads = false;
+        }
+
+        expiryTimer = createExpiryTimer();
+    }
+
+    /**
+     * Creates the timer that expires waiting requests. Its thread is only
+     * started when the first request is queued with a queue timeout and stops
+     * when it has been idle for a while.
+     */
+    private static ScheduledThreadPoolExecutor createExpiryTimer() {
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "cmis-queue-timeout-" + THREAD_NUMBER.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        timer.setKeepAliveTime(60L, TimeUnit.SECONDS);
+        timer.allowCoreThreadTimeOut(true);
+        timer.setRemoveOnCancelPolicy(true);
+
+        return timer;
+    }
+
+    /**
+     * Creates an executor that starts a virtual thread per task. Virtual
+     * threads require Java 21, so the factory method is looked up at runtime.
+     */
+    private static ExecutorService createVirtualThreadExecutor() {
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (Exception e) {
+            if (LOG.isWarnEnabled()) {
+                LOG.warn("Virtual threads are not supported by this Java runtime. Using platform threads.");
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Creates the platform thread pool. The number of running tasks is limited
+     * by the admission control, so the work queue of the pool never grows
+     * beyond the number of idle threads.
+     */
+    private static ExecutorService createThreadPool(int maxThreads) {
+        final ThreadGroup threadGroup = new ThreadGroup("cmis-thread-group");
+        final ThreadFactory threadFactory = new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                return new Thread(threadGroup, r, "cmis-bounded-" + THREAD_NUMBER.getAndIncrement());
+            }
+        };
+
+        if (maxThreads < 1) {
+            return Executors.newCachedThreadPool(threadFactory);
+        }
+
+        ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(maxThreads, maxThreads, 60L,
+                TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), threadFactory);
+        threadPoolExecutor.allowCoreThreadTimeOut(true);
+
+        return threadPoolExecutor;
+    }
+
+    /**
+     * Rejects all waiting requests and stops accepting new ones. Running
+     * requests are finished.
+     */
+    public void destroy() {
+        List<Task> pending = new ArrayList<Task>();
+        synchronized (lock) {
+            shutdown = true;
+            for (RepositoryQueue queue : readyQueues) {
+                pending.addAll(queue.pending);
+                queue.pending.clear();
+            }
+            readyQueues.clear();
+            queuedCount = 0;
+        }
+
+        for (Task task : pending) {
+            task.reject(new CmisRejectedExecutionException("CMIS server is shutting down", 0));
+        }
+
+        expiryTimer.shutdownNow();
+        executorService.shutdown();
+    }
+
+    /**
+     * Returns whether requests are executed by virtual threads.
+     */
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Gets the timeout for the AsyncContext.
+     *
+     * @return the timeout in milliseconds
+     */
+    public long getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Sets the timeout for the AsyncContext.
+     *
+     * @param timeout
+     *            the timeout in milliseconds
+     *
+     * @see AsyncContext#setTimeout(long)
+     */
+    public void setTimeout(long timeout) {
+        this.timeout = timeout;
+    }
+
+    /**
+     * Gets the maximum time a request may wait in the queue.
+     *
+     * @return the queue timeout in milliseconds, 0 for no limit
+     */
+    public long getQueueTimeout() {
+        return queueTimeout;
+    }
+
+    /**
+     * Sets the maximum time a request may wait in the queue.
+     *
+     * @param queueTimeout
+     *            the queue timeout in milliseconds, 0 for no limit
+     */
+    public void setQueueTimeout(long queueTimeout) {
+        this.queueTimeout = queueTimeout;
+    }
+
+    /**
+     * Gets the value of the <code>Retry-After</code> header of rejected
+     * requests.
+     *
+     * @return the retry interval in seconds
+     */
+    public int getRetryAfter() {
+        return retryAfter;
+    }
+
+    /**
+     * Sets the value of the <code>Retry-After</code> header of rejected
+     * requests.
+     *
+     * @param retryAfter
+     *            the retry interval in seconds, 0 to omit the header
+     */
+    public void setRetryAfter(int retryAfter) {
+        this.retryAfter = retryAfter;
+    }
+
+    @Override
+    public void execute(AsyncContext asyncContext, Runnable runnable) {
+        asyncContext.setTimeout(timeout);
+        asyncContext.addListener(new SimpleCmisAsyncListener());
+
+        Task task = new Task(asyncContext, runnable, getRepositoryId(asyncContext.getRequest()));
+        asyncContext.addListener(task);
+
+        synchronized (lock) {
+            if (shutdown) {
+                rejectedCount.incrementAndGet();
+                throw new CmisRejectedExecutionException("CMIS server is shutting down", 0);
+            }
+
+            RepositoryQueue queue = getRepositoryQueue(task.repositoryId);
+            task.queue = queue;
+
+            if (queue.pending.isEmpty() && activeCount < maxConcurrentRequests
+                    && queue.activeCount < maxRequestsPerRepository) {
+                activeCount++;
+                queue.activeCount++;
+            } else if (queuedCount >= queueSize) {
+                rejectedCount.incrementAndGet();
+                releaseRepositoryQueue(queue);
+                throw new CmisRejectedExecutionException("Too many requests", retryAfter);
+            } else {
+                queue.pending.add(task);
+                queuedCount++;
+                if (queue.pending.size() == 1) {
+                    readyQueues.add(queue);
+                }
+                scheduleExpiry(task);
+                return;
+            }
+        }
+
+        try {
+            start(task);
+        } catch (RejectedExecutionException ree) {
+            finish(task);
+            throw ree;
+        }
+    }
+
+    /**
+     * Returns the repository id of a request.
+     * <p>
+     * The default implementation returns the first segment of the path info
+     * or an empty string if there is no path info.
+     */
+    protected String getRepositoryId(ServletRequest request) {
+        if (!(request instanceof HttpServletRequest)) {
+            return "";
+        }
+
+        String pathInfo = ((HttpServletRequest) request).getPathInfo();
+        if (pathInfo == null) {
+            return "";
+        }
+
+        int start = pathInfo.startsWith("/") ? 1 : 0;
+        int end = pathInfo.indexOf('/', start);
+
+        return end < 0 ? pathInfo.substring(start) : pathInfo.substring(start, end);
+    }
+
+    private RepositoryQueue getRepositoryQueue(String repositoryId) {
+        RepositoryQueue queue = repositoryQueues.get(repositoryId);
+        if (queue == null) {
+            queue = new RepositoryQueue(repositoryId);
+            repositoryQueues.put(repositoryId, queue);
+        }
+
+        return queue;
+    }
+
+    private void releaseRepositoryQueue(RepositoryQueue queue) {
+        if (queue.activeCount == 0 && queue.pending.isEmpty()) {
+            repositoryQueues.remove(queue.repositoryId);
+        }
+    }
+
+    /**
+     * Schedules the rejection of a waiting task when it exceeds the queue
+     * timeout. Must be called while holding the lock.
+     */
+    private void scheduleExpiry(final Task task) {
+        if (queueTimeout <= 0) {
+            return;
+        }
+
+        task.expiry = expiryTimer.schedule(new Runnable() {
+            @Override
+            public void run() {
+                expire(task);
+            }
+        }, queueTimeout, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Removes a task that exceeded the queue timeout from its queue and
+     * rejects it. Does nothing if the task has already left the queue.
+     */
+    private void expire(Task task) {
+        synchronized (lock) {
+            RepositoryQueue queue = task.queue;
+            if (!queue.pending.remove(task)) {
+                return;
+            }
+
+            queuedCount--;
+            if (queue.pending.isEmpty()) {
+                readyQueues.remove(queue);
+            }
+            releaseRepositoryQueue(queue);
+        }
+
+        if (!task.timedOut) {
+            expiredCount.incrementAndGet();
+            task.reject(new CmisRejectedExecutionException("Request waited too long", retryAfter));
+        }
+    }
+
+    private void start(Task task) {
+        long waitTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - task.submitTime);
+        startedCount.incrementAndGet();
+        totalWaitTime.addAndGet(waitTime);
+        long max = maxWaitTime.get();
+        while (waitTime > max && !maxWaitTime.compareAndSet(max, waitTime)) {
+            max = maxWaitTime.get();
+        }
+
+        executorService.execute(task);
+    }
+
+    /**
+     * Releases the slot of a finished task and starts waiting tasks.
+     */
+    private void finish(Task finishedTask) {
+        List<Task> startTasks = new ArrayList<Task>();
+        List<Task> expiredTasks = new ArrayList<Task>();
+
+        synchronized (lock) {
+            activeCount--;
+            finishedTask.queue.activeCount--;
+            releaseRepositoryQueue(finishedTask.queue);
+
+            long now = System.nanoTime();
+            long queueTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(queueTimeout);
+
+            int skipped = 0;
+            while (activeCount < maxConcurrentRequests && skipped < readyQueues.size()) {
+                RepositoryQueue queue = readyQueues.removeFirst();
+                if (queue.activeCount >= maxRequestsPerRepository) {
+                    readyQueues.addLast(queue);
+                    skipped++;
+                    continue;
+                }
+                skipped = 0;
+
+                Task task = queue.pending.removeFirst();
+                queuedCount--;
+                task.cancelExpiry();
+                if (!queue.pending.isEmpty()) {
+                    readyQueues.addLast(queue);
+                }
+
+                if (task.timedOut) {
+                    // the container has already completed the request
+                    releaseRepositoryQueue(queue);
+                } else if (queueTimeoutNanos > 0 && now - task.submitTime > queueTimeoutNanos) {
+                    releaseRepositoryQueue(queue);
+                    expiredTasks.add(task);
+                } else {
+                    activeCount++;
+                    queue.activeCount++;
+                    startTasks.add(task);
+                }
+            }
+        }
+
+        for (Task task : expiredTasks) {
+            expiredCount.incrementAndGet();
+            task.reject(new CmisRejectedExecutionException("Request waited too long", retryAfter));
+        }
+
+        for (Task task : startTasks) {
+            try {
+                start(task);
+            } catch (RejectedExecutionException ree) {
+                task.reject(ree);
+                finish(task);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of requests currently executed.
+     */
+    public int getActiveCount() {
+        synchronized (lock) {
+            return activeCount;
+        }
+    }
+
+    /**
+     * Returns the number of waiting requests.
+     */
+    public int getQueueDepth() {
+        synchronized (lock) {
+            return queuedCount;
+        }
+    }
+
+    /**
+     * Returns the number of waiting requests of a repository.
+     */
+    public int getQueueDepth(String repositoryId) {
+        synchronized (lock) {
+            RepositoryQueue queue = repositoryQueues.get(repositoryId);
+            return queue == null ? 0 : queue.pending.size();
+        }
+    }
+
+    /**
+     * Returns the number of requests currently executed for a repository.
+     */
+    public int getActiveCount(String repositoryId) {
+        synchronized (lock) {
+            RepositoryQueue queue = repositoryQueues.get(repositoryId);
+            return queue == null ? 0 : queue.activeCount;
+        }
+    }
+
+    /**
+     * Returns the number of finished requests.
+     */
+    public long getCompletedCount() {
+        return completedCount.get();
+    }
+
+    /**
+     * Returns the number of requests rejected because the queue was full.
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * Returns the number of requests rejected because they exceeded the
+     * queue timeout.
+     */
+    public long getExpiredCount() {
+        return expiredCount.get();
+    }
+
+    /**
+     * Returns the average time in milliseconds a request waited before it was
+     * executed.
+     */
+    public double getAverageWaitTime() {
+        long started = startedCount.get();
+        return started == 0 ? 0 : (double) totalWaitTime.get() / started;
+    }
+
+    /**
+     * Returns the maximum time in milliseconds a request waited before it was
+     * executed.
+     */
+    public long getMaxWaitTime() {
+        return maxWaitTime.get();
+    }
+
+    /**
+     * Waiting and running requests of a repository.
+     */
+    private static class RepositoryQueue {
+        private final String repositoryId;
+        private final LinkedList<Task> pending = new LinkedList<Task>();
+        private int activeCount;
+
+        public RepositoryQueue(String repositoryId) {
+            this.repositoryId = repositoryId;
+        }
+    }
+
+    /**
+     * Wraps a request and releases its slot when it is done.
+     */
+    private class Task implements Runnable, AsyncListener {
+        private final AsyncContext asyncContext;
+        private final Runnable runnable;
+        private final String repositoryId;
+        private final long submitTime;
+        private RepositoryQueue queue;
+        private ScheduledFuture<?> expiry;
+        private volatile boolean timedOut;
+
+        public Task(AsyncContext asyncContext, Runnable runnable, String repositoryId) {
+            this.asyncContext = asyncContext;
+            this.runnable = runnable;
+            this.repositoryId = repositoryId;
+            this.submitTime = System.nanoTime();
+        }
+
+        @Override
+        public void run() {
+            try {
+                runnable.run();
+            } finally {
+                completedCount.incrementAndGet();
+                finish(this);
+            }
+        }
+
+        /**
+         * Cancels the queue timeout. Must be called while holding the lock.
+         */
+        public void cancelExpiry() {
+            if (expiry != null) {
+                expiry.cancel(false);
+                expiry = null;
+            }
+        }
+
+        /**
+         * Sends a 503 response instead of executing the request.
+         */
+        public void reject(RejectedExecutionException ree) {
+            if (runnable instanceof CmisRequestRunner) {
+                ((CmisRequestRunner) runnable).reject(ree);
+                return;
+            }
+
+            try {
+                HttpServletResponse response = (HttpServletResponse) asyncContext.getResponse();
+                if (ree instanceof CmisRejectedExecutionException
+                        && ((CmisRejectedExecutionException) ree).getRetryAfter() > 0) {
+                    response.setHeader("Retry-After",
+                            String.valueOf(((CmisRejectedExecutionException) ree).getRetryAfter()));
+                }
+                response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, ree.getMessage());
+            } catch (IOException ioe) {
+                if (LOG.isWarnEnabled()) {
+                    LOG.warn("Failed to send error responds: {}", ioe.toString(), ioe);
+                }
+            } finally {
+                asyncContext.complete();
+            }
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) throws IOException {
+            timedOut = true;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) throws IOException {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) throws IOException {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) throws IOException {
+        }
+    }
+}
@@ -73,7 +73,7 @@ public final class CmisAsyncHelper {
                     LOG.warn("Submitting async request failed: {}", ree.toString(), ree);
                 }
 
-                servlet.sendError(new CmisServiceUnavailableException("CMIS server is busy", ree), request, response);
+                sendBusy(servlet, ree, request, response);
                 asyncContext.complete();
             } catch (Exception e) {
                 LOG.error("Executing async request failed: {}", e.toString(), e);
@@ -84,6 +84,23 @@ public final class CmisAsyncHelper {
         }
     }
 
+    /**
+     * Sends a "service unavailable" response for a rejected request. If the
+     * executor provided a retry interval, a <code>Retry-After</code> header is
+     * added.
+     */
+    public static void sendBusy(AsyncCmisServlet servlet, RejectedExecutionException ree,
+            HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (ree instanceof CmisRejectedExecutionException) {
+            int retryAfter = ((CmisRejectedExecutionException) ree).getRetryAfter();
+            if (retryAfter > 0) {
+                response.setHeader("Retry-After", String.valueOf(retryAfter));
+            }
+        }
+
+        servlet.sendError(new CmisServiceUnavailableException("CMIS server is busy", ree), request, response);
+    }
+
     private CmisAsyncHelper() {
     }
 }
@@ -0,0 +1,46 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.server.async.impl;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Thrown by an {@link org.apache.chemistry.opencmis.server.async.AsyncCmisExecutor}
+ * that rejects a request because it is overloaded. The client may retry the
+ * request after the given number of seconds.
+ */
+public class CmisRejectedExecutionException extends RejectedExecutionException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int retryAfter;
+
+    public CmisRejectedExecutionException(String message, int retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * Returns the number of seconds after which the client may retry the
+     * request, or a value less than 1 if unknown.
+     */
+    public int getRetryAfter() {
+        return retryAfter;
+    }
+}
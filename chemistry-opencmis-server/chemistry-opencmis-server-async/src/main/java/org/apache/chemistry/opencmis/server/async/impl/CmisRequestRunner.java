@@ -19,6 +19,7 @@
 package org.apache.chemistry.opencmis.server.async.impl;
 
 import java.io.IOException;
+import java.util.concurrent.RejectedExecutionException;
 
 import javax.servlet.AsyncContext;
 import javax.servlet.http.HttpServletRequest;
@@ -61,4 +62,21 @@ public class CmisRequestRunner implements Runnable {
             asyncContext.complete();
         }
     }
+
+    /**
+     * Rejects the request instead of running it and completes the
+     * asynchronous context.
+     */
+    public void reject(RejectedExecutionException ree) {
+        try {
+            CmisAsyncHelper.sendBusy(asyncServlet, ree, (HttpServletRequest) asyncContext.getRequest(),
+                    (HttpServletResponse) asyncContext.getResponse());
+        } catch (IOException ioe) {
+            if (LOG.isWarnEnabled()) {
+                LOG.warn("Failed to send error responds: {}", ioe.toString(), ioe);
+            }
+        } finally {
+            asyncContext.complete();
+        }
+    }
 }
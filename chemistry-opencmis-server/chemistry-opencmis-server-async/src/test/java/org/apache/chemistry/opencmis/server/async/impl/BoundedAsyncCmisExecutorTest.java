@@ -0,0 +1,316 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.server.async.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.chemistry.opencmis.commons.exceptions.CmisServiceUnavailableException;
+import org.junit.After;
+import org.junit.Test;
+
+public class BoundedAsyncCmisExecutorTest {
+
+    private static final long TIMEOUT = 5000;
+
+    private BoundedAsyncCmisExecutor executor;
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        if (executor != null) {
+            executor.destroy();
+        }
+    }
+
+    @Test
+    public void testAdmission() throws Exception {
+        executor = new BoundedAsyncCmisExecutor(2, 0, 10, false);
+
+        BlockingRequest r1 = new BlockingRequest("repo");
+        BlockingRequest r2 = new BlockingRequest("repo");
+        BlockingRequest r3 = new BlockingRequest("repo");
+        r1.submit();
+        r2.submit();
+        r3.submit();
+
+        // two requests run, the third waits
+        assertTrue(r1.awaitStart());
+        assertTrue(r2.awaitStart());
+        assertFalse(r3.started.await(100, TimeUnit.MILLISECONDS));
+        assertEquals(2, executor.getActiveCount());
+        assertEquals(1, executor.getQueueDepth());
+
+        release.countDown();
+
+        assertTrue(r3.awaitStart());
+        assertTrue(r1.awaitFinish());
+        assertTrue(r2.awaitFinish());
+        assertTrue(r3.awaitFinish());
+        assertEquals(0, executor.getRejectedCount());
+        waitFor(3, new Counter() {
+            @Override
+            public long get() {
+                return executor.getCompletedCount();
+            }
+        });
+        waitFor(0, new Counter() {
+            @Override
+            public long get() {
+                return executor.getActiveCount();
+            }
+        });
+        assertEquals(0, executor.getQueueDepth());
+    }
+
+    @Test
+    public void testQueueFull() throws Exception {
+        executor = new BoundedAsyncCmisExecutor(1, 0, 1, false);
+        executor.setRetryAfter(5);
+
+        BlockingRequest r1 = new BlockingRequest("repo");
+        BlockingRequest r2 = new BlockingRequest("repo");
+        r1.submit();
+        r2.submit();
+        assertTrue(r1.awaitStart());
+
+        BlockingRequest r3 = new BlockingRequest("repo");
+        try {
+            r3.submit();
+            fail("Request should have been rejected!");
+        } catch (CmisRejectedExecutionException ree) {
+            assertEquals(5, ree.getRetryAfter());
+
+            // the servlet turns the rejection into a 503 response
+            AsyncCmisServlet servlet = mock(AsyncCmisServlet.class);
+            CmisAsyncHelper.sendBusy(servlet, ree, r3.request, r3.response);
+            verify(r3.response).setHeader("Retry-After", "5");
+            verify(servlet).sendError(isA(CmisServiceUnavailableException.class), eq(r3.request),
+                    eq(r3.response));
+        }
+
+        assertEquals(1, executor.getRejectedCount());
+        assertEquals(1, executor.getQueueDepth());
+
+        release.countDown();
+        assertTrue(r2.awaitFinish());
+        assertFalse(r3.started.await(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testRejectedRequestRunner() throws Exception {
+        AsyncContext asyncContext = mock(AsyncContext.class);
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        when(asyncContext.getRequest()).thenReturn(request);
+        when(asyncContext.getResponse()).thenReturn(response);
+        AsyncCmisServlet servlet = mock(AsyncCmisServlet.class);
+
+        new CmisRequestRunner(asyncContext, servlet).reject(new CmisRejectedExecutionException("busy", 7));
+
+        verify(response).setHeader("Retry-After", "7");
+        verify(servlet).sendError(isA(CmisServiceUnavailableException.class), eq(request), eq(response));
+        verify(servlet, never()).executeSync(any(HttpServletRequest.class), any(HttpServletResponse.class));
+        verify(asyncContext).complete();
+    }
+
+    @Test
+    public void testRepositoryIsolation() throws Exception {
+        executor = new BoundedAsyncCmisExecutor(4, 1, 10, false);
+
+        BlockingRequest r1 = new BlockingRequest("repo1");
+        BlockingRequest r2 = new BlockingRequest("repo1");
+        BlockingRequest r3 = new BlockingRequest("repo2");
+        r1.submit();
+        r2.submit();
+        r3.submit();
+
+        // repo1 is at its limit, but repo2 can still run
+        assertTrue(r1.awaitStart());
+        assertTrue(r3.awaitStart());
+        assertFalse(r2.started.await(100, TimeUnit.MILLISECONDS));
+        assertEquals(1, executor.getActiveCount("repo1"));
+        assertEquals(1, executor.getQueueDepth("repo1"));
+        assertEquals(1, executor.getActiveCount("repo2"));
+        assertEquals(0, executor.getQueueDepth("repo2"));
+
+        release.countDown();
+        assertTrue(r2.awaitStart());
+        assertTrue(r2.awaitFinish());
+    }
+
+    @Test
+    public void testQueueTimeout() throws Exception {
+        executor = new BoundedAsyncCmisExecutor(1, 0, 10, false);
+        executor.setQueueTimeout(50);
+        executor.setRetryAfter(3);
+
+        BlockingRequest r1 = new BlockingRequest("repo");
+        BlockingRequest r2 = new BlockingRequest("repo");
+        r1.submit();
+        r2.submit();
+        assertTrue(r1.awaitStart());
+
+        // let the waiting request exceed the queue timeout
+        Thread.sleep(100);
+        release.countDown();
+
+        verify(r2.response, timeout(TIMEOUT)).sendError(eq(HttpServletResponse.SC_SERVICE_UNAVAILABLE),
+                anyString());
+        verify(r2.response).setHeader("Retry-After", "3");
+        verify(r2.asyncContext, timeout(TIMEOUT)).complete();
+        assertFalse(r2.started.await(100, TimeUnit.MILLISECONDS));
+        assertEquals(1, executor.getExpiredCount());
+        assertEquals(0, executor.getQueueDepth());
+    }
+
+    @Test
+    public void testQueueTimeoutWhileBusy() throws Exception {
+        executor = new BoundedAsyncCmisExecutor(1, 0, 10, false);
+        executor.setQueueTimeout(200);
+        executor.setRetryAfter(3);
+
+        BlockingRequest r1 = new BlockingRequest("repo");
+        BlockingRequest r2 = new BlockingRequest("repo");
+        r1.submit();
+        assertTrue(r1.awaitStart());
+        long submitTime = System.currentTimeMillis();
+        r2.submit();
+
+        // the running request keeps its slot, the waiting request expires
+        // anyway
+        verify(r2.response, timeout(TIMEOUT)).sendError(eq(HttpServletResponse.SC_SERVICE_UNAVAILABLE),
+                anyString());
+        long waitTime = System.currentTimeMillis() - submitTime;
+        verify(r2.response).setHeader("Retry-After", "3");
+        verify(r2.asyncContext).complete();
+        assertTrue("Expired after " + waitTime + " ms", waitTime >= 200 && waitTime < 1000);
+
+        assertEquals(1, r1.finished.getCount());
+        assertEquals(1, executor.getExpiredCount());
+        assertEquals(0, executor.getQueueDepth());
+        assertEquals(1, executor.getActiveCount());
+
+        release.countDown();
+        assertTrue(r1.awaitFinish());
+        assertFalse(r2.started.await(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testDestroy() throws Exception {
+        executor = new BoundedAsyncCmisExecutor(1, 0, 10, false);
+
+        BlockingRequest r1 = new BlockingRequest("repo");
+        BlockingRequest r2 = new BlockingRequest("repo");
+        r1.submit();
+        r2.submit();
+        assertTrue(r1.awaitStart());
+
+        executor.destroy();
+
+        // the waiting request is rejected, the running request finishes
+        verify(r2.response).sendError(eq(HttpServletResponse.SC_SERVICE_UNAVAILABLE), anyString());
+        verify(r2.asyncContext).complete();
+        assertEquals(0, executor.getQueueDepth());
+
+        release.countDown();
+        assertTrue(r1.awaitFinish());
+        assertFalse(r2.started.await(100, TimeUnit.MILLISECONDS));
+
+        // new requests are rejected
+        try {
+            new BlockingRequest("repo").submit();
+            fail("Request should have been rejected!");
+        } catch (CmisRejectedExecutionException ree) {
+            // expected
+        }
+    }
+
+    private interface Counter {
+        long get();
+    }
+
+    private static void waitFor(long expected, Counter counter) throws InterruptedException {
+        long end = System.currentTimeMillis() + TIMEOUT;
+        while (counter.get() != expected && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, counter.get());
+    }
+
+    /**
+     * A request that blocks until the test releases it.
+     */
+    private class BlockingRequest implements Runnable {
+        final AsyncContext asyncContext = mock(AsyncContext.class);
+        final HttpServletRequest request = mock(HttpServletRequest.class);
+        final HttpServletResponse response = mock(HttpServletResponse.class);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch finished = new CountDownLatch(1);
+
+        public BlockingRequest(String repositoryId) {
+            when(request.getPathInfo()).thenReturn("/" + repositoryId + "/root");
+            when(asyncContext.getRequest()).thenReturn(request);
+            when(asyncContext.getResponse()).thenReturn(response);
+        }
+
+        public void submit() {
+            executor.execute(asyncContext, this);
+        }
+
+        public boolean awaitStart() throws InterruptedException {
+            return started.await(TIMEOUT, TimeUnit.MILLISECONDS);
+        }
+
+        public boolean awaitFinish() throws InterruptedException {
+            return finished.await(TIMEOUT, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public void run() {
+            started.countDown();
+            try {
+                release.await(TIMEOUT, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                finished.countDown();
+            }
+        }
+    }
+}
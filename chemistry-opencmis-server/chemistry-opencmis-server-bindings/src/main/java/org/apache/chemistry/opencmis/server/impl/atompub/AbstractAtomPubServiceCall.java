@@ -25,6 +25,7 @@ package org.apache.chemistry.opencmis.server.impl.atompub;
 import static org.apache.chemistry.opencmis.commons.impl.CollectionsHelper.isNotEmpty;
 
 import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.GregorianCalendar;
 import java.util.List;
 import java.util.Map;
@@ -38,6 +39,7 @@ import org.apache.chemistry.opencmis.commons.definitions.TypeDefinition;
 import org.apache.chemistry.opencmis.commons.definitions.TypeDefinitionContainer;
 import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
 import org.apache.chemistry.opencmis.commons.enums.CmisVersion;
+import org.apache.chemistry.opencmis.commons.enums.IncludeRelationships;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
 import org.apache.chemistry.opencmis.commons.impl.Constants;
 import org.apache.chemistry.opencmis.commons.impl.ReturnVersion;
@@ -46,6 +48,7 @@ import org.apache.chemistry.opencmis.commons.server.CmisService;
 import org.apache.chemistry.opencmis.commons.server.LinkInfo;
 import org.apache.chemistry.opencmis.commons.server.NamespaceDefinitions;
 import org.apache.chemistry.opencmis.commons.server.ObjectInfo;
+import org.apache.chemistry.opencmis.commons.server.ObjectInfoBatchCmisService;
 import org.apache.chemistry.opencmis.commons.server.RenditionInfo;
 import org.apache.chemistry.opencmis.server.shared.AbstractServiceCall;
 import org.apache.chemistry.opencmis.server.shared.Dispatcher;
@@ -141,6 +144,52 @@ public abstract class AbstractAtomPubServiceCall extends AbstractServiceCall {
         return null;
     }
 
+    // -------------------------------------------------------------------------
+    // --- object infos ---
+    // -------------------------------------------------------------------------
+
+    /**
+     * Lets the service collect the object infos of all objects of a feed
+     * before the entries are written, if the service supports that.
+     */
+    protected void collectObjectInfos(CmisService service, String repositoryId, String parentId,
+            List<ObjectData> objects, String filter, IncludeRelationships includeRelationships, String renditionFilter) {
+        if (!(service instanceof ObjectInfoBatchCmisService) || !isNotEmpty(objects)) {
+            return;
+        }
+
+        ((ObjectInfoBatchCmisService) service).collectObjectInfos(repositoryId, parentId, objects, filter,
+                includeRelationships, renditionFilter);
+    }
+
+    /**
+     * Lets the service collect the object infos of all objects of a
+     * descendants or folder tree feed, one batch per folder.
+     */
+    protected void collectDescendantObjectInfos(CmisService service, String repositoryId, String parentId,
+            List<ObjectInFolderContainer> containers, String filter, IncludeRelationships includeRelationships,
+            String renditionFilter) {
+        if (!(service instanceof ObjectInfoBatchCmisService) || !isNotEmpty(containers)) {
+            return;
+        }
+
+        List<ObjectData> objects = new ArrayList<ObjectData>(containers.size());
+        for (ObjectInFolderContainer container : containers) {
+            if (container != null && container.getObject() != null) {
+                objects.add(container.getObject().getObject());
+            }
+        }
+
+        collectObjectInfos(service, repositoryId, parentId, objects, filter, includeRelationships, renditionFilter);
+
+        for (ObjectInFolderContainer container : containers) {
+            if (container != null && container.getObject() != null && container.getObject().getObject() != null) {
+                collectDescendantObjectInfos(service, repositoryId, container.getObject().getObject().getId(),
+                        container.getChildren(), filter, includeRelationships, renditionFilter);
+            }
+        }
+    }
+
     // -------------------------------------------------------------------------
     // --- entry builder ---
     // -------------------------------------------------------------------------
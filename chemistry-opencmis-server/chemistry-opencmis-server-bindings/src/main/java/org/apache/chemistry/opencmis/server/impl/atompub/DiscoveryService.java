@@ -27,6 +27,7 @@ import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 import javax.xml.stream.XMLStreamWriter;
 
+import org.apache.chemistry.opencmis.commons.PropertyIds;
 import org.apache.chemistry.opencmis.commons.data.ObjectData;
 import org.apache.chemistry.opencmis.commons.data.ObjectList;
 import org.apache.chemistry.opencmis.commons.enums.CmisVersion;
@@ -260,6 +261,11 @@ public class DiscoveryService {
                 throw new CmisRuntimeException("Changes are null!");
             }
 
+            // change events only carry the object id, the objects might have
+            // been deleted
+            collectObjectInfos(service, repositoryId, null, changes.getObjects(), PropertyIds.OBJECT_ID,
+                    IncludeRelationships.NONE, null);
+
             // set headers
             response.setStatus(HttpServletResponse.SC_OK);
             response.setContentType(Constants.MEDIATYPE_FEED);
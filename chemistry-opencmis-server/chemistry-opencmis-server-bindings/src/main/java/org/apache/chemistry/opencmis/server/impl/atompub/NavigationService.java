@@ -19,6 +19,7 @@
 package org.apache.chemistry.opencmis.server.impl.atompub;
 
 import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.GregorianCalendar;
 import java.util.List;
 
@@ -93,6 +94,17 @@ public class NavigationService {
                 throw new CmisRuntimeException("Folder Object Info is missing!");
             }
 
+            if (children.getObjects() != null) {
+                List<ObjectData> objects = new ArrayList<ObjectData>(children.getObjects().size());
+                for (ObjectInFolderData object : children.getObjects()) {
+                    if (object != null) {
+                        objects.add(object.getObject());
+                    }
+                }
+                collectObjectInfos(service, repositoryId, folderId, objects, filter, includeRelationships,
+                        renditionFilter);
+            }
+
             // set headers
             response.setStatus(HttpServletResponse.SC_OK);
             response.setContentType(Constants.MEDIATYPE_FEED);
@@ -239,6 +251,9 @@ public class NavigationService {
                 throw new CmisRuntimeException("Folder Object Info is missing!");
             }
 
+            collectDescendantObjectInfos(service, repositoryId, folderId, descendants, filter, includeRelationships,
+                    renditionFilter);
+
             // set headers
             response.setStatus(HttpServletResponse.SC_OK);
             response.setContentType(Constants.MEDIATYPE_FEED);
@@ -340,6 +355,9 @@ public class NavigationService {
                 throw new CmisRuntimeException("Folder Object Info is missing!");
             }
 
+            collectDescendantObjectInfos(service, repositoryId, folderId, folderTree, filter, includeRelationships,
+                    renditionFilter);
+
             // set headers
             response.setStatus(HttpServletResponse.SC_OK);
             response.setContentType(Constants.MEDIATYPE_FEED);
@@ -493,6 +511,14 @@ public class NavigationService {
                 throw new CmisRuntimeException("Object Info is missing!");
             }
 
+            List<ObjectData> objects = new ArrayList<ObjectData>(parents.size());
+            for (ObjectParentData object : parents) {
+                if (object != null) {
+                    objects.add(object.getObject());
+                }
+            }
+            collectObjectInfos(service, repositoryId, null, objects, filter, includeRelationships, renditionFilter);
+
             // set headers
             response.setStatus(HttpServletResponse.SC_OK);
             response.setContentType(Constants.MEDIATYPE_FEED);
@@ -595,6 +621,9 @@ public class NavigationService {
                 ((ObjectInfoImpl) folderInfo).setSupportsFolderTree(false);
             }
 
+            collectObjectInfos(service, repositoryId, folderId, checkedOut.getObjects(), filter, includeRelationships,
+                    renditionFilter);
+
             // set headers
             response.setStatus(HttpServletResponse.SC_OK);
             response.setContentType(Constants.MEDIATYPE_FEED);
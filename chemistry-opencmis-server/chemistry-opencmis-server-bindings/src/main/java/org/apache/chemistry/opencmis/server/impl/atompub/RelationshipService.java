@@ -25,6 +25,7 @@ import javax.servlet.http.HttpServletResponse;
 
 import org.apache.chemistry.opencmis.commons.data.ObjectData;
 import org.apache.chemistry.opencmis.commons.data.ObjectList;
+import org.apache.chemistry.opencmis.commons.enums.IncludeRelationships;
 import org.apache.chemistry.opencmis.commons.enums.RelationshipDirection;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
 import org.apache.chemistry.opencmis.commons.impl.Constants;
@@ -84,6 +85,10 @@ public class RelationshipService {
                 throw new CmisRuntimeException("Object Info is missing!");
             }
 
+            // relationships are returned without relationships and renditions
+            collectObjectInfos(service, repositoryId, null, relationships.getObjects(), filter,
+                    IncludeRelationships.NONE, null);
+
             // set headers
             response.setStatus(HttpServletResponse.SC_OK);
             response.setContentType(Constants.MEDIATYPE_FEED);
@@ -36,7 +36,6 @@ import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
 import org.apache.chemistry.opencmis.commons.impl.Constants;
 import org.apache.chemistry.opencmis.commons.impl.JSONConstants;
 import org.apache.chemistry.opencmis.commons.impl.JSONConverter;
-import org.apache.chemistry.opencmis.commons.impl.TypeCache;
 import org.apache.chemistry.opencmis.commons.impl.json.JSONObject;
 import org.apache.chemistry.opencmis.commons.server.CallContext;
 import org.apache.chemistry.opencmis.commons.server.CmisService;
@@ -91,9 +90,10 @@ public class DiscoveryService {
                 throw new CmisRuntimeException("Results are null!");
             }
 
-            TypeCache typeCache = new ServerTypeCacheImpl(repositoryId, service);
-            JSONObject jsonResults = JSONConverter.convert(results, typeCache, JSONConverter.PropertyMode.QUERY,
-                    succinct, dateTimeFormat);
+            ServerTypeCacheImpl typeCache = new ServerTypeCacheImpl(repositoryId, service);
+            typeCache.loadTypes(results, JSONConverter.PropertyMode.QUERY);
+            JSONObject jsonResults = JSONConverter.convertStreaming(results, typeCache,
+                    JSONConverter.PropertyMode.QUERY, succinct, dateTimeFormat);
 
             response.setStatus(HttpServletResponse.SC_OK);
             writeJSON(jsonResults, request, response);
@@ -135,9 +135,10 @@ public class DiscoveryService {
                 return;
             }
 
-            TypeCache typeCache = new ServerTypeCacheImpl(repositoryId, service);
-            JSONObject jsonChanges = JSONConverter.convert(changes, typeCache, JSONConverter.PropertyMode.CHANGE,
-                    succinct, dateTimeFormat);
+            ServerTypeCacheImpl typeCache = new ServerTypeCacheImpl(repositoryId, service);
+            typeCache.loadTypes(changes, JSONConverter.PropertyMode.CHANGE);
+            JSONObject jsonChanges = JSONConverter.convertStreaming(changes, typeCache,
+                    JSONConverter.PropertyMode.CHANGE, succinct, dateTimeFormat);
             jsonChanges.put(JSONConstants.JSON_OBJECTLIST_CHANGE_LOG_TOKEN, changeLogTokenHolder.getValue());
 
             response.setStatus(HttpServletResponse.SC_OK);
@@ -48,6 +48,7 @@ import org.apache.chemistry.opencmis.commons.impl.JSONConverter;
 import org.apache.chemistry.opencmis.commons.impl.TypeCache;
 import org.apache.chemistry.opencmis.commons.impl.json.JSONArray;
 import org.apache.chemistry.opencmis.commons.impl.json.JSONObject;
+import org.apache.chemistry.opencmis.commons.impl.json.JSONStreamAware;
 import org.apache.chemistry.opencmis.commons.server.CallContext;
 import org.apache.chemistry.opencmis.commons.server.CmisService;
 
@@ -100,8 +101,9 @@ public class NavigationService {
                 throw new CmisRuntimeException("Children are null!");
             }
 
-            TypeCache typeCache = new ServerTypeCacheImpl(repositoryId, service);
-            JSONObject jsonChildren = JSONConverter.convert(children, typeCache, succinct, dateTimeFormat);
+            ServerTypeCacheImpl typeCache = new ServerTypeCacheImpl(repositoryId, service);
+            typeCache.loadTypes(children);
+            JSONObject jsonChildren = JSONConverter.convertStreaming(children, typeCache, succinct, dateTimeFormat);
 
             response.setStatus(HttpServletResponse.SC_OK);
             writeJSON(jsonChildren, request, response);
@@ -149,11 +151,10 @@ public class NavigationService {
                 throw new CmisRuntimeException("Descendants are null!");
             }
 
-            TypeCache typeCache = new ServerTypeCacheImpl(repositoryId, service);
-            JSONArray jsonDescendants = new JSONArray();
-            for (ObjectInFolderContainer descendant : descendants) {
-                jsonDescendants.add(JSONConverter.convert(descendant, typeCache, succinct, dateTimeFormat));
-            }
+            ServerTypeCacheImpl typeCache = new ServerTypeCacheImpl(repositoryId, service);
+            typeCache.loadTypes(descendants);
+            JSONStreamAware jsonDescendants = JSONConverter.convertStreaming(descendants, typeCache, succinct,
+                    dateTimeFormat);
 
             response.setStatus(HttpServletResponse.SC_OK);
             writeJSON(jsonDescendants, request, response);
@@ -201,11 +202,10 @@ public class NavigationService {
                 throw new CmisRuntimeException("Folder Tree are null!");
             }
 
-            TypeCache typeCache = new ServerTypeCacheImpl(repositoryId, service);
-            JSONArray jsonDescendants = new JSONArray();
-            for (ObjectInFolderContainer descendant : folderTree) {
-                jsonDescendants.add(JSONConverter.convert(descendant, typeCache, succinct, dateTimeFormat));
-            }
+            ServerTypeCacheImpl typeCache = new ServerTypeCacheImpl(repositoryId, service);
+            typeCache.loadTypes(folderTree);
+            JSONStreamAware jsonDescendants = JSONConverter.convertStreaming(folderTree, typeCache, succinct,
+                    dateTimeFormat);
 
             response.setStatus(HttpServletResponse.SC_OK);
             writeJSON(jsonDescendants, request, response);
@@ -348,9 +348,10 @@ public class NavigationService {
                 throw new CmisRuntimeException("Checked out list is null!");
             }
 
-            TypeCache typeCache = new ServerTypeCacheImpl(repositoryId, service);
-            JSONObject jsonCheckedOut = JSONConverter.convert(checkedout, typeCache, JSONConverter.PropertyMode.OBJECT,
-                    succinct, dateTimeFormat);
+            ServerTypeCacheImpl typeCache = new ServerTypeCacheImpl(repositoryId, service);
+            typeCache.loadTypes(checkedout, JSONConverter.PropertyMode.OBJECT);
+            JSONObject jsonCheckedOut = JSONConverter.convertStreaming(checkedout, typeCache,
+                    JSONConverter.PropertyMode.OBJECT, succinct, dateTimeFormat);
 
             response.setStatus(HttpServletResponse.SC_OK);
             writeJSON(jsonCheckedOut, request, response);
@@ -19,15 +19,22 @@
 package org.apache.chemistry.opencmis.server.impl.browser;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.chemistry.opencmis.commons.PropertyIds;
 import org.apache.chemistry.opencmis.commons.data.ObjectData;
+import org.apache.chemistry.opencmis.commons.data.ObjectInFolderContainer;
+import org.apache.chemistry.opencmis.commons.data.ObjectInFolderData;
+import org.apache.chemistry.opencmis.commons.data.ObjectInFolderList;
+import org.apache.chemistry.opencmis.commons.data.ObjectList;
 import org.apache.chemistry.opencmis.commons.data.PropertyData;
+import org.apache.chemistry.opencmis.commons.data.PropertyDataWithDefinition;
 import org.apache.chemistry.opencmis.commons.data.PropertyId;
 import org.apache.chemistry.opencmis.commons.definitions.PropertyDefinition;
 import org.apache.chemistry.opencmis.commons.definitions.TypeDefinition;
 import org.apache.chemistry.opencmis.commons.enums.IncludeRelationships;
+import org.apache.chemistry.opencmis.commons.impl.JSONConverter.PropertyMode;
 import org.apache.chemistry.opencmis.commons.impl.TypeCache;
 import org.apache.chemistry.opencmis.commons.server.CmisService;
 
@@ -116,4 +123,104 @@ public class ServerTypeCacheImpl implements TypeCache {
 
         return null;
     }
+
+    /**
+     * Loads the types that are needed to convert the objects of an object
+     * list.
+     * <p>
+     * Streamed responses convert their objects while the response is written,
+     * after the response status has been sent. A type that cannot be looked up
+     * at that point would truncate a response that claims to be successful.
+     * Loading the types before the response is committed lets such failures
+     * surface as a proper error response. Failures that are not related to
+     * types still truncate the response.
+     */
+    public void loadTypes(ObjectList list, PropertyMode propertyMode) {
+        if (list == null || list.getObjects() == null) {
+            return;
+        }
+
+        for (ObjectData object : list.getObjects()) {
+            loadTypes(object, propertyMode);
+        }
+    }
+
+    /**
+     * Loads the types that are needed to convert the objects of a children
+     * list.
+     * 
+     * @see #loadTypes(ObjectList, PropertyMode)
+     */
+    public void loadTypes(ObjectInFolderList list) {
+        if (list == null || list.getObjects() == null) {
+            return;
+        }
+
+        for (ObjectInFolderData objectInFolder : list.getObjects()) {
+            if (objectInFolder != null) {
+                loadTypes(objectInFolder.getObject(), PropertyMode.OBJECT);
+            }
+        }
+    }
+
+    /**
+     * Loads the types that are needed to convert the objects of a descendants
+     * or folder tree.
+     * 
+     * @see #loadTypes(ObjectList, PropertyMode)
+     */
+    public void loadTypes(List<ObjectInFolderContainer> containers) {
+        if (containers == null) {
+            return;
+        }
+
+        for (ObjectInFolderContainer container : containers) {
+            if (container == null) {
+                continue;
+            }
+
+            if (container.getObject() != null) {
+                loadTypes(container.getObject().getObject(), PropertyMode.OBJECT);
+            }
+            loadTypes(container.getChildren());
+        }
+    }
+
+    /**
+     * Performs the same type lookups as the JSON conversion of an object.
+     */
+    private void loadTypes(ObjectData object, PropertyMode propertyMode) {
+        if (object == null || object.getProperties() == null) {
+            return;
+        }
+
+        TypeDefinition type = null;
+        PropertyData<?> typeProp = object.getProperties().getProperties().get(PropertyIds.OBJECT_TYPE_ID);
+        if (typeProp instanceof PropertyId) {
+            String typeId = ((PropertyId) typeProp).getFirstValue();
+            if (typeId != null) {
+                type = getTypeDefinition(typeId);
+            }
+        }
+
+        if (object.getId() == null || propertyMode == PropertyMode.CHANGE) {
+            return;
+        }
+
+        for (PropertyData<?> property : object.getProperties().getPropertyList()) {
+            if (property instanceof PropertyDataWithDefinition
+                    && ((PropertyDataWithDefinition<?>) property).getPropertyDefinition() != null) {
+                continue;
+            }
+            if (getPropertyDefinition(property.getId()) != null) {
+                continue;
+            }
+            if (type != null && type.getPropertyDefinitions().get(property.getId()) != null) {
+                continue;
+            }
+
+            getTypeDefinitionForObject(object.getId());
+            return;
+        }
+    }
 }
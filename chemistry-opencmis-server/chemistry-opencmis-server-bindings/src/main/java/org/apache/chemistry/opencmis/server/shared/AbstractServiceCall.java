@@ -18,8 +18,15 @@
  */
 package org.apache.chemistry.opencmis.server.shared;
 
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.math.BigInteger;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.Date;
 import java.util.GregorianCalendar;
 import java.util.Locale;
@@ -30,6 +37,7 @@ import javax.servlet.http.HttpServletResponse;
 import org.apache.chemistry.opencmis.commons.data.CacheHeaderContentStream;
 import org.apache.chemistry.opencmis.commons.data.ContentLengthContentStream;
 import org.apache.chemistry.opencmis.commons.data.ContentStream;
+import org.apache.chemistry.opencmis.commons.data.FileContentStream;
 import org.apache.chemistry.opencmis.commons.data.LastModifiedContentStream;
 import org.apache.chemistry.opencmis.commons.data.RedirectingContentStream;
 import org.apache.chemistry.opencmis.commons.enums.DateTimeFormat;
@@ -44,6 +52,16 @@ import org.apache.chemistry.opencmis.commons.server.ProgressControlCmisService.P
 
 public abstract class AbstractServiceCall implements ServiceCall {
 
+    private static final String TOMCAT_SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String TOMCAT_SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String TOMCAT_SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String TOMCAT_SENDFILE_END = "org.apache.tomcat.sendfile.end";
+    private static final String TOMCAT_REQUEST_FACADE = "org.apache.catalina.connector.RequestFacade";
+    private static final String TOMCAT_RESPONSE_FACADE = "org.apache.catalina.connector.ResponseFacade";
+
+    /** Smaller files are sent by the binding, as Tomcat does. */
+    private static final long SENDFILE_THRESHOLD = 48 * 1024;
+
     /**
      * Extracts a string parameter.
      */
@@ -228,6 +246,95 @@ public abstract class AbstractServiceCall implements ServiceCall {
         return false;
     }
 
+    /**
+     * Sends the content of a content stream and closes the stream.
+     * <p>
+     * If the content stream is a {@link FileContentStream}, the content is
+     * transferred directly from the file. Servlet containers that support
+     * sendfile (Tomcat) are asked to send the file themselves. Otherwise the
+     * content is transferred with {@link FileChannel#transferTo}.
+     */
+    public void sendContentStream(ContentStream content, HttpServletRequest request, HttpServletResponse response,
+            int bufferSize) throws IOException {
+        assert content != null;
+        assert request != null;
+        assert response != null;
+
+        if (content instanceof FileContentStream && ((FileContentStream) content).getFile() != null) {
+            // the stream is not needed
+            if (content.getStream() != null) {
+                IOUtils.closeQuietly(content.getStream());
+            }
+
+            sendFile((FileContentStream) content, request, response);
+            return;
+        }
+
+        InputStream in = content.getStream();
+        OutputStream out = response.getOutputStream();
+        try {
+            IOUtils.copy(in, out, bufferSize);
+            out.flush();
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+    }
+
+    private void sendFile(FileContentStream content, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        File file = content.getFile();
+
+        long start = Math.max(0, content.getFileOffset());
+        long end = file.length();
+        if (content.getBigLength() != null && content.getBigLength().signum() >= 0) {
+            end = Math.min(end, start + content.getBigLength().longValue());
+        }
+        if (end < start) {
+            end = start;
+        }
+
+        response.setHeader("Content-Length", String.valueOf(end - start));
+
+        if (end - start >= SENDFILE_THRESHOLD && isSendfileSupported(request, response)) {
+            request.setAttribute(TOMCAT_SENDFILE_FILENAME, file.getCanonicalPath());
+            request.setAttribute(TOMCAT_SENDFILE_START, Long.valueOf(start));
+            request.setAttribute(TOMCAT_SENDFILE_END, Long.valueOf(end));
+            return;
+        }
+
+        OutputStream out = response.getOutputStream();
+        FileInputStream in = new FileInputStream(file);
+        try {
+            FileChannel fileChannel = in.getChannel();
+            WritableByteChannel outChannel = Channels.newChannel(out);
+
+            long pos = start;
+            while (pos < end) {
+                long n = fileChannel.transferTo(pos, end - pos, outChannel);
+                if (n <= 0) {
+                    // file has been truncated
+                    break;
+                }
+                pos += n;
+            }
+
+            out.flush();
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+    }
+
+    /**
+     * Determines if the servlet container can send the file itself. Tomcat
+     * only honors the sendfile attributes if neither the request nor the
+     * response have been wrapped.
+     */
+    protected boolean isSendfileSupported(HttpServletRequest request, HttpServletResponse response) {
+        return Boolean.TRUE.equals(request.getAttribute(TOMCAT_SENDFILE_SUPPORT))
+                && TOMCAT_REQUEST_FACADE.equals(request.getClass().getName())
+                && TOMCAT_RESPONSE_FACADE.equals(response.getClass().getName());
+    }
+
     /**
      * Determines if the processing should be stopped before the service method
      * is called.
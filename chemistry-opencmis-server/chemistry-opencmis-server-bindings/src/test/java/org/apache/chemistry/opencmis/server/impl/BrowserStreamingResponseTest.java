@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.server.impl;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.data.ExtensionsData;
+import org.apache.chemistry.opencmis.commons.data.ObjectInFolderData;
+import org.apache.chemistry.opencmis.commons.enums.CmisVersion;
+import org.apache.chemistry.opencmis.commons.enums.IncludeRelationships;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisObjectNotFoundException;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.DocumentTypeDefinitionImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectDataImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectInFolderDataImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectInFolderListImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertiesImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyIdDefinitionImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyIdImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyStringDefinitionImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyStringImpl;
+import org.apache.chemistry.opencmis.commons.server.CallContext;
+import org.apache.chemistry.opencmis.commons.server.CmisService;
+import org.apache.chemistry.opencmis.server.impl.browser.BrowserCallContextImpl;
+import org.apache.chemistry.opencmis.server.impl.browser.NavigationService;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BrowserStreamingResponseTest {
+
+    private static final String REPOSITORY_ID = "test";
+    private static final String TYPE_ID = "custom:document";
+
+    private CmisService service;
+    private BrowserCallContextImpl context;
+    private HttpServletRequest request;
+    private HttpServletResponse response;
+    private StringWriter body;
+
+    @Before
+    public void setUp() throws Exception {
+        service = mock(CmisService.class);
+        when(
+                service.getChildren(eq(REPOSITORY_ID), eq("folder"), isNull(String.class), isNull(String.class),
+                        isNull(Boolean.class), isNull(IncludeRelationships.class), isNull(String.class),
+                        isNull(Boolean.class), isNull(BigInteger.class), isNull(BigInteger.class),
+                        isNull(ExtensionsData.class))).thenReturn(createChildren(10));
+
+        context = new BrowserCallContextImpl(CallContext.BINDING_BROWSER, CmisVersion.CMIS_1_1, REPOSITORY_ID,
+                null, null, null, null, null);
+        context.setCallDetails(service, "folder", null, null);
+
+        request = mock(HttpServletRequest.class);
+        when(request.getMethod()).thenReturn("GET");
+        when(request.getParameterMap()).thenReturn(Collections.<String, String[]> emptyMap());
+
+        body = new StringWriter();
+        response = mock(HttpServletResponse.class);
+        when(response.getWriter()).thenReturn(new PrintWriter(body));
+    }
+
+    @Test
+    public void testTypeLookupFailure() throws Exception {
+        when(service.getTypeDefinition(REPOSITORY_ID, TYPE_ID, null)).thenThrow(
+                new CmisObjectNotFoundException("Unknown type!"));
+
+        try {
+            new NavigationService.GetChildren().serve(context, service, REPOSITORY_ID, request, response);
+            fail("Type lookup failure not reported!");
+        } catch (CmisObjectNotFoundException e) {
+            // expected
+        }
+
+        // the failure happened before the response was committed
+        verify(response, never()).setStatus(anyInt());
+        verify(response, never()).getWriter();
+    }
+
+    @Test
+    public void testTypesLoadedOnce() throws Exception {
+        DocumentTypeDefinitionImpl type = new DocumentTypeDefinitionImpl();
+        type.setId(TYPE_ID);
+        PropertyIdDefinitionImpl typeIdDef = new PropertyIdDefinitionImpl();
+        typeIdDef.setId(PropertyIds.OBJECT_TYPE_ID);
+        type.addPropertyDefinition(typeIdDef);
+        PropertyStringDefinitionImpl nameDef = new PropertyStringDefinitionImpl();
+        nameDef.setId(PropertyIds.NAME);
+        type.addPropertyDefinition(nameDef);
+
+        when(service.getTypeDefinition(REPOSITORY_ID, TYPE_ID, null)).thenReturn(type);
+
+        new NavigationService.GetChildren().serve(context, service, REPOSITORY_ID, request, response);
+
+        verify(response).setStatus(HttpServletResponse.SC_OK);
+        verify(service, times(1)).getTypeDefinition(REPOSITORY_ID, TYPE_ID, null);
+        verify(service, never()).getObject(anyString(), anyString(), anyString(), any(Boolean.class),
+                any(IncludeRelationships.class), anyString(), any(Boolean.class), any(Boolean.class),
+                any(ExtensionsData.class));
+        assertTrue(body.toString().contains("doc9"));
+    }
+
+    private static ObjectInFolderListImpl createChildren(int count) {
+        List<ObjectInFolderData> objects = new ArrayList<ObjectInFolderData>();
+        for (int i = 0; i < count; i++) {
+            PropertiesImpl properties = new PropertiesImpl();
+            properties.addProperty(new PropertyIdImpl(PropertyIds.OBJECT_TYPE_ID, TYPE_ID));
+            properties.addProperty(new PropertyStringImpl(PropertyIds.NAME, "doc" + i));
+
+            ObjectDataImpl object = new ObjectDataImpl();
+            object.setProperties(properties);
+
+            ObjectInFolderDataImpl objectInFolder = new ObjectInFolderDataImpl();
+            objectInFolder.setObject(object);
+            objects.add(objectInFolder);
+        }
+
+        ObjectInFolderListImpl children = new ObjectInFolderListImpl();
+        children.setObjects(objects);
+        children.setHasMoreItems(Boolean.FALSE);
+        return children;
+    }
+}
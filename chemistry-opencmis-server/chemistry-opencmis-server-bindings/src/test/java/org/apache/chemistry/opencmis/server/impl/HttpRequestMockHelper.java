@@ -21,12 +21,20 @@ package org.apache.chemistry.opencmis.server.impl;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
 
 import javax.servlet.ReadListener;
 import javax.servlet.ServletInputStream;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 
 import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 public class HttpRequestMockHelper {
 
@@ -62,6 +70,40 @@ public class HttpRequestMockHelper {
         return request;
     }
 
+    /**
+     * Creates a request that stores its attributes.
+     */
+    public static HttpServletRequest createRequest() {
+        final Map<String, Object> attributes = new HashMap<String, Object>();
+
+        HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+        Mockito.when(request.getAttribute(Mockito.anyString())).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) {
+                return attributes.get(invocation.getArgument(0));
+            }
+        });
+        Mockito.doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                attributes.put((String) invocation.getArgument(0), invocation.getArgument(1));
+                return null;
+            }
+        }).when(request).setAttribute(Mockito.anyString(), Mockito.any());
+
+        return request;
+    }
+
+    /**
+     * Creates a response that writes its body to the given stream.
+     */
+    public static HttpServletResponse createResponse(OutputStream out) throws IOException {
+        HttpServletResponse response = Mockito.mock(HttpServletResponse.class);
+        Mockito.when(response.getOutputStream()).thenReturn(new FakeServletOutputStream(out));
+
+        return response;
+    }
+
     private static class FakeServletInputStream extends ServletInputStream {
 
         private InputStream stream;
@@ -107,4 +149,32 @@ public class HttpRequestMockHelper {
         public void setReadListener(ReadListener readListener) {
         }
     }
+
+    private static class FakeServletOutputStream extends ServletOutputStream {
+
+        private OutputStream stream;
+
+        public FakeServletOutputStream(OutputStream stream) {
+            this.stream = stream;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            stream.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            stream.write(b, off, len);
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+        }
+    }
 }
@@ -0,0 +1,238 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.server.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.verify;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.util.Arrays;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.chemistry.opencmis.commons.data.ContentStream;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ContentStreamImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.FileContentStreamImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PartialFileContentStreamImpl;
+import org.apache.chemistry.opencmis.commons.server.CallContext;
+import org.apache.chemistry.opencmis.commons.server.CmisService;
+import org.apache.chemistry.opencmis.server.shared.AbstractServiceCall;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SendContentStreamTest {
+
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private static final int FILE_SIZE = 100 * 1024;
+
+    private File file;
+    private byte[] data;
+
+    @Before
+    public void setUp() throws IOException {
+        data = new byte[FILE_SIZE];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+
+        file = File.createTempFile("opencmis", ".bin");
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(data);
+        } finally {
+            out.close();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void testFullFile() throws Exception {
+        CloseTrackingInputStream stream = new CloseTrackingInputStream();
+        ContentStream content = new FileContentStreamImpl("test.bin", BigInteger.valueOf(FILE_SIZE),
+                "application/octet-stream", stream, file, 0);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        HttpServletResponse response = send(content, HttpRequestMockHelper.createRequest(), out, false);
+
+        verify(response).setHeader("Content-Length", String.valueOf(FILE_SIZE));
+        assertArrayEquals(data, out.toByteArray());
+        assertTrue(stream.closed);
+    }
+
+    @Test
+    public void testRange() throws Exception {
+        ContentStream content = new PartialFileContentStreamImpl("test.bin", BigInteger.valueOf(1000),
+                "application/octet-stream", new CloseTrackingInputStream(), file, 500);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        HttpServletResponse response = send(content, HttpRequestMockHelper.createRequest(), out, false);
+
+        verify(response).setHeader("Content-Length", "1000");
+        assertArrayEquals(Arrays.copyOfRange(data, 500, 1500), out.toByteArray());
+    }
+
+    @Test
+    public void testRangePastEof() throws Exception {
+        // the range ends behind the end of the file
+        ContentStream content = new PartialFileContentStreamImpl("test.bin", BigInteger.valueOf(20000),
+                "application/octet-stream", new CloseTrackingInputStream(), file, FILE_SIZE - 1000);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        HttpServletResponse response = send(content, HttpRequestMockHelper.createRequest(), out, false);
+
+        verify(response).setHeader("Content-Length", "1000");
+        assertArrayEquals(Arrays.copyOfRange(data, FILE_SIZE - 1000, FILE_SIZE), out.toByteArray());
+
+        // the range starts behind the end of the file
+        content = new PartialFileContentStreamImpl("test.bin", BigInteger.valueOf(1000), "application/octet-stream",
+                new CloseTrackingInputStream(), file, FILE_SIZE + 1000);
+
+        out = new ByteArrayOutputStream();
+        response = send(content, HttpRequestMockHelper.createRequest(), out, false);
+
+        verify(response).setHeader("Content-Length", "0");
+        assertEquals(0, out.size());
+    }
+
+    @Test
+    public void testSendfile() throws Exception {
+        ContentStream content = new PartialFileContentStreamImpl("test.bin", BigInteger.valueOf(60 * 1024),
+                "application/octet-stream", new CloseTrackingInputStream(), file, 1024);
+
+        HttpServletRequest request = HttpRequestMockHelper.createRequest();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        HttpServletResponse response = send(content, request, out, true);
+
+        // the container sends the file
+        verify(response).setHeader("Content-Length", String.valueOf(60 * 1024));
+        assertEquals(file.getCanonicalPath(), request.getAttribute(SENDFILE_FILENAME));
+        assertEquals(Long.valueOf(1024), request.getAttribute(SENDFILE_START));
+        assertEquals(Long.valueOf(61 * 1024), request.getAttribute(SENDFILE_END));
+        assertEquals(0, out.size());
+    }
+
+    @Test
+    public void testSendfileBelowThreshold() throws Exception {
+        ContentStream content = new PartialFileContentStreamImpl("test.bin", BigInteger.valueOf(1000),
+                "application/octet-stream", new CloseTrackingInputStream(), file, 0);
+
+        HttpServletRequest request = HttpRequestMockHelper.createRequest();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        send(content, request, out, true);
+
+        // small ranges are copied
+        assertNull(request.getAttribute(SENDFILE_FILENAME));
+        assertArrayEquals(Arrays.copyOfRange(data, 0, 1000), out.toByteArray());
+    }
+
+    @Test
+    public void testNoFile() throws Exception {
+        // content that is not backed by a file is copied from the stream
+        CloseTrackingInputStream stream = new CloseTrackingInputStream(data);
+        ContentStream content = new ContentStreamImpl("test.bin", BigInteger.valueOf(FILE_SIZE),
+                "application/octet-stream", stream);
+
+        HttpServletRequest request = HttpRequestMockHelper.createRequest();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        send(content, request, out, true);
+
+        assertNull(request.getAttribute(SENDFILE_FILENAME));
+        assertArrayEquals(data, out.toByteArray());
+        assertTrue(stream.closed);
+
+        // a file content stream without a file, too
+        stream = new CloseTrackingInputStream(data);
+        content = new FileContentStreamImpl("test.bin", BigInteger.valueOf(FILE_SIZE), "application/octet-stream",
+                stream, null, 0);
+
+        out = new ByteArrayOutputStream();
+        send(content, request, out, true);
+
+        assertNull(request.getAttribute(SENDFILE_FILENAME));
+        assertArrayEquals(data, out.toByteArray());
+        assertTrue(stream.closed);
+    }
+
+    private static HttpServletResponse send(ContentStream content, HttpServletRequest request, OutputStream out,
+            boolean sendfile) throws IOException {
+        HttpServletResponse response = HttpRequestMockHelper.createResponse(out);
+        new TestServiceCall(sendfile).sendContentStream(content, request, response, 4096);
+        return response;
+    }
+
+    /**
+     * Service call that pretends to run in a container with or without
+     * sendfile support.
+     */
+    private static class TestServiceCall extends AbstractServiceCall {
+
+        private final boolean sendfile;
+
+        public TestServiceCall(boolean sendfile) {
+            this.sendfile = sendfile;
+        }
+
+        @Override
+        public void serve(CallContext context, CmisService service, String repositoryId, HttpServletRequest request,
+                HttpServletResponse response) {
+        }
+
+        @Override
+        protected boolean isSendfileSupported(HttpServletRequest request, HttpServletResponse response) {
+            return sendfile;
+        }
+    }
+
+    private static class CloseTrackingInputStream extends ByteArrayInputStream {
+
+        private boolean closed;
+
+        public CloseTrackingInputStream() {
+            this(new byte[0]);
+        }
+
+        public CloseTrackingInputStream(byte[] data) {
+            super(data);
+        }
+
+        @Override
+        public void close() throws IOException {
+            closed = true;
+            super.close();
+        }
+    }
+}
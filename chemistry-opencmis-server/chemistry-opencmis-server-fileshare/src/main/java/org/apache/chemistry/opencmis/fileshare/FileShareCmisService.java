@@ -303,6 +303,15 @@ public class FileShareCmisService extends AbstractCmisService implements CallCon
         return getRepository().bulkUpdateProperties(getCallContext(), objectIdAndChangeToken, properties, this);
     }
 
+    // --- discovery service ---
+
+    @Override
+    public ObjectList query(String repositoryId, String statement, Boolean searchAllVersions,
+            Boolean includeAllowableActions, IncludeRelationships includeRelationships, String renditionFilter,
+            BigInteger maxItems, BigInteger skipCount, ExtensionsData extension) {
+        return getRepository().query(getCallContext(), statement, includeAllowableActions, maxItems, skipCount);
+    }
+
     // --- versioning service ---
 
     @Override
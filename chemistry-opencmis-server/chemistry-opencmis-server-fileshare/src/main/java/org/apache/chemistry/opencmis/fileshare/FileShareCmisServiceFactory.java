@@ -45,6 +45,9 @@ public class FileShareCmisServiceFactory extends AbstractServiceFactory {
     private static final String PREFIX_TYPE = "type.";
     private static final String SUFFIX_READWRITE = ".readwrite";
     private static final String SUFFIX_READONLY = ".readonly";
+    private static final String SUFFIX_INDEX = ".index";
+    private static final String SUFFIX_INDEX_INTERVAL = ".indexinterval";
+    private static final String SUFFIX_PROPERTIES_CACHE = ".propertiescache";
 
     /** Default maxItems value for getTypeChildren()}. */
     private static final BigInteger DEFAULT_MAX_ITEMS_TYPES = BigInteger.valueOf(50);
@@ -93,10 +96,18 @@ public class FileShareCmisServiceFactory extends AbstractServiceFactory {
                 DEFAULT_DEPTH_TYPES, DEFAULT_MAX_ITEMS_OBJECTS, DEFAULT_DEPTH_OBJECTS);
 
         readConfiguration(parameters);
+
+        for (FileShareRepository fsr : repositoryManager.getRepositories()) {
+            fsr.startQueryIndex();
+        }
     }
 
     @Override
     public void destroy() {
+        for (FileShareRepository fsr : repositoryManager.getRepositories()) {
+            fsr.close();
+        }
+
         threadLocalService = null;
     }
 
@@ -204,6 +215,27 @@ public class FileShareCmisServiceFactory extends AbstractServiceFactory {
                     for (String user : split(parameters.get(key))) {
                         fsr.setUserReadOnly(replaceSystemProperties(user));
                     }
+                } else if (key.endsWith(SUFFIX_INDEX)) {
+                    // query index directory
+                    FileShareRepository fsr = repositoryManager.getRepository(repositoryId);
+                    fsr.setQueryIndexDirectory(replaceSystemProperties(parameters.get(key)));
+                } else if (key.endsWith(SUFFIX_INDEX_INTERVAL)) {
+                    // query index reconciliation interval
+                    FileShareRepository fsr = repositoryManager.getRepository(repositoryId);
+                    try {
+                        fsr.setQueryIndexInterval(Integer.parseInt(parameters.get(key).trim()));
+                    } catch (NumberFormatException e) {
+                        LOG.warn("Invalid index interval for repository '{}': {}", repositoryId, parameters.get(key));
+                    }
+                } else if (key.endsWith(SUFFIX_PROPERTIES_CACHE)) {
+                    // shadow file cache size
+                    FileShareRepository fsr = repositoryManager.getRepository(repositoryId);
+                    try {
+                        fsr.setPropertiesCacheSize(Integer.parseInt(parameters.get(key).trim()));
+                    } catch (NumberFormatException e) {
+                        LOG.warn("Invalid properties cache size for repository '{}': {}", repositoryId,
+                                parameters.get(key));
+                    }
                 } else {
                     // new repository
                     String root = replaceSystemProperties(parameters.get(key));
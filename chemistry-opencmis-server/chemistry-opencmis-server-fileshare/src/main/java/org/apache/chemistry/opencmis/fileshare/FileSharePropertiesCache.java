@@ -0,0 +1,186 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.fileshare;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.chemistry.opencmis.commons.data.PropertyData;
+
+/**
+ * LRU cache for the parsed content of shadow files.
+ * <p>
+ * Entries are keyed by the absolute path of the shadow file and are only
+ * returned if the modification date and the size of the shadow file haven't
+ * changed since it was parsed. The returned lists are unmodifiable copies,
+ * but the property objects in them are shared and must not be modified.
+ */
+public class FileSharePropertiesCache {
+
+    private final int maxEntries;
+    private final Map<String, Entry> cache;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Constructor.
+     *
+     * @param maxEntries
+     *            the maximum number of cached shadow files
+     */
+    public FileSharePropertiesCache(final int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("Cache size must be positive!");
+        }
+
+        this.maxEntries = maxEntries;
+        this.cache = new LinkedHashMap<String, Entry>(Math.min(maxEntries, 1024), 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached properties of a shadow file or {@code null} if the
+     * shadow file is not cached or has changed. The returned list is
+     * unmodifiable.
+     */
+    public List<PropertyData<?>> get(File propFile, long lastModified, long length) {
+        String key = propFile.getAbsolutePath();
+
+        Entry entry;
+        synchronized (cache) {
+            entry = cache.get(key);
+            if (entry != null && (entry.lastModified != lastModified || entry.length != length)) {
+                cache.remove(key);
+                entry = null;
+            }
+        }
+
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+
+        hits.incrementAndGet();
+        return entry.properties;
+    }
+
+    /**
+     * Adds the parsed properties of a shadow file. The cache keeps a copy of
+     * the list, later changes to the list don't affect the cache.
+     */
+    public void put(File propFile, long lastModified, long length, List<PropertyData<?>> properties) {
+        Entry entry = new Entry(lastModified, length,
+                Collections.unmodifiableList(new ArrayList<PropertyData<?>>(properties)));
+        synchronized (cache) {
+            cache.put(propFile.getAbsolutePath(), entry);
+        }
+    }
+
+    /**
+     * Removes a shadow file from the cache.
+     */
+    public void remove(File propFile) {
+        synchronized (cache) {
+            cache.remove(propFile.getAbsolutePath());
+        }
+    }
+
+    /**
+     * Removes the shadow files of a folder and all its descendants from the
+     * cache.
+     */
+    public void removeTree(File folder) {
+        String prefix = folder.getAbsolutePath() + File.separator;
+        synchronized (cache) {
+            Iterator<String> keys = cache.keySet().iterator();
+            while (keys.hasNext()) {
+                if (keys.next().startsWith(prefix)) {
+                    keys.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public void clear() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * Returns the number of cached shadow files.
+     */
+    public int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    /**
+     * Returns the number of lookups that were served from the cache.
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of lookups that required parsing the shadow file.
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    @Override
+    public String toString() {
+        long h = hits.get();
+        long m = misses.get();
+        long hitRatio = h + m == 0 ? 0 : (h * 100) / (h + m);
+
+        return "Properties cache [size=" + size() + ", max=" + maxEntries + ", hits=" + h + ", misses=" + m
+                + ", hit ratio=" + hitRatio + "%]";
+    }
+
+    private static class Entry {
+        private final long lastModified;
+        private final long length;
+        private final List<PropertyData<?>> properties;
+
+        public Entry(long lastModified, long length, List<PropertyData<?>> properties) {
+            this.lastModified = lastModified;
+            this.length = length;
+            this.properties = properties;
+        }
+    }
+}
@@ -0,0 +1,859 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.fileshare;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.data.Properties;
+import org.apache.chemistry.opencmis.commons.data.PropertyData;
+import org.apache.chemistry.opencmis.commons.impl.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Metadata index of a FileShare repository.
+ * <p>
+ * The index holds the properties of all documents and folders, sorted by their
+ * repository path. It is persisted in an index directory as a snapshot file
+ * and a journal file. Every change is appended to the journal. When the
+ * journal grows too large, a background thread starts a new journal and
+ * writes a new snapshot, while writers keep appending to the new journal.
+ * <p>
+ * On startup the snapshot is loaded and the journal is replayed. The index is
+ * then reconciled with the file system. Files and shadow files whose
+ * modification date or size differs from the indexed values are read again,
+ * and entries of files that don't exist anymore are removed. This catches
+ * changes that were made outside of the repository. The reconciliation can be
+ * repeated periodically.
+ * <p>
+ * The index is not bounded. All entries are kept on the heap, and each entry
+ * holds the path and all property values of one document or folder. With the
+ * default types an entry takes a few kilobytes, so an index of a million
+ * objects needs a few gigabytes of heap. The heap has to be sized for the
+ * number of objects in the share. For larger shares, don't configure an index.
+ */
+public class FileShareQueryIndex {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FileShareQueryIndex.class);
+
+    private static final String SNAPSHOT_FILE = "index.snapshot";
+    private static final String JOURNAL_FILE = "index.journal";
+    private static final String OLD_JOURNAL_FILE = "index.journal.old";
+
+    private static final int FORMAT_VERSION = 1;
+
+    private static final byte RECORD_PUT = 1;
+    private static final byte RECORD_REMOVE = 2;
+    private static final byte RECORD_REMOVE_TREE = 3;
+
+    /** Minimum number of journal records before the journal is compacted. */
+    private static final int MIN_COMPACT_RECORDS = 10000;
+    /** Journal size in bytes that triggers a compaction. */
+    private static final int MAX_JOURNAL_SIZE = 64 * 1024 * 1024;
+
+    /**
+     * Reads the properties of a file or folder.
+     */
+    public interface PropertiesReader {
+        Properties readProperties(File file);
+    }
+
+    private final File root;
+    private final File indexDirectory;
+    private final PropertiesReader reader;
+    private final String name;
+
+    private final ConcurrentSkipListMap<String, Entry> entries = new ConcurrentSkipListMap<String, Entry>();
+
+    private final Object journalLock = new Object();
+    private DataOutputStream journal;
+    private int journalRecords;
+    private int compactRecords = MIN_COMPACT_RECORDS;
+
+    private final Object compactLock = new Object();
+    private final AtomicBoolean compactScheduled = new AtomicBoolean(false);
+    private volatile ExecutorService compactExecutor;
+
+    private volatile int generation;
+    private volatile boolean closed;
+    private Thread reconcileThread;
+
+    /**
+     * Constructor.
+     *
+     * @param root
+     *            the root directory of the repository
+     * @param indexDirectory
+     *            the directory that holds the index files
+     * @param reader
+     *            reads the properties of files and folders
+     */
+    public FileShareQueryIndex(File root, File indexDirectory, PropertiesReader reader) {
+        if (root == null || indexDirectory == null || reader == null) {
+            throw new IllegalArgumentException("Root, index directory, and reader must be set!");
+        }
+
+        this.root = root;
+        this.indexDirectory = indexDirectory;
+        this.reader = reader;
+        this.name = "FileShare index " + root.getAbsolutePath();
+    }
+
+    /**
+     * Loads the persisted index and starts the reconciliation with the file
+     * system in a background thread.
+     *
+     * @param reconcileIntervalMinutes
+     *            the interval between two reconciliations, if this is less
+     *            than 1 the index is only reconciled on startup
+     */
+    public synchronized void start(final int reconcileIntervalMinutes) {
+        if (reconcileThread != null) {
+            throw new IllegalStateException("Index already started!");
+        }
+
+        if (!indexDirectory.isDirectory() && !indexDirectory.mkdirs()) {
+            throw new IllegalArgumentException("Could not create index directory: " + indexDirectory);
+        }
+
+        load();
+
+        compactExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, name + " compaction");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        reconcileThread = new Thread(name) {
+            @Override
+            public void run() {
+                while (!closed) {
+                    try {
+                        reconcile();
+                    } catch (Exception e) {
+                        LOG.error("{}: Reconciliation failed: {}", name, e.getMessage(), e);
+                    }
+
+                    if (reconcileIntervalMinutes < 1) {
+                        break;
+                    }
+
+                    try {
+                        Thread.sleep(reconcileIntervalMinutes * 60L * 1000L);
+                    } catch (InterruptedException e) {
+                        break;
+                    }
+                }
+            }
+        };
+        reconcileThread.setDaemon(true);
+        reconcileThread.start();
+    }
+
+    /**
+     * Stops the reconciliation and writes a new snapshot.
+     */
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+
+        if (reconcileThread != null) {
+            reconcileThread.interrupt();
+            try {
+                reconcileThread.join(10000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        ExecutorService executor = compactExecutor;
+        compactExecutor = null;
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(60, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        boolean changed;
+        synchronized (journalLock) {
+            changed = journalRecords > 0;
+        }
+        if (changed) {
+            compact();
+        }
+
+        synchronized (journalLock) {
+            IOUtils.closeQuietly(journal);
+            journal = null;
+        }
+    }
+
+    // --- lookups ---
+
+    /**
+     * Returns the entry of the given repository path or {@code null}.
+     */
+    public Entry getEntry(String path) {
+        return entries.get(path);
+    }
+
+    /**
+     * Returns all entries.
+     */
+    public Collection<Entry> getEntries() {
+        return entries.values();
+    }
+
+    /**
+     * Returns the entries of all objects below the given folder path.
+     */
+    public Collection<Entry> getDescendants(String folderPath) {
+        return getSubTree(folderPath).values();
+    }
+
+    /**
+     * Returns the number of indexed objects.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    // --- updates ---
+
+    /**
+     * Adds or replaces the entry of a file or folder.
+     */
+    public void update(File file) {
+        if (!file.exists()) {
+            remove(file);
+            return;
+        }
+
+        Entry entry = createEntry(file);
+        if (entry == null) {
+            return;
+        }
+
+        entries.put(entry.getPath(), entry);
+        appendToJournal(RECORD_PUT, entry.getPath(), entry);
+    }
+
+    /**
+     * Adds or replaces the entries of a folder and all its descendants.
+     */
+    public void updateTree(File folder) {
+        update(folder);
+
+        if (folder.isDirectory()) {
+            File[] children = folder.listFiles();
+            if (children != null) {
+                for (File child : children) {
+                    if (isIndexable(child)) {
+                        updateTree(child);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes the entry of a file or folder.
+     */
+    public void remove(File file) {
+        String path = getRepositoryPath(file);
+        if (entries.remove(path) != null) {
+            appendToJournal(RECORD_REMOVE, path, null);
+        }
+    }
+
+    /**
+     * Removes the entries of a folder and all its descendants.
+     */
+    public void removeTree(File folder) {
+        String path = getRepositoryPath(folder);
+        entries.remove(path);
+        getSubTree(path).clear();
+        appendToJournal(RECORD_REMOVE_TREE, path, null);
+    }
+
+    /**
+     * Compares the index with the file system and updates all entries that
+     * are out of date.
+     */
+    public void reconcile() {
+        long start = System.currentTimeMillis();
+        int mark = ++generation;
+
+        int[] counts = new int[2];
+        reconcileTree(root, mark, counts);
+
+        // remove entries that haven't been visited
+        int removed = 0;
+        for (Entry entry : entries.values()) {
+            if (closed) {
+                return;
+            }
+
+            if (entry.mark != mark) {
+                File file = new File(root, entry.getPath().substring(1).replace('/', File.separatorChar));
+                if (!file.exists()) {
+                    remove(file);
+                    removed++;
+                }
+            }
+        }
+
+        // this runs in the background, and only a change is worth a new
+        // snapshot
+        if (counts[1] > 0 || removed > 0) {
+            compact();
+        }
+
+        LOG.info("{}: Reconciled {} objects in {} ms. Updated: {}, removed: {}", name, counts[0],
+                System.currentTimeMillis() - start, counts[1], removed);
+    }
+
+    private void reconcileTree(File file, int mark, int[] counts) {
+        if (closed) {
+            return;
+        }
+
+        counts[0]++;
+
+        Entry entry = entries.get(getRepositoryPath(file));
+        if (entry == null || !entry.isUpToDate(file, getShadowFile(file))) {
+            update(file);
+            counts[1]++;
+        } else {
+            entry.mark = mark;
+        }
+
+        if (file.isDirectory()) {
+            File[] children = file.listFiles();
+            if (children != null) {
+                for (File child : children) {
+                    if (isIndexable(child)) {
+                        reconcileTree(child, mark, counts);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Sets the number of journal records that trigger a compaction.
+     */
+    void setCompactRecords(int records) {
+        compactRecords = records;
+    }
+
+    /**
+     * Returns the number of records in the current journal.
+     */
+    int getJournalRecords() {
+        synchronized (journalLock) {
+            return journalRecords;
+        }
+    }
+
+    /**
+     * Waits until the reconciliation thread has finished. The thread only
+     * finishes if the index is reconciled on startup only.
+     */
+    void awaitReconciliation(long timeout) throws InterruptedException {
+        Thread thread;
+        synchronized (this) {
+            thread = reconcileThread;
+        }
+        if (thread != null) {
+            thread.join(timeout);
+        }
+    }
+
+    /**
+     * Waits until a scheduled compaction has finished.
+     */
+    void awaitCompaction() throws Exception {
+        ExecutorService executor = compactExecutor;
+        if (executor != null) {
+            executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                }
+            }).get();
+        }
+    }
+
+    // --- persistence ---
+
+    /**
+     * Loads the snapshot and replays the journal.
+     */
+    private void load() {
+        File snapshotFile = new File(indexDirectory, SNAPSHOT_FILE);
+        File journalFile = new File(indexDirectory, JOURNAL_FILE);
+
+        if (snapshotFile.isFile()) {
+            ObjectInputStream in = null;
+            try {
+                in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(snapshotFile), 64 * 1024));
+                if (in.readInt() != FORMAT_VERSION || !root.getAbsolutePath().equals(in.readUTF())) {
+                    LOG.warn("{}: Snapshot doesn't match this repository. Rebuilding the index.", name);
+                } else {
+                    int count = in.readInt();
+                    for (int i = 0; i < count; i++) {
+                        Entry entry = (Entry) in.readObject();
+                        entries.put(entry.getPath(), entry);
+                    }
+                }
+            } catch (Exception e) {
+                LOG.warn("{}: Could not read snapshot. Rebuilding the index: {}", name, e.getMessage(), e);
+                entries.clear();
+            } finally {
+                IOUtils.closeQuietly(in);
+            }
+        }
+
+        File oldJournalFile = new File(indexDirectory, OLD_JOURNAL_FILE);
+
+        // the old journal is left over if a compaction didn't finish
+        int replayed = replayJournal(oldJournalFile) + replayJournal(journalFile);
+
+        LOG.info("{}: Loaded {} objects, replayed {} journal records.", name, entries.size(), replayed);
+
+        synchronized (journalLock) {
+            journalRecords = replayed;
+            openJournal(true);
+        }
+
+        // a crash can leave an incomplete record at the end of the journal,
+        // so start with a clean snapshot and an empty journal
+        if (oldJournalFile.exists() || journalFile.length() > 0) {
+            compact();
+        }
+    }
+
+    /**
+     * Applies the records of a journal file to the index.
+     *
+     * @return the number of replayed records
+     */
+    private int replayJournal(File journalFile) {
+        int replayed = 0;
+        if (journalFile.isFile()) {
+            DataInputStream in = null;
+            try {
+                in = new DataInputStream(new BufferedInputStream(new FileInputStream(journalFile), 64 * 1024));
+                while (true) {
+                    byte type = in.readByte();
+                    String path = in.readUTF();
+                    if (type == RECORD_PUT) {
+                        byte[] data = new byte[in.readInt()];
+                        in.readFully(data);
+                        entries.put(path, deserializeEntry(data));
+                    } else if (type == RECORD_REMOVE) {
+                        entries.remove(path);
+                    } else if (type == RECORD_REMOVE_TREE) {
+                        entries.remove(path);
+                        getSubTree(path).clear();
+                    } else {
+                        throw new IOException("Unknown journal record type: " + type);
+                    }
+                    replayed++;
+                }
+            } catch (EOFException e) {
+                // end of journal or incomplete last record
+            } catch (Exception e) {
+                LOG.warn("{}: Could not replay journal: {}", name, e.getMessage(), e);
+            } finally {
+                IOUtils.closeQuietly(in);
+            }
+        }
+
+        return replayed;
+    }
+
+    /**
+     * Writes a new snapshot and truncates the journal.
+     * <p>
+     * The journal lock is only held while the current journal is moved aside.
+     * The snapshot is written afterwards, so writers are not blocked. Changes
+     * that happen while the snapshot is written end up in the snapshot and in
+     * the new journal. Replaying them again on startup does no harm because
+     * all records carry the complete state of an entry.
+     */
+    void compact() {
+        synchronized (compactLock) {
+            File journalFile = new File(indexDirectory, JOURNAL_FILE);
+            File oldJournalFile = new File(indexDirectory, OLD_JOURNAL_FILE);
+
+            synchronized (journalLock) {
+                if (journal == null) {
+                    return;
+                }
+
+                IOUtils.closeQuietly(journal);
+                journal = null;
+
+                try {
+                    if (oldJournalFile.exists()) {
+                        // the last compaction failed, keep its records
+                        appendFile(journalFile, oldJournalFile);
+                        if (!journalFile.delete()) {
+                            throw new IOException("Could not delete journal!");
+                        }
+                    } else if (journalFile.exists() && !journalFile.renameTo(oldJournalFile)) {
+                        throw new IOException("Could not rename journal!");
+                    }
+                } catch (IOException e) {
+                    LOG.error("{}: Could not start a new journal: {}", name, e.getMessage(), e);
+                    openJournal(true);
+                    return;
+                }
+
+                journalRecords = 0;
+                openJournal(false);
+            }
+
+            File snapshotFile = new File(indexDirectory, SNAPSHOT_FILE);
+            File tempFile = new File(indexDirectory, SNAPSHOT_FILE + ".tmp");
+
+            ObjectOutputStream out = null;
+            try {
+                // the map may change while it is written, the journal covers
+                // that
+                List<Entry> snapshot = new ArrayList<Entry>(entries.values());
+
+                out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile), 64 * 1024));
+                out.writeInt(FORMAT_VERSION);
+                out.writeUTF(root.getAbsolutePath());
+                out.writeInt(snapshot.size());
+                int i = 0;
+                for (Entry entry : snapshot) {
+                    out.writeObject(entry);
+                    if (++i % 1000 == 0) {
+                        // don't keep references to all written entries
+                        out.reset();
+                    }
+                }
+                out.close();
+                out = null;
+
+                if (snapshotFile.exists() && !snapshotFile.delete()) {
+                    throw new IOException("Could not delete old snapshot!");
+                }
+                if (!tempFile.renameTo(snapshotFile)) {
+                    throw new IOException("Could not rename snapshot!");
+                }
+                if (oldJournalFile.exists() && !oldJournalFile.delete()) {
+                    throw new IOException("Could not delete old journal!");
+                }
+            } catch (IOException e) {
+                LOG.error("{}: Could not write snapshot: {}", name, e.getMessage(), e);
+            } finally {
+                IOUtils.closeQuietly(out);
+            }
+        }
+    }
+
+    /**
+     * Starts a compaction in the background if the journal has grown too
+     * large. The caller must hold the journal lock.
+     */
+    private void scheduleCompaction() {
+        if (journalRecords < compactRecords && journal.size() < MAX_JOURNAL_SIZE) {
+            return;
+        }
+        if (journalRecords < entries.size() / 4 && journal.size() < MAX_JOURNAL_SIZE) {
+            return;
+        }
+
+        ExecutorService executor = compactExecutor;
+        if (executor == null || !compactScheduled.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        compact();
+                    } finally {
+                        compactScheduled.set(false);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // the index is closing
+            compactScheduled.set(false);
+        }
+    }
+
+    private static void appendFile(File source, File target) throws IOException {
+        if (!source.exists()) {
+            return;
+        }
+
+        InputStream in = new FileInputStream(source);
+        try {
+            OutputStream out = new FileOutputStream(target, true);
+            try {
+                IOUtils.copy(in, out, 64 * 1024);
+            } finally {
+                out.close();
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Opens the journal. The caller must hold the journal lock.
+     */
+    private void openJournal(boolean append) {
+        IOUtils.closeQuietly(journal);
+        journal = null;
+
+        try {
+            journal = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(new File(indexDirectory,
+                    JOURNAL_FILE), append), 8 * 1024));
+        } catch (IOException e) {
+            LOG.error("{}: Could not open journal: {}", name, e.getMessage(), e);
+        }
+    }
+
+    private void appendToJournal(byte type, String path, Entry entry) {
+        synchronized (journalLock) {
+            if (journal == null) {
+                return;
+            }
+
+            try {
+                journal.writeByte(type);
+                journal.writeUTF(path);
+                if (entry != null) {
+                    byte[] data = serializeEntry(entry);
+                    journal.writeInt(data.length);
+                    journal.write(data);
+                }
+                journal.flush();
+                journalRecords++;
+            } catch (IOException e) {
+                LOG.error("{}: Could not write journal: {}", name, e.getMessage(), e);
+            }
+
+            scheduleCompaction();
+        }
+    }
+
+    private static byte[] serializeEntry(Entry entry) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(entry);
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    private static Entry deserializeEntry(byte[] data) throws IOException, ClassNotFoundException {
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(data));
+        try {
+            return (Entry) in.readObject();
+        } finally {
+            in.close();
+        }
+    }
+
+    // --- helpers ---
+
+    private Entry createEntry(File file) {
+        Properties properties;
+        try {
+            properties = reader.readProperties(file);
+        } catch (Exception e) {
+            LOG.warn("{}: Could not index {}: {}", name, file.getAbsolutePath(), e.getMessage());
+            return null;
+        }
+
+        Map<String, List<?>> values = new HashMap<String, List<?>>();
+        for (PropertyData<?> property : properties.getPropertyList()) {
+            if (property.getValues() != null && !property.getValues().isEmpty()) {
+                values.put(property.getId(), new ArrayList<Object>(property.getValues()));
+            }
+        }
+
+        File shadowFile = getShadowFile(file);
+        Entry entry = new Entry(getRepositoryPath(file), file.isDirectory(), file.lastModified(), file.isFile() ? file
+                .length() : 0, shadowFile.lastModified(), values);
+        entry.mark = generation;
+
+        return entry;
+    }
+
+    private ConcurrentNavigableMap<String, Entry> getSubTree(String folderPath) {
+        String prefix = folderPath.endsWith("/") ? folderPath : folderPath + "/";
+        // '0' is the character after '/'
+        return entries.subMap(prefix, true, prefix.substring(0, prefix.length() - 1) + '0', false);
+    }
+
+    private File getShadowFile(File file) {
+        if (file.isDirectory()) {
+            return new File(file, FileShareRepository.SHADOW_FOLDER);
+        }
+
+        return new File(file.getAbsolutePath() + FileShareRepository.SHADOW_EXT);
+    }
+
+    private boolean isIndexable(File file) {
+        return !file.isHidden() && !file.getName().equals(FileShareRepository.SHADOW_FOLDER)
+                && !file.getPath().endsWith(FileShareRepository.SHADOW_EXT);
+    }
+
+    private String getRepositoryPath(File file) {
+        String path = file.getAbsolutePath().substring(root.getAbsolutePath().length())
+                .replace(File.separatorChar, '/');
+        if (path.length() == 0) {
+            path = "/";
+        } else if (path.charAt(0) != '/') {
+            path = "/" + path;
+        }
+        return path;
+    }
+
+    // --- entry ---
+
+    /**
+     * Index entry of a file or folder.
+     */
+    public static class Entry implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String path;
+        private final boolean folder;
+        private final long lastModified;
+        private final long length;
+        private final long shadowLastModified;
+        private final Map<String, List<?>> properties;
+
+        private transient volatile int mark;
+
+        public Entry(String path, boolean folder, long lastModified, long length, long shadowLastModified,
+                Map<String, List<?>> properties) {
+            this.path = path;
+            this.folder = folder;
+            this.lastModified = lastModified;
+            this.length = length;
+            this.shadowLastModified = shadowLastModified;
+            this.properties = properties;
+        }
+
+        /**
+         * Returns the repository path.
+         */
+        public String getPath() {
+            return path;
+        }
+
+        /**
+         * Returns the repository path of the parent folder or {@code null} for
+         * the root folder.
+         */
+        public String getParentPath() {
+            if ("/".equals(path)) {
+                return null;
+            }
+
+            int x = path.lastIndexOf('/');
+            return x == 0 ? "/" : path.substring(0, x);
+        }
+
+        public boolean isFolder() {
+            return folder;
+        }
+
+        /**
+         * Returns the object type id.
+         */
+        public String getTypeId() {
+            List<?> values = properties.get(PropertyIds.OBJECT_TYPE_ID);
+            return values == null || values.isEmpty() ? null : (String) values.get(0);
+        }
+
+        /**
+         * Returns the values of a property or {@code null} if the property is
+         * not set.
+         */
+        public List<?> getValues(String propertyId) {
+            return properties.get(propertyId);
+        }
+
+        /**
+         * Returns the first value of a property or {@code null} if the
+         * property is not set.
+         */
+        public Object getFirstValue(String propertyId) {
+            List<?> values = properties.get(propertyId);
+            return values == null || values.isEmpty() ? null : values.get(0);
+        }
+
+        boolean isUpToDate(File file, File shadowFile) {
+            return folder == file.isDirectory() && lastModified == file.lastModified()
+                    && (folder || length == file.length()) && shadowLastModified == shadowFile.lastModified();
+        }
+    }
+}
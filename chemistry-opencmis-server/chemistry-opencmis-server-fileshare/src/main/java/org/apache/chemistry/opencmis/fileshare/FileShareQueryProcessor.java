@@ -0,0 +1,767 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.fileshare;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import org.antlr.runtime.tree.Tree;
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.data.MutablePropertyData;
+import org.apache.chemistry.opencmis.commons.data.ObjectData;
+import org.apache.chemistry.opencmis.commons.data.ObjectList;
+import org.apache.chemistry.opencmis.commons.definitions.PropertyDefinition;
+import org.apache.chemistry.opencmis.commons.definitions.TypeDefinition;
+import org.apache.chemistry.opencmis.commons.definitions.TypeDefinitionContainer;
+import org.apache.chemistry.opencmis.commons.enums.Cardinality;
+import org.apache.chemistry.opencmis.commons.enums.CmisVersion;
+import org.apache.chemistry.opencmis.commons.enums.PropertyType;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisInvalidArgumentException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisNotSupportedException;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.BindingsObjectFactoryImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectDataImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectListImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertiesImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.TypeDefinitionContainerImpl;
+import org.apache.chemistry.opencmis.server.support.TypeManager;
+import org.apache.chemistry.opencmis.server.support.query.AbstractPredicateWalker;
+import org.apache.chemistry.opencmis.server.support.query.CmisQlStrictLexer;
+import org.apache.chemistry.opencmis.server.support.query.CmisQueryWalker;
+import org.apache.chemistry.opencmis.server.support.query.CmisSelector;
+import org.apache.chemistry.opencmis.server.support.query.ColumnReference;
+import org.apache.chemistry.opencmis.server.support.query.QueryObject;
+import org.apache.chemistry.opencmis.server.support.query.QueryObject.SortSpec;
+import org.apache.chemistry.opencmis.server.support.query.QueryUtilStrict;
+import org.apache.chemistry.opencmis.server.support.query.StringUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Processes a CMIS query against the metadata index of a FileShare
+ * repository.
+ * <p>
+ * The statement is parsed with {@link QueryUtilStrict} and the WHERE clause is
+ * evaluated against the indexed properties. The file system is only touched
+ * for the objects of the requested page and only if allowable actions are
+ * requested. Joins and full-text search are not supported.
+ */
+public class FileShareQueryProcessor {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FileShareQueryProcessor.class);
+
+    private static final BindingsObjectFactoryImpl OBJECT_FACTORY = new BindingsObjectFactoryImpl();
+
+    private final FileShareRepository repository;
+    private final FileShareTypeManager typeManager;
+    private final FileShareQueryIndex index;
+    private final CmisVersion cmisVersion;
+
+    private QueryObject queryObj;
+    private Tree whereTree;
+    private EntryWalker walker;
+    private TypeDefinition fromType;
+    private final Map<String, Boolean> typeMatches = new HashMap<String, Boolean>();
+
+    public FileShareQueryProcessor(FileShareRepository repository, FileShareTypeManager typeManager,
+            FileShareQueryIndex index, CmisVersion cmisVersion) {
+        this.repository = repository;
+        this.typeManager = typeManager;
+        this.index = index;
+        this.cmisVersion = cmisVersion;
+    }
+
+    /**
+     * Executes a query.
+     */
+    public ObjectList query(String statement, boolean includeAllowableActions, boolean userReadOnly,
+            BigInteger maxItems, BigInteger skipCount) {
+        long start = System.currentTimeMillis();
+
+        parse(statement);
+
+        // find matches
+        List<FileShareQueryIndex.Entry> matches = new ArrayList<FileShareQueryIndex.Entry>();
+        for (FileShareQueryIndex.Entry entry : getCandidates()) {
+            if (matches(entry)) {
+                matches.add(entry);
+            }
+        }
+
+        sortMatches(matches);
+
+        // paging
+        int skip = skipCount == null ? 0 : (int) Math.min(Math.max(skipCount.longValue(), 0), matches.size());
+        int stop = matches.size();
+        if (maxItems != null && maxItems.longValue() >= 0 && skip + maxItems.longValue() < stop) {
+            stop = skip + maxItems.intValue();
+        }
+
+        // compile result
+        Map<String, String> requestedProperties = queryObj.getRequestedPropertiesByAlias();
+        List<ObjectData> objects = new ArrayList<ObjectData>(stop - skip);
+        for (FileShareQueryIndex.Entry entry : matches.subList(skip, stop)) {
+            ObjectDataImpl object = new ObjectDataImpl();
+            object.setProperties(compileResultProperties(entry, requestedProperties));
+            if (includeAllowableActions) {
+                object.setAllowableActions(repository.getAllowableActions(entry.getPath(), userReadOnly));
+            }
+            objects.add(object);
+        }
+
+        ObjectListImpl result = new ObjectListImpl();
+        result.setObjects(objects);
+        result.setNumItems(BigInteger.valueOf(matches.size()));
+        result.setHasMoreItems(stop < matches.size());
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Query '{}' matched {} of {} objects in {} ms.", statement, matches.size(), index.size(),
+                    System.currentTimeMillis() - start);
+        }
+
+        return result;
+    }
+
+    private void parse(String statement) {
+        QueryUtilStrict queryUtil = new QueryUtilStrict(statement, new IndexTypeManager(), null);
+        queryUtil.processStatementUsingCmisExceptions();
+
+        CmisQueryWalker queryWalker = queryUtil.getWalker();
+        queryObj = queryUtil.getQueryObject();
+        whereTree = queryWalker.getWherePredicateTree();
+
+        if (queryWalker.getNumberOfContainsClauses() > 0) {
+            throw new CmisInvalidArgumentException("Full-text search is not supported!");
+        }
+        if (!queryObj.getJoins().isEmpty()) {
+            throw new CmisInvalidArgumentException("Joins are not supported!");
+        }
+
+        // as we don't support joins take the first type
+        String queryName = queryObj.getTypes().values().iterator().next();
+        fromType = queryObj.getTypeDefinitionFromQueryName(queryName);
+
+        walker = new EntryWalker(whereTree);
+    }
+
+    /**
+     * Narrows the entries to scan if the WHERE clause is a single IN_TREE or
+     * IN_FOLDER predicate or is combined with AND.
+     */
+    private Collection<FileShareQueryIndex.Entry> getCandidates() {
+        Tree node = whereTree;
+        while (node != null) {
+            if (node.getType() == CmisQlStrictLexer.IN_TREE || node.getType() == CmisQlStrictLexer.IN_FOLDER) {
+                Tree paramNode = node.getChild(node.getChildCount() - 1);
+                Object folderId = walker.walkExpr(paramNode);
+                if (folderId instanceof String) {
+                    String path = repository.getRepositoryPath((String) folderId);
+                    if (path == null) {
+                        return Collections.emptyList();
+                    }
+                    return index.getDescendants(path);
+                }
+                break;
+            } else if (node.getType() == CmisQlStrictLexer.AND) {
+                // the left side is tried first
+                Tree left = node.getChild(0);
+                if (left.getType() == CmisQlStrictLexer.IN_TREE
+                        || left.getType() == CmisQlStrictLexer.IN_FOLDER) {
+                    node = left;
+                } else {
+                    node = node.getChild(1);
+                }
+            } else {
+                break;
+            }
+        }
+
+        return index.getEntries();
+    }
+
+    private boolean matches(FileShareQueryIndex.Entry entry) {
+        if (!typeMatches(entry.getTypeId())) {
+            return false;
+        }
+
+        if (whereTree == null) {
+            return true;
+        }
+
+        return walker.matches(entry, whereTree);
+    }
+
+    private boolean typeMatches(String typeId) {
+        if (typeId == null) {
+            return false;
+        }
+
+        Boolean result = typeMatches.get(typeId);
+        if (result == null) {
+            result = Boolean.FALSE;
+            String id = typeId;
+            while (id != null) {
+                if (id.equals(fromType.getId())) {
+                    result = Boolean.TRUE;
+                    break;
+                }
+                TypeDefinition type = typeManager.getInternalTypeDefinition(id);
+                id = type == null ? null : type.getParentTypeId();
+            }
+            typeMatches.put(typeId, result);
+        }
+
+        return result.booleanValue();
+    }
+
+    private void sortMatches(List<FileShareQueryIndex.Entry> matches) {
+        final List<SortSpec> orderBy = queryObj.getOrderBys();
+        if (orderBy.isEmpty()) {
+            return;
+        }
+
+        Collections.sort(matches, new Comparator<FileShareQueryIndex.Entry>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public int compare(FileShareQueryIndex.Entry e1, FileShareQueryIndex.Entry e2) {
+                for (SortSpec s : orderBy) {
+                    CmisSelector sel = s.getSelector();
+                    if (!(sel instanceof ColumnReference) || queryObj.isPredfinedQueryName(sel.getName())) {
+                        // SEARCH_SCORE and functions are ignored
+                        continue;
+                    }
+
+                    String propId = ((ColumnReference) sel).getPropertyId();
+                    Object val1 = e1.getFirstValue(propId);
+                    Object val2 = e2.getFirstValue(propId);
+
+                    int result;
+                    if (val1 == null && val2 == null) {
+                        result = 0;
+                    } else if (val1 == null) {
+                        result = -1;
+                    } else if (val2 == null) {
+                        result = 1;
+                    } else {
+                        result = ((Comparable<Object>) val1).compareTo(val2);
+                    }
+
+                    if (result != 0) {
+                        return s.isAscending() ? result : -result;
+                    }
+                }
+
+                return 0;
+            }
+        });
+    }
+
+    private PropertiesImpl compileResultProperties(FileShareQueryIndex.Entry entry,
+            Map<String, String> requestedProperties) {
+        PropertiesImpl result = new PropertiesImpl();
+
+        for (Map.Entry<String, String> requested : requestedProperties.entrySet()) {
+            String propId = requested.getValue();
+            if ("*".equals(propId)) {
+                for (PropertyDefinition<?> propDef : fromType.getPropertyDefinitions().values()) {
+                    if (isVisible(propDef.getId())) {
+                        result.addProperty(createProperty(propDef, entry, propDef.getQueryName()));
+                    }
+                }
+            } else {
+                PropertyDefinition<?> propDef = fromType.getPropertyDefinitions().get(propId);
+                if (propDef != null) {
+                    result.addProperty(createProperty(propDef, entry, requested.getKey()));
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * CMIS 1.0 clients don't know the CMIS 1.1 properties.
+     */
+    private boolean isVisible(String propId) {
+        if (cmisVersion != CmisVersion.CMIS_1_0) {
+            return true;
+        }
+
+        return !PropertyIds.DESCRIPTION.equals(propId) && !PropertyIds.SECONDARY_OBJECT_TYPE_IDS.equals(propId)
+                && !PropertyIds.IS_PRIVATE_WORKING_COPY.equals(propId);
+    }
+
+    private <T> MutablePropertyData<T> createProperty(PropertyDefinition<T> propDef, FileShareQueryIndex.Entry entry,
+            String queryName) {
+        List<?> values = entry.getValues(propDef.getId());
+
+        MutablePropertyData<T> property;
+        if (propDef.getCardinality() == Cardinality.SINGLE) {
+            property = OBJECT_FACTORY.createPropertyData(propDef,
+                    values == null || values.isEmpty() ? null : values.get(0));
+        } else {
+            property = OBJECT_FACTORY.createPropertyData(propDef,
+                    values == null ? Collections.emptyList() : new ArrayList<Object>(values));
+        }
+
+        property.setDisplayName(propDef.getDisplayName());
+        property.setLocalName(propDef.getLocalName());
+        property.setQueryName(queryName);
+
+        return property;
+    }
+
+    // --- where clause ---
+
+    /**
+     * Evaluates the WHERE clause for the index entries. One walker is created
+     * per query and the LIKE patterns are compiled when it is created.
+     */
+    private class EntryWalker extends AbstractPredicateWalker {
+
+        private final Map<Tree, Pattern> likePatterns = new IdentityHashMap<Tree, Pattern>();
+        private FileShareQueryIndex.Entry entry;
+
+        public EntryWalker(Tree whereTree) {
+            if (whereTree != null) {
+                compileLikePatterns(whereTree);
+            }
+        }
+
+        private void compileLikePatterns(Tree node) {
+            if (node.getType() == CmisQlStrictLexer.LIKE || node.getType() == CmisQlStrictLexer.NOT_LIKE) {
+                Object pattern = walkExpr(node.getChild(1));
+                if (!(pattern instanceof String)) {
+                    throw new CmisInvalidArgumentException("LIKE operator requires a string literal!");
+                }
+                likePatterns.put(node, Pattern.compile(translatePattern((String) pattern), Pattern.DOTALL));
+            }
+
+            for (int i = 0; i < node.getChildCount(); i++) {
+                compileLikePatterns(node.getChild(i));
+            }
+        }
+
+        /**
+         * Evaluates the WHERE clause for the given entry.
+         */
+        public boolean matches(FileShareQueryIndex.Entry entry, Tree whereTree) {
+            this.entry = entry;
+            try {
+                return walkPredicate(whereTree);
+            } finally {
+                this.entry = null;
+            }
+        }
+
+        @Override
+        public Boolean walkNot(Tree opNode, Tree node) {
+            return !walkPredicate(node);
+        }
+
+        @Override
+        public Boolean walkAnd(Tree opNode, Tree leftNode, Tree rightNode) {
+            return walkPredicate(leftNode) && walkPredicate(rightNode);
+        }
+
+        @Override
+        public Boolean walkOr(Tree opNode, Tree leftNode, Tree rightNode) {
+            return walkPredicate(leftNode) || walkPredicate(rightNode);
+        }
+
+        @Override
+        public Boolean walkEquals(Tree opNode, Tree leftNode, Tree rightNode) {
+            Integer cmp = compareTo(leftNode, rightNode);
+            return cmp == null ? false : cmp == 0;
+        }
+
+        @Override
+        public Boolean walkNotEquals(Tree opNode, Tree leftNode, Tree rightNode) {
+            Integer cmp = compareTo(leftNode, rightNode);
+            return cmp == null ? false : cmp != 0;
+        }
+
+        @Override
+        public Boolean walkGreaterThan(Tree opNode, Tree leftNode, Tree rightNode) {
+            Integer cmp = compareTo(leftNode, rightNode);
+            return cmp == null ? false : cmp > 0;
+        }
+
+        @Override
+        public Boolean walkGreaterOrEquals(Tree opNode, Tree leftNode, Tree rightNode) {
+            Integer cmp = compareTo(leftNode, rightNode);
+            return cmp == null ? false : cmp >= 0;
+        }
+
+        @Override
+        public Boolean walkLessThan(Tree opNode, Tree leftNode, Tree rightNode) {
+            Integer cmp = compareTo(leftNode, rightNode);
+            return cmp == null ? false : cmp < 0;
+        }
+
+        @Override
+        public Boolean walkLessOrEquals(Tree opNode, Tree leftNode, Tree rightNode) {
+            Integer cmp = compareTo(leftNode, rightNode);
+            return cmp == null ? false : cmp <= 0;
+        }
+
+        @Override
+        public Boolean walkIn(Tree opNode, Tree colNode, Tree listNode) {
+            ColumnReference colRef = getColumnReference(colNode);
+            if (colRef.getPropertyDefinition().getCardinality() != Cardinality.SINGLE) {
+                throw new CmisInvalidArgumentException("Operator IN only is allowed on single-value properties!");
+            }
+
+            Object value = entry.getFirstValue(colRef.getPropertyId());
+            return value != null && containsValue(colRef.getPropertyDefinition(), onLiteralList(listNode), value);
+        }
+
+        @Override
+        public Boolean walkNotIn(Tree opNode, Tree colNode, Tree listNode) {
+            // not set properties don't match
+            ColumnReference colRef = getColumnReference(colNode);
+            if (colRef.getPropertyDefinition().getCardinality() != Cardinality.SINGLE) {
+                throw new CmisInvalidArgumentException("Operator IN only is allowed on single-value properties!");
+            }
+
+            Object value = entry.getFirstValue(colRef.getPropertyId());
+            return value != null && !containsValue(colRef.getPropertyDefinition(), onLiteralList(listNode), value);
+        }
+
+        @Override
+        public Boolean walkInAny(Tree opNode, Tree colNode, Tree listNode) {
+            ColumnReference colRef = getColumnReference(colNode);
+            List<?> values = getMultiValues(colRef, "ANY ... IN");
+            if (values == null) {
+                return false;
+            }
+
+            List<Object> literals = onLiteralList(listNode);
+            for (Object value : values) {
+                if (containsValue(colRef.getPropertyDefinition(), literals, value)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public Boolean walkNotInAny(Tree opNode, Tree colNode, Tree listNode) {
+            ColumnReference colRef = getColumnReference(colNode);
+            List<?> values = getMultiValues(colRef, "ANY ... NOT IN");
+            if (values == null) {
+                return false;
+            }
+
+            List<Object> literals = onLiteralList(listNode);
+            for (Object value : values) {
+                if (containsValue(colRef.getPropertyDefinition(), literals, value)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public Boolean walkEqAny(Tree opNode, Tree literalNode, Tree colNode) {
+            ColumnReference colRef = getColumnReference(colNode);
+            List<?> values = getMultiValues(colRef, "= ANY");
+            if (values == null) {
+                return false;
+            }
+
+            Object literal = walkExpr(literalNode);
+            for (Object value : values) {
+                if (compare(colRef.getPropertyDefinition(), value, literal) == 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public Boolean walkIsNull(Tree opNode, Tree colNode) {
+            return entry.getValues(getColumnReference(colNode).getPropertyId()) == null;
+        }
+
+        @Override
+        public Boolean walkIsNotNull(Tree opNode, Tree colNode) {
+            return entry.getValues(getColumnReference(colNode).getPropertyId()) != null;
+        }
+
+        @Override
+        public Boolean walkLike(Tree opNode, Tree colNode, Tree stringNode) {
+            String value = getLikeValue(colNode);
+            return value != null && likePatterns.get(opNode).matcher(value).matches();
+        }
+
+        @Override
+        public Boolean walkNotLike(Tree opNode, Tree colNode, Tree stringNode) {
+            // not set properties don't match, as with NOT IN
+            String value = getLikeValue(colNode);
+            return value != null && !likePatterns.get(opNode).matcher(value).matches();
+        }
+
+        private String getLikeValue(Tree colNode) {
+            ColumnReference colRef = getColumnReference(colNode);
+            PropertyDefinition<?> propDef = colRef.getPropertyDefinition();
+            PropertyType propType = propDef.getPropertyType();
+            if (propType != PropertyType.STRING && propType != PropertyType.HTML && propType != PropertyType.ID
+                    && propType != PropertyType.URI) {
+                throw new CmisInvalidArgumentException("LIKE is not allowed for properties of type "
+                        + propType.value() + "!");
+            }
+            if (propDef.getCardinality() != Cardinality.SINGLE) {
+                throw new CmisInvalidArgumentException("LIKE is not allowed for multi-value properties!");
+            }
+
+            return (String) entry.getFirstValue(colRef.getPropertyId());
+        }
+
+        @Override
+        public Boolean walkInFolder(Tree opNode, Tree qualNode, Tree paramNode) {
+            String path = getFolderPath(paramNode);
+            return path != null && path.equals(entry.getParentPath());
+        }
+
+        @Override
+        public Boolean walkInTree(Tree opNode, Tree qualNode, Tree paramNode) {
+            String path = getFolderPath(paramNode);
+            if (path == null) {
+                return false;
+            }
+
+            String prefix = path.endsWith("/") ? path : path + "/";
+            return entry.getPath().length() > prefix.length() && entry.getPath().startsWith(prefix);
+        }
+
+        @Override
+        public Boolean walkContains(Tree opNode, Tree qualNode, Tree queryNode) {
+            throw new CmisInvalidArgumentException("Full-text search is not supported!");
+        }
+
+        private String getFolderPath(Tree paramNode) {
+            Object folderId = walkExpr(paramNode);
+            if (!(folderId instanceof String)) {
+                throw new CmisInvalidArgumentException("Folder id in IN_FOLDER and IN_TREE must be a string!");
+            }
+
+            return repository.getRepositoryPath((String) folderId);
+        }
+
+        private Integer compareTo(Tree leftNode, Tree rightNode) {
+            ColumnReference colRef = getColumnReference(leftNode);
+            PropertyDefinition<?> propDef = colRef.getPropertyDefinition();
+            if (propDef.getCardinality() != Cardinality.SINGLE) {
+                throw new CmisInvalidArgumentException(
+                        "Operators <, <=, =, <>, >=, > are not allowed on multi-value properties!");
+            }
+
+            Object value = entry.getFirstValue(colRef.getPropertyId());
+            if (value == null) {
+                return null;
+            }
+
+            return compare(propDef, value, walkExpr(rightNode));
+        }
+
+        private List<?> getMultiValues(ColumnReference colRef, String operator) {
+            if (colRef.getPropertyDefinition().getCardinality() != Cardinality.MULTI) {
+                throw new CmisInvalidArgumentException("Operator " + operator
+                        + " only is allowed on multi-value properties!");
+            }
+
+            return entry.getValues(colRef.getPropertyId());
+        }
+
+        @SuppressWarnings("unchecked")
+        private List<Object> onLiteralList(Tree node) {
+            return (List<Object>) walkExpr(node);
+        }
+    }
+
+    private boolean containsValue(PropertyDefinition<?> propDef, List<Object> literals, Object value) {
+        for (Object literal : literals) {
+            if (compare(propDef, value, literal) == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Compares an indexed value with a query literal.
+     */
+    private static int compare(PropertyDefinition<?> propDef, Object value, Object literal) {
+        switch (propDef.getPropertyType()) {
+        case BOOLEAN:
+            if (literal instanceof Boolean) {
+                return ((Boolean) value).compareTo((Boolean) literal);
+            }
+            break;
+        case INTEGER:
+            if (literal instanceof Long) {
+                return ((BigInteger) value).compareTo(BigInteger.valueOf((Long) literal));
+            } else if (literal instanceof Double) {
+                return Double.compare(((BigInteger) value).doubleValue(), (Double) literal);
+            }
+            break;
+        case DECIMAL:
+            if (literal instanceof Double) {
+                return Double.compare(((BigDecimal) value).doubleValue(), (Double) literal);
+            } else if (literal instanceof Long) {
+                return ((BigDecimal) value).compareTo(BigDecimal.valueOf((Long) literal));
+            }
+            break;
+        case DATETIME:
+            if (literal instanceof GregorianCalendar) {
+                return ((GregorianCalendar) value).compareTo((GregorianCalendar) literal);
+            }
+            break;
+        case STRING:
+            if (literal instanceof String) {
+                return ((String) value).compareTo(StringUtil.unescape((String) literal, null));
+            }
+            break;
+        default:
+            if (literal instanceof String) {
+                return ((String) value).compareTo((String) literal);
+            }
+            break;
+        }
+
+        throw new CmisInvalidArgumentException("Incompatible types to compare: " + value + " and " + literal);
+    }
+
+    private ColumnReference getColumnReference(Tree columnNode) {
+        CmisSelector sel = queryObj.getColumnReference(columnNode.getTokenStartIndex());
+        if (sel instanceof ColumnReference) {
+            return (ColumnReference) sel;
+        }
+
+        throw new CmisInvalidArgumentException("Unknown property query name " + columnNode.getChild(0) + "!");
+    }
+
+    /**
+     * Translates the SQL wildcards % and _ into a Java regular expression.
+     */
+    private static String translatePattern(String wildcard) {
+        StringBuilder sb = new StringBuilder(wildcard.length() + 16);
+        StringBuilder literal = new StringBuilder();
+
+        for (int i = 0; i < wildcard.length(); i++) {
+            char c = wildcard.charAt(i);
+            if (c == '\\' && i + 1 < wildcard.length()) {
+                literal.append(wildcard.charAt(++i));
+            } else if (c == '%' || c == '_') {
+                if (literal.length() > 0) {
+                    sb.append(Pattern.quote(literal.toString()));
+                    literal.setLength(0);
+                }
+                sb.append(c == '%' ? ".*" : ".");
+            } else {
+                literal.append(c);
+            }
+        }
+
+        if (literal.length() > 0) {
+            sb.append(Pattern.quote(literal.toString()));
+        }
+
+        return sb.toString();
+    }
+
+    // --- type manager ---
+
+    /**
+     * Provides the FileShare types to the query parser.
+     */
+    private class IndexTypeManager implements TypeManager {
+
+        @Override
+        public TypeDefinitionContainer getTypeById(String typeId) {
+            TypeDefinition type = typeManager.getInternalTypeDefinition(typeId);
+            return type == null ? null : new TypeDefinitionContainerImpl(type);
+        }
+
+        @Override
+        public TypeDefinition getTypeByQueryName(String typeQueryName) {
+            for (TypeDefinition type : typeManager.getInternalTypeDefinitions()) {
+                if (type.getQueryName() != null && type.getQueryName().equals(typeQueryName)) {
+                    return type;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public Collection<TypeDefinitionContainer> getTypeDefinitionList() {
+            List<TypeDefinitionContainer> result = new ArrayList<TypeDefinitionContainer>();
+            for (TypeDefinition type : typeManager.getInternalTypeDefinitions()) {
+                result.add(new TypeDefinitionContainerImpl(type));
+            }
+            return result;
+        }
+
+        @Override
+        public List<TypeDefinitionContainer> getRootTypes() {
+            List<TypeDefinitionContainer> result = new ArrayList<TypeDefinitionContainer>();
+            for (TypeDefinition type : typeManager.getInternalTypeDefinitions()) {
+                if (type.getParentTypeId() == null) {
+                    result.add(new TypeDefinitionContainerImpl(type));
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public String getPropertyIdForQueryName(TypeDefinition typeDefinition, String propQueryName) {
+            for (PropertyDefinition<?> propDef : typeDefinition.getPropertyDefinitions().values()) {
+                if (propDef.getQueryName() != null && propDef.getQueryName().equals(propQueryName)) {
+                    return propDef.getId();
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public void addTypeDefinition(TypeDefinition typeDefinition, boolean addInheritedProperties) {
+            throw new CmisNotSupportedException("Type modifications are not supported!");
+        }
+
+        @Override
+        public void updateTypeDefinition(TypeDefinition typeDefinition) {
+            throw new CmisNotSupportedException("Type modifications are not supported!");
+        }
+
+        @Override
+        public void deleteTypeDefinition(String typeId) {
+            throw new CmisNotSupportedException("Type modifications are not supported!");
+        }
+    }
+}
@@ -22,7 +22,6 @@ import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -57,6 +56,7 @@ import org.apache.chemistry.opencmis.commons.data.ObjectData;
 import org.apache.chemistry.opencmis.commons.data.ObjectInFolderContainer;
 import org.apache.chemistry.opencmis.commons.data.ObjectInFolderData;
 import org.apache.chemistry.opencmis.commons.data.ObjectInFolderList;
+import org.apache.chemistry.opencmis.commons.data.ObjectList;
 import org.apache.chemistry.opencmis.commons.data.ObjectParentData;
 import org.apache.chemistry.opencmis.commons.data.PermissionMapping;
 import org.apache.chemistry.opencmis.commons.data.Properties;
@@ -88,6 +88,7 @@ import org.apache.chemistry.opencmis.commons.exceptions.CmisConstraintException;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisContentAlreadyExistsException;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisInvalidArgumentException;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisNameConstraintViolationException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisNotSupportedException;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisObjectNotFoundException;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisPermissionDeniedException;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
@@ -106,16 +107,16 @@ import org.apache.chemistry.opencmis.commons.impl.dataobjects.AccessControlPrinc
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.AclCapabilitiesDataImpl;
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.AllowableActionsImpl;
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.BulkUpdateObjectIdAndChangeTokenImpl;
-import org.apache.chemistry.opencmis.commons.impl.dataobjects.ContentStreamImpl;
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.CreatablePropertyTypesImpl;
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.FailedToDeleteDataImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.FileContentStreamImpl;
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.NewTypeSettableAttributesImpl;
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectDataImpl;
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectInFolderContainerImpl;
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectInFolderDataImpl;
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectInFolderListImpl;
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectParentDataImpl;
-import org.apache.chemistry.opencmis.commons.impl.dataobjects.PartialContentStreamImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PartialFileContentStreamImpl;
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.PermissionDefinitionDataImpl;
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.PermissionMappingDataImpl;
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertiesImpl;
@@ -145,13 +146,15 @@ public class FileShareRepository {
     private static final Logger LOG = LoggerFactory.getLogger(FileShareRepository.class);
 
     private static final String ROOT_ID = "@root@";
-    private static final String SHADOW_EXT = ".cmis.xml";
-    private static final String SHADOW_FOLDER = "cmis.xml";
+    static final String SHADOW_EXT = ".cmis.xml";
+    static final String SHADOW_FOLDER = "cmis.xml";
 
     private static final String USER_UNKNOWN = "<unknown>";
 
     private static final int BUFFER_SIZE = 64 * 1024;
 
+    private static final int DEFAULT_PROPERTIES_CACHE_SIZE = 10000;
+
     /** Repository id. */
     private final String repositoryId;
     /** Root directory. */
@@ -162,9 +165,18 @@ public class FileShareRepository {
     private final Map<String, Boolean> readWriteUserMap;
 
     /** CMIS 1.0 repository info. */
-    private final RepositoryInfo repositoryInfo10;
+    private volatile RepositoryInfo repositoryInfo10;
     /** CMIS 1.1 repository info. */
-    private final RepositoryInfo repositoryInfo11;
+    private volatile RepositoryInfo repositoryInfo11;
+
+    /** Query index directory or {@code null} if query is not supported. */
+    private File queryIndexDirectory;
+    /** Query index reconciliation interval in minutes. */
+    private int queryIndexInterval;
+    /** Query index. */
+    private volatile FileShareQueryIndex queryIndex;
+    /** Cache of parsed shadow files or {@code null} if disabled. */
+    private volatile FileSharePropertiesCache propertiesCache;
 
     public FileShareRepository(final String repositoryId, final String rootPath, final FileShareTypeManager typeManager) {
         // check repository id
@@ -190,6 +202,9 @@ public class FileShareRepository {
         // set up read-write user map
         readWriteUserMap = new HashMap<String, Boolean>();
 
+        // set up properties cache
+        propertiesCache = new FileSharePropertiesCache(DEFAULT_PROPERTIES_CACHE_SIZE);
+
         // set up repository infos
         repositoryInfo10 = createRepositoryInfo(CmisVersion.CMIS_1_0);
         repositoryInfo11 = createRepositoryInfo(CmisVersion.CMIS_1_1);
@@ -224,7 +239,7 @@ public class FileShareRepository {
         capabilities.setSupportsVersionSpecificFiling(false);
         capabilities.setIsPwcSearchable(false);
         capabilities.setIsPwcUpdatable(false);
-        capabilities.setCapabilityQuery(CapabilityQuery.NONE);
+        capabilities.setCapabilityQuery(queryIndex == null ? CapabilityQuery.NONE : CapabilityQuery.METADATAONLY);
         capabilities.setCapabilityChanges(CapabilityChanges.NONE);
         capabilities.setCapabilityContentStreamUpdates(CapabilityContentStreamUpdates.ANYTIME);
         capabilities.setSupportsGetDescendants(true);
@@ -351,6 +366,81 @@ public class FileShareRepository {
         readWriteUserMap.put(user, false);
     }
 
+    /**
+     * Sets the maximum number of shadow files that are kept parsed in memory.
+     * If the size is less than 1, shadow files are parsed on every access.
+     */
+    public void setPropertiesCacheSize(int size) {
+        propertiesCache = size < 1 ? null : new FileSharePropertiesCache(size);
+    }
+
+    /**
+     * Returns the shadow file cache or {@code null} if it is disabled.
+     */
+    public FileSharePropertiesCache getPropertiesCache() {
+        return propertiesCache;
+    }
+
+    /**
+     * Sets the directory of the query index. If it is not set, this
+     * repository doesn't support query.
+     * <p>
+     * The index keeps the properties of all documents and folders on the heap,
+     * see {@link FileShareQueryIndex}.
+     */
+    public void setQueryIndexDirectory(String directory) {
+        if (directory == null || directory.trim().length() == 0) {
+            return;
+        }
+
+        queryIndexDirectory = new File(directory.trim());
+    }
+
+    /**
+     * Sets the interval in minutes between two reconciliations of the query
+     * index with the file system.
+     */
+    public void setQueryIndexInterval(int minutes) {
+        queryIndexInterval = minutes;
+    }
+
+    /**
+     * Loads the query index, if configured, and starts the reconciliation in
+     * the background.
+     */
+    public synchronized void startQueryIndex() {
+        if (queryIndexDirectory == null || queryIndex != null) {
+            return;
+        }
+
+        FileShareQueryIndex index = new FileShareQueryIndex(root, queryIndexDirectory,
+                new FileShareQueryIndex.PropertiesReader() {
+                    @Override
+                    public Properties readProperties(File file) {
+                        return compileProperties(CmisVersion.CMIS_1_1, file, null, new ObjectInfoImpl());
+                    }
+                });
+        index.start(queryIndexInterval);
+        queryIndex = index;
+
+        // announce the query capability
+        repositoryInfo10 = createRepositoryInfo(CmisVersion.CMIS_1_0);
+        repositoryInfo11 = createRepositoryInfo(CmisVersion.CMIS_1_1);
+    }
+
+    /**
+     * Closes the query index.
+     */
+    public synchronized void close() {
+        if (queryIndex != null) {
+            queryIndex.close();
+        }
+
+        if (propertiesCache != null) {
+            LOG.info("<{}> {}", repositoryId, propertiesCache);
+        }
+    }
+
     // --- CMIS operations ---
 
     /**
@@ -376,7 +466,8 @@ public class FileShareRepository {
         debug("getTypesChildren");
         checkUser(context, false);
 
-        return typeManager.getTypeChildren(context, typeId, includePropertyDefinitions, maxItems, skipCount);
+        return typeManager.getTypeChildren(context, typeId, includePropertyDefinitions, maxItems, skipCount,
+                queryIndex != null);
     }
 
     /**
@@ -387,7 +478,8 @@ public class FileShareRepository {
         debug("getTypesDescendants");
         checkUser(context, false);
 
-        return typeManager.getTypeDescendants(context, typeId, depth, includePropertyDefinitions);
+        return typeManager.getTypeDescendants(context, typeId, depth, includePropertyDefinitions,
+                queryIndex != null);
     }
 
     /**
@@ -397,7 +489,7 @@ public class FileShareRepository {
         debug("getTypeDefinition");
         checkUser(context, false);
 
-        return typeManager.getTypeDefinition(context, typeId);
+        return typeManager.getTypeDefinition(context, typeId, queryIndex != null);
     }
 
     /**
@@ -498,6 +590,8 @@ public class FileShareRepository {
         // write properties
         writePropertiesFile(newFile, props);
 
+        updateQueryIndex(newFile);
+
         return getId(newFile);
     }
 
@@ -623,6 +717,8 @@ public class FileShareRepository {
         // write properties
         writePropertiesFile(newFile, newProperties);
 
+        updateQueryIndex(newFile);
+
         return getId(newFile);
     }
 
@@ -692,6 +788,8 @@ public class FileShareRepository {
         // write properties
         writePropertiesFile(newFolder, props);
 
+        updateQueryIndex(newFolder);
+
         return getId(newFolder);
     }
 
@@ -733,7 +831,12 @@ public class FileShareRepository {
                         LOG.error("Could not rename properties file: {}", propFile.getName());
                     }
                 }
+                invalidatePropertiesCache(propFile);
+            } else {
+                invalidatePropertiesCacheTree(file);
             }
+
+            moveQueryIndex(file, newFile);
         }
 
         return compileObjectData(context, newFile, null, false, false, userReadOnly, objectInfos);
@@ -782,6 +885,8 @@ public class FileShareRepository {
             IOUtils.closeQuietly(out);
             IOUtils.closeQuietly(in);
         }
+
+        updateQueryIndex(file);
     }
 
     /**
@@ -803,10 +908,16 @@ public class FileShareRepository {
         }
 
         // delete properties and actual file
-        getPropertiesFile(file).delete();
+        File propFile = getPropertiesFile(file);
+        propFile.delete();
+        invalidatePropertiesCache(propFile);
         if (!file.delete()) {
             throw new CmisStorageException("Deletion failed!");
         }
+
+        if (queryIndex != null) {
+            queryIndex.remove(file);
+        }
     }
 
     /**
@@ -831,6 +942,17 @@ public class FileShareRepository {
             throw new CmisConstraintException("Object is not a folder!");
         }
 
+        // the shadow files of the whole tree are gone
+        invalidatePropertiesCacheTree(file);
+
+        if (queryIndex != null) {
+            // re-add what couldn't be deleted
+            queryIndex.removeTree(file);
+            if (file.exists()) {
+                queryIndex.updateTree(file);
+            }
+        }
+
         return result;
     }
 
@@ -939,8 +1061,15 @@ public class FileShareRepository {
                             LOG.error("Could not rename properties file: {}", propFile.getName());
                         }
                     }
+                    invalidatePropertiesCache(propFile);
+                } else {
+                    invalidatePropertiesCacheTree(file);
                 }
             }
+
+            moveQueryIndex(file, newFile);
+        } else {
+            updateQueryIndex(file);
         }
 
         return compileObjectData(context, newFile, null, false, false, userReadOnly, objectInfos);
@@ -1128,28 +1257,33 @@ public class FileShareRepository {
             throw new CmisConstraintException("Document has no content!");
         }
 
-        InputStream stream = null;
-        try {
-            stream = new BufferedInputStream(new FileInputStream(file), 64 * 1024);
-            if (offset != null || length != null) {
-                stream = new ContentRangeInputStream(stream, offset, length);
-            }
-        } catch (FileNotFoundException e) {
-            throw new CmisObjectNotFoundException(e.getMessage(), e);
+        // the file is only opened if the stream is read
+        InputStream stream = new LazyFileInputStream(file, offset, length);
+
+        // compute the range
+        long fileLength = file.length();
+        long rangeOffset = offset == null ? 0 : Math.max(0, offset.longValue());
+        long rangeLength = Math.max(0, fileLength - rangeOffset);
+        if (length != null && length.signum() >= 0) {
+            rangeLength = Math.min(rangeLength, length.longValue());
         }
 
         // compile data
-        ContentStreamImpl result;
+        // the file is exposed to let the AtomPub and Browser binding stream it
+        // without copying it through the heap
+        FileContentStreamImpl result;
         if ((offset != null && offset.longValue() > 0) || length != null) {
-            result = new PartialContentStreamImpl();
+            result = new PartialFileContentStreamImpl();
         } else {
-            result = new ContentStreamImpl();
+            result = new FileContentStreamImpl();
         }
 
         result.setFileName(file.getName());
-        result.setLength(BigInteger.valueOf(file.length()));
+        result.setLength(BigInteger.valueOf(rangeLength));
         result.setMimeType(MimeTypes.getMIMEType(file));
         result.setStream(stream);
+        result.setFile(file);
+        result.setFileOffset(rangeOffset);
 
         return result;
     }
@@ -1488,6 +1622,66 @@ public class FileShareRepository {
                 objectInfos);
     }
 
+    /**
+     * CMIS query.
+     */
+    public ObjectList query(CallContext context, String statement, Boolean includeAllowableActions,
+            BigInteger maxItems, BigInteger skipCount) {
+        debug("query");
+        boolean userReadOnly = checkUser(context, false);
+
+        FileShareQueryIndex index = queryIndex;
+        if (index == null) {
+            throw new CmisNotSupportedException("Query is not supported!");
+        }
+
+        FileShareQueryProcessor processor = new FileShareQueryProcessor(this, typeManager, index,
+                context.getCmisVersion());
+
+        return processor.query(statement, FileShareUtils.getBooleanParameter(includeAllowableActions, false),
+                userReadOnly, maxItems, skipCount);
+    }
+
+    // --- query index ---
+
+    /**
+     * Updates the query index entry of a file or folder.
+     */
+    private void updateQueryIndex(File file) {
+        if (queryIndex != null) {
+            queryIndex.update(file);
+        }
+    }
+
+    /**
+     * Moves the query index entries of a renamed or moved file or folder.
+     */
+    private void moveQueryIndex(File oldFile, File newFile) {
+        if (queryIndex != null) {
+            queryIndex.removeTree(oldFile);
+            queryIndex.updateTree(newFile);
+        }
+    }
+
+    /**
+     * Returns the repository path of an object id or {@code null} if the id is
+     * invalid.
+     */
+    String getRepositoryPath(String objectId) {
+        try {
+            return getRepositoryPath(idToFile(objectId));
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * Compiles the allowable actions for a repository path.
+     */
+    AllowableActions getAllowableActions(String repositoryPath, boolean userReadOnly) {
+        return compileAllowableActions(new File(root, repositoryPath.replace('/', File.separatorChar)), userReadOnly);
+    }
+
     // --- helpers ---
 
     /**
@@ -1498,7 +1692,7 @@ public class FileShareRepository {
         ObjectDataImpl result = new ObjectDataImpl();
         ObjectInfoImpl objectInfo = new ObjectInfoImpl();
 
-        result.setProperties(compileProperties(context, file, filter, objectInfo));
+        result.setProperties(compileProperties(context.getCmisVersion(), file, filter, objectInfo));
 
         if (includeAllowableActions) {
             result.setAllowableActions(compileAllowableActions(file, userReadOnly));
@@ -1520,7 +1714,7 @@ public class FileShareRepository {
     /**
      * Gathers all base properties of a file or folder.
      */
-    private Properties compileProperties(CallContext context, File file, Set<String> orgfilter,
+    private Properties compileProperties(CmisVersion cmisVersion, File file, Set<String> orgfilter,
             ObjectInfoImpl objectInfo) {
         if (file == null) {
             throw new IllegalArgumentException("File must not be null!");
@@ -1606,7 +1800,7 @@ public class FileShareRepository {
             addPropertyString(result, typeId, filter, PropertyIds.CHANGE_TOKEN, null);
 
             // CMIS 1.1 properties
-            if (context.getCmisVersion() != CmisVersion.CMIS_1_0) {
+            if (cmisVersion != CmisVersion.CMIS_1_0) {
                 addPropertyString(result, typeId, filter, PropertyIds.DESCRIPTION, null);
                 addPropertyIdList(result, typeId, filter, PropertyIds.SECONDARY_OBJECT_TYPE_IDS, null);
             }
@@ -1646,7 +1840,7 @@ public class FileShareRepository {
                 addPropertyString(result, typeId, filter, PropertyIds.VERSION_SERIES_CHECKED_OUT_BY, null);
                 addPropertyString(result, typeId, filter, PropertyIds.VERSION_SERIES_CHECKED_OUT_ID, null);
                 addPropertyString(result, typeId, filter, PropertyIds.CHECKIN_COMMENT, "");
-                if (context.getCmisVersion() != CmisVersion.CMIS_1_0) {
+                if (cmisVersion != CmisVersion.CMIS_1_0) {
                     addPropertyBoolean(result, typeId, filter, PropertyIds.IS_PRIVATE_WORKING_COPY, false);
                 }
 
@@ -1697,31 +1891,47 @@ public class FileShareRepository {
         File propFile = getPropertiesFile(file);
 
         // if it doesn't exists, ignore it
-        if (!propFile.exists()) {
+        long lastModified = propFile.lastModified();
+        if (lastModified == 0L && !propFile.exists()) {
             return;
         }
+        long length = propFile.length();
 
-        // parse it
-        ObjectData obj = null;
-        InputStream stream = null;
-        try {
-            stream = new BufferedInputStream(new FileInputStream(propFile), 64 * 1024);
-            XMLStreamReader parser = XMLUtils.createParser(stream);
-            XMLUtils.findNextStartElemenet(parser);
-            obj = XMLConverter.convertObject(parser);
-            parser.close();
-        } catch (Exception e) {
-            LOG.warn("Unvalid CMIS properties: {}", propFile.getAbsolutePath(), e);
-        } finally {
-            IOUtils.closeQuietly(stream);
+        // look it up in the cache
+        FileSharePropertiesCache cache = propertiesCache;
+        List<PropertyData<?>> propList = null;
+        if (cache != null) {
+            propList = cache.get(propFile, lastModified, length);
         }
 
-        if (obj == null || obj.getProperties() == null) {
-            return;
+        if (propList == null) {
+            // parse it
+            ObjectData obj = null;
+            InputStream stream = null;
+            try {
+                stream = new BufferedInputStream(new FileInputStream(propFile), 64 * 1024);
+                XMLStreamReader parser = XMLUtils.createParser(stream);
+                XMLUtils.findNextStartElemenet(parser);
+                obj = XMLConverter.convertObject(parser);
+                parser.close();
+            } catch (Exception e) {
+                LOG.warn("Unvalid CMIS properties: {}", propFile.getAbsolutePath(), e);
+            } finally {
+                IOUtils.closeQuietly(stream);
+            }
+
+            if (obj == null || obj.getProperties() == null) {
+                return;
+            }
+
+            propList = obj.getProperties().getPropertyList();
+            if (cache != null) {
+                cache.put(propFile, lastModified, length, propList);
+            }
         }
 
         // add it to properties
-        for (PropertyData<?> prop : obj.getProperties().getPropertyList()) {
+        for (PropertyData<?> prop : propList) {
             // overwrite object info
             if (prop instanceof PropertyString) {
                 String firstValueStr = ((PropertyString) prop).getFirstValue();
@@ -1839,6 +2049,7 @@ public class FileShareRepository {
         // if no properties set delete the properties file
         if (properties == null || properties.getProperties() == null || properties.getProperties().size() == 0) {
             propFile.delete();
+            invalidatePropertiesCache(propFile);
             return;
         }
 
@@ -1858,6 +2069,7 @@ public class FileShareRepository {
             throw new CmisStorageException("Couldn't store properties!", e);
         } finally {
             IOUtils.closeQuietly(stream);
+            invalidatePropertiesCache(propFile);
         }
     }
 
@@ -2153,6 +2365,27 @@ public class FileShareRepository {
         return readOnly.booleanValue();
     }
 
+    /**
+     * Removes a properties file from the properties cache.
+     */
+    private void invalidatePropertiesCache(File propFile) {
+        FileSharePropertiesCache cache = propertiesCache;
+        if (cache != null) {
+            cache.remove(propFile);
+        }
+    }
+
+    /**
+     * Removes the properties files of a folder and its descendants from the
+     * properties cache.
+     */
+    private void invalidatePropertiesCacheTree(File folder) {
+        FileSharePropertiesCache cache = propertiesCache;
+        if (cache != null) {
+            cache.removeTree(folder);
+        }
+    }
+
     /**
      * Returns the properties file of the given file.
      */
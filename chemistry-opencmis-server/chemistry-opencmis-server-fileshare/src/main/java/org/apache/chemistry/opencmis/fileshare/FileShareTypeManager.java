@@ -62,6 +62,7 @@ public class FileShareTypeManager {
 
     private final TypeDefinitionFactory typeDefinitionFactory;
     private final Map<String, TypeDefinition> typeDefinitions;
+    private final Map<String, TypeDefinition> queryableTypeDefinitions;
 
     public FileShareTypeManager() {
         // set up TypeDefinitionFactory
@@ -75,6 +76,7 @@ public class FileShareTypeManager {
 
         // set up definitions map
         typeDefinitions = new HashMap<String, TypeDefinition>();
+        queryableTypeDefinitions = new HashMap<String, TypeDefinition>();
 
         // add base folder type
         MutableFolderTypeDefinition folderType = typeDefinitionFactory
@@ -83,7 +85,7 @@ public class FileShareTypeManager {
                 .setIsOrderable(Boolean.TRUE);
         ((MutablePropertyIdDefinition) folderType.getPropertyDefinitions().get(PropertyIds.BASE_TYPE_ID))
                 .setIsOrderable(Boolean.TRUE);
-        typeDefinitions.put(folderType.getId(), folderType);
+        putTypeDefinition(folderType);
 
         // add base document type
         MutableDocumentTypeDefinition documentType = typeDefinitionFactory
@@ -92,7 +94,7 @@ public class FileShareTypeManager {
                 .setIsOrderable(Boolean.TRUE);
         ((MutablePropertyIdDefinition) documentType.getPropertyDefinitions().get(PropertyIds.BASE_TYPE_ID))
                 .setIsOrderable(Boolean.TRUE);
-        typeDefinitions.put(documentType.getId(), documentType);
+        putTypeDefinition(documentType);
     }
 
     /**
@@ -125,13 +127,25 @@ public class FileShareTypeManager {
             newType.addPropertyDefinition(basePropDef);
         }
 
-        typeDefinitions.put(newType.getId(), newType);
+        putTypeDefinition(newType);
 
         if (LOG.isDebugEnabled()) {
             LOG.debug("Added type '{}'.", type.getId());
         }
     }
 
+    /**
+     * Adds a type definition and a queryable copy of it. Only repositories
+     * with a query index hand out the queryable copies.
+     */
+    private void putTypeDefinition(MutableTypeDefinition type) {
+        typeDefinitions.put(type.getId(), type);
+
+        MutableTypeDefinition queryableType = typeDefinitionFactory.copy(type, true);
+        queryableType.setIsQueryable(Boolean.TRUE);
+        queryableTypeDefinitions.put(queryableType.getId(), queryableType);
+    }
+
     public void loadTypeDefinitionFromFile(String filename) throws IOException, XMLStreamException {
         loadTypeDefinitionFromStream(new BufferedInputStream(new FileInputStream(filename), 64 * 1024));
     }
@@ -182,7 +196,11 @@ public class FileShareTypeManager {
     // --- service methods ---
 
     public TypeDefinition getTypeDefinition(CallContext context, String typeId) {
-        TypeDefinition type = typeDefinitions.get(typeId);
+        return getTypeDefinition(context, typeId, false);
+    }
+
+    public TypeDefinition getTypeDefinition(CallContext context, String typeId, boolean queryable) {
+        TypeDefinition type = getTypeDefinitions(queryable).get(typeId);
         if (type == null) {
             throw new CmisObjectNotFoundException("Type '" + typeId + "' is unknown!");
         }
@@ -192,14 +210,32 @@ public class FileShareTypeManager {
 
     public TypeDefinitionList getTypeChildren(CallContext context, String typeId, Boolean includePropertyDefinitions,
             BigInteger maxItems, BigInteger skipCount) {
-        return typeDefinitionFactory.createTypeDefinitionList(typeDefinitions, typeId, includePropertyDefinitions,
-                maxItems, skipCount, context.getCmisVersion());
+        return getTypeChildren(context, typeId, includePropertyDefinitions, maxItems, skipCount, false);
+    }
+
+    public TypeDefinitionList getTypeChildren(CallContext context, String typeId, Boolean includePropertyDefinitions,
+            BigInteger maxItems, BigInteger skipCount, boolean queryable) {
+        return typeDefinitionFactory.createTypeDefinitionList(getTypeDefinitions(queryable), typeId,
+                includePropertyDefinitions, maxItems, skipCount, context.getCmisVersion());
     }
 
     public List<TypeDefinitionContainer> getTypeDescendants(CallContext context, String typeId, BigInteger depth,
             Boolean includePropertyDefinitions) {
-        return typeDefinitionFactory.createTypeDescendants(typeDefinitions, typeId, depth, includePropertyDefinitions,
-                context.getCmisVersion());
+        return getTypeDescendants(context, typeId, depth, includePropertyDefinitions, false);
+    }
+
+    public List<TypeDefinitionContainer> getTypeDescendants(CallContext context, String typeId, BigInteger depth,
+            Boolean includePropertyDefinitions, boolean queryable) {
+        return typeDefinitionFactory.createTypeDescendants(getTypeDefinitions(queryable), typeId, depth,
+                includePropertyDefinitions, context.getCmisVersion());
+    }
+
+    /**
+     * Returns the type definitions that are handed out to clients. Types are
+     * only queryable if the repository has a query index.
+     */
+    private Map<String, TypeDefinition> getTypeDefinitions(boolean queryable) {
+        return queryable ? queryableTypeDefinitions : typeDefinitions;
     }
 
     @Override
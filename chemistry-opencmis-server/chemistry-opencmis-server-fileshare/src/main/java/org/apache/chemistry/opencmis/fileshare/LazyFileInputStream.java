@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.fileshare;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+
+/**
+ * Stream of a file (range) that opens the file when it is read for the first
+ * time.
+ * <p>
+ * The bindings send file content streams directly from the file and close the
+ * stream without reading it. This stream doesn't open a file handle in this
+ * case.
+ */
+public class LazyFileInputStream extends InputStream {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final File file;
+    private final BigInteger offset;
+    private final BigInteger length;
+
+    private InputStream stream;
+    private boolean closed;
+
+    public LazyFileInputStream(File file, BigInteger offset, BigInteger length) {
+        this.file = file;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * Returns whether the file has been opened.
+     */
+    public synchronized boolean isOpen() {
+        return stream != null;
+    }
+
+    private synchronized InputStream getStream() throws IOException {
+        if (closed) {
+            throw new IOException("Stream is closed!");
+        }
+
+        if (stream == null) {
+            InputStream fileStream = new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE);
+            if (offset != null || length != null) {
+                stream = new ContentRangeInputStream(fileStream, offset, length);
+            } else {
+                stream = fileStream;
+            }
+        }
+
+        return stream;
+    }
+
+    @Override
+    public int read() throws IOException {
+        return getStream().read();
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        return getStream().read(b, off, len);
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        return getStream().skip(n);
+    }
+
+    @Override
+    public int available() throws IOException {
+        return getStream().available();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        closed = true;
+        if (stream != null) {
+            stream.close();
+        }
+    }
+}
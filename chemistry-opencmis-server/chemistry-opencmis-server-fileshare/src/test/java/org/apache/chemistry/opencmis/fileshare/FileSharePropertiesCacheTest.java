@@ -0,0 +1,370 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.fileshare;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.data.ObjectData;
+import org.apache.chemistry.opencmis.commons.data.PropertyData;
+import org.apache.chemistry.opencmis.commons.enums.CmisVersion;
+import org.apache.chemistry.opencmis.commons.impl.Base64;
+import org.apache.chemistry.opencmis.commons.impl.IOUtils;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertiesImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyStringImpl;
+import org.apache.chemistry.opencmis.commons.server.CallContext;
+import org.apache.chemistry.opencmis.commons.spi.Holder;
+import org.apache.chemistry.opencmis.server.impl.CallContextImpl;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FileSharePropertiesCacheTest {
+
+    private static final String USER = "test";
+
+    private File tempDir;
+    private File root;
+    private FileShareRepository repository;
+    private FileSharePropertiesCache cache;
+    private CallContext context;
+
+    @Before
+    public void setUp() throws Exception {
+        tempDir = Files.createTempDirectory("opencmis-properties").toFile();
+        root = new File(tempDir, "root");
+        assertTrue(new File(root, "folder").mkdirs());
+
+        repository = new FileShareRepository("test", root.getAbsolutePath(), new FileShareTypeManager());
+        repository.setUserReadWrite(USER);
+        repository.setPropertiesCacheSize(10);
+        cache = repository.getPropertiesCache();
+
+        CallContextImpl callContext = new CallContextImpl(CallContext.BINDING_BROWSER, CmisVersion.CMIS_1_1, "test",
+                null, null, null, null, null);
+        callContext.put(CallContext.USERNAME, USER);
+        context = callContext;
+    }
+
+    @After
+    public void tearDown() {
+        delete(tempDir);
+    }
+
+    @Test
+    public void testHitsAndMisses() {
+        FileSharePropertiesCache cache = new FileSharePropertiesCache(10);
+        File propFile = new File(tempDir, "a.txt.cmis.xml");
+
+        assertNull(cache.get(propFile, 1000, 10));
+        assertEquals(0, cache.getHits());
+        assertEquals(1, cache.getMisses());
+
+        cache.put(propFile, 1000, 10, createProperties("a"));
+        assertNotNull(cache.get(propFile, 1000, 10));
+        assertNotNull(cache.get(propFile, 1000, 10));
+        assertEquals(2, cache.getHits());
+        assertEquals(1, cache.getMisses());
+
+        // a changed modification date or size is a miss and drops the entry
+        assertNull(cache.get(propFile, 2000, 10));
+        assertEquals(0, cache.size());
+        cache.put(propFile, 1000, 10, createProperties("a"));
+        assertNull(cache.get(propFile, 1000, 11));
+        assertEquals(0, cache.size());
+        assertEquals(2, cache.getHits());
+        assertEquals(3, cache.getMisses());
+    }
+
+    @Test
+    public void testEviction() {
+        FileSharePropertiesCache cache = new FileSharePropertiesCache(2);
+        File a = new File(tempDir, "a.txt.cmis.xml");
+        File b = new File(tempDir, "b.txt.cmis.xml");
+        File c = new File(tempDir, "c.txt.cmis.xml");
+
+        cache.put(a, 1, 1, createProperties("a"));
+        cache.put(b, 1, 1, createProperties("b"));
+
+        // touch a, so that b is the least recently used entry
+        assertNotNull(cache.get(a, 1, 1));
+        cache.put(c, 1, 1, createProperties("c"));
+
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get(a, 1, 1));
+        assertNull(cache.get(b, 1, 1));
+        assertNotNull(cache.get(c, 1, 1));
+    }
+
+    @Test
+    public void testDefensiveCopy() {
+        FileSharePropertiesCache cache = new FileSharePropertiesCache(10);
+        File propFile = new File(tempDir, "a.txt.cmis.xml");
+
+        List<PropertyData<?>> properties = createProperties("a");
+        cache.put(propFile, 1, 1, properties);
+
+        // changing the original list doesn't change the cache
+        properties.clear();
+        assertEquals(1, cache.get(propFile, 1, 1).size());
+
+        // the cached list cannot be changed
+        try {
+            cache.get(propFile, 1, 1).clear();
+            fail("Cached list is modifiable!");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        assertEquals(1, cache.get(propFile, 1, 1).size());
+    }
+
+    @Test
+    public void testRemoveTree() {
+        FileSharePropertiesCache cache = new FileSharePropertiesCache(10);
+        File folder = new File(tempDir, "folder");
+        File inFolder = new File(folder, "a.txt.cmis.xml");
+        File inSubfolder = new File(new File(folder, "sub"), "b.txt.cmis.xml");
+        File sibling = new File(tempDir, "folder2.txt.cmis.xml");
+
+        cache.put(inFolder, 1, 1, createProperties("a"));
+        cache.put(inSubfolder, 1, 1, createProperties("b"));
+        cache.put(sibling, 1, 1, createProperties("c"));
+
+        cache.removeTree(folder);
+
+        assertEquals(1, cache.size());
+        assertNotNull(cache.get(sibling, 1, 1));
+    }
+
+    @Test
+    public void testRepositoryHits() {
+        String id = createDocument("folder", "doc.txt", "one");
+        cache.clear();
+
+        long misses = cache.getMisses();
+        assertEquals("one", getDescription(id));
+        assertEquals(misses + 1, cache.getMisses());
+
+        long hits = cache.getHits();
+        assertEquals("one", getDescription(id));
+        assertEquals(hits + 1, cache.getHits());
+        assertEquals(misses + 1, cache.getMisses());
+    }
+
+    @Test
+    public void testUpdateInvalidates() {
+        String id = createDocument("folder", "doc.txt", null);
+        assertNull(getDescription(id));
+        assertEquals(1, cache.size());
+
+        PropertiesImpl properties = new PropertiesImpl();
+        properties.addProperty(new PropertyStringImpl(PropertyIds.DESCRIPTION, "two"));
+        repository.updateProperties(context, new Holder<String>(id), properties, null);
+
+        assertEquals(1, cache.size());
+        assertEquals("two", getDescription(id));
+    }
+
+    @Test
+    public void testRenameInvalidates() {
+        String id = createDocument("folder", "doc.txt", "one");
+        assertEquals("one", getDescription(id));
+
+        PropertiesImpl properties = new PropertiesImpl();
+        properties.addProperty(new PropertyStringImpl(PropertyIds.NAME, "renamed.txt"));
+        Holder<String> holder = new Holder<String>(id);
+        repository.updateProperties(context, holder, properties, null);
+
+        // only the entry of the new shadow file is left
+        assertEquals("one", getDescription(holder.getValue()));
+        assertEquals(1, cache.size());
+
+        // a new document with the old name doesn't see the old properties
+        String newId = createDocument("folder", "doc.txt", "three");
+        assertEquals("three", getDescription(newId));
+    }
+
+    @Test
+    public void testMoveInvalidates() {
+        String id = createDocument("folder", "doc.txt", "one");
+        assertEquals("one", getDescription(id));
+        assertEquals(1, cache.size());
+
+        Holder<String> holder = new Holder<String>(id);
+        repository.moveObject(context, holder, getId(""), null);
+
+        // only the entry of the new shadow file is left
+        assertEquals("one", getDescription(holder.getValue()));
+        assertEquals(1, cache.size());
+        assertTrue(new File(root, "doc.txt" + FileShareRepository.SHADOW_EXT).isFile());
+    }
+
+    @Test
+    public void testDeleteInvalidates() {
+        String id = createDocument("folder", "doc.txt", "one");
+        assertEquals("one", getDescription(id));
+        assertEquals(1, cache.size());
+
+        repository.deleteObject(context, id);
+
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testDeleteTreeInvalidatesSubtree() {
+        assertTrue(new File(root, "other").mkdirs());
+        String id = createDocument("folder", "doc.txt", "one");
+        String otherId = createDocument("other", "doc.txt", "two");
+        assertEquals("one", getDescription(id));
+        assertEquals("two", getDescription(otherId));
+        assertEquals(2, cache.size());
+
+        repository.deleteTree(context, getId("folder"), false);
+
+        // the entries of other folders are kept
+        assertEquals(1, cache.size());
+        long hits = cache.getHits();
+        assertEquals("two", getDescription(otherId));
+        assertEquals(hits + 1, cache.getHits());
+    }
+
+    @Test
+    public void testFolderRenameInvalidatesSubtree() {
+        String id = createDocument("folder", "doc.txt", "one");
+        assertEquals("one", getDescription(id));
+        assertEquals(1, cache.size());
+
+        PropertiesImpl properties = new PropertiesImpl();
+        properties.addProperty(new PropertyStringImpl(PropertyIds.NAME, "renamed"));
+        repository.updateProperties(context, new Holder<String>(getId("folder")), properties, null);
+
+        // the old path of the shadow file is not cached anymore
+        File renamedPropFile = new File(root, "renamed/doc.txt" + FileShareRepository.SHADOW_EXT);
+        assertNull(cache.get(new File(root, "folder/doc.txt" + FileShareRepository.SHADOW_EXT),
+                renamedPropFile.lastModified(), renamedPropFile.length()));
+        assertEquals("one", getDescription(getId("renamed/doc.txt")));
+    }
+
+    @Test
+    public void testFolderMoveInvalidatesSubtree() {
+        assertTrue(new File(root, "target").mkdirs());
+        String id = createDocument("folder", "doc.txt", "one");
+        assertEquals("one", getDescription(id));
+        assertEquals(1, cache.size());
+
+        repository.moveObject(context, new Holder<String>(getId("folder")), getId("target"), null);
+
+        File movedPropFile = new File(root, "target/folder/doc.txt" + FileShareRepository.SHADOW_EXT);
+        assertNull(cache.get(new File(root, "folder/doc.txt" + FileShareRepository.SHADOW_EXT),
+                movedPropFile.lastModified(), movedPropFile.length()));
+        assertEquals("one", getDescription(getId("target/folder/doc.txt")));
+    }
+
+    @Test
+    public void testExternalEdit() throws Exception {
+        String id = createDocument("folder", "doc.txt", "one");
+        assertEquals("one", getDescription(id));
+
+        File propFile = new File(root, "folder/doc.txt" + FileShareRepository.SHADOW_EXT);
+        long lastModified = propFile.lastModified();
+
+        // same size, different modification date
+        editShadowFile(propFile, "one", "two");
+        assertTrue(propFile.setLastModified(lastModified + 2000));
+        assertEquals("two", getDescription(id));
+
+        // different size, same modification date
+        editShadowFile(propFile, "two", "three");
+        assertTrue(propFile.setLastModified(lastModified + 2000));
+        assertEquals("three", getDescription(id));
+    }
+
+    /**
+     * Creates a file and its shadow file. The shadow file contains the
+     * description or, if the description is {@code null}, the name.
+     */
+    private String createDocument(String folder, String name, String description) {
+        String path = folder + "/" + name;
+        try {
+            assertTrue(new File(root, path).createNewFile());
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+
+        PropertiesImpl properties = new PropertiesImpl();
+        if (description == null) {
+            properties.addProperty(new PropertyStringImpl(PropertyIds.NAME, name));
+        } else {
+            properties.addProperty(new PropertyStringImpl(PropertyIds.DESCRIPTION, description));
+        }
+        repository.updateProperties(context, new Holder<String>(getId(path)), properties, null);
+
+        return getId(path);
+    }
+
+    private String getDescription(String id) {
+        ObjectData object = repository.getObject(context, id, null, null, false, false, null);
+        PropertyData<?> description = object.getProperties().getProperties().get(PropertyIds.DESCRIPTION);
+        return description == null ? null : (String) description.getFirstValue();
+    }
+
+    private static String getId(String path) {
+        if (path.length() == 0) {
+            return "@root@";
+        }
+
+        try {
+            return Base64.encodeBytes(("/" + path).getBytes("UTF-8"));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void editShadowFile(File propFile, String oldValue, String newValue) throws Exception {
+        String xml = new String(Files.readAllBytes(propFile.toPath()), IOUtils.UTF8);
+        assertTrue(xml.contains(">" + oldValue + "<"));
+        Files.write(propFile.toPath(), xml.replace(">" + oldValue + "<", ">" + newValue + "<").getBytes(IOUtils.UTF8));
+    }
+
+    private static List<PropertyData<?>> createProperties(String description) {
+        List<PropertyData<?>> properties = new ArrayList<PropertyData<?>>();
+        properties.add(new PropertyStringImpl(PropertyIds.DESCRIPTION, description));
+        return properties;
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,289 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.fileshare;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.data.Properties;
+import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertiesImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyIdImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyIntegerImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyStringImpl;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FileShareQueryIndexTest {
+
+    private static final long TIMEOUT = 10000;
+
+    private File tempDir;
+    private File root;
+    private File indexDir;
+    private TestReader reader;
+    private FileShareQueryIndex index;
+
+    @Before
+    public void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("opencmis-index").toFile();
+        root = new File(tempDir, "root");
+        indexDir = new File(tempDir, "index");
+
+        createFile("a.txt", 5);
+        assertTrue(new File(root, "folder").mkdirs());
+        createFile("folder/b.txt", 10);
+
+        reader = new TestReader(root);
+        index = new FileShareQueryIndex(root, indexDir, reader);
+    }
+
+    @After
+    public void tearDown() {
+        index.close();
+        delete(tempDir);
+    }
+
+    @Test
+    public void testBuildAndReconcile() throws Exception {
+        index.start(0);
+        index.awaitReconciliation(TIMEOUT);
+
+        assertEquals(4, index.size());
+        assertNotNull(index.getEntry("/"));
+        assertTrue(index.getEntry("/folder").isFolder());
+        assertEquals("/folder", index.getEntry("/folder/b.txt").getParentPath());
+        assertEquals(1, index.getDescendants("/folder").size());
+        assertEquals(BigInteger.valueOf(10),
+                index.getEntry("/folder/b.txt").getFirstValue(PropertyIds.CONTENT_STREAM_LENGTH));
+
+        // change the file system behind the index's back
+        assertTrue(new File(root, "a.txt").delete());
+        createFile("c.txt", 3);
+        createFile("folder/b.txt", 20);
+
+        index.reconcile();
+
+        assertNull(index.getEntry("/a.txt"));
+        assertNotNull(index.getEntry("/c.txt"));
+        assertEquals(BigInteger.valueOf(20),
+                index.getEntry("/folder/b.txt").getFirstValue(PropertyIds.CONTENT_STREAM_LENGTH));
+
+        // the changes have been compacted into a new snapshot
+        assertEquals(0, index.getJournalRecords());
+        File snapshot = new File(indexDir, "index.snapshot");
+        assertTrue(snapshot.isFile());
+
+        // nothing changed, so no snapshot is written
+        assertTrue(snapshot.delete());
+        reader.reads.clear();
+        index.reconcile();
+        assertTrue(reader.reads.isEmpty());
+        assertFalse(snapshot.exists());
+    }
+
+    @Test
+    public void testJournal() throws Exception {
+        index.start(0);
+        index.awaitReconciliation(TIMEOUT);
+
+        File journal = new File(indexDir, "index.journal");
+        int records = index.getJournalRecords();
+        long length = journal.length();
+
+        File file = createFile("d.txt", 1);
+        index.update(file);
+        assertEquals(records + 1, index.getJournalRecords());
+        assertTrue(journal.length() > length);
+        assertNotNull(index.getEntry("/d.txt"));
+
+        index.remove(file);
+        assertEquals(records + 2, index.getJournalRecords());
+        assertNull(index.getEntry("/d.txt"));
+
+        // removing a tree removes all descendants
+        index.removeTree(new File(root, "folder"));
+        assertEquals(records + 3, index.getJournalRecords());
+        assertNull(index.getEntry("/folder"));
+        assertNull(index.getEntry("/folder/b.txt"));
+
+        index.updateTree(new File(root, "folder"));
+        assertNotNull(index.getEntry("/folder/b.txt"));
+    }
+
+    @Test
+    public void testCrashReplay() throws Exception {
+        index.start(0);
+        index.awaitReconciliation(TIMEOUT);
+
+        File file = createFile("d.txt", 7);
+        index.update(file);
+        index.update(root);
+
+        // simulate a crash while a record was written
+        OutputStream out = new FileOutputStream(new File(indexDir, "index.journal"), true);
+        try {
+            out.write(new byte[] { 1, 0, 10, '/' });
+        } finally {
+            out.close();
+        }
+
+        // don't close the first index, a crashed server doesn't do that either
+        TestReader reader2 = new TestReader(root);
+        FileShareQueryIndex index2 = new FileShareQueryIndex(root, indexDir, reader2);
+        try {
+            index2.start(0);
+
+            // the journals have been merged into a new snapshot
+            assertFalse(new File(indexDir, "index.journal.old").exists());
+            assertTrue(new File(indexDir, "index.snapshot").isFile());
+
+            index2.awaitReconciliation(TIMEOUT);
+
+            // the replayed entries are up to date and haven't been read again
+            assertEquals(BigInteger.valueOf(7),
+                    index2.getEntry("/d.txt").getFirstValue(PropertyIds.CONTENT_STREAM_LENGTH));
+            assertFalse(reader2.reads.contains("/d.txt"));
+            assertFalse(reader2.reads.contains("/"));
+            assertEquals(5, index2.size());
+        } finally {
+            index2.close();
+        }
+    }
+
+    @Test
+    public void testCompaction() throws Exception {
+        index.start(0);
+        index.awaitReconciliation(TIMEOUT);
+        index.setCompactRecords(5);
+
+        for (int i = 0; i < 10; i++) {
+            index.update(createFile("f" + i + ".txt", i));
+        }
+
+        index.awaitCompaction();
+
+        assertTrue(index.getJournalRecords() < 10);
+        assertFalse(new File(indexDir, "index.journal.old").exists());
+        assertEquals(14, index.size());
+
+        index.close();
+
+        // the snapshot and the journal contain everything
+        TestReader reader2 = new TestReader(root);
+        FileShareQueryIndex index2 = new FileShareQueryIndex(root, indexDir, reader2);
+        try {
+            index2.start(0);
+            index2.awaitReconciliation(TIMEOUT);
+
+            assertEquals(14, index2.size());
+            for (int i = 0; i < 10; i++) {
+                assertFalse(reader2.reads.contains("/f" + i + ".txt"));
+            }
+        } finally {
+            index2.close();
+        }
+    }
+
+    private File createFile(String path, int length) throws IOException {
+        File file = new File(root, path);
+        file.getParentFile().mkdirs();
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(new byte[length]);
+        } finally {
+            out.close();
+        }
+        return file;
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    /**
+     * Derives the properties from the file system and records which files
+     * have been read.
+     */
+    static class TestReader implements FileShareQueryIndex.PropertiesReader {
+
+        private final File root;
+        private final Map<String, String> descriptions;
+        final Set<String> reads = Collections.synchronizedSet(new HashSet<String>());
+
+        public TestReader(File root) {
+            this(root, new HashMap<String, String>());
+        }
+
+        public TestReader(File root, Map<String, String> descriptions) {
+            this.root = root;
+            this.descriptions = descriptions;
+        }
+
+        @Override
+        public Properties readProperties(File file) {
+            String path = file.getAbsolutePath().substring(root.getAbsolutePath().length())
+                    .replace(File.separatorChar, '/');
+            if (path.length() == 0) {
+                path = "/";
+            }
+            reads.add(path);
+
+            PropertiesImpl result = new PropertiesImpl();
+            if (file.isDirectory()) {
+                result.addProperty(new PropertyIdImpl(PropertyIds.OBJECT_TYPE_ID, BaseTypeId.CMIS_FOLDER.value()));
+            } else {
+                result.addProperty(new PropertyIdImpl(PropertyIds.OBJECT_TYPE_ID, BaseTypeId.CMIS_DOCUMENT.value()));
+                result.addProperty(new PropertyIntegerImpl(PropertyIds.CONTENT_STREAM_LENGTH, BigInteger
+                        .valueOf(file.length())));
+            }
+            result.addProperty(new PropertyStringImpl(PropertyIds.NAME, file.getName()));
+
+            String description = descriptions.get(file.getName());
+            if (description != null) {
+                result.addProperty(new PropertyStringImpl(PropertyIds.DESCRIPTION, description));
+            }
+
+            return result;
+        }
+    }
+}
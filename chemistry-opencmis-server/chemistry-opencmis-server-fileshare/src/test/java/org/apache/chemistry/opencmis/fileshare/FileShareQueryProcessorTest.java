@@ -0,0 +1,230 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.fileshare;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.data.ObjectData;
+import org.apache.chemistry.opencmis.commons.data.ObjectList;
+import org.apache.chemistry.opencmis.commons.enums.CmisVersion;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisInvalidArgumentException;
+import org.apache.chemistry.opencmis.commons.impl.Base64;
+import org.apache.chemistry.opencmis.commons.server.CallContext;
+import org.apache.chemistry.opencmis.server.impl.CallContextImpl;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FileShareQueryProcessorTest {
+
+    private File tempDir;
+    private FileShareTypeManager typeManager;
+    private FileShareRepository repository;
+    private FileShareQueryIndex index;
+
+    @Before
+    public void setUp() throws Exception {
+        tempDir = Files.createTempDirectory("opencmis-query").toFile();
+        File root = new File(tempDir, "root");
+        assertTrue(new File(root, "folder").mkdirs());
+
+        createFile(root, "doc1.txt", 10);
+        createFile(root, "doc2.txt", 20);
+        createFile(root, "doc3.txt", 30);
+        createFile(root, "folder/doc4.txt", 40);
+
+        Map<String, String> descriptions = new HashMap<String, String>();
+        descriptions.put("doc1.txt", "alpha report");
+        descriptions.put("doc2.txt", "beta summary");
+        descriptions.put("doc4.txt", "alpha notes");
+        // doc3.txt has no description
+
+        typeManager = new FileShareTypeManager();
+        repository = new FileShareRepository("test", root.getAbsolutePath(), typeManager);
+        index = new FileShareQueryIndex(root, new File(tempDir, "index"), new FileShareQueryIndexTest.TestReader(
+                root, descriptions));
+        index.start(0);
+        index.awaitReconciliation(10000);
+    }
+
+    @After
+    public void tearDown() {
+        index.close();
+        delete(tempDir);
+    }
+
+    @Test
+    public void testLike() {
+        assertMatches("cmis:description LIKE 'alpha%'", "doc1.txt", "doc4.txt");
+        assertMatches("cmis:description LIKE 'beta_summary'", "doc2.txt");
+        assertMatches("cmis:description LIKE '%a%' AND cmis:description LIKE '%s'", "doc4.txt");
+        assertMatches("cmis:name LIKE 'doc_.txt'", "doc1.txt", "doc2.txt", "doc3.txt", "doc4.txt");
+    }
+
+    @Test
+    public void testNotLike() {
+        // doc3.txt has no description and must not match
+        assertMatches("cmis:description NOT LIKE 'alpha%'", "doc2.txt");
+        assertMatches("NOT (cmis:description LIKE 'alpha%')", "doc2.txt", "doc3.txt");
+    }
+
+    @Test
+    public void testIn() {
+        assertMatches("cmis:name IN ('doc1.txt', 'doc3.txt')", "doc1.txt", "doc3.txt");
+        assertMatches("cmis:description IN ('beta summary', 'unknown')", "doc2.txt");
+    }
+
+    @Test
+    public void testNotIn() {
+        // doc3.txt has no description and must not match
+        assertMatches("cmis:description NOT IN ('beta summary')", "doc1.txt", "doc4.txt");
+        assertMatches("cmis:name NOT IN ('doc1.txt', 'doc2.txt')", "doc3.txt", "doc4.txt");
+    }
+
+    @Test
+    public void testComparison() {
+        assertMatches("cmis:contentStreamLength = 30", "doc3.txt");
+        assertMatches("cmis:contentStreamLength <> 30", "doc1.txt", "doc2.txt", "doc4.txt");
+        assertMatches("cmis:contentStreamLength > 20", "doc3.txt", "doc4.txt");
+        assertMatches("cmis:contentStreamLength >= 20", "doc2.txt", "doc3.txt", "doc4.txt");
+        assertMatches("cmis:contentStreamLength < 20", "doc1.txt");
+        assertMatches("cmis:contentStreamLength <= 20", "doc1.txt", "doc2.txt");
+        assertMatches("cmis:name > 'doc2.txt' OR cmis:contentStreamLength = 10", "doc1.txt", "doc3.txt",
+                "doc4.txt");
+
+        // unset properties never match a comparison
+        assertMatches("cmis:description = 'beta summary'", "doc2.txt");
+        assertMatches("cmis:description <> 'beta summary'", "doc1.txt", "doc4.txt");
+        assertMatches("cmis:description > 'a'", "doc1.txt", "doc2.txt", "doc4.txt");
+    }
+
+    @Test
+    public void testNull() {
+        assertMatches("cmis:description IS NULL", "doc3.txt");
+        assertMatches("cmis:description IS NOT NULL", "doc1.txt", "doc2.txt", "doc4.txt");
+    }
+
+    @Test
+    public void testFolders() throws Exception {
+        String folderId = Base64.encodeBytes("/folder".getBytes("UTF-8"));
+
+        assertMatches("IN_FOLDER('" + folderId + "')", "doc4.txt");
+        assertMatches("IN_TREE('" + folderId + "')", "doc4.txt");
+        assertMatches("IN_FOLDER('@root@')", "doc1.txt", "doc2.txt", "doc3.txt");
+        assertMatches("IN_TREE('@root@') AND cmis:description LIKE 'alpha%'", "doc1.txt", "doc4.txt");
+    }
+
+    @Test
+    public void testPaging() {
+        ObjectList list = createProcessor().query(
+                "SELECT cmis:name FROM cmis:document ORDER BY cmis:contentStreamLength DESC", false, false,
+                BigInteger.valueOf(2), BigInteger.ONE);
+
+        assertEquals(BigInteger.valueOf(4), list.getNumItems());
+        assertTrue(list.hasMoreItems());
+        assertEquals(2, list.getObjects().size());
+        assertEquals("doc3.txt", getName(list.getObjects().get(0)));
+        assertEquals("doc2.txt", getName(list.getObjects().get(1)));
+    }
+
+    @Test
+    public void testUnsupported() {
+        try {
+            createProcessor().query("SELECT * FROM cmis:document WHERE CONTAINS('alpha')", false, false, null,
+                    null);
+            fail("Full-text search should not be supported!");
+        } catch (CmisInvalidArgumentException e) {
+            // expected
+        }
+
+        try {
+            createProcessor().query("SELECT * FROM cmis:document WHERE cmis:contentStreamLength LIKE '1%'", false,
+                    false, null, null);
+            fail("LIKE should not be allowed on integers!");
+        } catch (CmisInvalidArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testQueryable() {
+        // types are only queryable if the repository has a query index
+        assertFalse(typeManager.getInternalTypeDefinition("cmis:document").isQueryable());
+        CallContext context = new CallContextImpl(CallContext.BINDING_BROWSER, CmisVersion.CMIS_1_1, "test", null,
+                null, null, null, null);
+        assertFalse(typeManager.getTypeDefinition(context, "cmis:document", false).isQueryable());
+        assertTrue(typeManager.getTypeDefinition(context, "cmis:document", true).isQueryable());
+    }
+
+    private FileShareQueryProcessor createProcessor() {
+        return new FileShareQueryProcessor(repository, typeManager, index, CmisVersion.CMIS_1_1);
+    }
+
+    private void assertMatches(String where, String... names) {
+        ObjectList list = createProcessor().query("SELECT cmis:name FROM cmis:document WHERE " + where, false,
+                false, null, null);
+
+        Set<String> result = new TreeSet<String>();
+        for (ObjectData object : list.getObjects()) {
+            result.add(getName(object));
+        }
+
+        assertEquals(where, new TreeSet<String>(Arrays.asList(names)), result);
+        assertEquals(BigInteger.valueOf(names.length), list.getNumItems());
+    }
+
+    private static String getName(ObjectData object) {
+        return (String) object.getProperties().getProperties().get(PropertyIds.NAME).getFirstValue();
+    }
+
+    private static void createFile(File root, String path, int length) throws IOException {
+        OutputStream out = new FileOutputStream(new File(root, path));
+        try {
+            out.write(new byte[length]);
+        } finally {
+            out.close();
+        }
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.fileshare;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.file.Files;
+
+import org.apache.chemistry.opencmis.commons.data.ContentStream;
+import org.apache.chemistry.opencmis.commons.data.FileContentStream;
+import org.apache.chemistry.opencmis.commons.enums.CmisVersion;
+import org.apache.chemistry.opencmis.commons.impl.Base64;
+import org.apache.chemistry.opencmis.commons.impl.IOUtils;
+import org.apache.chemistry.opencmis.commons.server.CallContext;
+import org.apache.chemistry.opencmis.server.impl.CallContextImpl;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LazyFileInputStreamTest {
+
+    private static final String USER = "test";
+
+    private File tempDir;
+
+    @Before
+    public void setUp() throws Exception {
+        tempDir = Files.createTempDirectory("opencmis-content").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        File[] children = tempDir.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                child.delete();
+            }
+        }
+        tempDir.delete();
+    }
+
+    @Test
+    public void testNotOpenedIfNotRead() throws Exception {
+        LazyFileInputStream stream = new LazyFileInputStream(new File(tempDir, "missing.txt"), null, null);
+        assertFalse(stream.isOpen());
+        stream.close();
+        assertFalse(stream.isOpen());
+
+        stream = new LazyFileInputStream(new File(tempDir, "missing.txt"), null, null);
+        try {
+            stream.read();
+            fail("Missing file not detected!");
+        } catch (FileNotFoundException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testContentStream() throws Exception {
+        File file = new File(tempDir, "doc.txt");
+        Files.write(file.toPath(), IOUtils.toUTF8Bytes("0123456789"));
+
+        FileShareRepository repository = new FileShareRepository("test", tempDir.getAbsolutePath(),
+                new FileShareTypeManager());
+        repository.setUserReadWrite(USER);
+
+        CallContextImpl context = new CallContextImpl(CallContext.BINDING_BROWSER, CmisVersion.CMIS_1_1, "test",
+                null, null, null, null, null);
+        context.put(CallContext.USERNAME, USER);
+
+        String id = Base64.encodeBytes("/doc.txt".getBytes("UTF-8"));
+
+        ContentStream content = repository.getContentStream(context, id, null, null);
+        assertTrue(content instanceof FileContentStream);
+        assertEquals(file, ((FileContentStream) content).getFile());
+        assertFalse(((LazyFileInputStream) content.getStream()).isOpen());
+        assertEquals("0123456789", read(content.getStream()));
+
+        content = repository.getContentStream(context, id, BigInteger.valueOf(2), BigInteger.valueOf(5));
+        assertEquals(5, content.getLength());
+        assertEquals("23456", read(content.getStream()));
+    }
+
+    private static String read(InputStream stream) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            IOUtils.copy(stream, out);
+        } finally {
+            stream.close();
+        }
+        return new String(out.toByteArray(), "UTF-8");
+    }
+}
@@ -42,10 +42,20 @@ public final class ConfigConstants {
     public static final String FILLER_DOCUMENT_PROPERTY = "RepositoryFiller.DocumentProperty.";
     public static final String FILLER_FOLDER_PROPERTY = "RepositoryFiller.FolderProperty.";
     public static final String CONTENT_KIND = "RepositoryFiller.ContentKind";
+    public static final String FILLER_PARALLEL = "RepositoryFiller.Parallel";
+    public static final String FILLER_THREADS = "RepositoryFiller.Threads";
 
     // runtime configuration values
     public static final String MAX_CONTENT_SIZE_KB = "InMemoryServer.MaxContentSizeKB";
+    public static final String CONTENT_STORE = "InMemoryServer.ContentStore";
+    public static final String CONTENT_CHUNK_SIZE_KB = "InMemoryServer.ContentChunkSizeKB";
+    public static final String QUERY_INDEX_HASH = "InMemoryServer.QueryIndex.Hash";
+    public static final String QUERY_INDEX_SORTED = "InMemoryServer.QueryIndex.Sorted";
+    public static final String CHANGE_LOG_CAPACITY = "InMemoryServer.ChangeLogCapacity";
     public static final String CLEAN_REPOSITORY_INTERVAL = "InMemoryServer.CleanIntervalMinutes";
+    public static final String SNAPSHOT_DIR = "InMemoryServer.SnapshotDir";
+    public static final String SNAPSHOT_INTERVAL = "InMemoryServer.SnapshotIntervalSeconds";
+    public static final String SNAPSHOT_LOAD_THREADS = "InMemoryServer.SnapshotLoadThreads";
     public static final String DEPLOYMENT_TIME = "InMemoryServer.DeploymentTime";
     public static final String PARSER_MODE = "InMemoryServer.ParserMode";
 
@@ -0,0 +1,229 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.inmemory.content;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.data.ContentStream;
+import org.apache.chemistry.opencmis.commons.data.PropertyData;
+import org.apache.chemistry.opencmis.commons.definitions.DocumentTypeDefinition;
+import org.apache.chemistry.opencmis.commons.definitions.TypeDefinition;
+import org.apache.chemistry.opencmis.commons.definitions.TypeDefinitionContainer;
+import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
+import org.apache.chemistry.opencmis.commons.enums.VersioningState;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisInvalidArgumentException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisObjectNotFoundException;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.Folder;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.StoredObject;
+import org.apache.chemistry.opencmis.inmemory.storedobj.impl.ObjectStoreImpl;
+import org.apache.chemistry.opencmis.server.support.TypeManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Creates the folder hierarchy of an {@link ObjectGenerator} in parallel.
+ * <p>
+ * The objects are inserted directly into the object store and bypass the
+ * services: the types are validated once before the hierarchy is created, the
+ * individual objects are neither validated nor checked for permissions and
+ * don't get default property values. Each folder is a fork/join task that
+ * creates its child folders, then builds the subtrees of the children and the
+ * documents of the folder concurrently. Names, properties and content are
+ * created by the {@link ObjectGenerator}.
+ */
+public class BulkObjectGenerator {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BulkObjectGenerator.class);
+    private static final String USER = "unknown";
+
+    private final ObjectGenerator fGenerator;
+    private final ObjectStoreImpl fStore;
+    private final int fParallelism;
+    private final boolean fVersionable;
+    private final AtomicInteger fDocumentsInTotalCount = new AtomicInteger();
+    private final AtomicInteger fFoldersInTotalCount = new AtomicInteger();
+
+    /**
+     * @param generator
+     *            generator providing the configuration, names, properties
+     *            and content of the objects
+     * @param store
+     *            object store to fill
+     * @param typeManager
+     *            type manager of the repository
+     * @param parallelism
+     *            number of threads creating objects
+     */
+    public BulkObjectGenerator(ObjectGenerator generator, ObjectStoreImpl store, TypeManager typeManager,
+            int parallelism) {
+        fGenerator = generator;
+        fStore = store;
+        fParallelism = Math.max(1, parallelism);
+
+        getType(typeManager, generator.getFolderTypeId(), BaseTypeId.CMIS_FOLDER);
+        TypeDefinition docType = getType(typeManager, generator.getDocumentTypeId(), BaseTypeId.CMIS_DOCUMENT);
+        fVersionable = Boolean.TRUE.equals(((DocumentTypeDefinition) docType).isVersionable());
+    }
+
+    private static TypeDefinition getType(TypeManager typeManager, String typeId, BaseTypeId baseTypeId) {
+        TypeDefinitionContainer tc = typeManager.getTypeById(typeId);
+        if (null == tc) {
+            throw new CmisObjectNotFoundException("Unknown type id: " + typeId);
+        }
+        if (tc.getTypeDefinition().getBaseTypeId() != baseTypeId) {
+            throw new CmisInvalidArgumentException("Type " + typeId + " is not a " + baseTypeId.value() + " type.");
+        }
+        return tc.getTypeDefinition();
+    }
+
+    /**
+     * Creates a folder hierarchy with documents below a folder.
+     *
+     * @param levels
+     *            number of folder levels
+     * @param childrenPerLevel
+     *            number of child folders of each folder
+     * @param rootFolderId
+     *            id of the folder to create the hierarchy in
+     */
+    public void createFolderHierachy(int levels, int childrenPerLevel, String rootFolderId) {
+        StoredObject root = fStore.getObjectById(rootFolderId);
+        if (!(root instanceof Folder)) {
+            throw new CmisObjectNotFoundException("Unknown folder: " + rootFolderId);
+        }
+
+        resetCounters();
+        ForkJoinPool pool = new ForkJoinPool(fParallelism);
+        try {
+            pool.invoke(new FolderTask((Folder) root, 0, levels, childrenPerLevel));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Returns the total number of documents created.
+     */
+    public int getDocumentsInTotal() {
+        return fDocumentsInTotalCount.get();
+    }
+
+    /**
+     * Returns the total number of folders created.
+     */
+    public int getFoldersInTotal() {
+        return fFoldersInTotalCount.get();
+    }
+
+    /**
+     * Returns the total number of objects created.
+     */
+    public int getObjectsInTotal() {
+        return getDocumentsInTotal() + getFoldersInTotal();
+    }
+
+    public void resetCounters() {
+        fDocumentsInTotalCount.set(0);
+        fFoldersInTotalCount.set(0);
+    }
+
+    private static String getName(Map<String, PropertyData<?>> properties) {
+        return (String) properties.get(PropertyIds.NAME).getFirstValue();
+    }
+
+    /**
+     * Creates the child folders of a folder and forks the tasks that fill the
+     * children and create the documents of the folder.
+     */
+    private class FolderTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Folder fFolder;
+        private final int fLevel;
+        private final int fLevels;
+        private final int fChildrenPerLevel;
+
+        public FolderTask(Folder folder, int level, int levels, int childrenPerLevel) {
+            fFolder = folder;
+            fLevel = level;
+            fLevels = levels;
+            fChildrenPerLevel = childrenPerLevel;
+        }
+
+        @Override
+        protected void compute() {
+            if (fLevel >= fLevels) {
+                return;
+            }
+
+            LOG.debug(" create folder for parent id: " + fFolder.getId() + ", in level " + fLevel + ", max levels "
+                    + fLevels);
+
+            List<RecursiveAction> tasks = new ArrayList<RecursiveAction>(fChildrenPerLevel + 1);
+            for (int i = 0; i < fChildrenPerLevel; i++) {
+                Map<String, PropertyData<?>> props = fGenerator.createFolderProperties(i, fLevel).getProperties();
+                Folder child = fStore.createFolder(getName(props), props, USER, fFolder, null, null, null);
+                fFoldersInTotalCount.incrementAndGet();
+                tasks.add(new FolderTask(child, fLevel + 1, fLevels, fChildrenPerLevel));
+            }
+            if (fGenerator.getNumberOfDocumentsToCreatePerFolder() > 0) {
+                tasks.add(new DocumentTask(fFolder, fLevel));
+            }
+            invokeAll(tasks);
+        }
+    }
+
+    /**
+     * Creates the documents of a folder.
+     */
+    private class DocumentTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Folder fFolder;
+        private final int fLevel;
+
+        public DocumentTask(Folder folder, int level) {
+            fFolder = folder;
+            fLevel = level;
+        }
+
+        @Override
+        protected void compute() {
+            for (int j = 0; j < fGenerator.getNumberOfDocumentsToCreatePerFolder(); j++) {
+                Map<String, PropertyData<?>> props = fGenerator.createDocumentProperties(j, fLevel).getProperties();
+                ContentStream content = fGenerator.createContent();
+                if (fVersionable) {
+                    fStore.createVersionedDocument(getName(props), props, USER, fFolder, null, null, null, content,
+                            VersioningState.MAJOR);
+                } else {
+                    fStore.createDocument(props, USER, fFolder, content, null, null, null);
+                }
+                fDocumentsInTotalCount.incrementAndGet();
+            }
+        }
+    }
+}
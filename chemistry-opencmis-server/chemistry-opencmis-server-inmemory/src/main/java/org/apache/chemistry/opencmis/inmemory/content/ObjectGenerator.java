@@ -377,7 +377,6 @@ public class ObjectGenerator {
     }
 
     private String createDocument(String folderId, int no, int level) {
-        ContentStream contentStream = null;
         VersioningState versioningState = VersioningState.NONE;
         List<String> policies = null;
         Acl addACEs = null;
@@ -388,6 +387,24 @@ public class ObjectGenerator {
         Properties props = createDocumentProperties(no, level);
         String id = null;
 
+        ContentStream contentStream = createContent();
+
+        id = fObjSvc.createDocument(fRepositoryId, props, folderId, contentStream, versioningState, policies, addACEs,
+                removeACEs, extension);
+
+        if (null == id) {
+            LOG.error("createDocument failed.");
+        }
+        ++fDocumentsInTotalCount;
+        return id;
+    }
+
+    /**
+     * Creates the configured content of a document or returns {@code null}
+     * if documents are created without content.
+     */
+    ContentStream createContent() {
+        ContentStream contentStream = null;
         if (fContentSizeInK > 0) {
             switch (fContentKind) {
             case STATIC_TEXT:
@@ -404,15 +421,19 @@ public class ObjectGenerator {
                 break;
             }
         }
+        return contentStream;
+    }
 
-        id = fObjSvc.createDocument(fRepositoryId, props, folderId, contentStream, versioningState, policies, addACEs,
-                removeACEs, extension);
+    int getNumberOfDocumentsToCreatePerFolder() {
+        return fNoDocumentsToCreate;
+    }
 
-        if (null == id) {
-            LOG.error("createDocument failed.");
-        }
-        ++fDocumentsInTotalCount;
-        return id;
+    String getDocumentTypeId() {
+        return fDocTypeId;
+    }
+
+    String getFolderTypeId() {
+        return fFolderTypeId;
     }
 
     private void deleteTree() {
@@ -480,7 +501,7 @@ public class ObjectGenerator {
         return content;
     }
 
-    public ContentStream createContentFractalimageJpeg() {
+    public synchronized ContentStream createContentFractalimageJpeg() {
         if (null == fractalGenerator) {
             fractalGenerator = new FractalGenerator();
         }
@@ -502,7 +523,7 @@ public class ObjectGenerator {
         return content;
     }
 
-    private Properties createFolderProperties(int no, int level) {
+    Properties createFolderProperties(int no, int level) {
         List<PropertyData<?>> properties = new ArrayList<PropertyData<?>>();
         properties.add(fFactory.createPropertyStringData(PropertyIds.NAME, generateFolderNameValue(no, level)));
         properties.add(fFactory.createPropertyIdData(PropertyIds.OBJECT_TYPE_ID, fFolderTypeId));
@@ -514,7 +535,7 @@ public class ObjectGenerator {
         return props;
     }
 
-    private Properties createDocumentProperties(int no, int level) {
+    Properties createDocumentProperties(int no, int level) {
         List<PropertyData<?>> properties = new ArrayList<PropertyData<?>>();
         properties.add(fFactory.createPropertyStringData(PropertyIds.NAME, generateDocNameValue(no, level)));
         properties.add(fFactory.createPropertyIdData(PropertyIds.OBJECT_TYPE_ID, fDocTypeId));
@@ -0,0 +1,447 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.inmemory.query;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.GregorianCalendar;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+
+import org.antlr.runtime.tree.Tree;
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.definitions.PropertyDefinition;
+import org.apache.chemistry.opencmis.commons.definitions.TypeDefinition;
+import org.apache.chemistry.opencmis.commons.definitions.TypeDefinitionContainer;
+import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
+import org.apache.chemistry.opencmis.commons.enums.Cardinality;
+import org.apache.chemistry.opencmis.commons.impl.DateTimeHelper;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.DocumentVersion;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.Folder;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.StoredObject;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.VersionedDocument;
+import org.apache.chemistry.opencmis.inmemory.storedobj.impl.ObjectStoreImpl;
+import org.apache.chemistry.opencmis.inmemory.storedobj.impl.PropertyIndex;
+import org.apache.chemistry.opencmis.server.support.TypeManager;
+import org.apache.chemistry.opencmis.server.support.query.AbstractPredicateWalker;
+import org.apache.chemistry.opencmis.server.support.query.CmisQlStrictLexer;
+import org.apache.chemistry.opencmis.server.support.query.CmisSelector;
+import org.apache.chemistry.opencmis.server.support.query.ColumnReference;
+import org.apache.chemistry.opencmis.server.support.query.QueryObject;
+import org.apache.chemistry.opencmis.server.support.query.StringUtil;
+
+/**
+ * Determines the objects a query has to be evaluated against. The planner uses
+ * the indexes of the object store where the query allows it:
+ * <ul>
+ * <li>the type index for the type in the FROM clause and its subtypes</li>
+ * <li>the type index and the object map for {@code cmis:objectTypeId} and
+ * {@code cmis:objectId} compared with {@code =} or {@code IN}</li>
+ * <li>the children index for {@code IN_FOLDER} and {@code IN_TREE}</li>
+ * <li>configured property indexes for {@code =}, {@code IN}, {@code = ANY},
+ * {@code ANY ... IN} and, for sorted indexes, {@code <, <=, >, >=}</li>
+ * </ul>
+ * Conditions combined with {@code AND} narrow the candidates if at least one
+ * side is indexed, conditions combined with {@code OR} only if both sides are
+ * indexed. The candidates are a superset of the result; the query processor
+ * still evaluates the complete WHERE clause against each of them.
+ */
+public class InMemoryQueryPlanner {
+
+    /** Walker that is only used to evaluate literals. */
+    private static final AbstractPredicateWalker LITERALS = new AbstractPredicateWalker() {
+    };
+
+    private final ObjectStoreImpl objStore;
+    private final TypeManager tm;
+    private final QueryObject queryObj;
+    private final StringBuilder explanation = new StringBuilder();
+
+    public InMemoryQueryPlanner(ObjectStoreImpl objStore, TypeManager tm, QueryObject queryObj) {
+        this.objStore = objStore;
+        this.tm = tm;
+        this.queryObj = queryObj;
+    }
+
+    /**
+     * Returns the ids of the objects that may match the query or {@code null}
+     * if all objects have to be scanned.
+     */
+    public Collection<String> plan(Tree whereTree) {
+        Set<String> typeCandidates = planType();
+        Set<String> whereCandidates = null;
+        if (null != whereTree) {
+            whereCandidates = planPredicate(whereTree, 1);
+        }
+
+        Collection<String> result;
+        if (null == typeCandidates) {
+            result = whereCandidates;
+        } else if (null == whereCandidates) {
+            result = typeCandidates;
+        } else {
+            result = intersect(typeCandidates, whereCandidates);
+        }
+
+        if (null == result) {
+            explain(0, "full scan of " + objStore.getObjectCount() + " objects");
+        } else {
+            explain(0, "evaluate " + result.size() + " of " + objStore.getObjectCount() + " objects");
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns a description of the last plan, one step per line.
+     */
+    public String getExplanation() {
+        return explanation.toString();
+    }
+
+    private Set<String> planType() {
+        String queryName = queryObj.getTypes().values().iterator().next();
+        TypeDefinition td = queryObj.getTypeDefinitionFromQueryName(queryName);
+        if (null == td || td.getBaseTypeId() == BaseTypeId.CMIS_SECONDARY) {
+            explain(1, "type " + queryName + ": not indexed");
+            return null;
+        }
+
+        List<String> typeIds = new ArrayList<String>();
+        collectTypeIds(tm.getTypeById(td.getId()), typeIds);
+        if (typeIds.isEmpty()) {
+            typeIds.add(td.getId());
+        }
+
+        Set<String> result;
+        if (typeIds.size() == 1) {
+            result = objStore.getIdsOfType(typeIds.get(0));
+        } else {
+            result = new HashSet<String>();
+            for (String typeId : typeIds) {
+                result.addAll(objStore.getIdsOfType(typeId));
+            }
+        }
+
+        explain(1, "type " + td.getId() + " and " + (typeIds.size() - 1) + " subtypes: type index, " + result.size()
+                + " candidates");
+        return result;
+    }
+
+    private static void collectTypeIds(TypeDefinitionContainer tc, List<String> typeIds) {
+        if (null == tc) {
+            return;
+        }
+        typeIds.add(tc.getTypeDefinition().getId());
+        if (null != tc.getChildren()) {
+            for (TypeDefinitionContainer child : tc.getChildren()) {
+                collectTypeIds(child, typeIds);
+            }
+        }
+    }
+
+    private Set<String> planPredicate(Tree node, int depth) {
+        switch (node.getType()) {
+        case CmisQlStrictLexer.AND: {
+            explain(depth, "AND");
+            Set<String> left = planPredicate(node.getChild(0), depth + 1);
+            Set<String> right = planPredicate(node.getChild(1), depth + 1);
+            if (null == left) {
+                return right;
+            } else if (null == right) {
+                return left;
+            }
+            Set<String> result = intersect(left, right);
+            explain(depth, "AND: " + result.size() + " candidates");
+            return result;
+        }
+        case CmisQlStrictLexer.OR: {
+            explain(depth, "OR");
+            Set<String> left = planPredicate(node.getChild(0), depth + 1);
+            Set<String> right = planPredicate(node.getChild(1), depth + 1);
+            if (null == left || null == right) {
+                explain(depth, "OR: not indexed, one side needs a scan");
+                return null;
+            }
+            Set<String> result = new HashSet<String>(left);
+            result.addAll(right);
+            explain(depth, "OR: " + result.size() + " candidates");
+            return result;
+        }
+        case CmisQlStrictLexer.EQ:
+            return planEquals(node.getChild(0), node.getChild(1), Cardinality.SINGLE, depth);
+        case CmisQlStrictLexer.IN:
+            return planIn(node.getChild(0), node.getChild(1), Cardinality.SINGLE, depth);
+        case CmisQlStrictLexer.EQ_ANY:
+            return planEquals(node.getChild(1), node.getChild(0), Cardinality.MULTI, depth);
+        case CmisQlStrictLexer.IN_ANY:
+            return planIn(node.getChild(0), node.getChild(1), Cardinality.MULTI, depth);
+        case CmisQlStrictLexer.GT:
+            return planRange(node, false, false, depth);
+        case CmisQlStrictLexer.GTEQ:
+            return planRange(node, false, true, depth);
+        case CmisQlStrictLexer.LT:
+            return planRange(node, true, false, depth);
+        case CmisQlStrictLexer.LTEQ:
+            return planRange(node, true, true, depth);
+        case CmisQlStrictLexer.IN_FOLDER:
+            return planFolder(node, false, depth);
+        case CmisQlStrictLexer.IN_TREE:
+            return planFolder(node, true, depth);
+        default:
+            explain(depth, node.getText() + ": not indexed");
+            return null;
+        }
+    }
+
+    private Set<String> planEquals(Tree colNode, Tree literalNode, Cardinality cardinality, int depth) {
+        List<Object> literals = new ArrayList<Object>(1);
+        if (isLiteral(literalNode)) {
+            literals.add(LITERALS.walkExpr(literalNode));
+        }
+        return lookup(colNode, literals, cardinality, "=", depth);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Set<String> planIn(Tree colNode, Tree listNode, Cardinality cardinality, int depth) {
+        List<Object> literals = new ArrayList<Object>();
+        if (listNode.getType() == CmisQlStrictLexer.IN_LIST) {
+            literals.addAll((List<Object>) LITERALS.walkExpr(listNode));
+        }
+        return lookup(colNode, literals, cardinality, "IN", depth);
+    }
+
+    /**
+     * Looks up objects with one of the given values.
+     */
+    private Set<String> lookup(Tree colNode, List<Object> literals, Cardinality cardinality, String op, int depth) {
+        ColumnReference colRef = getColumnReference(colNode);
+        if (null == colRef || literals.isEmpty()) {
+            explain(depth, op + ": not indexed");
+            return null;
+        }
+
+        String propId = colRef.getPropertyId();
+        PropertyDefinition<?> pd = colRef.getPropertyDefinition();
+        String step = propId + " " + op + " " + formatLiterals(literals);
+
+        if (PropertyIds.OBJECT_ID.equals(propId) && cardinality == Cardinality.SINGLE) {
+            Set<String> result = new HashSet<String>();
+            for (Object literal : literals) {
+                if (literal instanceof String && null != objStore.getObjectById((String) literal)) {
+                    result.add((String) literal);
+                }
+            }
+            explain(depth, step + ": object map, " + result.size() + " candidates");
+            return result;
+        }
+
+        if (PropertyIds.OBJECT_TYPE_ID.equals(propId) && cardinality == Cardinality.SINGLE) {
+            Set<String> result = new HashSet<String>();
+            for (Object literal : literals) {
+                if (literal instanceof String) {
+                    result.addAll(objStore.getIdsOfType((String) literal));
+                }
+            }
+            explain(depth, step + ": type index, " + result.size() + " candidates");
+            return result;
+        }
+
+        PropertyIndex index = getPropertyIndex(colRef, cardinality);
+        if (null == index) {
+            explain(depth, step + ": not indexed");
+            return null;
+        }
+
+        Set<String> result = new HashSet<String>();
+        for (Object literal : literals) {
+            Object key = toKey(pd, literal);
+            if (null == key) {
+                explain(depth, step + ": literal " + formatLiteral(literal) + " doesn't match the property type, not indexed");
+                return null;
+            }
+            result.addAll(index.get(key));
+        }
+
+        explain(depth, step + ": " + index + ", " + result.size() + " candidates");
+        return result;
+    }
+
+    private Set<String> planRange(Tree node, boolean upperBound, boolean inclusive, int depth) {
+        Tree colNode = node.getChild(0);
+        Tree literalNode = node.getChild(1);
+        ColumnReference colRef = getColumnReference(colNode);
+        PropertyIndex index = null == colRef ? null : getPropertyIndex(colRef, Cardinality.SINGLE);
+        if (null == index || !index.isSorted() || !isLiteral(literalNode)) {
+            explain(depth, node.getText() + ": not indexed");
+            return null;
+        }
+
+        Object literal = LITERALS.walkExpr(literalNode);
+        Object key = toKey(colRef.getPropertyDefinition(), literal);
+        Set<String> result = null;
+        if (null != key) {
+            if (upperBound) {
+                result = index.getRange(null, false, key, inclusive);
+            } else {
+                result = index.getRange(key, inclusive, null, false);
+            }
+        }
+
+        String step = colRef.getPropertyId() + " " + node.getText() + " " + formatLiteral(literal);
+        if (null == result) {
+            explain(depth, step + ": literal doesn't match the property type, not indexed");
+        } else {
+            explain(depth, step + ": " + index + ", " + result.size() + " candidates");
+        }
+        return result;
+    }
+
+    private Set<String> planFolder(Tree node, boolean tree, int depth) {
+        Tree paramNode = node.getChildCount() == 1 ? node.getChild(0) : node.getChild(1);
+        Object folderId = isLiteral(paramNode) ? LITERALS.walkExpr(paramNode) : null;
+        if (!(folderId instanceof String)) {
+            explain(depth, node.getText() + ": not indexed");
+            return null;
+        }
+
+        Set<String> result = new HashSet<String>();
+        Set<String> visitedFolders = new HashSet<String>();
+        LinkedList<String> folders = new LinkedList<String>();
+        folders.add((String) folderId);
+
+        while (!folders.isEmpty()) {
+            String id = folders.removeFirst();
+            if (!visitedFolders.add(id)) {
+                continue;
+            }
+
+            for (String childId : objStore.getChildIds(id)) {
+                StoredObject child = objStore.getObjectById(childId);
+                if (child instanceof VersionedDocument) {
+                    // queries match the versions, not the version series
+                    for (DocumentVersion version : ((VersionedDocument) child).getAllVersions()) {
+                        result.add(version.getId());
+                    }
+                } else if (null != child) {
+                    result.add(childId);
+                    if (tree && child instanceof Folder) {
+                        folders.add(childId);
+                    }
+                }
+            }
+        }
+
+        explain(depth, node.getText() + "(" + folderId + "): children index, " + result.size() + " candidates");
+        return result;
+    }
+
+    private PropertyIndex getPropertyIndex(ColumnReference colRef, Cardinality cardinality) {
+        PropertyDefinition<?> pd = colRef.getPropertyDefinition();
+        if (null == pd || pd.getCardinality() != cardinality) {
+            // let the query processor report the error
+            return null;
+        }
+        return objStore.getPropertyIndex(colRef.getPropertyId());
+    }
+
+    private ColumnReference getColumnReference(Tree colNode) {
+        if (colNode.getType() != CmisQlStrictLexer.COL) {
+            return null;
+        }
+        CmisSelector sel = queryObj.getColumnReference(colNode.getTokenStartIndex());
+        return sel instanceof ColumnReference ? (ColumnReference) sel : null;
+    }
+
+    private static boolean isLiteral(Tree node) {
+        switch (node.getType()) {
+        case CmisQlStrictLexer.BOOL_LIT:
+        case CmisQlStrictLexer.NUM_LIT:
+        case CmisQlStrictLexer.STRING_LIT:
+        case CmisQlStrictLexer.TIME_LIT:
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * Converts a literal into an index key the way the query processor
+     * compares a literal with a property value. Returns {@code null} if the
+     * literal can't be compared with values of the property.
+     */
+    private static Object toKey(PropertyDefinition<?> pd, Object literal) {
+        switch (pd.getPropertyType()) {
+        case STRING:
+            return literal instanceof String ? StringUtil.unescape((String) literal, null) : null;
+        case ID:
+        case HTML:
+        case URI:
+            return literal instanceof String ? literal : null;
+        case INTEGER:
+            return literal instanceof Long ? literal : null;
+        case DECIMAL:
+            return literal instanceof Long || literal instanceof Double ? PropertyIndex.toKey(((Number) literal)
+                    .doubleValue()) : null;
+        case BOOLEAN:
+            return literal instanceof Boolean ? literal : null;
+        case DATETIME:
+            return literal instanceof GregorianCalendar ? PropertyIndex.toKey(literal) : null;
+        default:
+            return null;
+        }
+    }
+
+    private static Set<String> intersect(Set<String> set1, Set<String> set2) {
+        Set<String> smaller = set1.size() <= set2.size() ? set1 : set2;
+        Set<String> larger = smaller == set1 ? set2 : set1;
+
+        Set<String> result = new HashSet<String>();
+        for (String id : smaller) {
+            if (larger.contains(id)) {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+
+    private static String formatLiterals(List<Object> literals) {
+        List<String> result = new ArrayList<String>(literals.size());
+        for (Object literal : literals) {
+            result.add(formatLiteral(literal));
+        }
+        return result.toString();
+    }
+
+    private static String formatLiteral(Object literal) {
+        if (literal instanceof GregorianCalendar) {
+            return DateTimeHelper.formatXmlDateTime((GregorianCalendar) literal);
+        }
+        return String.valueOf(literal);
+    }
+
+    private void explain(int depth, String step) {
+        for (int i = 0; i < depth; i++) {
+            explanation.append("  ");
+        }
+        explanation.append(step).append('\n');
+    }
+}
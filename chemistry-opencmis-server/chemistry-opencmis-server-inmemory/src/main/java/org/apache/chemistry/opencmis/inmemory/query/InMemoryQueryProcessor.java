@@ -26,11 +26,13 @@ import java.io.UnsupportedEncodingException;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.GregorianCalendar;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.regex.Pattern;
 
 import org.antlr.runtime.tree.Tree;
@@ -76,12 +78,21 @@ import org.slf4j.LoggerFactory;
  * with all objects. In a first pass one time setup is performed, in a custom
  * walk across the query expression tree an object is checked if it matches. In
  * case of a match it is appended to a list of matching objects.
+ * <p>
+ * If only a page of the result is requested, not all matches are kept: with
+ * an ORDER BY clause only the first skipCount + maxItems matches in sort order
+ * are kept in a bounded heap, without an ORDER BY clause matching stops as
+ * soon as one match more than the page needs has been found.
  */
 public class InMemoryQueryProcessor {
 
     private static final Logger LOG = LoggerFactory.getLogger(InMemoryQueryProcessor.class);
 
     private List<StoredObject> matches = new ArrayList<StoredObject>();
+    private int maxMatches = Integer.MAX_VALUE;
+    private int matchCount;
+    private boolean truncated;
+    private PriorityQueue<RankedMatch> topMatches;
     private QueryObject queryObj;
     private Tree whereTree;
     private ObjectStoreImpl objStore;
@@ -128,10 +139,28 @@ public class InMemoryQueryProcessor {
 
         processQueryAndCatchExc(statement, tm); // calls query processor
 
-        // iterate over all the objects and check for each if the query matches
-        for (String objectId : ((ObjectStoreImpl) objectStore).getIds()) {
+        // use the indexes to find the objects that may match, or fall back to
+        // all objects, and check for each if the query matches
+        InMemoryQueryPlanner planner = new InMemoryQueryPlanner((ObjectStoreImpl) objectStore, tm, queryObj);
+        Collection<String> candidateIds = planner.plan(whereTree);
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Query plan for " + statement + ":\n" + planner.getExplanation());
+        }
+
+        if (null == candidateIds) {
+            candidateIds = ((ObjectStoreImpl) objectStore).getIds();
+        }
+        limitMatches(maxItems, skipCount);
+        for (String objectId : candidateIds) {
+            if (null == topMatches && matches.size() > maxMatches) {
+                // one more match than the requested page has been found
+                truncated = true;
+                break;
+            }
             StoredObject so = objectStore.getObjectById(objectId);
-            match(so, user, searchAllVersions == null ? true : searchAllVersions.booleanValue());
+            if (null != so) {
+                match(so, user, searchAllVersions == null ? true : searchAllVersions.booleanValue());
+            }
         }
 
         ObjectList objList = buildResultList(tm, user, includeAllowableActions, includeRelationships, renditionFilter,
@@ -185,10 +214,18 @@ public class InMemoryQueryProcessor {
     public ObjectList buildResultList(TypeManager tm, String user, Boolean includeAllowableActions,
             IncludeRelationships includeRelationships, String renditionFilter, BigInteger maxItems, BigInteger skipCount) {
 
-        sortMatches();
+        int numItems;
+        if (null != topMatches) {
+            numItems = matchCount;
+            matches = getTopMatches();
+        } else {
+            numItems = matches.size();
+            sortMatches();
+        }
 
         ObjectListImpl res = new ObjectListImpl();
-        res.setNumItems(BigInteger.valueOf(matches.size()));
+        // the total number of matches is unknown if matching stopped early
+        res.setNumItems(truncated ? null : BigInteger.valueOf(numItems));
         int start = 0;
         if (skipCount != null) {
             start = (int) skipCount.longValue();
@@ -206,7 +243,7 @@ public class InMemoryQueryProcessor {
         if (stop <= 0 || stop > matches.size()) {
             stop = matches.size();
         }
-        res.setHasMoreItems(stop < matches.size());
+        res.setHasMoreItems(stop < numItems);
         if (start > 0 || stop > 0) {
             matches = matches.subList(start, stop);
         }
@@ -247,55 +284,147 @@ public class InMemoryQueryProcessor {
         return false;
     }
 
+    /**
+     * Limits the number of matches that are kept to the matches needed for
+     * the requested page.
+     */
+    private void limitMatches(BigInteger maxItems, BigInteger skipCount) {
+        if (null == maxItems || maxItems.signum() <= 0) {
+            return;
+        }
+
+        long max = maxItems.longValue();
+        if (null != skipCount && skipCount.signum() > 0) {
+            max += skipCount.longValue();
+        }
+        maxMatches = (int) Math.min(max, Integer.MAX_VALUE - 1);
+
+        Comparator<StoredObject> comparator = getResultComparator();
+        if (null != comparator) {
+            // the heap keeps the worst match on top so that it can be replaced
+            topMatches = new PriorityQueue<RankedMatch>(Math.min(maxMatches, 1024) + 1,
+                    Collections.reverseOrder(new RankedMatchComparator(comparator)));
+        }
+    }
+
+    private void addMatch(StoredObject so) {
+        matchCount++;
+        if (null == topMatches) {
+            matches.add(so);
+        } else {
+            topMatches.add(new RankedMatch(so, matchCount));
+            if (topMatches.size() > maxMatches) {
+                topMatches.poll();
+            }
+        }
+    }
+
+    private List<StoredObject> getTopMatches() {
+        List<RankedMatch> ranked = new ArrayList<RankedMatch>(topMatches);
+        Collections.sort(ranked, new RankedMatchComparator(getResultComparator()));
+        List<StoredObject> result = new ArrayList<StoredObject>(ranked.size());
+        for (RankedMatch match : ranked) {
+            result.add(match.so);
+        }
+        return result;
+    }
+
     private void sortMatches() {
-        final List<SortSpec> orderBy = queryObj.getOrderBys();
+        Comparator<StoredObject> comparator = getResultComparator();
+        if (null != comparator) {
+            Collections.sort(matches, comparator);
+        }
+    }
+
+    /**
+     * Returns the comparator for the ORDER BY clause, or {@code null} if the
+     * query has no ORDER BY clause.
+     */
+    private Comparator<StoredObject> getResultComparator() {
+        List<SortSpec> orderBy = queryObj.getOrderBys();
+        if (orderBy.isEmpty()) {
+            return null;
+        }
         if (orderBy.size() > 1) {
             LOG.warn("ORDER BY has more than one sort criterium, all but the first are ignored.");
         }
-        class ResultComparator implements Comparator<StoredObject> {
+        return new ResultComparator(orderBy.get(0));
+    }
+
+    private class ResultComparator implements Comparator<StoredObject> {
+        private final SortSpec s;
 
-            @Override
-            @SuppressWarnings("unchecked")
-            public int compare(StoredObject so1, StoredObject so2) {
-                SortSpec s = orderBy.get(0);
-                CmisSelector sel = s.getSelector();
-                int result;
+        public ResultComparator(SortSpec s) {
+            this.s = s;
+        }
 
-                if (queryObj.isPredfinedQueryName(sel.getName())) {
-                    // must be SEARCH_SCORE which is currently ignored
+        @Override
+        @SuppressWarnings("unchecked")
+        public int compare(StoredObject so1, StoredObject so2) {
+            CmisSelector sel = s.getSelector();
+            int result;
+
+            if (queryObj.isPredfinedQueryName(sel.getName())) {
+                // must be SEARCH_SCORE which is currently ignored
+                result = 0;
+            } else if (sel instanceof ColumnReference) {
+                String propId = ((ColumnReference) sel).getPropertyId();
+                PropertyDefinition<?> pd = ((ColumnReference) sel).getPropertyDefinition();
+
+                boolean cmis11 = callContext.getCmisVersion() != CmisVersion.CMIS_1_0;
+                Object propVal1 = PropertyQueryUtil.getProperty(so1, propId, pd, cmis11);
+                Object propVal2 = PropertyQueryUtil.getProperty(so2, propId, pd, cmis11);
+
+                if (propVal1 == null && propVal2 == null) {
                     result = 0;
-                } else if (sel instanceof ColumnReference) {
-                    String propId = ((ColumnReference) sel).getPropertyId();
-                    PropertyDefinition<?> pd = ((ColumnReference) sel).getPropertyDefinition();
-
-                    boolean cmis11 = callContext.getCmisVersion() != CmisVersion.CMIS_1_0;
-                    Object propVal1 = PropertyQueryUtil.getProperty(so1, propId, pd, cmis11);
-                    Object propVal2 = PropertyQueryUtil.getProperty(so2, propId, pd, cmis11);
-
-                    if (propVal1 == null && propVal2 == null) {
-                        result = 0;
-                    } else if (propVal1 == null) {
-                        result = -1;
-                    } else if (propVal2 == null) {
-                        result = 1;
-                    } else {
-                        result = ((Comparable<Object>) propVal1).compareTo(propVal2);
-                    }
+                } else if (propVal1 == null) {
+                    result = -1;
+                } else if (propVal2 == null) {
+                    result = 1;
                 } else {
-                    // evaluate function here, currently ignore
-                    result = 0;
-                }
-                if (!s.isAscending()) {
-                    result = -result;
+                    result = ((Comparable<Object>) propVal1).compareTo(propVal2);
                 }
-                return result;
+            } else {
+                // evaluate function here, currently ignore
+                result = 0;
             }
+            if (!s.isAscending()) {
+                result = -result;
+            }
+            return result;
         }
+    }
 
-        if (orderBy.size() > 0) {
-            Collections.sort(matches, new ResultComparator());
+    /**
+     * A match and the position in which it was found. Matches that are equal
+     * in sort order keep the order in which they were found, as they would in
+     * a stable sort of all matches.
+     */
+    private static class RankedMatch {
+        final StoredObject so;
+        final int position;
+
+        public RankedMatch(StoredObject so, int position) {
+            this.so = so;
+            this.position = position;
         }
+    }
 
+    private static class RankedMatchComparator implements Comparator<RankedMatch> {
+        private final Comparator<StoredObject> comparator;
+
+        public RankedMatchComparator(Comparator<StoredObject> comparator) {
+            this.comparator = comparator;
+        }
+
+        @Override
+        public int compare(RankedMatch m1, RankedMatch m2) {
+            int result = comparator.compare(m1.so, m2.so);
+            if (result == 0) {
+                result = m1.position < m2.position ? -1 : (m1.position == m2.position ? 0 : 1);
+            }
+            return result;
+        }
     }
 
     /*
@@ -330,7 +459,7 @@ public class InMemoryQueryProcessor {
             match = evalWhereNode(so, user, node);
         }
         if (match && objStore.hasReadAccess(user, so)) {
-            matches.add(so); // add to list
+            addMatch(so); // add to list
         }
     }
 
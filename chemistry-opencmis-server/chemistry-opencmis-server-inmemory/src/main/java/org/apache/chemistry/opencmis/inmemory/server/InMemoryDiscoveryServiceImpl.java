@@ -26,10 +26,8 @@ import java.util.List;
 import org.apache.chemistry.opencmis.commons.PropertyIds;
 import org.apache.chemistry.opencmis.commons.data.ExtensionsData;
 import org.apache.chemistry.opencmis.commons.data.ObjectData;
-import org.apache.chemistry.opencmis.commons.data.ObjectInFolderContainer;
 import org.apache.chemistry.opencmis.commons.data.ObjectList;
-import org.apache.chemistry.opencmis.commons.data.PolicyIdList;
-import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
+import org.apache.chemistry.opencmis.commons.definitions.TypeDefinitionContainer;
 import org.apache.chemistry.opencmis.commons.enums.ChangeType;
 import org.apache.chemistry.opencmis.commons.enums.IncludeRelationships;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisInvalidArgumentException;
@@ -42,7 +40,14 @@ import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyIdImpl;
 import org.apache.chemistry.opencmis.commons.server.CallContext;
 import org.apache.chemistry.opencmis.commons.server.ObjectInfoHandler;
 import org.apache.chemistry.opencmis.commons.spi.Holder;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.ObjectStore;
 import org.apache.chemistry.opencmis.inmemory.storedobj.api.StoreManager;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.StoredObject;
+import org.apache.chemistry.opencmis.inmemory.storedobj.impl.ChangeLog;
+import org.apache.chemistry.opencmis.inmemory.storedobj.impl.ChangeLog.ChangeEvent;
+import org.apache.chemistry.opencmis.inmemory.storedobj.impl.ObjectStoreImpl;
+import org.apache.chemistry.opencmis.inmemory.types.PropertyCreationHelper;
+import org.apache.chemistry.opencmis.server.support.TypeManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -57,87 +62,103 @@ public class InMemoryDiscoveryServiceImpl extends InMemoryAbstractServiceImpl {
     public ObjectList getContentChanges(CallContext context, String repositoryId, Holder<String> changeLogToken,
             Boolean includeProperties, String filter, Boolean includePolicyIds, Boolean includeAcl,
             BigInteger maxItems, ExtensionsData extension, ObjectInfoHandler objectInfos) {
-        // dummy implementation using hard coded values
-        final int ITEMS_AVAILABLE = 25;
 
-        int token = 0;
-        if (changeLogToken != null && changeLogToken.getValue() != null) {
-            if (!changeLogToken.getValue().startsWith("token-")) {
-                throw new CmisInvalidArgumentException("Unknown change log token!");
-            }
+        LOG.debug("start getContentChanges()");
+        validator.getContentChanges(context, repositoryId, extension);
 
+        ObjectStore objStore = fStoreManager.getObjectStore(repositoryId);
+        TypeManager tm = fStoreManager.getTypeManager(repositoryId);
+        ChangeLog changeLog = ((ObjectStoreImpl) objStore).getChangeLog();
+
+        long firstChangeId = changeLog.getFirstChangeId();
+        if (changeLogToken != null && changeLogToken.getValue() != null) {
             try {
-                token = Integer.parseInt(changeLogToken.getValue().substring(6));
+                firstChangeId = Long.parseLong(changeLogToken.getValue());
             } catch (NumberFormatException nfe) {
                 throw new CmisInvalidArgumentException("Unknown change log token!", nfe);
             }
 
-            if (token < 0 || token > ITEMS_AVAILABLE) {
+            if (firstChangeId < 0 || firstChangeId > changeLog.getNextChangeId()) {
                 throw new CmisInvalidArgumentException("Unknown change log token!");
             }
         }
 
-        ObjectListImpl objList = new ObjectListImpl();
-        long timestamp = System.currentTimeMillis() - 60 * 1000;
-        // convert ObjectInFolderContainerList to objectList
-        List<ObjectData> lod = new ArrayList<ObjectData>();
-        if (null == maxItems) {
-            maxItems = BigInteger.valueOf(ITEMS_AVAILABLE);
+        int max = maxItems == null || maxItems.intValue() < 0 ? changeLog.getCapacity() : maxItems.intValue();
+        List<ChangeEvent> events = changeLog.getEvents(firstChangeId, max);
+        if (null == events) {
+            throw new CmisInvalidArgumentException("Change log token " + firstChangeId
+                    + " has expired, the oldest available token is " + changeLog.getFirstChangeId());
         }
-        int last = Math.min(ITEMS_AVAILABLE, token + maxItems.intValue());
 
-        for (int i = token; i < last; i++) {
-            // add a dummy delete event
-            ObjectDataImpl odImpl = new ObjectDataImpl();
-            PropertiesImpl props = new PropertiesImpl();
-            props.addProperty(new PropertyIdImpl(PropertyIds.OBJECT_ID, "cl-" + i));
-            props.addProperty(new PropertyIdImpl(PropertyIds.OBJECT_TYPE_ID, BaseTypeId.CMIS_DOCUMENT.value()));
-            props.addProperty(new PropertyIdImpl(PropertyIds.BASE_TYPE_ID, BaseTypeId.CMIS_DOCUMENT.value()));
-            odImpl.setProperties(props);
-            ChangeEventInfoDataImpl changeEventInfo = new ChangeEventInfoDataImpl();
-            changeEventInfo.setChangeType(ChangeType.DELETED);
-            GregorianCalendar eventTimestamp = new GregorianCalendar();
-            eventTimestamp.setTimeInMillis(timestamp + i * 1000);
-            changeEventInfo.setChangeTime(eventTimestamp);
-            odImpl.setChangeEventInfo(changeEventInfo);
-            if (includePolicyIds != null && includePolicyIds) {
-                PolicyIdList policies = new PolicyIdListImpl();
-                odImpl.setPolicyIds(policies);
-            }
-            lod.add(odImpl);
+        boolean withProperties = null != includeProperties && includeProperties;
+        List<ObjectData> lod = new ArrayList<ObjectData>(events.size());
+        for (ChangeEvent event : events) {
+            lod.add(getChangeObject(context, tm, objStore, event, withProperties, filter, includePolicyIds,
+                    includeAcl));
         }
 
+        long remaining = changeLog.getNextChangeId() - firstChangeId;
+        ObjectListImpl objList = new ObjectListImpl();
         objList.setObjects(lod);
-        objList.setNumItems(BigInteger.valueOf(ITEMS_AVAILABLE - token));
-        objList.setHasMoreItems(false);
+        objList.setNumItems(BigInteger.valueOf(remaining));
+        objList.setHasMoreItems(remaining > lod.size());
 
-        String changeToken = "token-" + (token + lod.size() - 1);
-        if(changeLogToken != null) {
-            changeLogToken.setValue(changeToken);
+        if (changeLogToken != null && !events.isEmpty()) {
+            changeLogToken.setValue(String.valueOf(events.get(events.size() - 1).getChangeId()));
         }
-        
+
         // To be able to provide all Atom links in the response we need
         // additional information:
         if (objectInfos != null) {
             fAtomLinkProvider.fillInformationForAtomLinks(context, repositoryId, null, objectInfos, objList);
         }
+
+        LOG.debug("stop getContentChanges()");
         return objList;
     }
 
-    private void convertList(List<ObjectData> lod, ObjectInFolderContainer obj) {
-        lod.add(obj.getObject().getObject());
-        // add dummy event info
-        ObjectData oif = obj.getObject().getObject();
-        ObjectDataImpl oifImpl = (ObjectDataImpl) oif;
-        ChangeEventInfoDataImpl changeEventInfo = new ChangeEventInfoDataImpl();
-        changeEventInfo.setChangeType(ChangeType.UPDATED);
-        changeEventInfo.setChangeTime(new GregorianCalendar());
-        oifImpl.setChangeEventInfo(changeEventInfo);
-        if (null != obj.getChildren()) {
-            for (ObjectInFolderContainer oifc : obj.getChildren()) {
-                convertList(lod, oifc);
+    /**
+     * Creates the object of a change event. The properties are the current
+     * properties of the object if they are requested and the object still
+     * exists, otherwise only the id and the type of the object are returned.
+     */
+    private ObjectData getChangeObject(CallContext context, TypeManager tm, ObjectStore objStore, ChangeEvent event,
+            boolean includeProperties, String filter, Boolean includePolicyIds, Boolean includeAcl) {
+        ObjectDataImpl odImpl = null;
+
+        if (includeProperties && event.getChangeType() != ChangeType.DELETED) {
+            StoredObject so = objStore.getObjectById(event.getObjectId());
+            if (null != so) {
+                odImpl = (ObjectDataImpl) PropertyCreationHelper.getObjectData(context, tm, objStore, so, filter,
+                        context.getUsername(), false, IncludeRelationships.NONE, null, includePolicyIds,
+                        includeAcl, null);
+            }
+        }
+
+        if (null == odImpl) {
+            odImpl = new ObjectDataImpl();
+            PropertiesImpl props = new PropertiesImpl();
+            props.addProperty(new PropertyIdImpl(PropertyIds.OBJECT_ID, event.getObjectId()));
+            props.addProperty(new PropertyIdImpl(PropertyIds.OBJECT_TYPE_ID, event.getTypeId()));
+            TypeDefinitionContainer tdc = null == event.getTypeId() ? null : tm.getTypeById(event.getTypeId());
+            if (null != tdc) {
+                props.addProperty(new PropertyIdImpl(PropertyIds.BASE_TYPE_ID, tdc.getTypeDefinition()
+                        .getBaseTypeId().value()));
+            }
+            odImpl.setProperties(props);
+            if (includePolicyIds != null && includePolicyIds) {
+                odImpl.setPolicyIds(new PolicyIdListImpl());
             }
         }
+
+        ChangeEventInfoDataImpl changeEventInfo = new ChangeEventInfoDataImpl();
+        changeEventInfo.setChangeType(event.getChangeType());
+        GregorianCalendar changeTime = new GregorianCalendar();
+        changeTime.setTimeInMillis(event.getChangeTime());
+        changeEventInfo.setChangeTime(changeTime);
+        odImpl.setChangeEventInfo(changeEventInfo);
+
+        return odImpl;
     }
 
     public ObjectList query(CallContext context, String repositoryId, String statement, Boolean searchAllVersions,
@@ -21,9 +21,13 @@ package org.apache.chemistry.opencmis.inmemory.server;
 import static org.apache.chemistry.opencmis.commons.impl.XMLUtils.next;
 
 import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.math.BigInteger;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -32,6 +36,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
@@ -56,9 +61,11 @@ import org.apache.chemistry.opencmis.commons.server.CmisService;
 import org.apache.chemistry.opencmis.commons.spi.BindingsObjectFactory;
 import org.apache.chemistry.opencmis.inmemory.ConfigConstants;
 import org.apache.chemistry.opencmis.inmemory.ConfigurationSettings;
+import org.apache.chemistry.opencmis.inmemory.content.BulkObjectGenerator;
 import org.apache.chemistry.opencmis.inmemory.content.ObjectGenerator;
 import org.apache.chemistry.opencmis.inmemory.storedobj.api.ObjectStore;
 import org.apache.chemistry.opencmis.inmemory.storedobj.api.StoreManager;
+import org.apache.chemistry.opencmis.inmemory.storedobj.impl.ObjectStoreImpl;
 import org.apache.chemistry.opencmis.inmemory.storedobj.impl.StoreManagerFactory;
 import org.apache.chemistry.opencmis.inmemory.storedobj.impl.StoreManagerImpl;
 import org.apache.chemistry.opencmis.server.async.impl.AbstractAsyncServiceFactory;
@@ -79,6 +86,7 @@ public class InMemoryServiceFactoryImpl extends AbstractAsyncServiceFactory {
     private boolean fUseOverrideCtx = false;
     private StoreManager storeManager; // singleton root of everything
     private CleanManager cleanManager = null;
+    private SnapshotManager snapshotManager = null;
 
     private File tempDir;
     private int memoryThreshold;
@@ -128,10 +136,25 @@ public class InMemoryServiceFactoryImpl extends AbstractAsyncServiceFactory {
 
         boolean created = initStorageManager(parameters);
 
-        if (created) {
+        boolean loaded = false;
+        String snapshotDir = ConfigurationSettings.getConfigurationValueAsString(ConfigConstants.SNAPSHOT_DIR);
+        if (null != snapshotDir) {
+            Long loadThreads = ConfigurationSettings
+                    .getConfigurationValueAsLong(ConfigConstants.SNAPSHOT_LOAD_THREADS);
+            snapshotManager = new SnapshotManager(new File(snapshotDir), null == loadThreads ? Runtime.getRuntime()
+                    .availableProcessors() : loadThreads.intValue());
+            loaded = snapshotManager.loadSnapshots();
+        }
+
+        if (created && !loaded) {
             fillRepositoryIfConfigured(parameters);
         }
 
+        Long snapshotInterval = ConfigurationSettings.getConfigurationValueAsLong(ConfigConstants.SNAPSHOT_INTERVAL);
+        if (null != snapshotManager && null != snapshotInterval && snapshotInterval > 0) {
+            snapshotManager.startSnapshotJob(snapshotInterval);
+        }
+
         Long cleanInterval = ConfigurationSettings
                 .getConfigurationValueAsLong(ConfigConstants.CLEAN_REPOSITORY_INTERVAL);
         if (null != cleanInterval && cleanInterval > 0) {
@@ -190,6 +213,10 @@ public class InMemoryServiceFactoryImpl extends AbstractAsyncServiceFactory {
         if (null != cleanManager) {
             cleanManager.stopCleanRepositoryJob();
         }
+        if (null != snapshotManager) {
+            snapshotManager.stopSnapshotJob();
+            snapshotManager.writeSnapshots(false);
+        }
 
         super.destroy();
     }
@@ -198,6 +225,19 @@ public class InMemoryServiceFactoryImpl extends AbstractAsyncServiceFactory {
         return storeManager;
     }
 
+    /**
+     * Writes the snapshots of all repositories to the configured snapshot
+     * directory.
+     */
+    public void writeSnapshots() {
+        if (null == snapshotManager) {
+            LOG.warn("No snapshot directory configured (" + ConfigConstants.SNAPSHOT_DIR
+                    + "), snapshots are not written.");
+        } else {
+            snapshotManager.writeSnapshots(true);
+        }
+    }
+
     private boolean initStorageManager(Map<String, String> parameters) {
         // initialize in-memory management
         boolean created = false;
@@ -504,8 +544,29 @@ public class InMemoryServiceFactoryImpl extends AbstractAsyncServiceFactory {
             RepositoryInfo rep = svc.getRepositoryInfo(repositoryId, null);
             String rootFolderId = rep.getRootFolderId();
 
+            String parallelStr = parameters.get(ConfigConstants.FILLER_PARALLEL);
+            boolean parallel = parallelStr == null ? false : Boolean.parseBoolean(parallelStr);
+            ObjectStore objectStore = storeManager.getObjectStore(repositoryId);
+
             try {
-                gen.createFolderHierachy(levels, childrenPerLevel, rootFolderId);
+                long start = System.currentTimeMillis();
+                int objectCount;
+                if (parallel && objectStore instanceof ObjectStoreImpl) {
+                    String threadsStr = parameters.get(ConfigConstants.FILLER_THREADS);
+                    int threads = threadsStr == null ? Runtime.getRuntime().availableProcessors() : Integer
+                            .parseInt(threadsStr);
+                    BulkObjectGenerator bulkGen = new BulkObjectGenerator(gen, (ObjectStoreImpl) objectStore,
+                            storeManager.getTypeManager(repositoryId), threads);
+                    bulkGen.createFolderHierachy(levels, childrenPerLevel, rootFolderId);
+                    objectCount = bulkGen.getObjectsInTotal();
+                } else {
+                    gen.createFolderHierachy(levels, childrenPerLevel, rootFolderId);
+                    objectCount = gen.getObjectsInTotal();
+                }
+                long millis = Math.max(1, System.currentTimeMillis() - start);
+                LOG.info("Filled repository " + repositoryId + " with " + objectCount + " objects in " + millis
+                        + " ms (" + (objectCount * 1000L / millis) + " objects/s"
+                        + (parallel ? ", parallel" : "") + ").");
                 // Dump the tree
                 gen.dumpFolder(rootFolderId, "*");
             } catch (Exception e) {
@@ -550,6 +611,159 @@ public class InMemoryServiceFactoryImpl extends AbstractAsyncServiceFactory {
         }
     }
 
+    /**
+     * Loads the repositories from their snapshots on startup and writes the
+     * snapshots of changed repositories periodically and on shutdown.
+     */
+    class SnapshotManager {
+
+        private static final String SNAPSHOT_SUFFIX = ".snapshot";
+        private static final int BUFFER_SIZE = 256 * 1024;
+
+        private final File dir;
+        private final int loadThreads;
+        // change log position of each repository when its snapshot was
+        // written or loaded
+        private final Map<String, Long> snapshotChangeIds = new ConcurrentHashMap<String, Long>();
+        private ScheduledExecutorService scheduler = null;
+
+        public SnapshotManager(File dir, int loadThreads) {
+            this.dir = dir;
+            this.loadThreads = Math.max(1, loadThreads);
+        }
+
+        /**
+         * Loads all repositories that have a snapshot.
+         *
+         * @return {@code true} if at least one repository has been loaded
+         */
+        public boolean loadSnapshots() {
+            boolean loaded = false;
+            for (String repositoryId : storeManager.getAllRepositoryIds()) {
+                ObjectStore store = storeManager.getObjectStore(repositoryId);
+                File file = getSnapshotFile(repositoryId);
+                if (!(store instanceof ObjectStoreImpl) || !file.isFile()) {
+                    continue;
+                }
+
+                long start = System.currentTimeMillis();
+                InputStream in = null;
+                try {
+                    in = new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE);
+                    long count = ((ObjectStoreImpl) store).readSnapshot(in, loadThreads);
+                    snapshotChangeIds.put(repositoryId, ((ObjectStoreImpl) store).getChangeLog().getNextChangeId());
+                    loaded = true;
+                    LOG.info("Loaded " + count + " objects of repository " + repositoryId + " from " + file + " in "
+                            + (System.currentTimeMillis() - start) + " ms.");
+                } catch (Exception e) {
+                    LOG.error("Could not load repository " + repositoryId + " from " + file + ": " + e, e);
+                } finally {
+                    IOUtils.closeQuietly(in);
+                }
+            }
+            return loaded;
+        }
+
+        /**
+         * Writes the snapshots of all repositories.
+         *
+         * @param force
+         *            {@code true} to write all repositories, {@code false} to
+         *            write only repositories that changed since their last
+         *            snapshot
+         */
+        public synchronized void writeSnapshots(boolean force) {
+            for (String repositoryId : storeManager.getAllRepositoryIds()) {
+                ObjectStore store = storeManager.getObjectStore(repositoryId);
+                if (!(store instanceof ObjectStoreImpl)) {
+                    continue;
+                }
+
+                long changeId = ((ObjectStoreImpl) store).getChangeLog().getNextChangeId();
+                Long snapshotChangeId = snapshotChangeIds.get(repositoryId);
+                if (!force && null != snapshotChangeId && snapshotChangeId == changeId) {
+                    continue;
+                }
+
+                try {
+                    writeSnapshot(repositoryId, (ObjectStoreImpl) store);
+                    snapshotChangeIds.put(repositoryId, changeId);
+                } catch (Exception e) {
+                    LOG.error("Could not write snapshot of repository " + repositoryId + ": " + e, e);
+                }
+            }
+        }
+
+        private void writeSnapshot(String repositoryId, ObjectStoreImpl store) throws IOException {
+            if (!dir.isDirectory() && !dir.mkdirs()) {
+                throw new IOException("Could not create snapshot directory " + dir);
+            }
+
+            // write to a temporary file first, a crash must not destroy the
+            // last snapshot
+            File file = getSnapshotFile(repositoryId);
+            File tmpFile = new File(dir, repositoryId + SNAPSHOT_SUFFIX + ".tmp");
+            long start = System.currentTimeMillis();
+            long count;
+            // the temporary file replaces the snapshot only if it has been
+            // completely written and synced to the disk
+            FileOutputStream fileOut = new FileOutputStream(tmpFile);
+            OutputStream out = new BufferedOutputStream(fileOut, BUFFER_SIZE);
+            boolean written = false;
+            try {
+                count = store.writeSnapshot(out);
+                out.flush();
+                fileOut.getFD().sync();
+                out.close();
+                written = true;
+            } finally {
+                if (!written) {
+                    IOUtils.closeQuietly(out);
+                    if (!tmpFile.delete()) {
+                        LOG.warn("Could not delete incomplete snapshot " + tmpFile);
+                    }
+                }
+            }
+
+            if (!tmpFile.renameTo(file)) {
+                if (!file.delete() || !tmpFile.renameTo(file)) {
+                    throw new IOException("Could not replace snapshot " + file);
+                }
+            }
+            LOG.info("Wrote " + count + " objects of repository " + repositoryId + " to " + file + " in "
+                    + (System.currentTimeMillis() - start) + " ms.");
+        }
+
+        private File getSnapshotFile(String repositoryId) {
+            return new File(dir, repositoryId + SNAPSHOT_SUFFIX);
+        }
+
+        public void startSnapshotJob(long intervalInSeconds) {
+            final Runnable writer = new Runnable() {
+                @Override
+                public void run() {
+                    writeSnapshots(false);
+                }
+            };
+
+            LOG.info("Repository Snapshot Job starting, interval " + intervalInSeconds + " s");
+            scheduler = Executors.newScheduledThreadPool(1);
+            scheduler.scheduleWithFixedDelay(writer, intervalInSeconds, intervalInSeconds, TimeUnit.SECONDS);
+        }
+
+        public void stopSnapshotJob() {
+            if (null != scheduler) {
+                LOG.info("Repository Snapshot Job stopping.");
+                scheduler.shutdown();
+                try {
+                    scheduler.awaitTermination(1, TimeUnit.MINUTES);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
     private void scheduleCleanRepositoryJob(long minutes) {
         cleanManager = new CleanManager();
         cleanManager.startCleanRepositoryJob(minutes);
@@ -50,6 +50,7 @@ import org.apache.chemistry.opencmis.inmemory.storedobj.api.ObjectStore;
 import org.apache.chemistry.opencmis.inmemory.storedobj.api.StoreManager;
 import org.apache.chemistry.opencmis.inmemory.storedobj.api.StoredObject;
 import org.apache.chemistry.opencmis.inmemory.storedobj.api.VersionedDocument;
+import org.apache.chemistry.opencmis.inmemory.storedobj.impl.ObjectStoreImpl;
 import org.apache.chemistry.opencmis.inmemory.types.PropertyCreationHelper;
 import org.apache.chemistry.opencmis.server.support.TypeManager;
 
@@ -114,6 +115,7 @@ public class InMemoryVersioningServiceImpl extends InMemoryAbstractServiceImpl {
         boolean major = (null == majorParam ? true : majorParam);
 
         verDoc.checkIn(major, properties, ((Content)so).getContent(), checkinComment, policies, user);
+        ((ObjectStoreImpl) objStore).reindexObject(pwc);
         if (null != properties && null != properties.getProperties()) {
             // rename:
             PropertyData<?> pd = properties.getProperties().get(PropertyIds.NAME);
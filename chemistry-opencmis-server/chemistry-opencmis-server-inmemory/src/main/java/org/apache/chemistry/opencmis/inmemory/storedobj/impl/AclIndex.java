@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.inmemory.storedobj.impl;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Holds the ACLs of an object store and answers permission checks without
+ * evaluating all ACLs for each object.
+ * <p>
+ * ACLs are shared by all objects with the same ACEs and are never changed or
+ * removed once they have been added; applying an ACL to an object adds a new
+ * ACL if necessary and changes the ACL id of the object. The ACL id is the
+ * position of the ACL in the index. For each principal and permission the
+ * index caches the set of ACL ids that grant the permission. The cache is
+ * invalidated whenever an ACL is added.
+ */
+public class AclIndex {
+
+    /** Cache key for checks without a principal. */
+    private static final String NO_PRINCIPAL = "\u0000";
+
+    private final List<InMemoryAcl> acls = new CopyOnWriteArrayList<InMemoryAcl>();
+    private final Map<InMemoryAcl, Integer> aclIds = new HashMap<InMemoryAcl, Integer>();
+    private final Map<Permission, ConcurrentMap<String, PermittedAcls>> permittedAcls;
+
+    public AclIndex() {
+        permittedAcls = new EnumMap<Permission, ConcurrentMap<String, PermittedAcls>>(Permission.class);
+        for (Permission permission : Permission.values()) {
+            permittedAcls.put(permission, new ConcurrentHashMap<String, PermittedAcls>());
+        }
+    }
+
+    /**
+     * Adds an ACL if no ACL with the same ACEs is known. The ACL must not be
+     * modified afterwards.
+     *
+     * @return the id of the ACL
+     */
+    public synchronized int add(InMemoryAcl acl) {
+        Integer id = aclIds.get(acl);
+        if (id != null) {
+            return id;
+        }
+
+        id = acls.size();
+        acl.setId(id);
+        acls.add(acl);
+        aclIds.put(acl, id);
+        invalidate();
+
+        return id;
+    }
+
+    /**
+     * Returns the ACL with the given id or {@code null} if there is no such
+     * ACL.
+     */
+    public InMemoryAcl get(int aclId) {
+        if (aclId < 0 || aclId >= acls.size()) {
+            return null;
+        }
+        return acls.get(aclId);
+    }
+
+    /**
+     * Returns the number of ACLs.
+     */
+    public int size() {
+        return acls.size();
+    }
+
+    /**
+     * Checks whether the ACL with the given id grants a permission to a
+     * principal.
+     */
+    public boolean hasPermission(String principalId, int aclId, Permission permission) {
+        if (permission == null || aclId < 0) {
+            return false;
+        }
+        return getPermittedAcls(principalId, permission, aclId).ids.get(aclId);
+    }
+
+    /**
+     * Returns the ids of all ACLs that grant a permission to a principal.
+     */
+    public List<Integer> getPermittedAclIds(String principalId, Permission permission) {
+        List<Integer> result = new ArrayList<Integer>();
+        if (permission == null) {
+            return result;
+        }
+
+        BitSet ids = getPermittedAcls(principalId, permission, -1).ids;
+        for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+            result.add(id);
+        }
+        return result;
+    }
+
+    /**
+     * Removes all cached permission checks.
+     */
+    public void invalidate() {
+        for (ConcurrentMap<String, PermittedAcls> cache : permittedAcls.values()) {
+            cache.clear();
+        }
+    }
+
+    private PermittedAcls getPermittedAcls(String principalId, Permission permission, int aclId) {
+        ConcurrentMap<String, PermittedAcls> cache = permittedAcls.get(permission);
+        String key = principalId == null ? NO_PRINCIPAL : principalId;
+
+        PermittedAcls permitted = cache.get(key);
+        // an entry computed concurrently with adding an ACL doesn't know the
+        // new ACL
+        if (permitted == null || aclId >= permitted.aclCount) {
+            permitted = evaluate(principalId, permission);
+            cache.put(key, permitted);
+        }
+
+        return permitted;
+    }
+
+    private PermittedAcls evaluate(String principalId, Permission permission) {
+        // the list is copied on write, iterating works on a snapshot
+        BitSet ids = new BitSet();
+        int count = 0;
+        for (InMemoryAcl acl : acls) {
+            if (acl.hasPermission(principalId, permission)) {
+                ids.set(acl.getId());
+            }
+            count++;
+        }
+        return new PermittedAcls(ids, count);
+    }
+
+    /**
+     * The ids of the ACLs that grant a permission, out of the first
+     * {@code aclCount} ACLs. Never modified once created.
+     */
+    private static class PermittedAcls {
+        final BitSet ids;
+        final int aclCount;
+
+        public PermittedAcls(BitSet ids, int aclCount) {
+            this.ids = ids;
+            this.aclCount = aclCount;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.inmemory.storedobj.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.apache.chemistry.opencmis.commons.enums.ChangeType;
+
+/**
+ * The change log of an object store. It keeps the most recent change events
+ * in a ring buffer of fixed capacity, older events are overwritten.
+ * <p>
+ * Each event gets a consecutive change id that is used as change log token.
+ * Adding an event doesn't block: the change id is taken from an atomic
+ * counter and the event is written to the slot of the id. Readers check the
+ * id of each event they find and stop at a slot that has not been written yet
+ * or has already been overwritten by a newer event.
+ */
+public class ChangeLog {
+
+    public static final int DEFAULT_CAPACITY = 10000;
+
+    private final AtomicReferenceArray<ChangeEvent> events;
+    private final AtomicLong nextChangeId = new AtomicLong();
+
+    public ChangeLog(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        events = new AtomicReferenceArray<ChangeEvent>(capacity);
+    }
+
+    /**
+     * Records a change event.
+     *
+     * @return the change id of the event
+     */
+    public long add(ChangeType changeType, String objectId, String typeId) {
+        long changeId = nextChangeId.getAndIncrement();
+        events.set(getSlot(changeId), new ChangeEvent(changeId, changeType, objectId, typeId,
+                System.currentTimeMillis()));
+        return changeId;
+    }
+
+    /**
+     * Returns the maximum number of events kept in the log.
+     */
+    public int getCapacity() {
+        return events.length();
+    }
+
+    /**
+     * Returns the change id of the next event to be recorded.
+     */
+    public long getNextChangeId() {
+        return nextChangeId.get();
+    }
+
+    /**
+     * Returns the change id of the oldest event still in the log.
+     */
+    public long getFirstChangeId() {
+        return Math.max(0, nextChangeId.get() - events.length());
+    }
+
+    /**
+     * Returns the change id of the latest event or -1 if no event has been
+     * recorded yet.
+     */
+    public long getLatestChangeId() {
+        return nextChangeId.get() - 1;
+    }
+
+    /**
+     * Checks whether events have been dropped from the log.
+     */
+    public boolean isIncomplete() {
+        return getFirstChangeId() > 0;
+    }
+
+    /**
+     * Returns consecutive events starting with the given change id.
+     *
+     * @param firstChangeId
+     *            change id of the first event to return
+     * @param maxItems
+     *            maximum number of events to return
+     * @return the events, or {@code null} if the first event has already been
+     *         overwritten
+     */
+    public List<ChangeEvent> getEvents(long firstChangeId, int maxItems) {
+        if (firstChangeId < getFirstChangeId()) {
+            return null;
+        }
+
+        List<ChangeEvent> result = new ArrayList<ChangeEvent>(Math.min(Math.max(maxItems, 0), events.length()));
+
+        long end = Math.min(nextChangeId.get(), firstChangeId + maxItems);
+        for (long changeId = firstChangeId; changeId < end; changeId++) {
+            ChangeEvent event = events.get(getSlot(changeId));
+            if (null == event || event.getChangeId() < changeId) {
+                // the event is still being written
+                break;
+            } else if (event.getChangeId() > changeId) {
+                // the event has been overwritten while reading
+                if (result.isEmpty()) {
+                    return null;
+                }
+                break;
+            }
+            result.add(event);
+        }
+
+        return result;
+    }
+
+    private int getSlot(long changeId) {
+        return (int) (changeId % events.length());
+    }
+
+    /**
+     * A single change event. Never modified once created.
+     */
+    public static class ChangeEvent {
+        private final long changeId;
+        private final ChangeType changeType;
+        private final String objectId;
+        private final String typeId;
+        private final long changeTime;
+
+        public ChangeEvent(long changeId, ChangeType changeType, String objectId, String typeId, long changeTime) {
+            this.changeId = changeId;
+            this.changeType = changeType;
+            this.objectId = objectId;
+            this.typeId = typeId;
+            this.changeTime = changeTime;
+        }
+
+        public long getChangeId() {
+            return changeId;
+        }
+
+        public ChangeType getChangeType() {
+            return changeType;
+        }
+
+        public String getObjectId() {
+            return objectId;
+        }
+
+        public String getTypeId() {
+            return typeId;
+        }
+
+        public long getChangeTime() {
+            return changeTime;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.inmemory.storedobj.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Reads a range of a sequence of content chunks. The chunks are not copied and
+ * not modified; each stream reads through its own views of the chunks.
+ */
+public class ChunkedInputStream extends InputStream {
+
+    private final ByteBuffer[] chunks;
+    private int nextChunk;
+    private ByteBuffer current;
+    private long remaining;
+    private boolean isClosed = false;
+
+    /**
+     * Constructor.
+     *
+     * @param chunks
+     *            the chunks, each chunk holds the bytes from position 0 to its
+     *            limit
+     * @param offset
+     *            the offset of the first byte
+     * @param length
+     *            the number of bytes
+     */
+    public ChunkedInputStream(ByteBuffer[] chunks, long offset, long length) {
+        this.chunks = chunks;
+        this.remaining = length;
+
+        // find the chunk that contains the first byte
+        long skip = Math.max(0, offset);
+        while (nextChunk < chunks.length && skip >= chunks[nextChunk].limit()) {
+            skip -= chunks[nextChunk].limit();
+            nextChunk++;
+        }
+
+        if (nextChunk < chunks.length) {
+            current = chunks[nextChunk++].duplicate();
+            current.position((int) skip);
+        } else {
+            remaining = 0;
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        checkOpen();
+        if (!nextAvailable()) {
+            return -1;
+        }
+
+        remaining--;
+        return current.get() & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        checkOpen();
+        if (len == 0) {
+            return 0;
+        }
+        if (!nextAvailable()) {
+            return -1;
+        }
+
+        int n = (int) Math.min(Math.min(len, current.remaining()), remaining);
+        current.get(b, off, n);
+        remaining -= n;
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        checkOpen();
+        long skipped = 0;
+        while (skipped < n && nextAvailable()) {
+            int s = (int) Math.min(Math.min(n - skipped, current.remaining()), remaining);
+            current.position(current.position() + s);
+            remaining -= s;
+            skipped += s;
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        if (current == null) {
+            return 0;
+        }
+        return (int) Math.min(current.remaining(), remaining);
+    }
+
+    @Override
+    public void close() {
+        isClosed = true;
+    }
+
+    /**
+     * Moves to the next chunk if the current chunk has been read.
+     */
+    private boolean nextAvailable() {
+        if (remaining <= 0) {
+            return false;
+        }
+
+        while (!current.hasRemaining()) {
+            if (nextChunk >= chunks.length) {
+                remaining = 0;
+                return false;
+            }
+            current = chunks[nextChunk++].duplicate();
+        }
+
+        return true;
+    }
+
+    private void checkOpen() throws IOException {
+        if (isClosed) {
+            throw new IOException("Stream is already closed.");
+        }
+    }
+}
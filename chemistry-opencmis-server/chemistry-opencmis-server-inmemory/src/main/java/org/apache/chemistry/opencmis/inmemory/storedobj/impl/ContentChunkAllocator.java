@@ -0,0 +1,189 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.inmemory.storedobj.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.Locale;
+
+import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
+
+/**
+ * Allocates the buffers that hold the content of documents. Content is stored
+ * in a sequence of chunks of at most {@link #getChunkSize()} bytes. Chunks are
+ * never modified after they have been filled, so that content streams and
+ * ranges of content can share them.
+ * <p>
+ * Three backends are available and can be selected with the configuration
+ * parameter {@code InMemoryServer.ContentStore}:
+ * <ul>
+ * <li>{@code heap}: chunks are byte arrays on the Java heap (default)</li>
+ * <li>{@code direct}: chunks are direct byte buffers outside of the Java heap</li>
+ * <li>{@code mapped}: chunks are memory mapped temporary files, which lets the
+ * operating system page out content that is not in use</li>
+ * </ul>
+ */
+public abstract class ContentChunkAllocator {
+
+    public static final String HEAP = "heap";
+    public static final String DIRECT = "direct";
+    public static final String MAPPED = "mapped";
+
+    public static final int DEFAULT_CHUNK_SIZE = 1024 * 1024;
+
+    private static final ContentChunkAllocator DEFAULT = new HeapAllocator(DEFAULT_CHUNK_SIZE);
+
+    private final int chunkSize;
+
+    protected ContentChunkAllocator(int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be positive!");
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Returns the maximum size of a chunk.
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Allocates a buffer with the given capacity, which does not exceed the
+     * chunk size.
+     */
+    public abstract ByteBuffer allocate(int capacity) throws IOException;
+
+    /**
+     * Returns the default allocator, which stores content on the heap.
+     */
+    public static ContentChunkAllocator getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Creates an allocator.
+     *
+     * @param kind
+     *            {@code heap}, {@code direct}, or {@code mapped}, {@code null}
+     *            for the default allocator
+     * @param chunkSizeKB
+     *            the chunk size in KB, {@code null} for the default chunk size
+     * @param tempDir
+     *            the directory of the memory mapped files, {@code null} for the
+     *            system temp directory
+     */
+    public static ContentChunkAllocator newInstance(String kind, Long chunkSizeKB, File tempDir) {
+        int chunkSize = DEFAULT_CHUNK_SIZE;
+        if (chunkSizeKB != null) {
+            if (chunkSizeKB < 1 || chunkSizeKB > Integer.MAX_VALUE / 1024) {
+                throw new CmisRuntimeException("Invalid content chunk size: " + chunkSizeKB + "KB");
+            }
+            chunkSize = (int) (chunkSizeKB * 1024);
+        }
+
+        if (kind == null || kind.trim().length() == 0) {
+            return chunkSize == DEFAULT_CHUNK_SIZE ? DEFAULT : new HeapAllocator(chunkSize);
+        }
+
+        String k = kind.trim().toLowerCase(Locale.ENGLISH);
+        if (HEAP.equals(k)) {
+            return new HeapAllocator(chunkSize);
+        } else if (DIRECT.equals(k)) {
+            return new DirectAllocator(chunkSize);
+        } else if (MAPPED.equals(k)) {
+            return new MappedFileAllocator(chunkSize, tempDir);
+        }
+
+        throw new CmisRuntimeException("Unknown content store: " + kind);
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + " [chunk size=" + chunkSize + "]";
+    }
+
+    /**
+     * Chunks on the Java heap.
+     */
+    static class HeapAllocator extends ContentChunkAllocator {
+        public HeapAllocator(int chunkSize) {
+            super(chunkSize);
+        }
+
+        @Override
+        public ByteBuffer allocate(int capacity) {
+            return ByteBuffer.allocate(capacity);
+        }
+    }
+
+    /**
+     * Chunks in native memory. The memory is released when the chunk is
+     * garbage collected.
+     */
+    static class DirectAllocator extends ContentChunkAllocator {
+        public DirectAllocator(int chunkSize) {
+            super(chunkSize);
+        }
+
+        @Override
+        public ByteBuffer allocate(int capacity) {
+            return ByteBuffer.allocateDirect(capacity);
+        }
+    }
+
+    /**
+     * Chunks in memory mapped temporary files. The files are deleted right
+     * after they have been mapped, the mapping is released when the chunk is
+     * garbage collected. Small chunks are kept on the heap because a mapping
+     * occupies at least a memory page and a file handle.
+     */
+    static class MappedFileAllocator extends ContentChunkAllocator {
+        private static final int MIN_MAPPED_SIZE = 64 * 1024;
+
+        private final File tempDir;
+
+        public MappedFileAllocator(int chunkSize, File tempDir) {
+            super(chunkSize);
+            this.tempDir = tempDir;
+        }
+
+        @Override
+        public ByteBuffer allocate(int capacity) throws IOException {
+            if (capacity < MIN_MAPPED_SIZE) {
+                return ByteBuffer.allocate(capacity);
+            }
+
+            File file = File.createTempFile("opencmis-content", ".bin", tempDir);
+            RandomAccessFile raf = new RandomAccessFile(file, "rw");
+            try {
+                return raf.getChannel().map(MapMode.READ_WRITE, 0, capacity);
+            } finally {
+                raf.close();
+                if (!file.delete()) {
+                    file.deleteOnExit();
+                }
+            }
+        }
+    }
+}
@@ -21,11 +21,11 @@ package org.apache.chemistry.opencmis.inmemory.storedobj.impl;
  *
  */
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.GregorianCalendar;
 import java.util.List;
 
@@ -36,8 +36,15 @@ import org.apache.chemistry.opencmis.commons.exceptions.CmisInvalidArgumentExcep
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Content of a document. The content is kept in chunks that are allocated by a
+ * {@link ContentChunkAllocator}. Appending content adds chunks, and ranges of
+ * the content share the chunks with the complete content.
+ */
 public class ContentStreamDataImpl implements LastModifiedContentStream {
 
+    private static final ByteBuffer[] NO_CHUNKS = new ByteBuffer[0];
+
     private static final int SIZE_KB = 1024;
 
     private static final int BUFFER_SIZE = 0xFFFF;
@@ -53,7 +60,7 @@ public class ContentStreamDataImpl implements LastModifiedContentStream {
 
     private String fFileName;
 
-    private byte[] fContent;
+    private ByteBuffer[] fChunks;
 
     private GregorianCalendar fLastModified;
 
@@ -65,6 +72,8 @@ public class ContentStreamDataImpl implements LastModifiedContentStream {
     
     private final boolean doNotStoreContent;
 
+    private final ContentChunkAllocator allocator;
+
     private static synchronized long getTotalLength() {
         return totalLength;
     }
@@ -86,43 +95,32 @@ public class ContentStreamDataImpl implements LastModifiedContentStream {
     }
 
     public ContentStreamDataImpl(long maxAllowedContentSizeKB) {
-        sizeLimitKB = maxAllowedContentSizeKB;
-        fLength = 0;
-        doNotStoreContent = false;
+        this(maxAllowedContentSizeKB, false);
     }
 
     public ContentStreamDataImpl(long maxAllowedContentSizeKB, boolean doNotStore) {
+        this(maxAllowedContentSizeKB, doNotStore, ContentChunkAllocator.getDefault());
+    }
+
+    public ContentStreamDataImpl(long maxAllowedContentSizeKB, boolean doNotStore, ContentChunkAllocator allocator) {
         sizeLimitKB = maxAllowedContentSizeKB;
         fLength = 0;
         doNotStoreContent = doNotStore;
+        this.allocator = allocator;
     }
 
     public void setContent(InputStream in) throws IOException {
         fStreamLimitOffset = -1;
         fStreamLimitLength = -1;
         if (null == in) {
-            fContent = null; // delete content
+            fChunks = null; // delete content
             fLength = 0;
         } else {
-            byte[] buffer = new byte[BUFFER_SIZE];
-            ByteArrayOutputStream contentStream = new ByteArrayOutputStream();
-            int len = in.read(buffer);
-            while (len != -1) {
-                if (!doNotStoreContent) {
-                    contentStream.write(buffer, 0, len);
-                }
-                fLength += len;
-                if (sizeLimitKB > 0 && fLength > sizeLimitKB * SIZE_KB) {
-                    throw new CmisInvalidArgumentException("Content size exceeds max. allowed size of " + sizeLimitKB
-                            + "KB.");
-                }
-                len = in.read(buffer);
-            }
+            List<ByteBuffer> chunks = new ArrayList<ByteBuffer>();
+            fLength = readChunks(in, chunks, 0);
             if (!doNotStoreContent) {
-                fContent = contentStream.toByteArray();
-                fLength = contentStream.size();
+                fChunks = chunks.toArray(NO_CHUNKS);
             }
-            contentStream.close();
             in.close();
         }
         increaseTotalLength(fLength);
@@ -136,31 +134,20 @@ public class ContentStreamDataImpl implements LastModifiedContentStream {
         if (null == is) {
             return; // nothing to do
         } else {
-            byte[] buffer = new byte[BUFFER_SIZE];
-            ByteArrayOutputStream contentStream = new ByteArrayOutputStream();
-
-            // first read existing stream
-            if (!doNotStoreContent) {
-                contentStream.write(fContent);
-            }
             decreaseTotalLength(fLength);
 
-            // then append new content
-            int len = is.read(buffer);
-            while (len != -1) {
-                contentStream.write(buffer, 0, len);
-                fLength += len;
-                if (sizeLimitKB > 0 && fLength > sizeLimitKB * SIZE_KB) {
-                    throw new CmisInvalidArgumentException("Content size exceeds max. allowed size of " + sizeLimitKB
-                            + "KB.");
+            // the existing chunks are kept, only the new content is read
+            List<ByteBuffer> chunks = new ArrayList<ByteBuffer>();
+            if (!doNotStoreContent && fChunks != null) {
+                for (ByteBuffer chunk : fChunks) {
+                    chunks.add(chunk);
                 }
-                len = is.read(buffer);
             }
+
+            fLength = readChunks(is, chunks, fLength);
             if (!doNotStoreContent) {
-                fContent = contentStream.toByteArray();
+                fChunks = chunks.toArray(NO_CHUNKS);
             }
-            fLength = contentStream.size();
-            contentStream.close();
             is.close();
         }
         increaseTotalLength(fLength);
@@ -169,6 +156,58 @@ public class ContentStreamDataImpl implements LastModifiedContentStream {
         LOG.debug("setting content stream, new size total " + (getTotalLength() / (SIZE_KB * SIZE_KB)) + "MB.");
     }
 
+    /**
+     * Reads a stream into new chunks and returns the content length, which
+     * starts at the given length.
+     * Completely filled chunks have the chunk size, the last chunk is only as
+     * large as needed.
+     */
+    private long readChunks(InputStream in, List<ByteBuffer> chunks, long startLength) throws IOException {
+        long length = startLength;
+        int chunkSize = allocator.getChunkSize();
+        byte[] buffer = new byte[Math.min(BUFFER_SIZE, chunkSize)];
+        int filled = 0;
+
+        int len = in.read(buffer, filled, buffer.length - filled);
+        while (len != -1) {
+            filled += len;
+            length += len;
+            if (sizeLimitKB > 0 && length > sizeLimitKB * SIZE_KB) {
+                throw new CmisInvalidArgumentException("Content size exceeds max. allowed size of " + sizeLimitKB
+                        + "KB.");
+            }
+
+            if (filled == buffer.length) {
+                if (doNotStoreContent) {
+                    filled = 0;
+                } else if (buffer.length < chunkSize) {
+                    // grow the buffer up to the chunk size
+                    byte[] newBuffer = new byte[(int) Math.min((long) buffer.length * 2, chunkSize)];
+                    System.arraycopy(buffer, 0, newBuffer, 0, filled);
+                    buffer = newBuffer;
+                } else {
+                    chunks.add(createChunk(buffer, filled));
+                    filled = 0;
+                }
+            }
+
+            len = in.read(buffer, filled, buffer.length - filled);
+        }
+
+        if (filled > 0 && !doNotStoreContent) {
+            chunks.add(createChunk(buffer, filled));
+        }
+
+        return length;
+    }
+
+    private ByteBuffer createChunk(byte[] buffer, int length) throws IOException {
+        ByteBuffer chunk = allocator.allocate(length);
+        chunk.put(buffer, 0, length);
+        chunk.flip();
+        return chunk;
+    }
+
     @Override
     public long getLength() {
         return fLength;
@@ -206,14 +245,14 @@ public class ContentStreamDataImpl implements LastModifiedContentStream {
         if (doNotStoreContent) {
             return new RandomInputStream(fLength);
         }
-        
-        if (null == fContent) {
+
+        if (null == fChunks) {
             return null;
         } else if (fStreamLimitOffset <= 0 && fStreamLimitLength < 0) {
-                return new ByteArrayInputStream(fContent);
-        } else {            
-            return new ByteArrayInputStream(fContent, (int) (fStreamLimitOffset < 0 ? 0 : fStreamLimitOffset),
-                    (int) (fStreamLimitLength < 0 ? fLength : fStreamLimitLength));
+            return new ChunkedInputStream(fChunks, 0, fLength);
+        } else {
+            return new ChunkedInputStream(fChunks, fStreamLimitOffset < 0 ? 0 : fStreamLimitOffset,
+                    fStreamLimitLength < 0 ? fLength : fStreamLimitLength);
         }
     }
 
@@ -227,10 +266,10 @@ public class ContentStreamDataImpl implements LastModifiedContentStream {
     }
 
     public ContentStream getCloneWithLimits(long offset, long length) {
-        ContentStreamDataImpl clone = new ContentStreamDataImpl(0, doNotStoreContent);
+        ContentStreamDataImpl clone = new ContentStreamDataImpl(0, doNotStoreContent, allocator);
         clone.fFileName = fFileName;
         clone.fLength = length < 0 ? fLength - offset : Math.min(fLength - offset, length);
-        clone.fContent = fContent;
+        clone.fChunks = fChunks;
         clone.fMimeType = fMimeType;
         clone.fStreamLimitOffset = offset;
         clone.fStreamLimitLength = clone.fLength;
@@ -238,8 +277,32 @@ public class ContentStreamDataImpl implements LastModifiedContentStream {
         return clone;
     }
 
+    /**
+     * Returns a copy of the content.
+     */
     public final byte[] getBytes() {
-        return fContent;
+        if (null == fChunks) {
+            return null;
+        }
+
+        long total = 0;
+        for (ByteBuffer chunk : fChunks) {
+            total += chunk.limit();
+        }
+        if (total > Integer.MAX_VALUE) {
+            throw new CmisInvalidArgumentException("Content is too large for a byte array.");
+        }
+
+        byte[] result = new byte[(int) total];
+        int pos = 0;
+        for (ByteBuffer chunk : fChunks) {
+            ByteBuffer view = chunk.duplicate();
+            int len = view.limit();
+            view.get(result, pos, len);
+            pos += len;
+        }
+
+        return result;
     }
 
     @Override
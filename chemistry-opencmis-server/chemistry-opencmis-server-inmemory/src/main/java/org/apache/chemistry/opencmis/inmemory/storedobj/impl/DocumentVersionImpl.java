@@ -66,6 +66,21 @@ public class DocumentVersionImpl extends StoredObjectImpl implements DocumentVer
         }
     }
 
+    /**
+     * Creates a version that is restored from a snapshot. The caller sets all
+     * state of the version and adds it to the version series.
+     */
+    DocumentVersionImpl(String repositoryId, VersionedDocumentImpl container) {
+        super();
+        setRepositoryId(repositoryId);
+        fContainer = container;
+    }
+
+    void restoreState(boolean isMajor, boolean isPwc) {
+        fIsMajor = isMajor;
+        fIsPwc = isPwc;
+    }
+
     @Override
     public void setContent(ContentStream content) {
         setContentIntern(content);
@@ -18,15 +18,16 @@
  */
 package org.apache.chemistry.opencmis.inmemory.storedobj.impl;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.apache.chemistry.opencmis.inmemory.storedobj.api.Fileable;
 import org.apache.chemistry.opencmis.inmemory.storedobj.api.MultiFiling;
 
 public class FilingImpl extends StoredObjectImpl implements Fileable, MultiFiling {
 
-    private List<String> parentIds = new ArrayList<String>(1);
+    // read without a lock by the object store, changed under its locks
+    private List<String> parentIds = new CopyOnWriteArrayList<String>();
 
     FilingImpl() {
         super();
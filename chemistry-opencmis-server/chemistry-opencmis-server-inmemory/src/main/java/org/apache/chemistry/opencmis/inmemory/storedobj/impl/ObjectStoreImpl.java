@@ -18,17 +18,27 @@
  */
 package org.apache.chemistry.opencmis.inmemory.storedobj.impl;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.GregorianCalendar;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.apache.chemistry.opencmis.commons.PropertyIds;
 import org.apache.chemistry.opencmis.commons.data.Ace;
@@ -38,6 +48,7 @@ import org.apache.chemistry.opencmis.commons.data.PropertyData;
 import org.apache.chemistry.opencmis.commons.data.RenditionData;
 import org.apache.chemistry.opencmis.commons.enums.AclPropagation;
 import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
+import org.apache.chemistry.opencmis.commons.enums.ChangeType;
 import org.apache.chemistry.opencmis.commons.enums.IncludeRelationships;
 import org.apache.chemistry.opencmis.commons.enums.RelationshipDirection;
 import org.apache.chemistry.opencmis.commons.enums.VersioningState;
@@ -73,28 +84,29 @@ import org.slf4j.LoggerFactory;
  * <p>
  * Certain methods in the in-memory repository must guarantee constraints. For
  * example a folder enforces that each child has a unique name. Therefore
- * certain operations must occur in an atomic manner. In the example it must be
- * guaranteed that no write access occurs to the map between acquiring the
- * iterator to find the children and finishing the add operation when no name
- * conflicts can occur. For this purpose this class has methods to lock an
- * unlock the state of the repository. It is very important that the caller
- * acquiring the lock enforces an unlock under all circumstances. Typical code
- * is:
- * 
- * <pre>
- * {@code
- * ObjectStoreImpl os = ... ;
- * try {
- *     os.lock();
- * } finally {
- *     os.unlock();
- * }
- * }
- * </pre>
- * 
- * The locking is very coarse-grained. Productive implementations would probably
- * implement finer grained locks on a folder or document rather than the
- * complete repository.
+ * certain operations must occur in an atomic manner. The store uses the
+ * following concurrency model:
+ * <ul>
+ * <li>Reads never lock. Objects and all indexes are held in concurrent maps
+ * and sets, ACLs are held in an {@link AclIndex} and the change log is lock
+ * free. A read running concurrently with a change sees the state before or
+ * after the change of each single object.</li>
+ * <li>Changes of the filing structure (creating, deleting, renaming, filing
+ * and unfiling objects) hold the shared side of a read/write lock plus the
+ * locks of the affected folders and of the changed object. Folder locks are
+ * striped by id and always acquired in the same order. Changes in different
+ * folders run in parallel, while name checks and index updates within a
+ * folder are atomic. The parents of an object are read again after locking
+ * and the locks are acquired again if they have changed.</li>
+ * <li>Moving a folder, clearing the store, building a new property index and
+ * loading a snapshot hold the exclusive side of the read/write lock and wait
+ * for all other structural changes. Writing a snapshot holds the shared side
+ * while it copies the objects and writes the copy without a lock.</li>
+ * <li>Changes of the properties, content or ACL of a single object don't
+ * lock. Ids are taken from an atomic counter.</li>
+ * </ul>
+ * The lock helpers are private: callers outside this class never hold a lock
+ * of the store.
  */
 public class ObjectStoreImpl implements ObjectStore {
 
@@ -103,15 +115,24 @@ public class ObjectStoreImpl implements ObjectStore {
     private static final Long MAX_CONTENT_SIZE_KB = ConfigurationSettings
             .getConfigurationValueAsLong(ConfigConstants.MAX_CONTENT_SIZE_KB);
 
+    private static final ContentChunkAllocator CONTENT_ALLOCATOR = createContentAllocator();
+
     /**
      * User id for administrator always having all rights.
      */
     public static final String ADMIN_PRINCIPAL_ID = "Admin";
 
     /**
-     * Simple id generator that uses just an integer.
+     * Id generator shared by all stores so that ids are unique across
+     * repositories.
      */
-    private static int nextUnusedId = FIRST_ID;
+    private static final AtomicLong NEXT_ID = new AtomicLong(FIRST_ID);
+
+    /**
+     * Number of folder locks. Folders are mapped to the locks by the hash
+     * code of their ids.
+     */
+    private static final int FOLDER_LOCK_STRIPES = 64;
 
     /**
      * A concurrent HashMap as core element to hold all objects in the
@@ -120,36 +141,237 @@ public class ObjectStoreImpl implements ObjectStore {
     private final Map<String, StoredObject> fStoredObjectMap = new ConcurrentHashMap<String, StoredObject>();
 
     /**
-     * A concurrent HashMap to hold all Acls in the repository.
+     * Index mapping the id of a folder to the ids of all its children. A
+     * versioned document is indexed with the id of its version series, never
+     * with the ids of the individual versions. This index is maintained on
+     * each structural change so that getting the children of a folder does not
+     * require a scan over all objects in the repository.
+     */
+    private final ConcurrentMap<String, Set<String>> fChildrenMap = new ConcurrentHashMap<String, Set<String>>();
+
+    /**
+     * Index mapping the id of a folder to a map from the path segments of its
+     * children to the child ids. Names may change outside of the control of
+     * the store (e.g. on check-in) so each hit is validated against the object
+     * and a miss falls back to the children index.
+     */
+    private final ConcurrentMap<String, ConcurrentMap<String, String>> fChildNameMap = new ConcurrentHashMap<String, ConcurrentMap<String, String>>();
+
+    /**
+     * Cache of folder paths by folder id. Any rename or move of a folder
+     * affects the paths of all its descendants, so the whole map is replaced
+     * then. A new map instance is used instead of clearing the map so that a
+     * path computed concurrently with the change can never enter the new
+     * cache.
      */
-    private int nextUnusedAclId = 0;
+    private volatile ConcurrentMap<String, String> fFolderPathCache = new ConcurrentHashMap<String, String>();
 
-    private final List<InMemoryAcl> fAcls = new ArrayList<InMemoryAcl>();
+    /**
+     * Index mapping a type id to the ids of all objects of exactly this type.
+     * The query processor uses it to visit only the objects of the queried
+     * type and its subtypes.
+     */
+    private final ConcurrentMap<String, Set<String>> fTypeIndex = new ConcurrentHashMap<String, Set<String>>();
+
+    /**
+     * Optional indexes over the values of custom properties by property id.
+     * They are configured with {@link ConfigConstants#QUERY_INDEX_HASH} and
+     * {@link ConfigConstants#QUERY_INDEX_SORTED} and updated whenever an
+     * object is stored, updated or removed.
+     */
+    private final ConcurrentMap<String, PropertyIndex> fPropertyIndexes = new ConcurrentHashMap<String, PropertyIndex>();
 
-    private final Lock fLock = new ReentrantLock();
+    /**
+     * All Acls in the repository, indexed by their id.
+     */
+    private final AclIndex fAcls = new AclIndex();
+
+    /**
+     * The most recent changes of objects, configured with
+     * {@link ConfigConstants#CHANGE_LOG_CAPACITY}.
+     */
+    private final ChangeLog fChangeLog = createChangeLog();
+
+    /**
+     * Structural changes hold the shared lock, changes that must not run
+     * concurrently with any other structural change hold the exclusive lock.
+     */
+    private final ReadWriteLock fLock = new ReentrantReadWriteLock();
+
+    /**
+     * Striped locks that serialize structural changes within a folder.
+     */
+    private final Lock[] fFolderLocks = createFolderLocks();
 
     private final String fRepositoryId;
-    private FolderImpl fRootFolder = null;
+    private volatile FolderImpl fRootFolder = null;
 
     public ObjectStoreImpl(String repositoryId) {
         fRepositoryId = repositoryId;
+        addPropertyIndexes(ConfigurationSettings.getConfigurationValueAsString(ConfigConstants.QUERY_INDEX_HASH), false);
+        addPropertyIndexes(ConfigurationSettings.getConfigurationValueAsString(ConfigConstants.QUERY_INDEX_SORTED),
+                true);
         createRootFolder();
     }
 
-    private static synchronized Integer getNextId() {
-        return nextUnusedId++;
+    private void addPropertyIndexes(String propertyIds, boolean sorted) {
+        if (null == propertyIds) {
+            return;
+        }
+        for (String propertyId : propertyIds.split(",")) {
+            if (propertyId.trim().length() > 0) {
+                addPropertyIndex(propertyId.trim(), sorted);
+            }
+        }
     }
 
-    private synchronized Integer getNextAclId() {
-        return nextUnusedAclId++;
+    private static ContentChunkAllocator createContentAllocator() {
+        String tempDir = ConfigurationSettings.getConfigurationValueAsString(ConfigConstants.TEMP_DIR);
+        ContentChunkAllocator allocator = ContentChunkAllocator.newInstance(
+                ConfigurationSettings.getConfigurationValueAsString(ConfigConstants.CONTENT_STORE),
+                ConfigurationSettings.getConfigurationValueAsLong(ConfigConstants.CONTENT_CHUNK_SIZE_KB),
+                tempDir == null ? null : new File(tempDir));
+        LOG.info("Content store: " + allocator);
+        return allocator;
     }
 
-    private void lock() {
-        fLock.lock();
+    private static Lock[] createFolderLocks() {
+        Lock[] locks = new Lock[FOLDER_LOCK_STRIPES];
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        return locks;
     }
 
-    private void unlock() {
-        fLock.unlock();
+    private static ChangeLog createChangeLog() {
+        Long capacity = ConfigurationSettings.getConfigurationValueAsLong(ConfigConstants.CHANGE_LOG_CAPACITY);
+        return new ChangeLog(capacity == null ? ChangeLog.DEFAULT_CAPACITY : capacity.intValue());
+    }
+
+    private static String getNextId() {
+        return String.valueOf(NEXT_ID.getAndIncrement());
+    }
+
+    /**
+     * Acquires the shared store lock and the locks of the given folders. The
+     * folder locks are always acquired in the same order so that two threads
+     * locking overlapping folders can't deadlock. {@code null} ids are
+     * ignored.
+     *
+     * @return the acquired locks, to be passed to
+     *         {@link #unlockFolders(List)}
+     */
+    private List<Lock> lockFolders(String... folderIds) {
+        SortedSet<Integer> stripes = new TreeSet<Integer>();
+        for (String folderId : folderIds) {
+            if (null != folderId) {
+                stripes.add((folderId.hashCode() & Integer.MAX_VALUE) % fFolderLocks.length);
+            }
+        }
+
+        List<Lock> locks = new ArrayList<Lock>(stripes.size() + 1);
+        Lock shared = fLock.readLock();
+        shared.lock();
+        locks.add(shared);
+        for (Integer stripe : stripes) {
+            fFolderLocks[stripe].lock();
+            locks.add(fFolderLocks[stripe]);
+        }
+        return locks;
+    }
+
+    /**
+     * Acquires the shared store lock only. It blocks the changes that hold the
+     * exclusive lock but no other structural changes.
+     */
+    private List<Lock> lockShared() {
+        Lock shared = fLock.readLock();
+        shared.lock();
+        return Collections.singletonList(shared);
+    }
+
+    /**
+     * Acquires the exclusive store lock that waits for and blocks all other
+     * structural changes.
+     */
+    private List<Lock> lockExclusive() {
+        Lock exclusive = fLock.writeLock();
+        exclusive.lock();
+        return Collections.singletonList(exclusive);
+    }
+
+    private static void unlockFolders(List<Lock> locks) {
+        for (int i = locks.size() - 1; i >= 0; i--) {
+            locks.get(i).unlock();
+        }
+    }
+
+    /**
+     * Returns the ids that must be locked to change the name or the filing of
+     * an object or to delete it: the parents of the object and the object
+     * itself. Versions are locked by their version series. Locking the object
+     * serializes all changes of its parents, so the parents can only change
+     * before the locks are held.
+     */
+    private static String[] getStructureLockIds(StoredObject so, String... otherIds) {
+        Set<String> ids = new TreeSet<String>();
+        if (so instanceof Fileable) {
+            ids.addAll(((Fileable) so).getParentIds());
+        }
+        if (so instanceof Filing) {
+            ids.add(getIndexedObject((Filing) so).getId());
+        } else if (null != so) {
+            ids.add(so.getId());
+        }
+        for (String id : otherIds) {
+            if (null != id) {
+                ids.add(id);
+            }
+        }
+        return ids.toArray(new String[ids.size()]);
+    }
+
+    /**
+     * Acquires the locks returned by {@link #getStructureLockIds} for the
+     * object with the given id. The parents are read before the locks are
+     * held and may change in the meantime. Therefore the object is read again
+     * after locking and, if its parents have changed, the locks are released
+     * and acquired again for the new parents.
+     */
+    private List<Lock> lockStructure(String objectId, String... otherIds) {
+        while (true) {
+            String[] lockIds = getStructureLockIds(fStoredObjectMap.get(objectId), otherIds);
+            List<Lock> locks = lockFolders(lockIds);
+            if (Arrays.equals(lockIds, getStructureLockIds(fStoredObjectMap.get(objectId), otherIds))) {
+                return locks;
+            }
+            unlockFolders(locks);
+        }
+    }
+
+    /**
+     * Fails if the given folder has been deleted. Must be called with the lock
+     * of the folder held.
+     */
+    private void checkFolderExists(Folder folder) {
+        if (null != folder && null == fStoredObjectMap.get(folder.getId())) {
+            throw new CmisObjectNotFoundException("Folder " + folder.getName() + " does not exist.");
+        }
+    }
+
+    private static String getId(StoredObject so) {
+        return null == so ? null : so.getId();
+    }
+
+    private boolean isSelfOrAncestor(String folderId, Folder folder) {
+        Folder current = folder;
+        while (null != current) {
+            if (folderId.equals(current.getId())) {
+                return true;
+            }
+            current = null == current.getParentId() ? null : (Folder) getObjectById(current.getParentId());
+        }
+        return false;
     }
 
     @Override
@@ -159,28 +381,63 @@ public class ObjectStoreImpl implements ObjectStore {
 
     @Override
     public StoredObject getObjectByPath(String path, String user) {
-        StoredObject so = findObjectWithPathInDescendents(path, user, Filing.PATH_SEPARATOR, fRootFolder);
+        if (null == path || !path.startsWith(Filing.PATH_SEPARATOR)) {
+            return null;
+        } else if (path.equals(Filing.PATH_SEPARATOR)) {
+            return fRootFolder;
+        } else if (path.endsWith(Filing.PATH_SEPARATOR)) {
+            return null;
+        }
+
+        StoredObject so = fRootFolder;
+        String[] segments = path.substring(1).split(Filing.PATH_SEPARATOR);
+        for (String segment : segments) {
+            if (!(so instanceof Folder)) {
+                return null;
+            }
+            so = findChildByName(so.getId(), segment);
+            if (null == so) {
+                return null;
+            }
+        }
+
+        if (so instanceof VersionedDocument) {
+            return ((VersionedDocument) so).getLatestVersion(false);
+        }
         return so;
     }
 
-    private Fileable findObjectWithPathInDescendents(String path, String user, String prefix, Fileable fo) {
-        if (path.equals(prefix)) {
-            return fo;
-        } else if (fo instanceof Folder) {
-            List<Fileable> children = getChildren((Folder) fo);
-            for (Fileable child : children) {
-                String foundPath = prefix.length() == 1 ? prefix + child.getName() : prefix + Filing.PATH_SEPARATOR
-                        + child.getName();
-                if (path.startsWith(foundPath)) {
-                    Fileable found = findObjectWithPathInDescendents(path, user, foundPath, child);
-                    if (null != found) {
-                        return found; // note that there can be multiple folders
-                                      // with the same prefix like folder1,
-                                      // folder10
-                    }
+    /**
+     * Find the child of a folder with a given path segment. A versioned
+     * document is returned as version series.
+     * 
+     * @param folderId
+     *            id of the parent folder
+     * @param name
+     *            path segment of the child
+     * @return child or {@code null} if the folder has no such child
+     */
+    private StoredObject findChildByName(String folderId, String name) {
+        ConcurrentMap<String, String> names = fChildNameMap.get(folderId);
+        if (null != names) {
+            String id = names.get(name);
+            if (null != id) {
+                StoredObject so = getObject(id);
+                if (so instanceof Fileable && name.equals(getSegmentName(so))
+                        && ((Fileable) so).getParentIds().contains(folderId)) {
+                    return so;
                 }
             }
         }
+
+        // index entry is missing or stale, look at all children
+        for (String id : getChildIds(folderId)) {
+            StoredObject so = getObject(id);
+            if (null != so && name.equals(getSegmentName(so))) {
+                getChildNames(folderId).put(name, id);
+                return so;
+            }
+        }
         return null;
     }
 
@@ -193,45 +450,65 @@ public class ObjectStoreImpl implements ObjectStore {
 
     @Override
     public void deleteObject(String objectId, Boolean allVersions, String user) {
-        StoredObject obj = fStoredObjectMap.get(objectId);
+        List<Lock> locks = lockStructure(objectId);
+        try {
+            StoredObject obj = fStoredObjectMap.get(objectId);
 
-        if (null == obj) {
-            throw new CmisObjectNotFoundException("Cannot delete object with id  " + objectId
-                    + ". Object does not exist.");
-        }
+            if (null == obj) {
+                throw new CmisObjectNotFoundException("Cannot delete object with id  " + objectId
+                        + ". Object does not exist.");
+            }
 
-        if (obj instanceof FolderImpl) {
-            deleteFolder(objectId, user);
-        } else if (obj instanceof DocumentVersion) {
-            DocumentVersion vers = (DocumentVersion) obj;
-            VersionedDocument parentDoc = vers.getParentDocument();
-            boolean otherVersionsExists;
-            if (allVersions != null && allVersions) {
-                otherVersionsExists = false;
-                List<DocumentVersion> allVers = parentDoc.getAllVersions();
-                for (DocumentVersion ver : allVers) {
-                    fStoredObjectMap.remove(ver.getId());
+            if (obj instanceof FolderImpl) {
+                deleteFolder(objectId, user);
+            } else if (obj instanceof DocumentVersion) {
+                DocumentVersion vers = (DocumentVersion) obj;
+                VersionedDocument parentDoc = vers.getParentDocument();
+                boolean otherVersionsExists;
+                if (allVersions != null && allVersions) {
+                    otherVersionsExists = false;
+                    List<DocumentVersion> allVers = parentDoc.getAllVersions();
+                    for (DocumentVersion ver : allVers) {
+                        removeFromQueryIndexes(ver.getId(), fStoredObjectMap.remove(ver.getId()));
+                        recordChange(ChangeType.DELETED, ver);
+                    }
+                } else {
+                    removeFromQueryIndexes(objectId, fStoredObjectMap.remove(objectId));
+                    recordChange(ChangeType.DELETED, vers);
+                    otherVersionsExists = parentDoc.deleteVersion(vers);
                 }
-            } else {
-                fStoredObjectMap.remove(objectId);
-                otherVersionsExists = parentDoc.deleteVersion(vers);
-            }
 
-            if (!otherVersionsExists) {
-                fStoredObjectMap.remove(parentDoc.getId());
+                if (!otherVersionsExists) {
+                    removeObject(parentDoc.getId());
+                }
+            } else {
+                removeObject(objectId);
             }
-        } else {
-            fStoredObjectMap.remove(objectId);
+        } finally {
+            unlockFolders(locks);
         }
     }
 
     public String storeObject(StoredObject so) {
         String id = so.getId();
         // check if update or create
-        if (null == id) {
-            id = getNextId().toString();
+        boolean created = null == id;
+        if (created) {
+            id = getNextId();
+            // publish the object with its id to concurrent readers
+            so.setId(id);
         }
         fStoredObjectMap.put(id, so);
+        if (so instanceof Fileable && !(so instanceof DocumentVersion)) {
+            for (String parentId : ((Fileable) so).getParentIds()) {
+                addChildToIndex(parentId, id, getSegmentName(so));
+            }
+        }
+        addToTypeIndex(id, so);
+        updatePropertyIndexes(id, so);
+        if (created && !(so instanceof VersionedDocument)) {
+            fChangeLog.add(ChangeType.CREATED, id, so.getTypeId());
+        }
         return id;
     }
 
@@ -240,7 +517,19 @@ public class ObjectStoreImpl implements ObjectStore {
     }
 
     void removeObject(String id) {
-        fStoredObjectMap.remove(id);
+        StoredObject so = fStoredObjectMap.remove(id);
+        if (so instanceof Fileable && !(so instanceof DocumentVersion)) {
+            for (String parentId : ((Fileable) so).getParentIds()) {
+                removeChildFromIndex(parentId, id, getSegmentName(so));
+            }
+        }
+        removeFromQueryIndexes(id, so);
+        if (!(so instanceof VersionedDocument)) {
+            recordChange(ChangeType.DELETED, so);
+        }
+        fChildrenMap.remove(id);
+        fChildNameMap.remove(id);
+        fFolderPathCache.remove(id);
     }
 
     public Set<String> getIds() {
@@ -253,10 +542,95 @@ public class ObjectStoreImpl implements ObjectStore {
      */
     @Override
     public void clear() {
-        lock();
+        List<Lock> locks = lockExclusive();
+        try {
+            removeAllObjects();
+            storeObject(fRootFolder);
+        } finally {
+            unlockFolders(locks);
+        }
+    }
+
+    private void removeAllObjects() {
         fStoredObjectMap.clear();
-        storeObject(fRootFolder);
-        unlock();
+        fChildrenMap.clear();
+        fChildNameMap.clear();
+        fTypeIndex.clear();
+        for (PropertyIndex index : fPropertyIndexes.values()) {
+            index.clear();
+        }
+        invalidateFolderPaths();
+    }
+
+    /**
+     * Writes a snapshot of all objects, ACLs, version series and content of
+     * the store. The objects are copied into memory while the shared store
+     * lock is held, so folder moves, clearing the store and loading a
+     * snapshot wait for the copy, while all other changes don't. A change
+     * running concurrently with the copy is contained for each single object
+     * before or after the change. The copy is written to the stream without
+     * holding a lock.
+     *
+     * @param out
+     *            stream to write the snapshot to, not closed
+     * @return the number of written objects, versions are counted with their
+     *         version series
+     */
+    public long writeSnapshot(OutputStream out) throws IOException {
+        ObjectStoreSnapshot snapshot = new ObjectStoreSnapshot(this, fAcls, fRepositoryId);
+        ObjectStoreSnapshot.Copy copy;
+        List<Lock> locks = lockShared();
+        try {
+            copy = snapshot.copy(fStoredObjectMap.values());
+        } finally {
+            unlockFolders(locks);
+        }
+        return snapshot.write(out, copy);
+    }
+
+    /**
+     * Replaces all objects of the store with the objects of a snapshot written
+     * by {@link #writeSnapshot(OutputStream)}. Loading a snapshot doesn't
+     * record change events. If the snapshot can't be read, the store is left
+     * empty.
+     *
+     * @param in
+     *            stream to read the snapshot from, not closed
+     * @param threads
+     *            number of threads that decode and store the objects
+     * @return the number of loaded objects including versions
+     */
+    public long readSnapshot(InputStream in, int threads) throws IOException {
+        List<Lock> locks = lockExclusive();
+        boolean loaded = false;
+        try {
+            removeAllObjects();
+            ObjectStoreSnapshot snapshot = new ObjectStoreSnapshot(this, fAcls, fRepositoryId);
+            long count = snapshot.read(in, threads);
+            if (null == snapshot.getRootFolder()) {
+                throw new IOException("The snapshot doesn't contain a root folder.");
+            }
+            fRootFolder = snapshot.getRootFolder();
+            reserveIds(snapshot.getMaxId());
+            loaded = true;
+            return count;
+        } finally {
+            if (!loaded) {
+                removeAllObjects();
+                storeObject(fRootFolder);
+            }
+            unlockFolders(locks);
+        }
+    }
+
+    /**
+     * Makes sure that new ids are larger than the given id.
+     */
+    private static void reserveIds(long maxId) {
+        long next = NEXT_ID.get();
+        while (next <= maxId && !NEXT_ID.compareAndSet(next, maxId + 1)) {
+            next = NEXT_ID.get();
+        }
     }
 
     @Override
@@ -285,118 +659,142 @@ public class ObjectStoreImpl implements ObjectStore {
     @Override
     public Document createDocument(Map<String, PropertyData<?>> propMap, String user, Folder folder,
             ContentStream contentStream, List<String> policies, Acl addACEs, Acl removeACEs) {
-        String name = (String) propMap.get(PropertyIds.NAME).getFirstValue();
-        DocumentImpl doc = new DocumentImpl();
-        doc.createSystemBasePropertiesWhenCreated(propMap, user);
-        doc.setCustomProperties(propMap);
-        doc.setRepositoryId(fRepositoryId);
-        doc.setName(name);
-        if (null != folder) {
-            if (hasChild(folder, name)) {
-                throw new CmisNameConstraintViolationException("Cannot create document an object with name " + name
-                        + " already exists in folder " + getFolderPath(folder.getId()));
-            }
-            doc.addParentId(folder.getId());
-        }
-        ContentStream content = setContent(doc, contentStream);
-        doc.setContent(content);
-        int aclId = getAclId(((FolderImpl) folder), addACEs, removeACEs);
-        doc.setAclId(aclId);
-        if (null != policies) {
-            doc.setAppliedPolicies(policies);
-        }
-        String id = storeObject(doc);
-        doc.setId(id);
-        applyAcl(doc, addACEs, removeACEs);
-        return doc;
+        List<Lock> locks = lockFolders(getId(folder));
+        try {
+            checkFolderExists(folder);
+            String name = (String) propMap.get(PropertyIds.NAME).getFirstValue();
+            DocumentImpl doc = new DocumentImpl();
+            doc.createSystemBasePropertiesWhenCreated(propMap, user);
+            doc.setCustomProperties(propMap);
+            doc.setRepositoryId(fRepositoryId);
+            doc.setName(name);
+            if (null != folder) {
+                if (hasChild(folder, name)) {
+                    throw new CmisNameConstraintViolationException("Cannot create document an object with name " + name
+                            + " already exists in folder " + getFolderPath(folder.getId()));
+                }
+                doc.addParentId(folder.getId());
+            }
+            ContentStream content = setContent(doc, contentStream);
+            doc.setContent(content);
+            int aclId = getAclId(((FolderImpl) folder), addACEs, removeACEs);
+            doc.setAclId(aclId);
+            if (null != policies) {
+                doc.setAppliedPolicies(policies);
+            }
+            String id = storeObject(doc);
+            doc.setId(id);
+            applyAcl(doc, addACEs, removeACEs);
+            return doc;
+        } finally {
+            unlockFolders(locks);
+        }
     }
 
     @Override
     public StoredObject createItem(String name, Map<String, PropertyData<?>> propMap, String user, Folder folder,
             List<String> policies, Acl addACEs, Acl removeACEs) {
-        ItemImpl item = new ItemImpl();
-        item.createSystemBasePropertiesWhenCreated(propMap, user);
-        item.setCustomProperties(propMap);
-        item.setRepositoryId(fRepositoryId);
-        item.setName(name);
-        if (null != folder) {
-            if (hasChild(folder, name)) {
-                throw new CmisNameConstraintViolationException("Cannot create document an object with name " + name
-                        + " already exists in folder " + getFolderPath(folder.getId()));
+        List<Lock> locks = lockFolders(getId(folder));
+        try {
+            checkFolderExists(folder);
+            ItemImpl item = new ItemImpl();
+            item.createSystemBasePropertiesWhenCreated(propMap, user);
+            item.setCustomProperties(propMap);
+            item.setRepositoryId(fRepositoryId);
+            item.setName(name);
+            if (null != folder) {
+                if (hasChild(folder, name)) {
+                    throw new CmisNameConstraintViolationException("Cannot create document an object with name " + name
+                            + " already exists in folder " + getFolderPath(folder.getId()));
+                }
+                item.addParentId(folder.getId());
             }
-            item.addParentId(folder.getId());
-        }
-        if (null != policies) {
-            item.setAppliedPolicies(policies);
+            if (null != policies) {
+                item.setAppliedPolicies(policies);
+            }
+            int aclId = getAclId(((FolderImpl) folder), addACEs, removeACEs);
+            item.setAclId(aclId);
+            String id = storeObject(item);
+            item.setId(id);
+            applyAcl(item, addACEs, removeACEs);
+            return item;
+        } finally {
+            unlockFolders(locks);
         }
-        int aclId = getAclId(((FolderImpl) folder), addACEs, removeACEs);
-        item.setAclId(aclId);
-        String id = storeObject(item);
-        item.setId(id);
-        applyAcl(item, addACEs, removeACEs);
-        return item;
     }
 
     @Override
     public DocumentVersion createVersionedDocument(String name, Map<String, PropertyData<?>> propMap, String user,
             Folder folder, List<String> policies, Acl addACEs, Acl removeACEs, ContentStream contentStream,
             VersioningState versioningState) {
-        VersionedDocumentImpl doc = new VersionedDocumentImpl();
-        doc.createSystemBasePropertiesWhenCreated(propMap, user);
-        doc.setCustomProperties(propMap);
-        doc.setRepositoryId(fRepositoryId);
-        doc.setName(name);
-        String id = storeObject(doc);
-        doc.setId(id);
-        DocumentVersion version = doc.addVersion(versioningState, user);
-        setContent(version, contentStream);
-        version.createSystemBasePropertiesWhenCreated(propMap, user);
-        version.setCustomProperties(propMap);
-        if (null != folder) {
-            if (hasChild(folder, name)) {
-                throw new CmisNameConstraintViolationException("Cannot create document an object with name " + name
-                        + " already exists in folder " + getFolderPath(folder.getId()));
-            }
-            doc.addParentId(folder.getId());
-        }
-        int aclId = getAclId(((FolderImpl) folder), addACEs, removeACEs);
-        doc.setAclId(aclId);
-        if (null != policies) {
-            doc.setAppliedPolicies(policies);
-        }
-        id = storeObject(version);
-        version.setId(id);
-        applyAcl(doc, addACEs, removeACEs);
-        return version;
+        List<Lock> locks = lockFolders(getId(folder));
+        try {
+            checkFolderExists(folder);
+            VersionedDocumentImpl doc = new VersionedDocumentImpl();
+            doc.createSystemBasePropertiesWhenCreated(propMap, user);
+            doc.setCustomProperties(propMap);
+            doc.setRepositoryId(fRepositoryId);
+            doc.setName(name);
+            String id = storeObject(doc);
+            doc.setId(id);
+            DocumentVersion version = doc.addVersion(versioningState, user);
+            setContent(version, contentStream);
+            version.createSystemBasePropertiesWhenCreated(propMap, user);
+            version.setCustomProperties(propMap);
+            if (null != folder) {
+                if (hasChild(folder, name)) {
+                    throw new CmisNameConstraintViolationException("Cannot create document an object with name " + name
+                            + " already exists in folder " + getFolderPath(folder.getId()));
+                }
+                addParentIntern(doc, folder);
+            }
+            int aclId = getAclId(((FolderImpl) folder), addACEs, removeACEs);
+            doc.setAclId(aclId);
+            if (null != policies) {
+                doc.setAppliedPolicies(policies);
+            }
+            id = storeObject(version);
+            version.setId(id);
+            applyAcl(doc, addACEs, removeACEs);
+            return version;
+        } finally {
+            unlockFolders(locks);
+        }
     }
 
     @Override
     public Folder createFolder(String name, Map<String, PropertyData<?>> propMap, String user, Folder parent,
             List<String> policies, Acl addACEs, Acl removeACEs) {
+        List<Lock> locks = lockFolders(getId(parent));
+        try {
+            if (null == parent) {
+                throw new CmisInvalidArgumentException("Cannot create root folder.");
+            }
+            checkFolderExists(parent);
+            if (hasChild(parent, name)) {
+                throw new CmisNameConstraintViolationException(
+                        "Cannot create folder, this name already exists in parent folder.");
+            }
+            FolderImpl folder = new FolderImpl(name, parent.getId());
+            if (null != propMap) {
+                folder.createSystemBasePropertiesWhenCreated(propMap, user);
+                folder.setCustomProperties(propMap);
+            }
+            folder.setRepositoryId(fRepositoryId);
 
-        if (null == parent) {
-            throw new CmisInvalidArgumentException("Cannot create root folder.");
-        } else if (hasChild(parent, name)) {
-            throw new CmisNameConstraintViolationException(
-                    "Cannot create folder, this name already exists in parent folder.");
-        }
-        FolderImpl folder = new FolderImpl(name, parent.getId());
-        if (null != propMap) {
-            folder.createSystemBasePropertiesWhenCreated(propMap, user);
-            folder.setCustomProperties(propMap);
-        }
-        folder.setRepositoryId(fRepositoryId);
+            int aclId = getAclId(((FolderImpl) parent), addACEs, removeACEs);
+            folder.setAclId(aclId);
+            if (null != policies) {
+                folder.setAppliedPolicies(policies);
+            }
 
-        int aclId = getAclId(((FolderImpl) parent), addACEs, removeACEs);
-        folder.setAclId(aclId);
-        if (null != policies) {
-            folder.setAppliedPolicies(policies);
+            String id = storeObject(folder);
+            folder.setId(id);
+            applyAcl(folder, addACEs, removeACEs);
+            return folder;
+        } finally {
+            unlockFolders(locks);
         }
-
-        String id = storeObject(folder);
-        folder.setId(id);
-        applyAcl(folder, addACEs, removeACEs);
-        return folder;
     }
 
     public Folder createFolder(String name) {
@@ -408,37 +806,46 @@ public class ObjectStoreImpl implements ObjectStore {
     @Override
     public StoredObject createPolicy(String name, String policyText, Map<String, PropertyData<?>> propMap, String user,
             Acl addACEs, Acl removeACEs) {
-        PolicyImpl policy = new PolicyImpl();
-        policy.createSystemBasePropertiesWhenCreated(propMap, user);
-        policy.setCustomProperties(propMap);
-        policy.setRepositoryId(fRepositoryId);
-        policy.setName(name);
-        policy.setPolicyText(policyText);
-        String id = storeObject(policy);
-        policy.setId(id);
-        applyAcl(policy, addACEs, removeACEs);
-        return policy;
+        List<Lock> locks = lockFolders();
+        try {
+            PolicyImpl policy = new PolicyImpl();
+            policy.createSystemBasePropertiesWhenCreated(propMap, user);
+            policy.setCustomProperties(propMap);
+            policy.setRepositoryId(fRepositoryId);
+            policy.setName(name);
+            policy.setPolicyText(policyText);
+            String id = storeObject(policy);
+            policy.setId(id);
+            applyAcl(policy, addACEs, removeACEs);
+            return policy;
+        } finally {
+            unlockFolders(locks);
+        }
     }
 
     @Override
     public StoredObject createRelationship(String name, StoredObject sourceObject, StoredObject targetObject,
             Map<String, PropertyData<?>> propMap, String user, Acl addACEs, Acl removeACEs) {
-
-        RelationshipImpl rel = new RelationshipImpl();
-        rel.createSystemBasePropertiesWhenCreated(propMap, user);
-        rel.setCustomProperties(propMap);
-        rel.setRepositoryId(fRepositoryId);
-        rel.setName(name);
-        if (null != sourceObject) {
-            rel.setSource(sourceObject.getId());
-        }
-        if (null != targetObject) {
-            rel.setTarget(targetObject.getId());
+        List<Lock> locks = lockFolders();
+        try {
+            RelationshipImpl rel = new RelationshipImpl();
+            rel.createSystemBasePropertiesWhenCreated(propMap, user);
+            rel.setCustomProperties(propMap);
+            rel.setRepositoryId(fRepositoryId);
+            rel.setName(name);
+            if (null != sourceObject) {
+                rel.setSource(sourceObject.getId());
+            }
+            if (null != targetObject) {
+                rel.setTarget(targetObject.getId());
+            }
+            String id = storeObject(rel);
+            rel.setId(id);
+            applyAcl(rel, addACEs, removeACEs);
+            return rel;
+        } finally {
+            unlockFolders(locks);
         }
-        String id = storeObject(rel);
-        rel.setId(id);
-        applyAcl(rel, addACEs, removeACEs);
-        return rel;
     }
 
     @Override
@@ -450,6 +857,8 @@ public class ObjectStoreImpl implements ObjectStore {
     @Override
     public void deleteVersion(DocumentVersion version) {
         StoredObject found = fStoredObjectMap.remove(version.getId());
+        removeFromQueryIndexes(version.getId(), found);
+        recordChange(ChangeType.DELETED, found);
 
         if (null == found) {
             throw new CmisInvalidArgumentException("Cannot delete object with id  " + version.getId()
@@ -476,6 +885,8 @@ public class ObjectStoreImpl implements ObjectStore {
         // update system properties and secondary object type ids
         so.updateSystemBasePropertiesWhenModified(properties, user);
         properties.remove(PropertyIds.SECONDARY_OBJECT_TYPE_IDS);
+        updatePropertyIndexes(so.getId(), so);
+        recordChange(ChangeType.UPDATED, so);
     }
 
     @Override
@@ -523,9 +934,19 @@ public class ObjectStoreImpl implements ObjectStore {
 
     @Override
     public String getFolderPath(String folderId) {
-        StringBuilder sb = new StringBuilder();
-        insertPathSegment(sb, folderId);
-        return sb.toString();
+        ConcurrentMap<String, String> pathCache = fFolderPathCache;
+        String path = pathCache.get(folderId);
+        if (null == path) {
+            StringBuilder sb = new StringBuilder();
+            insertPathSegment(sb, folderId);
+            path = sb.toString();
+            pathCache.put(folderId, path);
+        }
+        return path;
+    }
+
+    private void invalidateFolderPaths() {
+        fFolderPathCache = new ConcurrentHashMap<String, String>();
     }
 
     private void insertPathSegment(StringBuilder sb, String folderId) {
@@ -544,7 +965,9 @@ public class ObjectStoreImpl implements ObjectStore {
     @Override
     public Acl applyAcl(StoredObject so, Acl addAces, Acl removeAces, AclPropagation aclPropagation, String principalId) {
         if (aclPropagation == AclPropagation.OBJECTONLY || !(so instanceof Folder)) {
-            return applyAcl(so, addAces, removeAces);
+            Acl result = applyAcl(so, addAces, removeAces);
+            recordChange(ChangeType.SECURITY, so);
+            return result;
         } else {
             return applyAclRecursive(((Folder) so), addAces, removeAces, principalId);
         }
@@ -553,20 +976,16 @@ public class ObjectStoreImpl implements ObjectStore {
     @Override
     public Acl applyAcl(StoredObject so, Acl acl, AclPropagation aclPropagation, String principalId) {
         if (aclPropagation == AclPropagation.OBJECTONLY || !(so instanceof Folder)) {
-            return applyAcl(so, acl);
+            Acl result = applyAcl(so, acl);
+            recordChange(ChangeType.SECURITY, so);
+            return result;
         } else {
             return applyAclRecursive(((Folder) so), acl, principalId);
         }
     }
 
     public List<Integer> getAllAclsForUser(String principalId, Permission permission) {
-        List<Integer> acls = new ArrayList<Integer>();
-        for (InMemoryAcl acl : fAcls) {
-            if (acl.hasPermission(principalId, permission)) {
-                acls.add(acl.getId());
-            }
-        }
-        return acls;
+        return fAcls.getPermittedAclIds(principalId, permission);
     }
 
     @Override
@@ -651,12 +1070,11 @@ public class ObjectStoreImpl implements ObjectStore {
         }
 
         // check if children exist
-        List<Fileable> children = getChildren((Folder) folder, -1, -1, user, true).getChildren();
-        if (children != null && !children.isEmpty()) {
+        if (!isFolderEmpty(folderId)) {
             throw new CmisConstraintException("Cannot delete folder with id:  " + folderId + ". Folder is not empty.");
         }
 
-        fStoredObjectMap.remove(folderId);
+        removeObject(folderId);
     }
 
     @Override
@@ -675,17 +1093,13 @@ public class ObjectStoreImpl implements ObjectStore {
         return new ChildrenResult(children, noItems);
     }
 
-    private List<Fileable> getChildren(Folder folder) {
-        return getChildren(folder, null, false);
-    }
-
     private List<Fileable> getChildren(Folder folder, String user, boolean usePwc) {
         List<Fileable> children = new ArrayList<Fileable>();
-        for (String id : getIds()) {
+        for (String id : getChildIds(folder.getId())) {
             StoredObject obj = getObject(id);
             if (obj instanceof Fileable) {
                 Fileable pathObj = (Fileable) obj;
-                if ((null == user || hasReadAccess(user, obj)) && pathObj.getParentIds().contains(folder.getId())) {
+                if (null == user || hasReadAccess(user, obj)) {
                     if (pathObj instanceof VersionedDocument) {
                         DocumentVersion ver;
                         if (usePwc) {
@@ -711,13 +1125,10 @@ public class ObjectStoreImpl implements ObjectStore {
     @Override
     public ChildrenResult getFolderChildren(Folder folder, int maxItems, int skipCount, String user) {
         List<Fileable> folderChildren = new ArrayList<Fileable>();
-        for (String id : getIds()) {
+        for (String id : getChildIds(folder.getId())) {
             StoredObject obj = getObject(id);
-            if (hasReadAccess(user, obj) && obj instanceof Folder) {
-                Folder childFolder = (Folder) obj;
-                if (childFolder.getParentIds().contains(folder.getId())) {
-                    folderChildren.add(childFolder);
-                }
+            if (obj instanceof Folder && hasReadAccess(user, obj)) {
+                folderChildren.add((Folder) obj);
             }
         }
         sortFolderList(folderChildren);
@@ -732,28 +1143,50 @@ public class ObjectStoreImpl implements ObjectStore {
 
     @Override
     public void move(StoredObject so, Folder oldParent, Folder newParent, String user) {
+        // moving a folder changes the paths of all its descendants and must
+        // not run concurrently with another folder move that could create a
+        // cycle
+        boolean exclusive = so instanceof Folder;
+        List<Lock> locks = exclusive ? lockExclusive() : lockStructure(so.getId(), newParent.getId());
         try {
+            // the caller read the parents without a lock
+            if (null == fStoredObjectMap.get(so.getId())) {
+                throw new CmisObjectNotFoundException("Cannot move object " + so.getName()
+                        + ". Object does not exist.");
+            }
+            if (!((Fileable) so).getParentIds().contains(oldParent.getId())) {
+                throw new CmisInvalidArgumentException("Cannot move object " + so.getName()
+                        + ". Object is not filed in folder " + oldParent.getName() + ".");
+            }
+            checkFolderExists(newParent);
             if (hasChild(newParent, so.getName())) {
                 throw new CmisInvalidArgumentException("Cannot move object " + so.getName() + " to folder "
                         + getFolderPath(newParent.getId()) + ". A child with this name already exists.");
             }
-            lock();
+            if (exclusive && isSelfOrAncestor(so.getId(), newParent)) {
+                throw new CmisInvalidArgumentException("Cannot move folder " + so.getName()
+                        + " to itself or one of its descendants.");
+            }
             if (so instanceof MultiFiling) {
                 MultiFiling fi = (MultiFiling) so;
                 addParentIntern(fi, newParent);
                 removeParentIntern(fi, oldParent);
             } else if (so instanceof FolderImpl) {
+                removeChildFromIndex(oldParent.getId(), so.getId(), so.getName());
                 ((FolderImpl) so).setParentId(newParent.getId());
+                addChildToIndex(newParent.getId(), so.getId(), so.getName());
+                invalidateFolderPaths();
             }
+            recordChange(ChangeType.UPDATED, so);
         } finally {
-            unlock();
+            unlockFolders(locks);
         }
     }
 
     @Override
     public void rename(StoredObject so, String newName, String user) {
+        List<Lock> locks = lockStructure(so.getId());
         try {
-            lock();
             if (so.getId().equals(fRootFolder.getId())) {
                 throw new CmisInvalidArgumentException("Root folder cannot be renamed.");
             }
@@ -769,20 +1202,26 @@ public class ObjectStoreImpl implements ObjectStore {
                     }
                 }
             }
+            String oldName = so.getName();
             so.setName(newName);
+            if (so instanceof Fileable) {
+                StoredObject indexed = getIndexedObject((Fileable) so);
+                for (String folderId : ((Fileable) so).getParentIds()) {
+                    removeChildFromIndex(folderId, indexed.getId(), oldName);
+                    addChildToIndex(folderId, indexed.getId(), getSegmentName(indexed));
+                }
+            }
+            if (so instanceof Folder) {
+                invalidateFolderPaths();
+            }
+            recordChange(ChangeType.UPDATED, so);
         } finally {
-            unlock();
+            unlockFolders(locks);
         }
     }
 
     private boolean hasChild(Folder folder, String name) {
-        List<Fileable> children = getChildren(folder);
-        for (Fileable child : children) {
-            if (child.getName().equals(name)) {
-                return true;
-            }
-        }
-        return false;
+        return null != findChildByName(folder.getId(), name);
     }
 
     @Override
@@ -837,18 +1276,11 @@ public class ObjectStoreImpl implements ObjectStore {
         if (null != principalId && principalId.equals(ADMIN_PRINCIPAL_ID)) {
             return true;
         }
-        List<Integer> aclIds = getAllAclsForUser(principalId, permission);
-        return aclIds.contains(((StoredObjectImpl) so).getAclId());
+        return fAcls.hasPermission(principalId, ((StoredObjectImpl) so).getAclId(), permission);
     }
 
     private InMemoryAcl getInMemoryAcl(int aclId) {
-
-        for (InMemoryAcl acl : fAcls) {
-            if (aclId == acl.getId()) {
-                return acl;
-            }
-        }
-        return null;
+        return fAcls.get(aclId);
     }
 
     private int setAcl(StoredObjectImpl so, Acl acl) {
@@ -862,41 +1294,12 @@ public class ObjectStoreImpl implements ObjectStore {
         return aclId;
     }
 
-    /**
-     * Check if an Acl is already known.
-     * 
-     * @param acl
-     *            acl to be checked
-     * @return 0 if Acl is not known, id of Acl otherwise
-     */
-    private int hasAcl(InMemoryAcl acl) {
-        for (InMemoryAcl acl2 : fAcls) {
-            if (acl2.equals(acl)) {
-                return acl2.getId();
-            }
-        }
-        return -1;
-    }
-
     private int addAcl(InMemoryAcl acl) {
-        int aclId = -1;
-
         if (null == acl) {
             return 0;
         }
 
-        lock();
-        try {
-            aclId = hasAcl(acl);
-            if (aclId < 0) {
-                aclId = getNextAclId();
-                acl.setId(aclId);
-                fAcls.add(acl);
-            }
-        } finally {
-            unlock();
-        }
-        return aclId;
+        return fAcls.add(acl);
     }
 
     private Acl applyAcl(StoredObject so, Acl acl) {
@@ -913,6 +1316,7 @@ public class ObjectStoreImpl implements ObjectStore {
     private Acl applyAclRecursive(Folder folder, Acl addAces, Acl removeAces, String principalId) {
         List<Fileable> children = getChildren(folder, -1, -1, ADMIN_PRINCIPAL_ID, false).getChildren();
         Acl result = applyAcl(folder, addAces, removeAces);
+        recordChange(ChangeType.SECURITY, folder);
 
         if (null == children) {
             return result;
@@ -924,6 +1328,7 @@ public class ObjectStoreImpl implements ObjectStore {
                     applyAclRecursive((Folder) child, addAces, removeAces, principalId);
                 } else {
                     applyAcl(child, addAces, removeAces);
+                    recordChange(ChangeType.SECURITY, child);
                 }
             }
         }
@@ -934,6 +1339,7 @@ public class ObjectStoreImpl implements ObjectStore {
     private Acl applyAclRecursive(Folder folder, Acl acl, String principalId) {
         List<Fileable> children = getChildren(folder, -1, -1, ADMIN_PRINCIPAL_ID, false).getChildren();
         Acl result = applyAcl(folder, acl);
+        recordChange(ChangeType.SECURITY, folder);
 
         if (null == children) {
             return result;
@@ -945,6 +1351,7 @@ public class ObjectStoreImpl implements ObjectStore {
                     applyAclRecursive((Folder) child, acl, principalId);
                 } else {
                     applyAcl(child, acl);
+                    recordChange(ChangeType.SECURITY, child);
                 }
             }
         }
@@ -985,8 +1392,12 @@ public class ObjectStoreImpl implements ObjectStore {
 
     @Override
     public void addParent(StoredObject so, Folder parent) {
+        List<Lock> locks = lockStructure(so.getId(), parent.getId());
         try {
-            lock();
+            if (null == fStoredObjectMap.get(so.getId())) {
+                throw new CmisObjectNotFoundException("Object " + so.getId() + " does not exist.");
+            }
+            checkFolderExists(parent);
             if (hasChild(parent, so.getName())) {
                 throw new IllegalArgumentException(
                         "Cannot assign new parent folder, this name already exists in target folder.");
@@ -999,15 +1410,16 @@ public class ObjectStoreImpl implements ObjectStore {
             }
 
             addParentIntern(mfi, parent);
+            recordChange(ChangeType.UPDATED, so);
         } finally {
-            unlock();
+            unlockFolders(locks);
         }
     }
 
     @Override
     public void removeParent(StoredObject so, Folder parent) {
+        List<Lock> locks = lockStructure(so.getId(), parent.getId());
         try {
-            lock();
             MultiFiling mfi;
             if (so instanceof MultiFiling) {
                 mfi = (MultiFiling) so;
@@ -1016,17 +1428,228 @@ public class ObjectStoreImpl implements ObjectStore {
             }
 
             removeParentIntern(mfi, parent);
+            recordChange(ChangeType.UPDATED, so);
         } finally {
-            unlock();
+            unlockFolders(locks);
         }
     }
 
     private void addParentIntern(MultiFiling so, Folder parent) {
         so.addParentId(parent.getId());
+        StoredObject indexed = getIndexedObject(so);
+        addChildToIndex(parent.getId(), indexed.getId(), getSegmentName(indexed));
     }
 
     private void removeParentIntern(MultiFiling so, Folder parent) {
         so.removeParentId(parent.getId());
+        StoredObject indexed = getIndexedObject(so);
+        removeChildFromIndex(parent.getId(), indexed.getId(), getSegmentName(indexed));
+    }
+
+    /**
+     * Get the object that is registered in the children index for an object.
+     * Versions are represented by their version series.
+     */
+    private static StoredObject getIndexedObject(Filing so) {
+        if (so instanceof DocumentVersion) {
+            return ((DocumentVersion) so).getParentDocument();
+        } else {
+            return (StoredObject) so;
+        }
+    }
+
+    /**
+     * Get the path segment of an object as it is used for path lookups. For a
+     * version series this is the name of the latest version.
+     */
+    private static String getSegmentName(StoredObject so) {
+        if (so instanceof VersionedDocument) {
+            DocumentVersion ver = ((VersionedDocument) so).getLatestVersion(false);
+            if (null != ver) {
+                return ver.getName();
+            }
+        }
+        return so.getName();
+    }
+
+    private void addChildToIndex(String parentId, String childId, String name) {
+        Set<String> childIds = fChildrenMap.get(parentId);
+        if (null == childIds) {
+            Set<String> newChildIds = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+            childIds = fChildrenMap.putIfAbsent(parentId, newChildIds);
+            if (null == childIds) {
+                childIds = newChildIds;
+            }
+        }
+        childIds.add(childId);
+        if (null != name) {
+            getChildNames(parentId).put(name, childId);
+        }
+    }
+
+    private void removeChildFromIndex(String parentId, String childId, String name) {
+        Set<String> childIds = fChildrenMap.get(parentId);
+        if (null != childIds) {
+            childIds.remove(childId);
+        }
+        ConcurrentMap<String, String> names = fChildNameMap.get(parentId);
+        if (null != names && null != name) {
+            names.remove(name, childId);
+        }
+    }
+
+    private ConcurrentMap<String, String> getChildNames(String folderId) {
+        ConcurrentMap<String, String> names = fChildNameMap.get(folderId);
+        if (null == names) {
+            ConcurrentMap<String, String> newNames = new ConcurrentHashMap<String, String>();
+            names = fChildNameMap.putIfAbsent(folderId, newNames);
+            if (null == names) {
+                names = newNames;
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Returns the ids of the children of a folder regardless of the visibility
+     * of the children for a specific user. Versioned documents are
+     * represented by the id of their version series. The returned set must not
+     * be modified.
+     */
+    public Set<String> getChildIds(String folderId) {
+        Set<String> childIds = fChildrenMap.get(folderId);
+        return null == childIds ? Collections.<String> emptySet() : childIds;
+    }
+
+    /**
+     * Returns the ids of all objects of exactly the given type, not including
+     * subtypes. The returned set must not be modified.
+     */
+    public Set<String> getIdsOfType(String typeId) {
+        Set<String> ids = fTypeIndex.get(typeId);
+        return null == ids ? Collections.<String> emptySet() : ids;
+    }
+
+    /**
+     * Returns the index over the values of a property or {@code null} if the
+     * property is not indexed.
+     */
+    public PropertyIndex getPropertyIndex(String propertyId) {
+        return fPropertyIndexes.get(propertyId);
+    }
+
+    /**
+     * Creates an index over the values of a custom property and indexes all
+     * existing objects. System properties (cmis:*) can't be indexed because
+     * most of their values are computed.
+     * 
+     * @param propertyId
+     *            id of the property
+     * @param sorted
+     *            {@code true} for an index that supports range queries,
+     *            {@code false} for a hash index
+     */
+    public void addPropertyIndex(String propertyId, boolean sorted) {
+        if (propertyId.startsWith("cmis:")) {
+            LOG.warn("System property " + propertyId + " can't be indexed.");
+            return;
+        }
+
+        List<Lock> locks = lockExclusive();
+        try {
+            PropertyIndex index = new PropertyIndex(propertyId, sorted);
+            for (Map.Entry<String, StoredObject> entry : fStoredObjectMap.entrySet()) {
+                Map<String, PropertyData<?>> properties = entry.getValue().getProperties();
+                index.update(entry.getKey(), properties == null ? null : properties.get(propertyId));
+            }
+            fPropertyIndexes.put(propertyId, index);
+            LOG.info("Repository " + fRepositoryId + ": created " + index);
+        } finally {
+            unlockFolders(locks);
+        }
+    }
+
+    /**
+     * Updates the query indexes of an object whose properties have been changed
+     * without calling {@link #updateObject(StoredObject, Map, String)}, for
+     * example on check-in.
+     */
+    public void reindexObject(StoredObject so) {
+        if (null != so && null != so.getId()) {
+            updatePropertyIndexes(so.getId(), so);
+            recordChange(ChangeType.UPDATED, so);
+        }
+    }
+
+    /**
+     * Returns the change log of this store.
+     */
+    public ChangeLog getChangeLog() {
+        return fChangeLog;
+    }
+
+    /**
+     * Records a change of an object that has already been stored. Objects
+     * that are still being created have no id yet and are recorded when they
+     * are stored.
+     */
+    private void recordChange(ChangeType changeType, StoredObject so) {
+        if (null != so && null != so.getId()) {
+            fChangeLog.add(changeType, so.getId(), so.getTypeId());
+        }
+    }
+
+    private void addToTypeIndex(String id, StoredObject so) {
+        String typeId = so.getTypeId();
+        if (null == typeId) {
+            return;
+        }
+        Set<String> ids = fTypeIndex.get(typeId);
+        if (null == ids) {
+            Set<String> newIds = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+            ids = fTypeIndex.putIfAbsent(typeId, newIds);
+            if (null == ids) {
+                ids = newIds;
+            }
+        }
+        ids.add(id);
+    }
+
+    private void updatePropertyIndexes(String id, StoredObject so) {
+        if (fPropertyIndexes.isEmpty()) {
+            return;
+        }
+        Map<String, PropertyData<?>> properties = so.getProperties();
+        for (PropertyIndex index : fPropertyIndexes.values()) {
+            index.update(id, properties == null ? null : properties.get(index.getPropertyId()));
+        }
+    }
+
+    private void removeFromQueryIndexes(String id, StoredObject so) {
+        if (null == so) {
+            return;
+        }
+        if (null != so.getTypeId()) {
+            Set<String> ids = fTypeIndex.get(so.getTypeId());
+            if (null != ids) {
+                ids.remove(id);
+            }
+        }
+        for (PropertyIndex index : fPropertyIndexes.values()) {
+            index.remove(id);
+        }
+    }
+
+    /**
+     * Check if a folder has any children regardless of the visibility of the
+     * children for a specific user.
+     * 
+     * @param folderId
+     *            id of the folder
+     * @return true if folder does not contain any children, false otherwise
+     */
+    public boolean isFolderEmpty(String folderId) {
+        return getChildIds(folderId).isEmpty();
     }
 
     private static void sortFolderList(List<? extends StoredObject> list) {
@@ -1071,9 +1694,7 @@ public class ObjectStoreImpl implements ObjectStore {
             if (null == contentStream) {
                 newContent = null;
             } else {
-                boolean useFakeContentStore = so.getTypeId().equals(DefaultTypeSystemCreator.BIG_CONTENT_FAKE_TYPE);
-                newContent = new ContentStreamDataImpl(MAX_CONTENT_SIZE_KB == null ? 0 : MAX_CONTENT_SIZE_KB,
-                        useFakeContentStore);
+                newContent = newContentStream(so);
                 String fileName = contentStream.getFileName();
                 if (null == fileName || fileName.length() <= 0) {
                     fileName = so.getName(); // use name of document as fallback
@@ -1092,6 +1713,7 @@ public class ObjectStoreImpl implements ObjectStore {
                 }
             }
             content.setContent(newContent);
+            recordChange(ChangeType.UPDATED, so);
             return newContent;
 
         } else {
@@ -1099,6 +1721,19 @@ public class ObjectStoreImpl implements ObjectStore {
         }
     }
 
+    /**
+     * Creates an empty content stream for an object. Objects of the fake
+     * content type only keep the length of their content.
+     */
+    ContentStreamDataImpl newContentStream(StoredObject so) {
+        return new ContentStreamDataImpl(MAX_CONTENT_SIZE_KB == null ? 0 : MAX_CONTENT_SIZE_KB, isFakeContent(so),
+                CONTENT_ALLOCATOR);
+    }
+
+    static boolean isFakeContent(StoredObject so) {
+        return DefaultTypeSystemCreator.BIG_CONTENT_FAKE_TYPE.equals(so.getTypeId());
+    }
+
     @Override
     public void appendContent(StoredObject so, ContentStream contentStream) {
         if (so instanceof Content) {
@@ -1114,6 +1749,7 @@ public class ObjectStoreImpl implements ObjectStore {
                     throw new CmisStorageException("Failed to append content: IO Exception", e);
                 }
             }
+            recordChange(ChangeType.UPDATED, so);
         } else {
             throw new CmisInvalidArgumentException("Cannot set content, object does not implement interface Content.");
         }
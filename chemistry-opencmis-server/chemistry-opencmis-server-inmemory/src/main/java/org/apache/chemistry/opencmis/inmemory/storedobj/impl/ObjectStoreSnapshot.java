@@ -0,0 +1,771 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.inmemory.storedobj.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.chemistry.opencmis.commons.data.ContentStream;
+import org.apache.chemistry.opencmis.commons.data.LastModifiedContentStream;
+import org.apache.chemistry.opencmis.commons.data.PropertyBoolean;
+import org.apache.chemistry.opencmis.commons.data.PropertyData;
+import org.apache.chemistry.opencmis.commons.data.PropertyDateTime;
+import org.apache.chemistry.opencmis.commons.data.PropertyDecimal;
+import org.apache.chemistry.opencmis.commons.data.PropertyHtml;
+import org.apache.chemistry.opencmis.commons.data.PropertyId;
+import org.apache.chemistry.opencmis.commons.data.PropertyInteger;
+import org.apache.chemistry.opencmis.commons.data.PropertyString;
+import org.apache.chemistry.opencmis.commons.data.PropertyUri;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyBooleanImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyDateTimeImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyDecimalImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyHtmlImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyIdImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyIntegerImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyStringImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyUriImpl;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.DocumentVersion;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.StoredObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads and writes the binary snapshot of an {@link ObjectStoreImpl}.
+ * <p>
+ * A snapshot starts with a header and the ACLs of the store in the order of
+ * their ids. It is followed by one length prefixed record per object and ends
+ * with a record length of -1. A version series record contains all its
+ * versions. Content is written with the object unless it belongs to the fake
+ * content type, for which only the length is kept.
+ * <p>
+ * Records don't depend on each other, so the loader reads the records on the
+ * calling thread and decodes and stores them on a pool of worker threads. The
+ * queue between the reader and the workers is bounded, the reader decodes a
+ * record itself if the queue is full.
+ */
+class ObjectStoreSnapshot {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ObjectStoreSnapshot.class.getName());
+
+    private static final int MAGIC = 0x434D4953; // "CMIS"
+    private static final int FORMAT_VERSION = 1;
+    private static final int END_OF_RECORDS = -1;
+    private static final int QUEUE_SIZE_PER_THREAD = 64;
+    private static final int BUFFER_SIZE = 65536;
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final byte FOLDER = 1;
+    private static final byte DOCUMENT = 2;
+    private static final byte VERSION_SERIES = 3;
+    private static final byte ITEM = 4;
+    private static final byte POLICY = 5;
+    private static final byte RELATIONSHIP = 6;
+
+    private static final byte BOOLEAN = 1;
+    private static final byte ID = 2;
+    private static final byte INTEGER = 3;
+    private static final byte DATETIME = 4;
+    private static final byte DECIMAL = 5;
+    private static final byte HTML = 6;
+    private static final byte STRING = 7;
+    private static final byte URI = 8;
+
+    private final ObjectStoreImpl fStore;
+    private final AclIndex fAcls;
+    private final String fRepositoryId;
+
+    // state of the loader, written by the worker threads
+    private Map<Integer, Integer> fAclIdMap;
+    private final AtomicReference<FolderImpl> fRootFolder = new AtomicReference<FolderImpl>();
+    private final AtomicLong fMaxId = new AtomicLong(-1);
+    private final AtomicLong fObjectCount = new AtomicLong();
+
+    ObjectStoreSnapshot(ObjectStoreImpl store, AclIndex acls, String repositoryId) {
+        fStore = store;
+        fAcls = acls;
+        fRepositoryId = repositoryId;
+    }
+
+    /**
+     * Copies the ACLs and the given objects into encoded records. Versions are
+     * copied with their version series. The copy doesn't refer to the objects
+     * anymore and can be written with {@link #write(OutputStream, Copy)}
+     * without holding a lock of the store.
+     */
+    Copy copy(Collection<StoredObject> objects) throws IOException {
+        ByteArrayOutputStream aclBytes = new ByteArrayOutputStream();
+        DataOutputStream aclOut = new DataOutputStream(aclBytes);
+        int aclCount = fAcls.size();
+        aclOut.writeInt(aclCount);
+        for (int i = 0; i < aclCount; i++) {
+            List<InMemoryAce> aces = fAcls.get(i).getAces();
+            aclOut.writeInt(aces.size());
+            for (InMemoryAce ace : aces) {
+                writeString(aclOut, ace.getPrincipalId());
+                aclOut.writeByte(ace.getPermission().ordinal());
+            }
+        }
+        aclOut.flush();
+
+        List<byte[]> records = new ArrayList<byte[]>(objects.size());
+        ByteArrayOutputStream record = new ByteArrayOutputStream(BUFFER_SIZE);
+        for (StoredObject so : objects) {
+            if (so instanceof DocumentVersion) {
+                continue;
+            }
+            record.reset();
+            if (writeObject(new DataOutputStream(record), so)) {
+                records.add(record.toByteArray());
+            } else {
+                LOG.warn("Object " + so.getId() + " of class " + so.getClass().getName()
+                        + " is not written to the snapshot.");
+            }
+        }
+        return new Copy(aclBytes.toByteArray(), records);
+    }
+
+    /**
+     * Writes a copy made by {@link #copy(Collection)}.
+     *
+     * @return the number of written records
+     */
+    long write(OutputStream os, Copy copy) throws IOException {
+        DataOutputStream out = new DataOutputStream(os);
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        writeString(out, fRepositoryId);
+        out.write(copy.acls);
+
+        for (byte[] record : copy.records) {
+            out.writeInt(record.length);
+            out.write(record);
+        }
+        out.writeInt(END_OF_RECORDS);
+        out.flush();
+        return copy.records.size();
+    }
+
+    /**
+     * The encoded ACLs and object records of a snapshot.
+     */
+    static class Copy {
+        private final byte[] acls;
+        private final List<byte[]> records;
+
+        Copy(byte[] acls, List<byte[]> records) {
+            this.acls = acls;
+            this.records = records;
+        }
+    }
+
+    /**
+     * Reads a snapshot and stores all objects in the store. The store must be
+     * empty.
+     *
+     * @param threads
+     *            number of threads decoding the object records
+     * @return the number of stored objects
+     */
+    long read(InputStream is, int threads) throws IOException {
+        DataInputStream in = new DataInputStream(is);
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not an object store snapshot.");
+        }
+        int version = in.readInt();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported snapshot version " + version + ".");
+        }
+        String repositoryId = readString(in);
+        if (!fRepositoryId.equals(repositoryId)) {
+            LOG.info("Loading snapshot of repository " + repositoryId + " into repository " + fRepositoryId + ".");
+        }
+
+        // ACL ids of the snapshot are mapped to the ids in the store
+        int aclCount = in.readInt();
+        fAclIdMap = new HashMap<Integer, Integer>(aclCount * 2);
+        Permission[] permissions = Permission.values();
+        for (int i = 0; i < aclCount; i++) {
+            int aceCount = in.readInt();
+            List<InMemoryAce> aces = new ArrayList<InMemoryAce>(aceCount);
+            for (int j = 0; j < aceCount; j++) {
+                aces.add(new InMemoryAce(readString(in), permissions[in.readByte()]));
+            }
+            fAclIdMap.put(i, fAcls.add(new InMemoryAcl(aces)));
+        }
+
+        final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+        ExecutorService executor = threads > 1 ? createExecutor(threads) : null;
+        try {
+            int length = in.readInt();
+            while (length != END_OF_RECORDS && null == error.get()) {
+                final byte[] record = new byte[length];
+                in.readFully(record);
+                if (null == executor) {
+                    readRecord(record);
+                } else {
+                    executor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            try {
+                                readRecord(record);
+                            } catch (Throwable t) { // NOSONAR
+                                error.compareAndSet(null, t);
+                            }
+                        }
+                    });
+                }
+                length = in.readInt();
+            }
+        } finally {
+            if (null != executor) {
+                executor.shutdown();
+                try {
+                    executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while loading the snapshot.", e);
+                }
+            }
+        }
+
+        Throwable t = error.get();
+        if (t instanceof IOException) {
+            throw (IOException) t;
+        } else if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        } else if (t instanceof Error) {
+            throw (Error) t;
+        }
+
+        return fObjectCount.get();
+    }
+
+    /**
+     * Returns the loaded root folder or {@code null} if the snapshot did not
+     * contain a root folder.
+     */
+    FolderImpl getRootFolder() {
+        return fRootFolder.get();
+    }
+
+    /**
+     * Returns the largest numeric object id of the loaded objects, -1 if there
+     * is none.
+     */
+    long getMaxId() {
+        return fMaxId.get();
+    }
+
+    private static ExecutorService createExecutor(int threads) {
+        // the reader decodes a record itself if all workers are busy
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(threads * QUEUE_SIZE_PER_THREAD),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    // /////////////////////////////////////////
+    // objects
+
+    private boolean writeObject(DataOutput out, StoredObject so) throws IOException {
+        if (so instanceof VersionedDocumentImpl) {
+            VersionedDocumentImpl series = (VersionedDocumentImpl) so;
+            out.writeByte(VERSION_SERIES);
+            writeCommon(out, series);
+            writeStrings(out, series.getParentIds());
+            out.writeBoolean(series.isCheckedOut());
+            writeString(out, series.getCheckedOutBy());
+            List<DocumentVersion> versions = series.getAllVersions();
+            out.writeInt(versions.size());
+            for (DocumentVersion version : versions) {
+                DocumentVersionImpl ver = (DocumentVersionImpl) version;
+                writeCommon(out, ver);
+                writeString(out, ver.getCheckinComment());
+                out.writeBoolean(ver.isMajor());
+                out.writeBoolean(ver.isPwc());
+                writeContent(out, ver, ver.getContent());
+            }
+        } else if (so instanceof DocumentImpl) {
+            DocumentImpl doc = (DocumentImpl) so;
+            out.writeByte(DOCUMENT);
+            writeCommon(out, doc);
+            writeStrings(out, doc.getParentIds());
+            writeContent(out, doc, doc.getContent());
+        } else if (so instanceof FolderImpl) {
+            FolderImpl folder = (FolderImpl) so;
+            out.writeByte(FOLDER);
+            writeCommon(out, folder);
+            writeString(out, folder.getParentId());
+        } else if (so instanceof ItemImpl) {
+            ItemImpl item = (ItemImpl) so;
+            out.writeByte(ITEM);
+            writeCommon(out, item);
+            writeStrings(out, item.getParentIds());
+        } else if (so instanceof PolicyImpl) {
+            PolicyImpl policy = (PolicyImpl) so;
+            out.writeByte(POLICY);
+            writeCommon(out, policy);
+            writeString(out, policy.getPolicyText());
+        } else if (so instanceof RelationshipImpl) {
+            RelationshipImpl rel = (RelationshipImpl) so;
+            out.writeByte(RELATIONSHIP);
+            writeCommon(out, rel);
+            writeString(out, rel.getSourceObjectId());
+            writeString(out, rel.getTargetObjectId());
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    private void readRecord(byte[] record) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+        byte recordType = in.readByte();
+        switch (recordType) {
+        case FOLDER:
+            FolderImpl folder = new FolderImpl();
+            readCommon(in, folder);
+            folder.setParentId(readString(in));
+            if (null == folder.getParentId()) {
+                fRootFolder.set(folder);
+            }
+            store(folder);
+            break;
+        case DOCUMENT:
+            DocumentImpl doc = new DocumentImpl();
+            readCommon(in, doc);
+            readParentIds(in, doc);
+            doc.setContent(readContent(in, doc));
+            store(doc);
+            break;
+        case VERSION_SERIES:
+            readVersionSeries(in);
+            break;
+        case ITEM:
+            ItemImpl item = new ItemImpl();
+            readCommon(in, item);
+            readParentIds(in, item);
+            store(item);
+            break;
+        case POLICY:
+            PolicyImpl policy = new PolicyImpl();
+            readCommon(in, policy);
+            policy.setPolicyText(readString(in));
+            store(policy);
+            break;
+        case RELATIONSHIP:
+            RelationshipImpl rel = new RelationshipImpl();
+            readCommon(in, rel);
+            rel.setSource(readString(in));
+            rel.setTarget(readString(in));
+            store(rel);
+            break;
+        default:
+            throw new IOException("Unknown record type " + recordType + ".");
+        }
+    }
+
+    private void readVersionSeries(DataInput in) throws IOException {
+        VersionedDocumentImpl series = new VersionedDocumentImpl();
+        readCommon(in, series);
+        readParentIds(in, series);
+        boolean checkedOut = in.readBoolean();
+        String checkedOutBy = readString(in);
+        if (checkedOut) {
+            series.restoreCheckOut(checkedOutBy);
+        }
+
+        int versionCount = in.readInt();
+        List<DocumentVersionImpl> versions = new ArrayList<DocumentVersionImpl>(versionCount);
+        for (int i = 0; i < versionCount; i++) {
+            DocumentVersionImpl ver = new DocumentVersionImpl(fRepositoryId, series);
+            readCommon(in, ver);
+            ver.setCheckinComment(readString(in));
+            boolean isMajor = in.readBoolean();
+            boolean isPwc = in.readBoolean();
+            ver.restoreState(isMajor, isPwc);
+            ver.setContent(readContent(in, ver));
+            series.restoreVersion(ver);
+            versions.add(ver);
+        }
+
+        // the versions must be complete when the series is indexed by the
+        // name of its latest version
+        store(series);
+        for (DocumentVersionImpl ver : versions) {
+            store(ver);
+        }
+    }
+
+    private void readParentIds(DataInput in, FilingImpl so) throws IOException {
+        List<String> parentIds = readStrings(in);
+        if (null != parentIds) {
+            for (String parentId : parentIds) {
+                so.addParentId(parentId);
+            }
+        }
+    }
+
+    private void store(StoredObjectImpl so) {
+        fStore.storeObject(so);
+        fObjectCount.incrementAndGet();
+        try {
+            long id = Long.parseLong(so.getId());
+            long max = fMaxId.get();
+            while (id > max && !fMaxId.compareAndSet(max, id)) {
+                max = fMaxId.get();
+            }
+        } catch (NumberFormatException e) {
+            // ids not created by the store don't affect the id counter
+        }
+    }
+
+    private static void writeCommon(DataOutput out, StoredObjectImpl so) throws IOException {
+        writeString(out, so.fId);
+        writeString(out, so.fName);
+        writeString(out, so.fTypeId);
+        writeString(out, so.fCreatedBy);
+        writeString(out, so.fModifiedBy);
+        writeCalendar(out, so.fCreatedAt);
+        writeCalendar(out, so.fModifiedAt);
+        out.writeInt(so.fAclId);
+        writeString(out, so.description);
+        writeStrings(out, so.secondaryTypeIds);
+        writeStrings(out, so.policyIds);
+        writeProperties(out, so.fProperties);
+    }
+
+    private void readCommon(DataInput in, StoredObjectImpl so) throws IOException {
+        so.fId = readString(in);
+        so.fName = readString(in);
+        so.fTypeId = readString(in);
+        so.fCreatedBy = readString(in);
+        so.fModifiedBy = readString(in);
+        so.fCreatedAt = readCalendar(in);
+        so.fModifiedAt = readCalendar(in);
+        int aclId = in.readInt();
+        Integer mappedAclId = fAclIdMap.get(aclId);
+        so.fAclId = null == mappedAclId ? aclId : mappedAclId;
+        so.description = readString(in);
+        List<String> secondaryTypeIds = readStrings(in);
+        so.secondaryTypeIds = null == secondaryTypeIds ? new ArrayList<String>() : secondaryTypeIds;
+        so.policyIds = readStrings(in);
+        so.fProperties = readProperties(in);
+        so.fRepositoryId = fRepositoryId;
+    }
+
+    // /////////////////////////////////////////
+    // content
+
+    private static void writeContent(DataOutput out, StoredObject so, ContentStream content) throws IOException {
+        if (null == content) {
+            out.writeBoolean(false);
+            return;
+        }
+
+        out.writeBoolean(true);
+        writeString(out, content.getMimeType());
+        writeString(out, content.getFileName());
+        writeCalendar(out, content instanceof LastModifiedContentStream ? ((LastModifiedContentStream) content)
+                .getLastModified() : null);
+
+        long length = content.getLength();
+        out.writeLong(length);
+        if (ObjectStoreImpl.isFakeContent(so)) {
+            return;
+        }
+
+        InputStream stream = content.getStream();
+        byte[] buffer = new byte[(int) Math.min(BUFFER_SIZE, Math.max(length, 1))];
+        long remaining = length;
+        try {
+            while (remaining > 0) {
+                int len = null == stream ? -1 : stream.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (len == -1) {
+                    throw new EOFException("Content of object " + so.getId() + " is shorter than its length.");
+                }
+                out.write(buffer, 0, len);
+                remaining -= len;
+            }
+        } finally {
+            if (null != stream) {
+                stream.close();
+            }
+        }
+    }
+
+    private ContentStream readContent(DataInput in, StoredObject so) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+
+        ContentStreamDataImpl content = fStore.newContentStream(so);
+        content.setMimeType(readString(in));
+        content.setFileName(readString(in));
+        content.setLastModified(readCalendar(in));
+
+        long length = in.readLong();
+        if (ObjectStoreImpl.isFakeContent(so)) {
+            content.setContent(new RandomInputStream(length));
+        } else {
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException("Content of object " + so.getId() + " is too large.");
+            }
+            byte[] bytes = new byte[(int) length];
+            in.readFully(bytes);
+            content.setContent(new ByteArrayInputStream(bytes));
+        }
+        return content;
+    }
+
+    // /////////////////////////////////////////
+    // properties
+
+    private static void writeProperties(DataOutput out, Map<String, PropertyData<?>> properties) throws IOException {
+        if (null == properties) {
+            out.writeInt(-1);
+            return;
+        }
+
+        out.writeInt(properties.size());
+        for (PropertyData<?> prop : properties.values()) {
+            List<?> values = prop.getValues();
+            out.writeByte(getPropertyType(prop));
+            writeString(out, prop.getId());
+            out.writeInt(null == values ? -1 : values.size());
+            if (null != values) {
+                for (Object value : values) {
+                    writeValue(out, prop, value);
+                }
+            }
+        }
+    }
+
+    private static byte getPropertyType(PropertyData<?> prop) throws IOException {
+        if (prop instanceof PropertyBoolean) {
+            return BOOLEAN;
+        } else if (prop instanceof PropertyId) {
+            return ID;
+        } else if (prop instanceof PropertyInteger) {
+            return INTEGER;
+        } else if (prop instanceof PropertyDateTime) {
+            return DATETIME;
+        } else if (prop instanceof PropertyDecimal) {
+            return DECIMAL;
+        } else if (prop instanceof PropertyHtml) {
+            return HTML;
+        } else if (prop instanceof PropertyString) {
+            return STRING;
+        } else if (prop instanceof PropertyUri) {
+            return URI;
+        } else {
+            throw new IOException("Property " + prop.getId() + " has an unknown type: " + prop.getClass().getName());
+        }
+    }
+
+    private static void writeValue(DataOutput out, PropertyData<?> prop, Object value) throws IOException {
+        out.writeBoolean(null != value);
+        if (null == value) {
+            return;
+        }
+
+        if (prop instanceof PropertyBoolean) {
+            out.writeBoolean((Boolean) value);
+        } else if (prop instanceof PropertyInteger) {
+            byte[] bytes = ((BigInteger) value).toByteArray();
+            out.writeShort(bytes.length);
+            out.write(bytes);
+        } else if (prop instanceof PropertyDateTime) {
+            writeCalendar(out, (GregorianCalendar) value);
+        } else if (prop instanceof PropertyDecimal) {
+            writeString(out, ((BigDecimal) value).toString());
+        } else {
+            writeString(out, (String) value);
+        }
+    }
+
+    private static Map<String, PropertyData<?>> readProperties(DataInput in) throws IOException {
+        int count = in.readInt();
+        if (count < 0) {
+            return null;
+        }
+
+        Map<String, PropertyData<?>> properties = new HashMap<String, PropertyData<?>>(count * 2);
+        for (int i = 0; i < count; i++) {
+            byte type = in.readByte();
+            String id = readString(in);
+            int valueCount = in.readInt();
+            PropertyData<?> prop;
+            switch (type) {
+            case BOOLEAN:
+                List<Boolean> booleans = valueCount < 0 ? null : new ArrayList<Boolean>(valueCount);
+                for (int j = 0; j < valueCount; j++) {
+                    booleans.add(in.readBoolean() ? in.readBoolean() : null);
+                }
+                prop = new PropertyBooleanImpl(id, booleans);
+                break;
+            case INTEGER:
+                List<BigInteger> integers = valueCount < 0 ? null : new ArrayList<BigInteger>(valueCount);
+                for (int j = 0; j < valueCount; j++) {
+                    integers.add(in.readBoolean() ? readBigInteger(in) : null);
+                }
+                prop = new PropertyIntegerImpl(id, integers);
+                break;
+            case DATETIME:
+                List<GregorianCalendar> dates = valueCount < 0 ? null : new ArrayList<GregorianCalendar>(valueCount);
+                for (int j = 0; j < valueCount; j++) {
+                    dates.add(in.readBoolean() ? readCalendar(in) : null);
+                }
+                prop = new PropertyDateTimeImpl(id, dates);
+                break;
+            case DECIMAL:
+                List<BigDecimal> decimals = valueCount < 0 ? null : new ArrayList<BigDecimal>(valueCount);
+                for (int j = 0; j < valueCount; j++) {
+                    decimals.add(in.readBoolean() ? new BigDecimal(readString(in)) : null);
+                }
+                prop = new PropertyDecimalImpl(id, decimals);
+                break;
+            case ID:
+            case HTML:
+            case STRING:
+            case URI:
+                List<String> strings = valueCount < 0 ? null : new ArrayList<String>(valueCount);
+                for (int j = 0; j < valueCount; j++) {
+                    strings.add(in.readBoolean() ? readString(in) : null);
+                }
+                prop = createStringProperty(type, id, strings);
+                break;
+            default:
+                throw new IOException("Unknown property type " + type + ".");
+            }
+            properties.put(id, prop);
+        }
+        return properties;
+    }
+
+    private static PropertyData<?> createStringProperty(byte type, String id, List<String> values) {
+        switch (type) {
+        case ID:
+            return new PropertyIdImpl(id, values);
+        case HTML:
+            return new PropertyHtmlImpl(id, values);
+        case URI:
+            return new PropertyUriImpl(id, values);
+        default:
+            return new PropertyStringImpl(id, values);
+        }
+    }
+
+    private static BigInteger readBigInteger(DataInput in) throws IOException {
+        byte[] bytes = new byte[in.readShort()];
+        in.readFully(bytes);
+        return new BigInteger(bytes);
+    }
+
+    // /////////////////////////////////////////
+    // basic values
+
+    /**
+     * Writes a string of any length, {@link DataOutput#writeUTF(String)} is
+     * limited to 64KB.
+     */
+    private static void writeString(DataOutput out, String s) throws IOException {
+        if (null == s) {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = s.getBytes(UTF8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, UTF8);
+    }
+
+    private static void writeStrings(DataOutput out, List<String> list) throws IOException {
+        if (null == list) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(list.size());
+            for (String s : list) {
+                writeString(out, s);
+            }
+        }
+    }
+
+    private static List<String> readStrings(DataInput in) throws IOException {
+        int count = in.readInt();
+        if (count < 0) {
+            return null;
+        }
+        List<String> list = new ArrayList<String>(count);
+        for (int i = 0; i < count; i++) {
+            list.add(readString(in));
+        }
+        return list;
+    }
+
+    private static void writeCalendar(DataOutput out, GregorianCalendar cal) throws IOException {
+        out.writeBoolean(null != cal);
+        if (null != cal) {
+            out.writeLong(cal.getTimeInMillis());
+            writeString(out, cal.getTimeZone().getID());
+        }
+    }
+
+    private static GregorianCalendar readCalendar(DataInput in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        long millis = in.readLong();
+        GregorianCalendar cal = new GregorianCalendar(TimeZone.getTimeZone(readString(in)));
+        cal.setTimeInMillis(millis);
+        return cal;
+    }
+}
@@ -0,0 +1,234 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.inmemory.storedobj.impl;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.apache.chemistry.opencmis.commons.data.PropertyData;
+
+/**
+ * Secondary index over the values of one property, used by the query
+ * processor to find candidates for a WHERE clause without scanning all
+ * objects. A hash index supports lookups of single values, a sorted index
+ * supports ranges as well.
+ * <p>
+ * Values are indexed by a key that compares like the query processor compares
+ * values: integers and date-times are indexed as {@code Long}, decimals as
+ * {@code Double}. The index is maintained by the object store whenever an
+ * object is stored, updated, or deleted.
+ */
+public class PropertyIndex {
+
+    private final String propertyId;
+    private final boolean sorted;
+    private final ConcurrentMap<Object, Set<String>> index;
+    private final Map<String, Set<Object>> keysById = new HashMap<String, Set<Object>>();
+
+    public PropertyIndex(String propertyId, boolean sorted) {
+        this.propertyId = propertyId;
+        this.sorted = sorted;
+        if (sorted) {
+            index = new ConcurrentSkipListMap<Object, Set<String>>();
+        } else {
+            index = new ConcurrentHashMap<Object, Set<String>>();
+        }
+    }
+
+    public String getPropertyId() {
+        return propertyId;
+    }
+
+    public boolean isSorted() {
+        return sorted;
+    }
+
+    /**
+     * Converts a property value or a query literal into an index key. Returns
+     * {@code null} for values that cannot be indexed.
+     */
+    public static Object toKey(Object value) {
+        if (value instanceof String || value instanceof Boolean || value instanceof Long) {
+            return value;
+        } else if (value instanceof BigInteger || value instanceof Integer) {
+            return ((Number) value).longValue();
+        } else if (value instanceof BigDecimal || value instanceof Double) {
+            return ((Number) value).doubleValue();
+        } else if (value instanceof GregorianCalendar) {
+            return ((GregorianCalendar) value).getTimeInMillis();
+        }
+        return null;
+    }
+
+    /**
+     * Sets the indexed values of an object.
+     *
+     * @param id
+     *            the object id
+     * @param property
+     *            the current property of the object, {@code null} if the
+     *            property is not set
+     */
+    public synchronized void update(String id, PropertyData<?> property) {
+        removeKeys(id);
+
+        if (property == null || property.getValues() == null || property.getValues().isEmpty()) {
+            return;
+        }
+
+        Set<Object> keys = new HashSet<Object>();
+        for (Object value : property.getValues()) {
+            Object key = toKey(value);
+            if (key != null && (!sorted || isComparable(key))) {
+                keys.add(key);
+            }
+        }
+
+        for (Object key : keys) {
+            Set<String> ids = index.get(key);
+            if (ids == null) {
+                ids = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+                index.put(key, ids);
+            }
+            ids.add(id);
+        }
+
+        if (!keys.isEmpty()) {
+            keysById.put(id, keys);
+        }
+    }
+
+    /**
+     * Removes an object from the index.
+     */
+    public synchronized void remove(String id) {
+        removeKeys(id);
+    }
+
+    /**
+     * Removes all objects from the index.
+     */
+    public synchronized void clear() {
+        index.clear();
+        keysById.clear();
+    }
+
+    private void removeKeys(String id) {
+        Set<Object> oldKeys = keysById.remove(id);
+        if (oldKeys == null) {
+            return;
+        }
+
+        for (Object key : oldKeys) {
+            Set<String> ids = index.get(key);
+            if (ids != null) {
+                ids.remove(id);
+                if (ids.isEmpty()) {
+                    index.remove(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the ids of all objects that have the given key as one of their
+     * values. The returned set must not be modified.
+     */
+    public Set<String> get(Object key) {
+        Set<String> ids = key == null ? null : index.get(key);
+        return ids == null ? Collections.<String> emptySet() : ids;
+    }
+
+    /**
+     * Returns the ids of all objects that have a value in the given range.
+     * Only supported by sorted indexes.
+     *
+     * @param from
+     *            the lower bound, {@code null} for no lower bound
+     * @param to
+     *            the upper bound, {@code null} for no upper bound
+     * @return the ids, or {@code null} if the bounds can't be compared with
+     *         the indexed keys
+     */
+    @SuppressWarnings("unchecked")
+    public Set<String> getRange(Object from, boolean fromInclusive, Object to, boolean toInclusive) {
+        if (!sorted) {
+            throw new IllegalStateException("Property index " + propertyId + " is not sorted!");
+        }
+
+        NavigableMap<Object, Set<String>> range = (NavigableMap<Object, Set<String>>) index;
+        try {
+            if (from != null && to != null) {
+                if (((Comparable<Object>) from).compareTo(to) > 0) {
+                    return Collections.emptySet();
+                }
+                range = range.subMap(from, fromInclusive, to, toInclusive);
+            } else if (from != null) {
+                range = range.tailMap(from, fromInclusive);
+            } else if (to != null) {
+                range = range.headMap(to, toInclusive);
+            }
+
+            return union(range.values());
+        } catch (ClassCastException e) {
+            // the key doesn't have the type of the indexed values
+            return null;
+        }
+    }
+
+    /**
+     * Returns the number of distinct indexed keys.
+     */
+    public int getKeyCount() {
+        return index.size();
+    }
+
+    private static Set<String> union(Collection<Set<String>> sets) {
+        Set<String> result = new HashSet<String>();
+        for (Set<String> ids : sets) {
+            result.addAll(ids);
+        }
+        return result;
+    }
+
+    private boolean isComparable(Object key) {
+        // a sorted index only holds keys of one type
+        if (index.isEmpty()) {
+            return true;
+        }
+        return ((ConcurrentSkipListMap<Object, Set<String>>) index).firstKey().getClass() == key.getClass();
+    }
+
+    @Override
+    public String toString() {
+        return (sorted ? "sorted" : "hash") + " index " + propertyId + " [keys=" + index.size() + ", objects="
+                + keysById.size() + "]";
+    }
+}
@@ -365,8 +365,10 @@ public class StoreManagerImpl implements StoreManager {
         repoInfo.setPrincipalAnonymous(InMemoryAce.getAnonymousUser());
         repoInfo.setPrincipalAnyone(InMemoryAce.getAnyoneUser());
         repoInfo.setThinClientUri("");
-        repoInfo.setChangesIncomplete(Boolean.TRUE);
-        repoInfo.setLatestChangeLogToken("token-24");
+        ChangeLog changeLog = ((ObjectStoreImpl) objStore).getChangeLog();
+        long latestChangeId = changeLog.getLatestChangeId();
+        repoInfo.setChangesIncomplete(changeLog.isIncomplete());
+        repoInfo.setLatestChangeLogToken(latestChangeId < 0 ? null : String.valueOf(latestChangeId));
         repoInfo.setVendorName("Apache Chemistry");
         repoInfo.setProductName(OPENCMIS_SERVER);
         repoInfo.setProductVersion(OPENCMIS_VERSION);
@@ -375,7 +377,7 @@ public class StoreManagerImpl implements StoreManager {
         RepositoryCapabilitiesImpl caps = new RepositoryCapabilitiesImpl();
         caps.setAllVersionsSearchable(false);
         caps.setCapabilityAcl(CapabilityAcl.MANAGE);
-        caps.setCapabilityChanges(CapabilityChanges.OBJECTIDSONLY);
+        caps.setCapabilityChanges(CapabilityChanges.PROPERTIES);
         caps.setCapabilityContentStreamUpdates(CapabilityContentStreamUpdates.ANYTIME);
         caps.setCapabilityJoin(CapabilityJoin.NONE);
         caps.setCapabilityQuery(CapabilityQuery.BOTHCOMBINED);
@@ -468,6 +470,8 @@ public class StoreManagerImpl implements StoreManager {
                     add(BaseTypeId.CMIS_DOCUMENT);
                     add(BaseTypeId.CMIS_FOLDER);
                     add(BaseTypeId.CMIS_ITEM);
+                    add(BaseTypeId.CMIS_RELATIONSHIP);
+                    add(BaseTypeId.CMIS_POLICY);
                 }
             };
 
@@ -494,6 +498,8 @@ public class StoreManagerImpl implements StoreManager {
                 {
                     add(BaseTypeId.CMIS_DOCUMENT);
                     add(BaseTypeId.CMIS_FOLDER);
+                    add(BaseTypeId.CMIS_RELATIONSHIP);
+                    add(BaseTypeId.CMIS_POLICY);
                 }
             };
         }
@@ -65,6 +65,18 @@ public class VersionedDocumentImpl extends FilingImpl implements VersionedDocume
         return ver;
     }
 
+    /**
+     * Adds a version restored from a snapshot as latest version.
+     */
+    void restoreVersion(DocumentVersion version) {
+        fVersions.add(version);
+    }
+
+    void restoreCheckOut(String user) {
+        fIsCheckedOut = true;
+        fCheckedOutUser = user;
+    }
+
     @Override
     public boolean deleteVersion(DocumentVersion version) {
         if (fIsCheckedOut) {
@@ -20,6 +20,7 @@ package org.apache.chemistry.opencmis.inmemory;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -33,6 +34,7 @@ import org.apache.chemistry.opencmis.commons.impl.dataobjects.AccessControlEntry
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.AccessControlListImpl;
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.AccessControlPrincipalDataImpl;
 import org.apache.chemistry.opencmis.commons.impl.jaxb.EnumBasicPermissions;
+import org.apache.chemistry.opencmis.inmemory.storedobj.impl.AclIndex;
 import org.apache.chemistry.opencmis.inmemory.storedobj.impl.InMemoryAce;
 import org.apache.chemistry.opencmis.inmemory.storedobj.impl.InMemoryAcl;
 import org.apache.chemistry.opencmis.inmemory.storedobj.impl.Permission;
@@ -226,6 +228,36 @@ public class AclTest {
         assertTrue(acl.hasPermission(DOROTHEE, Permission.ALL));
     }
 
+    @Test
+    public void testAclIndex() {
+        AclIndex index = new AclIndex();
+        InMemoryAcl defaultAcl = createDefaultAcl();
+        InMemoryAcl readAcl = new InMemoryAcl(Arrays.asList(aceR));
+
+        assertEquals(0, index.add(defaultAcl));
+        assertEquals(1, index.add(readAcl));
+        assertEquals(0, index.add(createDefaultAcl()));
+        assertEquals(2, index.size());
+        assertTrue(index.get(1) == readAcl);
+        assertNull(index.get(2));
+        assertNull(index.get(-1));
+
+        assertTrue(index.hasPermission(BERTA, 0, Permission.READ));
+        assertTrue(index.hasPermission(BERTA, 1, Permission.READ));
+        assertFalse(index.hasPermission(BERTA, 1, Permission.WRITE));
+        assertTrue(index.hasPermission(CHRISTIAN, 0, Permission.WRITE));
+        assertFalse(index.hasPermission(CHRISTIAN, 1, Permission.READ));
+        assertFalse(index.hasPermission(CHRISTIAN, 2, Permission.READ));
+        assertFalse(index.hasPermission(null, 0, Permission.READ));
+        assertEquals(Arrays.asList(0), index.getPermittedAclIds(CHRISTIAN, Permission.READ));
+
+        // a new ACL invalidates the cached checks
+        assertEquals(2, index.add(new InMemoryAcl(Arrays.asList(aceW))));
+        assertTrue(index.hasPermission(CHRISTIAN, 2, Permission.READ));
+        assertEquals(Arrays.asList(0, 2), index.getPermittedAclIds(CHRISTIAN, Permission.READ));
+        assertEquals(Arrays.asList(0, 1), index.getPermittedAclIds(BERTA, Permission.READ));
+    }
+
     @Test
     public void testConvertFomCmisAcl() {
         List<Ace> aces = Arrays.asList(new Ace[] { createAce(ANDREAS, EnumBasicPermissions.CMIS_READ.value()),
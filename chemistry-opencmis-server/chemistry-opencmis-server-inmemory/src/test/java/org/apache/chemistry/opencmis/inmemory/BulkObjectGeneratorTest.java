@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.inmemory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.HashMap;
+
+import org.apache.chemistry.opencmis.commons.exceptions.CmisObjectNotFoundException;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.BindingsObjectFactoryImpl;
+import org.apache.chemistry.opencmis.inmemory.content.BulkObjectGenerator;
+import org.apache.chemistry.opencmis.inmemory.content.ObjectGenerator;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.Content;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.Fileable;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.Folder;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.StoredObject;
+import org.apache.chemistry.opencmis.inmemory.storedobj.impl.ObjectStoreImpl;
+import org.apache.chemistry.opencmis.inmemory.storedobj.impl.StoreManagerImpl;
+import org.apache.chemistry.opencmis.server.support.TypeManager;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BulkObjectGeneratorTest {
+
+    private static final String REPOSITORY_ID = "BulkObjectGeneratorTest";
+
+    private ObjectStoreImpl fStore;
+    private TypeManager fTypeManager;
+    private ObjectGenerator fGenerator;
+
+    @Before
+    public void setUp() {
+        ConfigurationSettings.init(new HashMap<String, String>());
+        StoreManagerImpl storeManager = new StoreManagerImpl();
+        storeManager.createAndInitRepository(REPOSITORY_ID, UnitTestTypeSystemCreator.class.getName());
+        fStore = (ObjectStoreImpl) storeManager.getObjectStore(REPOSITORY_ID);
+        fTypeManager = storeManager.getTypeManager(REPOSITORY_ID);
+        // services are not used by the bulk generator
+        fGenerator = new ObjectGenerator(new BindingsObjectFactoryImpl(), null, null, null, REPOSITORY_ID,
+                ObjectGenerator.ContentKind.STATIC_TEXT);
+    }
+
+    @Test
+    public void testCreateFolderHierarchy() {
+        final int levels = 4;
+        final int childrenPerLevel = 3;
+        final int docsPerFolder = 5;
+        fGenerator.setNumberOfDocumentsToCreatePerFolder(docsPerFolder);
+        fGenerator.setContentSizeInKB(1);
+        fGenerator.setDocumentTypeId(UnitTestTypeSystemCreator.COMPLEX_TYPE);
+        fGenerator.setDocumentPropertiesToGenerate(Collections.singletonList(UnitTestTypeSystemCreator.PROP_ID_STRING));
+
+        BulkObjectGenerator gen = new BulkObjectGenerator(fGenerator, fStore, fTypeManager, 4);
+        gen.createFolderHierachy(levels, childrenPerLevel, fStore.getRootFolder().getId());
+
+        // 3 + 9 + 27 + 81 folders, documents in the root and all folders
+        // above the last level
+        int folders = 3 + 9 + 27 + 81;
+        int docs = (1 + 3 + 9 + 27) * docsPerFolder;
+        assertEquals(folders, gen.getFoldersInTotal());
+        assertEquals(docs, gen.getDocumentsInTotal());
+        assertEquals(folders + docs + 1, fStore.getObjectCount());
+
+        Folder folder = (Folder) fStore.getObjectByPath("/My_Folder-0-2/My_Folder-1-1/My_Folder-2-0", null);
+        assertNotNull(folder);
+        assertEquals(childrenPerLevel + docsPerFolder, fStore.getChildIds(folder.getId()).size());
+
+        StoredObject doc = fStore.getObjectByPath("/My_Folder-0-2/My_Folder-1-1/My_Folder-2-0/My_Document-3-4",
+                null);
+        assertNotNull(doc);
+        assertEquals(UnitTestTypeSystemCreator.COMPLEX_TYPE, doc.getTypeId());
+        assertTrue(((String) doc.getProperties().get(UnitTestTypeSystemCreator.PROP_ID_STRING).getFirstValue())
+                .startsWith("My Doc StringProperty"));
+        assertEquals(1024, ((Content) doc).getContent().getLength());
+        assertEquals(folder.getId(), ((Fileable) doc).getParentIds().get(0));
+    }
+
+    @Test(expected = CmisObjectNotFoundException.class)
+    public void testUnknownType() {
+        fGenerator.setDocumentTypeId("UnknownType");
+        new BulkObjectGenerator(fGenerator, fStore, fTypeManager, 2);
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.inmemory;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.apache.chemistry.opencmis.commons.data.ContentStream;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisInvalidArgumentException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
+import org.apache.chemistry.opencmis.inmemory.storedobj.impl.ContentChunkAllocator;
+import org.apache.chemistry.opencmis.inmemory.storedobj.impl.ContentStreamDataImpl;
+import org.junit.Test;
+
+public class ContentStoreTest {
+
+    private static final long CHUNK_SIZE_KB = 64;
+
+    @Test
+    public void testHeapStore() throws IOException {
+        runStoreTest(ContentChunkAllocator.newInstance(ContentChunkAllocator.HEAP, CHUNK_SIZE_KB, null));
+    }
+
+    @Test
+    public void testDirectStore() throws IOException {
+        runStoreTest(ContentChunkAllocator.newInstance(ContentChunkAllocator.DIRECT, CHUNK_SIZE_KB, null));
+    }
+
+    @Test
+    public void testMappedStore() throws IOException {
+        runStoreTest(ContentChunkAllocator.newInstance(ContentChunkAllocator.MAPPED, CHUNK_SIZE_KB, null));
+    }
+
+    @Test
+    public void testUnknownStore() {
+        try {
+            ContentChunkAllocator.newInstance("tape", null, null);
+            fail("Unknown content store should fail.");
+        } catch (CmisRuntimeException e) {
+        }
+    }
+
+    @Test
+    public void testSizeLimit() throws IOException {
+        ContentStreamDataImpl content = new ContentStreamDataImpl(1, false,
+                ContentChunkAllocator.newInstance(ContentChunkAllocator.DIRECT, 1L, null));
+        content.setContent(new ByteArrayInputStream(new byte[1024]));
+        try {
+            content.appendContent(new ByteArrayInputStream(new byte[1]));
+            fail("Content that exceeds the size limit should fail.");
+        } catch (CmisInvalidArgumentException e) {
+        }
+    }
+
+    private void runStoreTest(ContentChunkAllocator allocator) throws IOException {
+        int chunkSize = allocator.getChunkSize();
+        byte[] data = new byte[chunkSize * 3 + 123];
+        new Random(42).nextBytes(data);
+
+        ContentStreamDataImpl content = new ContentStreamDataImpl(0, false, allocator);
+        assertNull(content.getStream());
+
+        // set content in two parts
+        int firstPart = chunkSize + 7;
+        content.setContent(new ByteArrayInputStream(data, 0, firstPart));
+        assertEquals(firstPart, content.getLength());
+        assertArrayEquals(Arrays.copyOf(data, firstPart), read(content.getStream()));
+
+        content.appendContent(new ByteArrayInputStream(data, firstPart, data.length - firstPart));
+        assertEquals(data.length, content.getLength());
+        assertArrayEquals(data, read(content.getStream()));
+        assertArrayEquals(data, content.getBytes());
+
+        // ranges that start in and span chunks
+        assertRange(content, data, 0, 10);
+        assertRange(content, data, chunkSize - 5, 10);
+        assertRange(content, data, chunkSize + 3, chunkSize * 2);
+        assertRange(content, data, chunkSize * 2, -1);
+        assertRange(content, data, data.length - 1, 100);
+
+        // skip within a range
+        InputStream stream = content.getCloneWithLimits(10, chunkSize * 2).getStream();
+        assertEquals(chunkSize + 5, stream.skip(chunkSize + 5));
+        assertEquals(data[10 + chunkSize + 5] & 0xFF, stream.read());
+        stream.close();
+
+        // single byte reads
+        stream = content.getCloneWithLimits(chunkSize - 1, 2).getStream();
+        assertEquals(data[chunkSize - 1] & 0xFF, stream.read());
+        assertEquals(data[chunkSize] & 0xFF, stream.read());
+        assertEquals(-1, stream.read());
+        stream.close();
+
+        // replace content
+        content.setContent(new ByteArrayInputStream(new byte[] { 1, 2, 3 }));
+        assertEquals(3, content.getLength());
+        assertArrayEquals(new byte[] { 1, 2, 3 }, read(content.getStream()));
+    }
+
+    private void assertRange(ContentStreamDataImpl content, byte[] data, int offset, int length) throws IOException {
+        ContentStream range = content.getCloneWithLimits(offset, length);
+        int end = length < 0 ? data.length : Math.min(data.length, offset + length);
+        assertEquals(end - offset, range.getLength());
+        assertArrayEquals(Arrays.copyOfRange(data, offset, end), read(range.getStream()));
+    }
+
+    private byte[] read(InputStream stream) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1000];
+        int b;
+        while ((b = stream.read(buffer)) > -1) {
+            out.write(buffer, 0, b);
+        }
+        stream.close();
+        return out.toByteArray();
+    }
+}
@@ -19,13 +19,27 @@
 package org.apache.chemistry.opencmis.inmemory;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.data.ObjectData;
 import org.apache.chemistry.opencmis.commons.data.ObjectList;
+import org.apache.chemistry.opencmis.commons.data.PropertyData;
+import org.apache.chemistry.opencmis.commons.enums.CapabilityChanges;
+import org.apache.chemistry.opencmis.commons.enums.ChangeType;
 import org.apache.chemistry.opencmis.commons.enums.IncludeRelationships;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisInvalidArgumentException;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertiesImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyStringImpl;
+import org.apache.chemistry.opencmis.commons.spi.Holder;
 import org.apache.chemistry.opencmis.inmemory.ObjectServiceTest.ObjectTestTypeSystemCreator;
 import org.apache.chemistry.opencmis.inmemory.content.ObjectGenerator;
 import org.junit.After;
@@ -176,4 +190,92 @@ public class DiscoveryServiceTest extends AbstractServiceTest {
         assertEquals(3, count);
     }
 
+    @Test
+    public void testContentChanges() {
+        log.info("starting testContentChanges() ...");
+        assertEquals(CapabilityChanges.PROPERTIES, fRepSvc.getRepositoryInfo(fRepositoryId, null).getCapabilities()
+                .getChangesCapability());
+        String startToken = getNextChangeLogToken();
+
+        String folderId = createFolder("changes", fRootFolderId, TEST_FOLDER_TYPE_ID);
+        String docId = createDocument("changed", folderId, TEST_DOCUMENT_TYPE_ID, false);
+        PropertiesImpl newProps = new PropertiesImpl();
+        newProps.addProperty(new PropertyStringImpl(TEST_DOCUMENT_STRING_PROP_ID, "new value"));
+        fObjSvc.updateProperties(fRepositoryId, new Holder<String>(docId), null, newProps, null);
+        String deletedId = createDocument("deleted", folderId, TEST_DOCUMENT_TYPE_ID, false);
+        fObjSvc.deleteObject(fRepositoryId, deletedId, true, null);
+
+        Holder<String> token = new Holder<String>(startToken);
+        ObjectList res = fDiscSvc.getContentChanges(fRepositoryId, token, true, PropertyIds.NAME + ","
+                + TEST_DOCUMENT_STRING_PROP_ID, false, false, null, null);
+        List<ObjectData> changes = res.getObjects();
+        assertEquals(5, changes.size());
+        assertFalse(res.hasMoreItems());
+        assertEquals(5L, res.getNumItems().longValue());
+        assertChange(changes.get(0), ChangeType.CREATED, folderId);
+        assertChange(changes.get(1), ChangeType.CREATED, docId);
+        assertChange(changes.get(2), ChangeType.UPDATED, docId);
+        assertChange(changes.get(3), ChangeType.CREATED, deletedId);
+        assertChange(changes.get(4), ChangeType.DELETED, deletedId);
+
+        // current properties of existing objects only
+        PropertyData<?> prop = changes.get(2).getProperties().getProperties().get(TEST_DOCUMENT_STRING_PROP_ID);
+        assertNotNull(prop);
+        assertEquals("new value", prop.getFirstValue());
+        assertEquals(TEST_DOCUMENT_TYPE_ID,
+                changes.get(4).getProperties().getProperties().get(PropertyIds.OBJECT_TYPE_ID).getFirstValue());
+        assertNull(changes.get(4).getProperties().getProperties().get(PropertyIds.NAME));
+
+        // the token is the token of the last change
+        assertEquals(Long.parseLong(startToken) + 4, Long.parseLong(token.getValue()));
+
+        res = fDiscSvc.getContentChanges(fRepositoryId, new Holder<String>(startToken), false, null, false, false,
+                null, null);
+        assertNull(res.getObjects().get(1).getProperties().getProperties().get(PropertyIds.NAME));
+        log.info("... testContentChanges() finished.");
+    }
+
+    @Test
+    public void testContentChangesPaging() {
+        log.info("starting testContentChangesPaging() ...");
+        String startToken = getNextChangeLogToken();
+        for (int i = 0; i < 5; i++) {
+            createFolder("folder" + i, fRootFolderId, TEST_FOLDER_TYPE_ID);
+        }
+
+        Holder<String> token = new Holder<String>(startToken);
+        ObjectList res = fDiscSvc.getContentChanges(fRepositoryId, token, false, null, false, false,
+                BigInteger.valueOf(2), null);
+        assertEquals(2, res.getObjects().size());
+        assertTrue(res.hasMoreItems());
+        assertEquals(5L, res.getNumItems().longValue());
+        String lastId = res.getObjects().get(1).getId();
+
+        // the next page starts with the last change of the previous page
+        res = fDiscSvc.getContentChanges(fRepositoryId, token, false, null, false, false, BigInteger.valueOf(10),
+                null);
+        assertEquals(4, res.getObjects().size());
+        assertFalse(res.hasMoreItems());
+        assertEquals(lastId, res.getObjects().get(0).getId());
+
+        try {
+            fDiscSvc.getContentChanges(fRepositoryId, new Holder<String>("token-1"), false, null, false, false,
+                    null, null);
+            fail("Invalid change log token should throw an exception");
+        } catch (CmisInvalidArgumentException e) {
+            // expected
+        }
+        log.info("... testContentChangesPaging() finished.");
+    }
+
+    private String getNextChangeLogToken() {
+        String latest = fRepSvc.getRepositoryInfo(fRepositoryId, null).getLatestChangeLogToken();
+        return latest == null ? "0" : String.valueOf(Long.parseLong(latest) + 1);
+    }
+
+    private static void assertChange(ObjectData change, ChangeType changeType, String objectId) {
+        assertEquals(objectId, change.getId());
+        assertEquals(changeType, change.getChangeEventInfo().getChangeType());
+        assertNotNull(change.getChangeEventInfo().getChangeTime());
+    }
 }
@@ -151,6 +151,36 @@ public class FolderTest extends TestCase {
         }
     }
 
+    @Test
+    public void testChildrenAfterMoveAndDelete() {
+        fStore.move(f1, fRoot, f3, USER);
+        assertEquals(3, fStore.getChildren(fRoot, -1, -1, USER, false).getNoItems());
+        List<Fileable> children = fStore.getChildren(f3, -1, -1, USER, false).getChildren();
+        assertEquals(1, children.size());
+        assertEquals(f1, children.get(0));
+        assertEquals(1, fStore.getFolderChildren(f3, 100, 0, USER).getNoItems());
+        assertFalse(fStore.isFolderEmpty(f3.getId()));
+
+        fStore.deleteObject(f4.getId(), true, USER);
+        assertEquals(2, fStore.getChildren(fRoot, -1, -1, USER, false).getNoItems());
+        assertTrue(fStore.isFolderEmpty(f2.getId()));
+    }
+
+    @Test
+    public void testPathOfDescendantsAfterRenameAndMove() {
+        assertEquals("/Folder 1/Folder 1.1", getPath(f11));
+        fStore.rename(f1, "Folder A", USER);
+        assertEquals("/Folder A/Folder 1.1", getPath(f11));
+        assertEquals(f11, fStore.getObjectByPath("/Folder A/Folder 1.1", USER));
+        assertNull(fStore.getObjectByPath("/Folder 1/Folder 1.1", USER));
+
+        fStore.move(f1, fRoot, f2, USER);
+        assertEquals("/Folder 2/Folder A/Folder 1.1", getPath(f11));
+        assertEquals(f11, fStore.getObjectByPath("/Folder 2/Folder A/Folder 1.1", USER));
+        assertNull(fStore.getObjectByPath("/Folder A/Folder 1.1", USER));
+        assertNull(fStore.getObjectByPath("/Folder 2/Folder A/", USER));
+    }
+
     @Test
     public void testDeleteFolder() {
         String oldPath = getPath(f2);
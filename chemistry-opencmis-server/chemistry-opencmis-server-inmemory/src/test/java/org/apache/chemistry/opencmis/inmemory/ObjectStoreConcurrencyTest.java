@@ -0,0 +1,347 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.inmemory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.data.PropertyData;
+import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisBaseException;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyIdImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyStringImpl;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.Fileable;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.Folder;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.StoredObject;
+import org.apache.chemistry.opencmis.inmemory.storedobj.impl.ObjectStoreImpl;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Creates, renames, moves and deletes objects from many threads while other
+ * threads read, then checks that the store is consistent.
+ */
+public class ObjectStoreConcurrencyTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ObjectStoreConcurrencyTest.class);
+    private static final String USER = "user";
+    private static final int FOLDERS = 4;
+    private static final int WRITERS = 8;
+    private static final int READERS = 4;
+    private static final int OPERATIONS_PER_WRITER = 2000;
+    // small name space to provoke name conflicts
+    private static final int NAMES = 200;
+
+    private ObjectStoreImpl fStore;
+    private List<Folder> fFolders;
+
+    @Before
+    public void setUp() {
+        ConfigurationSettings.init(new HashMap<String, String>());
+        fStore = new ObjectStoreImpl("ObjectStoreConcurrencyTest");
+        fFolders = new ArrayList<Folder>();
+        for (int i = 0; i < FOLDERS; i++) {
+            fFolders.add(fStore.createFolder("folder" + i, null, USER, fStore.getRootFolder(), null, null, null));
+        }
+    }
+
+    @Test
+    public void testConcurrentChanges() throws Exception {
+        final Set<String> createdIds = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+        final AtomicBoolean writing = new AtomicBoolean(true);
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS + READERS);
+
+        List<Future<Integer>> writers = new ArrayList<Future<Integer>>();
+        for (int i = 0; i < WRITERS; i++) {
+            final long seed = i;
+            writers.add(executor.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() throws Exception {
+                    start.await();
+                    return write(new Random(seed), createdIds);
+                }
+            }));
+        }
+
+        List<Future<Integer>> readers = new ArrayList<Future<Integer>>();
+        for (int i = 0; i < READERS; i++) {
+            final long seed = 100 + i;
+            readers.add(executor.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() throws Exception {
+                    start.await();
+                    return read(new Random(seed), writing);
+                }
+            }));
+        }
+
+        long startTime = System.nanoTime();
+        start.countDown();
+        int conflicts = 0;
+        for (Future<Integer> writer : writers) {
+            conflicts += writer.get(60, TimeUnit.SECONDS);
+        }
+        long writeMillis = Math.max(1, (System.nanoTime() - startTime) / 1000000);
+        writing.set(false);
+        int reads = 0;
+        for (Future<Integer> reader : readers) {
+            reads += reader.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        LOG.info(String.format("%d writers: %d operations in %d ms (%d ops/s, %d name conflicts), "
+                + "%d concurrent reads", WRITERS, WRITERS * OPERATIONS_PER_WRITER, writeMillis, WRITERS
+                * OPERATIONS_PER_WRITER * 1000L / writeMillis, conflicts, reads));
+
+        assertTrue(createdIds.size() > 0);
+        assertConsistent(createdIds);
+        assertIndexesConsistent();
+    }
+
+    /**
+     * All writers work on the same objects: documents are moved, filed into
+     * further folders and unfiled while other writers delete them, and
+     * documents are created in folders that other writers delete.
+     */
+    @Test
+    public void testSharedSubtree() throws Exception {
+        final List<String> docIds = new CopyOnWriteArrayList<String>();
+        final List<Folder> folders = new CopyOnWriteArrayList<Folder>(fFolders);
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS);
+
+        List<Future<Integer>> writers = new ArrayList<Future<Integer>>();
+        for (int i = 0; i < WRITERS; i++) {
+            final long seed = 200 + i;
+            writers.add(executor.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() throws Exception {
+                    start.await();
+                    return writeShared(new Random(seed), docIds, folders);
+                }
+            }));
+        }
+
+        start.countDown();
+        int conflicts = 0;
+        for (Future<Integer> writer : writers) {
+            conflicts += writer.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        LOG.info(String.format("%d writers on a shared subtree: %d operations, %d rejected", WRITERS, WRITERS
+                * OPERATIONS_PER_WRITER, conflicts));
+
+        for (String id : docIds) {
+            assertNotNull(fStore.getObjectById(id));
+        }
+        assertIndexesConsistent();
+    }
+
+    /**
+     * Performs random changes and returns the number of rejected changes.
+     */
+    private int write(Random random, Set<String> createdIds) {
+        List<StoredObject> own = new ArrayList<StoredObject>();
+        int conflicts = 0;
+        for (int i = 0; i < OPERATIONS_PER_WRITER; i++) {
+            Folder folder = fFolders.get(random.nextInt(FOLDERS));
+            String name = "name" + random.nextInt(NAMES);
+            try {
+                int op = random.nextInt(10);
+                if (op < 3 || own.isEmpty()) {
+                    StoredObject doc = fStore.createDocument(createProperties(name), USER, folder, null, null,
+                            null, null);
+                    assertTrue("Duplicate id " + doc.getId(), createdIds.add(doc.getId()));
+                    own.add(doc);
+                } else if (op < 5) {
+                    StoredObject child = fStore.createFolder(name, null, USER, folder, null, null, null);
+                    assertTrue("Duplicate id " + child.getId(), createdIds.add(child.getId()));
+                } else if (op < 7) {
+                    fStore.rename(own.get(random.nextInt(own.size())), name, USER);
+                } else if (op < 9) {
+                    StoredObject doc = own.get(random.nextInt(own.size()));
+                    Folder oldParent = (Folder) fStore.getObjectById(((Fileable) doc).getParentIds().get(0));
+                    if (!oldParent.getId().equals(folder.getId())) {
+                        fStore.move(doc, oldParent, folder, USER);
+                    }
+                } else {
+                    StoredObject doc = own.remove(random.nextInt(own.size()));
+                    fStore.deleteObject(doc.getId(), true, USER);
+                    createdIds.remove(doc.getId());
+                }
+            } catch (CmisBaseException e) {
+                // name conflict
+                conflicts++;
+            }
+        }
+        return conflicts;
+    }
+
+    /**
+     * Performs random changes on objects shared with the other writers and
+     * returns the number of rejected changes.
+     */
+    private int writeShared(Random random, List<String> docIds, List<Folder> folders) {
+        int conflicts = 0;
+        for (int i = 0; i < OPERATIONS_PER_WRITER; i++) {
+            Folder folder = folders.get(random.nextInt(folders.size()));
+            String name = "name" + random.nextInt(NAMES);
+            String docId = docIds.isEmpty() ? null : docIds.get(random.nextInt(docIds.size()));
+            StoredObject doc = null == docId ? null : fStore.getObjectById(docId);
+            try {
+                int op = random.nextInt(10);
+                if (op < 2 || null == doc) {
+                    docIds.add(fStore.createDocument(createProperties(name), USER, folder, null, null, null, null)
+                            .getId());
+                } else if (op < 3) {
+                    folders.add(fStore.createFolder(name, null, USER, folder, null, null, null));
+                } else if (op < 5) {
+                    // the parent may have been changed or deleted by now
+                    List<String> parentIds = ((Fileable) doc).getParentIds();
+                    Folder oldParent = parentIds.isEmpty() ? null : (Folder) fStore.getObjectById(parentIds.get(0));
+                    if (null != oldParent && !oldParent.getId().equals(folder.getId())) {
+                        fStore.move(doc, oldParent, folder, USER);
+                    }
+                } else if (op < 6) {
+                    fStore.addParent(doc, folder);
+                } else if (op < 7) {
+                    fStore.removeParent(doc, folder);
+                } else if (op < 9) {
+                    fStore.deleteObject(docId, true, USER);
+                    docIds.remove(docId);
+                } else if (!fFolders.contains(folder)) {
+                    fStore.deleteObject(folder.getId(), true, USER);
+                    folders.remove(folder);
+                }
+            } catch (CmisBaseException e) {
+                // name conflict or object deleted by another writer
+                conflicts++;
+            } catch (IllegalArgumentException e) {
+                // name conflict when filing into a further folder
+                conflicts++;
+            }
+        }
+        return conflicts;
+    }
+
+    /**
+     * Reads until the writers are done and returns the number of reads.
+     */
+    private int read(Random random, AtomicBoolean writing) {
+        int reads = 0;
+        while (writing.get()) {
+            Folder folder = fFolders.get(random.nextInt(FOLDERS));
+            for (Fileable child : fStore.getChildren(folder, -1, -1, USER, false).getChildren()) {
+                assertNotNull(child.getId());
+                assertNotNull(child.getName());
+            }
+            String path = fStore.getFolderPath(folder.getId());
+            assertEquals(folder.getId(), fStore.getObjectByPath(path, USER).getId());
+            fStore.getObjectByPath(path + "/name" + random.nextInt(NAMES), USER);
+            reads += 3;
+        }
+        return reads;
+    }
+
+    private void assertConsistent(Set<String> createdIds) {
+        int children = 0;
+        for (Folder folder : fFolders) {
+            Set<String> names = new HashSet<String>();
+            for (Fileable child : fStore.getChildren(folder, -1, -1, USER, false).getChildren()) {
+                assertTrue("Duplicate name " + child.getName() + " in " + folder.getName(),
+                        names.add(child.getName()));
+                assertTrue(child.getParentIds().contains(folder.getId()));
+                assertEquals(child.getId(), fStore.getObjectByPath(fStore.getFolderPath(folder.getId()) + "/"
+                        + child.getName(), USER).getId());
+                children++;
+            }
+        }
+        assertEquals(createdIds.size(), children);
+        for (String id : createdIds) {
+            assertNotNull(fStore.getObjectById(id));
+        }
+    }
+
+    /**
+     * Checks the children, name and path indexes against the objects in the
+     * store.
+     */
+    private void assertIndexesConsistent() {
+        Set<String> ids = new HashSet<String>(fStore.getIds());
+        for (String id : ids) {
+            StoredObject so = fStore.getObjectById(id);
+            if (!(so instanceof Fileable)) {
+                continue;
+            }
+            for (String parentId : ((Fileable) so).getParentIds()) {
+                assertTrue("Parent " + parentId + " of " + id + " does not exist", ids.contains(parentId));
+                assertTrue("Child " + id + " not indexed in " + parentId, fStore.getChildIds(parentId).contains(id));
+                String parentPath = fStore.getFolderPath(parentId);
+                String path = parentPath.endsWith("/") ? parentPath + so.getName() : parentPath + "/"
+                        + so.getName();
+                assertEquals(path, id, fStore.getObjectByPath(path, USER).getId());
+                if (so instanceof Folder) {
+                    assertEquals(path, fStore.getFolderPath(id));
+                }
+            }
+
+            if (so instanceof Folder) {
+                Set<String> names = new HashSet<String>();
+                for (String childId : fStore.getChildIds(id)) {
+                    StoredObject child = fStore.getObjectById(childId);
+                    assertNotNull("Deleted child " + childId + " still indexed in " + id, child);
+                    assertTrue(((Fileable) child).getParentIds().contains(id));
+                    assertTrue("Duplicate name " + child.getName() + " in " + id, names.add(child.getName()));
+                }
+            }
+        }
+    }
+
+    private static Map<String, PropertyData<?>> createProperties(String name) {
+        Map<String, PropertyData<?>> properties = new HashMap<String, PropertyData<?>>();
+        properties.put(PropertyIds.NAME, new PropertyStringImpl(PropertyIds.NAME, name));
+        properties.put(PropertyIds.OBJECT_TYPE_ID, new PropertyIdImpl(PropertyIds.OBJECT_TYPE_ID,
+                BaseTypeId.CMIS_DOCUMENT.value()));
+        return properties;
+    }
+}
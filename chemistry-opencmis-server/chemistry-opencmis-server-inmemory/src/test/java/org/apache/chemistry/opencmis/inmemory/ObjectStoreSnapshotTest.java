@@ -0,0 +1,310 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.inmemory;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.data.Ace;
+import org.apache.chemistry.opencmis.commons.data.ContentStream;
+import org.apache.chemistry.opencmis.commons.data.PropertyData;
+import org.apache.chemistry.opencmis.commons.enums.AclPropagation;
+import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
+import org.apache.chemistry.opencmis.commons.enums.VersioningState;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.AccessControlEntryImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.AccessControlListImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.AccessControlPrincipalDataImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ContentStreamImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyDateTimeImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyIdImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyIntegerImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyStringImpl;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.Document;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.DocumentVersion;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.Folder;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.StoredObject;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.VersionedDocument;
+import org.apache.chemistry.opencmis.inmemory.storedobj.impl.ObjectStoreImpl;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Writes the objects of a store to a snapshot and loads the snapshot into a
+ * new store.
+ */
+public class ObjectStoreSnapshotTest {
+
+    private static final String USER = "user";
+    private static final String ADMIN = ObjectStoreImpl.ADMIN_PRINCIPAL_ID;
+    private static final int FOLDERS = 10;
+    private static final int DOCS_PER_FOLDER = 50;
+
+    private ObjectStoreImpl fStore;
+
+    @Before
+    public void setUp() {
+        ConfigurationSettings.init(new HashMap<String, String>());
+        fStore = new ObjectStoreImpl("ObjectStoreSnapshotTest");
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        Folder folder = fStore.createFolder("folder", null, USER, fStore.getRootFolder(), null, null, null);
+        Folder subFolder = fStore.createFolder("sub", null, USER, folder, null, null, null);
+
+        Map<String, PropertyData<?>> props = createProperties("doc", BaseTypeId.CMIS_DOCUMENT.value());
+        GregorianCalendar date = new GregorianCalendar(TimeZone.getTimeZone("Europe/Berlin"));
+        date.setTimeInMillis(1234567890123L);
+        props.put("DateProp", new PropertyDateTimeImpl("DateProp", date));
+        props.put("IntProp", new PropertyIntegerImpl("IntProp", new ArrayList<BigInteger>(Arrays.asList(
+                BigInteger.ONE, BigInteger.valueOf(Long.MAX_VALUE).multiply(BigInteger.TEN)))));
+        props.put("StringProp", new PropertyStringImpl("StringProp", "äöü"));
+        byte[] bytes = createBytes(200000);
+        Document doc = fStore.createDocument(props, USER, subFolder, createContent(bytes), null, null, null);
+        fStore.applyAcl(doc, createAcl("alice", "cmis:write"), AclPropagation.OBJECTONLY, ADMIN);
+
+        DocumentVersion ver = fStore.createVersionedDocument("versioned",
+                createProperties("versioned", BaseTypeId.CMIS_DOCUMENT.value()), USER, folder, null, null, null,
+                createContent(new byte[] { 1, 2, 3 }), VersioningState.MAJOR);
+        VersionedDocument series = ver.getParentDocument();
+        DocumentVersion pwc = series.checkOut(USER);
+        fStore.storeVersion(pwc);
+
+        ObjectStoreImpl loaded = roundTrip(4);
+        // loading doesn't record changes
+        long changeId = loaded.getChangeLog().getNextChangeId();
+
+        assertEquals(fStore.getObjectCount(), loaded.getObjectCount());
+        assertEquals(fStore.getRootFolder().getId(), loaded.getRootFolder().getId());
+
+        StoredObject loadedDoc = loaded.getObjectByPath("/folder/sub/doc", USER);
+        assertNotNull(loadedDoc);
+        assertEquals(doc.getId(), loadedDoc.getId());
+        assertEquals(date.getTimeInMillis(), ((GregorianCalendar) loadedDoc.getProperties().get("DateProp")
+                .getFirstValue()).getTimeInMillis());
+        assertEquals(date.getTimeZone().getID(), ((GregorianCalendar) loadedDoc.getProperties().get("DateProp")
+                .getFirstValue()).getTimeZone().getID());
+        assertEquals(props.get("IntProp").getValues(), loadedDoc.getProperties().get("IntProp").getValues());
+        assertEquals("äöü", loadedDoc.getProperties().get("StringProp").getFirstValue());
+        assertEquals(doc.getCreatedAt().getTimeInMillis(), loadedDoc.getCreatedAt().getTimeInMillis());
+
+        ContentStream content = ((Document) loadedDoc).getContent();
+        assertEquals(bytes.length, content.getLength());
+        assertEquals("application/octet-stream", content.getMimeType());
+        assertArrayEquals(bytes, readAll(content.getStream()));
+
+        assertTrue(loaded.hasWriteAccess("alice", loadedDoc));
+        assertFalse(loaded.hasWriteAccess("bob", loadedDoc));
+        assertTrue(loaded.hasReadAccess("bob", loaded.getObjectById(folder.getId())));
+
+        VersionedDocument loadedSeries = (VersionedDocument) loaded.getObjectById(series.getId());
+        assertTrue(loadedSeries.isCheckedOut());
+        assertEquals(USER, loadedSeries.getCheckedOutBy());
+        assertEquals(2, loadedSeries.getAllVersions().size());
+        assertEquals(pwc.getId(), loadedSeries.getPwc().getId());
+        DocumentVersion loadedVer = loadedSeries.getLatestVersion(true);
+        assertEquals(ver.getId(), loadedVer.getId());
+        assertTrue(loadedVer.isMajor());
+        assertEquals("1.0", loadedVer.getVersionLabel());
+        assertArrayEquals(new byte[] { 1, 2, 3 }, readAll(loadedVer.getContent().getStream()));
+        assertEquals(fStore.getObjectByPath("/folder/versioned", USER).getId(),
+                loaded.getObjectByPath("/folder/versioned", USER).getId());
+
+        // new objects must not reuse loaded ids
+        Folder newFolder = loaded.createFolder("new", null, USER, loaded.getRootFolder(), null, null, null);
+        assertNull(fStore.getObjectById(newFolder.getId()));
+        assertEquals(changeId + 1, loaded.getChangeLog().getNextChangeId());
+    }
+
+    @Test
+    public void testParallelLoad() throws Exception {
+        List<String> ids = new ArrayList<String>();
+        for (int i = 0; i < FOLDERS; i++) {
+            Folder folder = fStore.createFolder("folder" + i, null, USER, fStore.getRootFolder(), null, null, null);
+            ids.add(folder.getId());
+            for (int j = 0; j < DOCS_PER_FOLDER; j++) {
+                Document doc = fStore.createDocument(createProperties("doc" + j, BaseTypeId.CMIS_DOCUMENT.value()),
+                        USER, folder, createContent(createBytes(j * 100)), null, null, null);
+                ids.add(doc.getId());
+            }
+        }
+
+        ObjectStoreImpl loaded = roundTrip(8);
+
+        assertEquals(fStore.getObjectCount(), loaded.getObjectCount());
+        for (String id : ids) {
+            StoredObject so = loaded.getObjectById(id);
+            assertNotNull(so);
+            assertEquals(fStore.getObjectById(id).getName(), so.getName());
+        }
+        for (int i = 0; i < FOLDERS; i++) {
+            Folder folder = (Folder) loaded.getObjectByPath("/folder" + i, USER);
+            assertEquals(DOCS_PER_FOLDER, loaded.getChildren(folder, -1, -1, USER, false).getNoItems());
+        }
+        assertEquals(fStore.getIdsOfType(BaseTypeId.CMIS_DOCUMENT.value()),
+                loaded.getIdsOfType(BaseTypeId.CMIS_DOCUMENT.value()));
+    }
+
+    @Test
+    public void testInvalidSnapshot() throws Exception {
+        fStore.createFolder("folder", null, USER, fStore.getRootFolder(), null, null, null);
+        try {
+            fStore.readSnapshot(new ByteArrayInputStream(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 }), 1);
+            fail("Invalid snapshot must not be loaded");
+        } catch (IOException e) {
+            // expected
+        }
+        assertEquals(1, fStore.getObjectCount());
+        assertNotNull(fStore.getObjectById(fStore.getRootFolder().getId()));
+    }
+
+    @Test
+    public void testWriteDoesNotBlockStore() throws Exception {
+        Folder folder = fStore.createFolder("folder", null, USER, fStore.getRootFolder(), null, null, null);
+        fStore.createDocument(createProperties("doc", BaseTypeId.CMIS_DOCUMENT.value()), USER, folder,
+                createContent(createBytes(1000)), null, null, null);
+        final long objectCount = fStore.getObjectCount();
+
+        // the stream blocks until the store has been cleared
+        final CountDownLatch writing = new CountDownLatch(1);
+        final CountDownLatch cleared = new CountDownLatch(1);
+        final AtomicReference<Exception> failure = new AtomicReference<Exception>();
+        final ByteArrayOutputStream snapshot = new ByteArrayOutputStream() {
+            @Override
+            public synchronized void write(byte[] b, int off, int len) {
+                await();
+                super.write(b, off, len);
+            }
+
+            @Override
+            public synchronized void write(int b) {
+                await();
+                super.write(b);
+            }
+
+            private void await() {
+                writing.countDown();
+                try {
+                    if (!cleared.await(5, TimeUnit.SECONDS)) {
+                        failure.set(new IllegalStateException("Store blocked while writing the snapshot!"));
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        Thread writer = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    fStore.writeSnapshot(snapshot);
+                } catch (Exception e) {
+                    failure.set(e);
+                }
+            }
+        };
+        writer.start();
+
+        assertTrue(writing.await(10, TimeUnit.SECONDS));
+        // clearing takes the exclusive lock
+        fStore.clear();
+        cleared.countDown();
+        writer.join(10000);
+        assertFalse(writer.isAlive());
+        assertNull(failure.get());
+
+        // the snapshot contains the objects copied before the store was
+        // cleared
+        ObjectStoreImpl loaded = new ObjectStoreImpl("ObjectStoreSnapshotTest");
+        loaded.readSnapshot(new ByteArrayInputStream(snapshot.toByteArray()), 1);
+        assertEquals(objectCount, loaded.getObjectCount());
+        assertNotNull(loaded.getObjectByPath("/folder/doc", USER));
+    }
+
+    private ObjectStoreImpl roundTrip(int threads) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        fStore.writeSnapshot(out);
+        ObjectStoreImpl loaded = new ObjectStoreImpl("ObjectStoreSnapshotTest");
+        long changeId = loaded.getChangeLog().getNextChangeId();
+        loaded.readSnapshot(new ByteArrayInputStream(out.toByteArray()), threads);
+        assertEquals(changeId, loaded.getChangeLog().getNextChangeId());
+        return loaded;
+    }
+
+    private static Map<String, PropertyData<?>> createProperties(String name, String typeId) {
+        Map<String, PropertyData<?>> properties = new HashMap<String, PropertyData<?>>();
+        properties.put(PropertyIds.NAME, new PropertyStringImpl(PropertyIds.NAME, name));
+        properties.put(PropertyIds.OBJECT_TYPE_ID, new PropertyIdImpl(PropertyIds.OBJECT_TYPE_ID, typeId));
+        return properties;
+    }
+
+    private static AccessControlListImpl createAcl(String principalId, String permission) {
+        List<Ace> aces = new ArrayList<Ace>();
+        aces.add(new AccessControlEntryImpl(new AccessControlPrincipalDataImpl(principalId), Collections
+                .singletonList(permission)));
+        return new AccessControlListImpl(aces);
+    }
+
+    private static ContentStream createContent(byte[] bytes) {
+        return new ContentStreamImpl("content.bin", BigInteger.valueOf(bytes.length), "application/octet-stream",
+                new ByteArrayInputStream(bytes));
+    }
+
+    private static byte[] createBytes(int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) (i * 31);
+        }
+        return bytes;
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int len;
+        while ((len = in.read(buffer)) != -1) {
+            out.write(buffer, 0, len);
+        }
+        in.close();
+        return out.toByteArray();
+    }
+}
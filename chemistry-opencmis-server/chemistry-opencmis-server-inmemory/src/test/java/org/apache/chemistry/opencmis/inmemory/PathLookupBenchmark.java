@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.inmemory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.Fileable;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.Filing;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.Folder;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.StoredObject;
+import org.apache.chemistry.opencmis.inmemory.storedobj.impl.ObjectStoreImpl;
+
+/**
+ * Compares path resolution of the object store with a resolution that lists
+ * the children of each path segment by scanning all objects, as the store did
+ * before it maintained a children and a path segment index.
+ * <p>
+ * This is not a unit test and is not run by the build. Start it with the test
+ * class path and optionally pass the repository sizes as arguments, e.g.
+ * {@code java PathLookupBenchmark 10000 100000 1000000}. Use a heap of at least
+ * 2 GB for one million objects.
+ */
+public class PathLookupBenchmark {
+
+    private static final String USER = "user";
+    private static final int FOLDERS_PER_FOLDER = 100;
+    private static final int INDEXED_LOOKUPS = 100000;
+    private static final int SCAN_LOOKUPS = 20;
+
+    public static void main(String[] args) {
+        int[] sizes = { 10000, 100000, 1000000 };
+        if (args.length > 0) {
+            sizes = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                sizes[i] = Integer.parseInt(args[i]);
+            }
+        }
+
+        ConfigurationSettings.init(new HashMap<String, String>());
+        for (int size : sizes) {
+            run(size);
+        }
+    }
+
+    private static void run(int size) {
+        ObjectStoreImpl store = new ObjectStoreImpl("PathLookupBenchmark");
+        List<Folder> leafs = createTree(store, size);
+        List<String> paths = new ArrayList<String>();
+        Random random = new Random(size);
+        for (int i = 0; i < 1000; i++) {
+            Folder folder = leafs.get(random.nextInt(leafs.size()));
+            paths.add(store.getFolderPath(folder.getId()));
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < INDEXED_LOOKUPS; i++) {
+            if (null == store.getObjectByPath(paths.get(i % paths.size()), USER)) {
+                throw new IllegalStateException("Path not found: " + paths.get(i % paths.size()));
+            }
+        }
+        long indexedNanos = (System.nanoTime() - start) / INDEXED_LOOKUPS;
+
+        start = System.nanoTime();
+        for (int i = 0; i < INDEXED_LOOKUPS; i++) {
+            store.getFolderPath(leafs.get(i % leafs.size()).getId());
+        }
+        long folderPathNanos = (System.nanoTime() - start) / INDEXED_LOOKUPS;
+
+        start = System.nanoTime();
+        for (int i = 0; i < SCAN_LOOKUPS; i++) {
+            if (null == getObjectByPathScan(store, paths.get(i % paths.size()))) {
+                throw new IllegalStateException("Path not found: " + paths.get(i % paths.size()));
+            }
+        }
+        long scanNanos = (System.nanoTime() - start) / SCAN_LOOKUPS;
+
+        System.out.println(String.format(
+                "%,10d objects: getObjectByPath %,10d ns, getFolderPath %,10d ns, full scan lookup %,14d ns",
+                store.getObjectCount(), indexedNanos, folderPathNanos, scanNanos));
+    }
+
+    private static List<Folder> createTree(ObjectStoreImpl store, int size) {
+        List<Folder> level = new ArrayList<Folder>();
+        level.add(store.getRootFolder());
+        int count = 1;
+        while (count < size) {
+            List<Folder> nextLevel = new ArrayList<Folder>();
+            for (Folder parent : level) {
+                for (int i = 0; i < FOLDERS_PER_FOLDER && count < size; i++) {
+                    nextLevel.add(store.createFolder("folder" + i, null, USER, parent, null, null, null));
+                    count++;
+                }
+            }
+            level = nextLevel;
+        }
+        return level;
+    }
+
+    private static StoredObject getObjectByPathScan(ObjectStoreImpl store, String path) {
+        StoredObject current = store.getRootFolder();
+        for (String segment : path.substring(1).split(Filing.PATH_SEPARATOR)) {
+            StoredObject found = null;
+            for (String id : store.getIds()) {
+                StoredObject so = store.getObjectById(id);
+                if (so instanceof Fileable && ((Fileable) so).getParentIds().contains(current.getId())
+                        && so.getName().equals(segment)) {
+                    found = so;
+                    break;
+                }
+            }
+            if (null == found) {
+                return null;
+            }
+            current = found;
+        }
+        return current;
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.inmemory;
+
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.data.PropertyData;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.BindingsObjectFactoryImpl;
+import org.apache.chemistry.opencmis.commons.spi.BindingsObjectFactory;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.Folder;
+import org.apache.chemistry.opencmis.inmemory.storedobj.impl.ObjectStoreImpl;
+import org.apache.chemistry.opencmis.inmemory.storedobj.impl.StoreManagerImpl;
+
+/**
+ * Compares selective queries answered from property indexes with the same
+ * queries evaluated against all objects of the queried type, as the query
+ * processor did before it used a query planner.
+ * <p>
+ * This is not a unit test and is not run by the build. Start it with the test
+ * class path and optionally pass the repository sizes as arguments, e.g.
+ * {@code java QueryPlannerBenchmark 10000 100000 1000000}. Use a heap of at
+ * least 4 GB for one million objects.
+ */
+public class QueryPlannerBenchmark {
+
+    private static final String USER = "user";
+    private static final int DOCUMENTS_PER_FOLDER = 1000;
+    private static final int DISTINCT_VALUES = 1000;
+    private static final int INDEXED_QUERIES = 1000;
+    private static final int SCAN_QUERIES = 5;
+
+    private static final String[] QUERIES = {
+            "SELECT cmis:objectId FROM ComplexType WHERE StringProp = 'value%d'",
+            "SELECT cmis:objectId FROM ComplexType WHERE IntProp = %d",
+            "SELECT cmis:objectId FROM ComplexType WHERE IntProp >= %d AND IntProp < %d AND BooleanProp = true" };
+
+    private static final BindingsObjectFactory FACTORY = new BindingsObjectFactoryImpl();
+
+    public static void main(String[] args) {
+        int[] sizes = { 10000, 100000, 1000000 };
+        if (args.length > 0) {
+            sizes = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                sizes[i] = Integer.parseInt(args[i]);
+            }
+        }
+
+        ConfigurationSettings.init(new HashMap<String, String>());
+        for (int size : sizes) {
+            run(size);
+        }
+    }
+
+    private static void run(int size) {
+        String repositoryId = "QueryPlannerBenchmark" + size;
+        StoreManagerImpl storeManager = new StoreManagerImpl();
+        storeManager.createAndInitRepository(repositoryId, UnitTestTypeSystemCreator.class.getName());
+        ObjectStoreImpl store = storeManager.getStore(repositoryId);
+        createDocuments(store, size);
+
+        String[] statements = new String[QUERIES.length];
+        for (int i = 0; i < QUERIES.length; i++) {
+            statements[i] = String.format(QUERIES[i], DISTINCT_VALUES / 2, DISTINCT_VALUES / 2 + 10);
+        }
+
+        long[] scanNanos = new long[statements.length];
+        for (int i = 0; i < statements.length; i++) {
+            scanNanos[i] = runQuery(storeManager, repositoryId, statements[i], SCAN_QUERIES);
+        }
+
+        store.addPropertyIndex(UnitTestTypeSystemCreator.PROP_ID_STRING, false);
+        store.addPropertyIndex(UnitTestTypeSystemCreator.PROP_ID_BOOLEAN, false);
+        store.addPropertyIndex(UnitTestTypeSystemCreator.PROP_ID_INT, true);
+
+        for (int i = 0; i < statements.length; i++) {
+            long indexedNanos = runQuery(storeManager, repositoryId, statements[i], INDEXED_QUERIES);
+            System.out.println(String.format("%,10d objects: indexed %,12d ns, scan %,14d ns: %s",
+                    store.getObjectCount(), indexedNanos, scanNanos[i], statements[i]));
+        }
+    }
+
+    private static long runQuery(StoreManagerImpl storeManager, String repositoryId, String statement, int count) {
+        DummyCallContext context = new DummyCallContext();
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            if (storeManager.query(context, USER, repositoryId, statement, false, false, null, null,
+                    BigInteger.valueOf(100), BigInteger.ZERO).getNumItems().signum() == 0) {
+                throw new IllegalStateException("No result: " + statement);
+            }
+        }
+        return (System.nanoTime() - start) / count;
+    }
+
+    private static void createDocuments(ObjectStoreImpl store, int size) {
+        Folder folder = null;
+        for (int i = 0; i < size; i++) {
+            if (i % DOCUMENTS_PER_FOLDER == 0) {
+                folder = store.createFolder("folder" + i, null, USER, store.getRootFolder(), null, null, null);
+            }
+
+            int value = i % DISTINCT_VALUES;
+            Map<String, PropertyData<?>> properties = new HashMap<String, PropertyData<?>>();
+            properties.put(PropertyIds.NAME, FACTORY.createPropertyStringData(PropertyIds.NAME, "doc" + i));
+            properties.put(PropertyIds.OBJECT_TYPE_ID, FACTORY.createPropertyIdData(PropertyIds.OBJECT_TYPE_ID,
+                    UnitTestTypeSystemCreator.COMPLEX_TYPE));
+            properties.put(UnitTestTypeSystemCreator.PROP_ID_STRING, FACTORY.createPropertyStringData(
+                    UnitTestTypeSystemCreator.PROP_ID_STRING, "value" + value));
+            properties.put(UnitTestTypeSystemCreator.PROP_ID_INT, FACTORY.createPropertyIntegerData(
+                    UnitTestTypeSystemCreator.PROP_ID_INT, BigInteger.valueOf(value)));
+            properties.put(UnitTestTypeSystemCreator.PROP_ID_BOOLEAN, FACTORY.createPropertyBooleanData(
+                    UnitTestTypeSystemCreator.PROP_ID_BOOLEAN, i % 2 == 0));
+            store.createDocument(properties, USER, folder, null, null, null, null);
+        }
+    }
+}
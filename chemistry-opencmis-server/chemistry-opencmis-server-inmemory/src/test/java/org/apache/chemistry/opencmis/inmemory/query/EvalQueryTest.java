@@ -33,6 +33,8 @@ import static org.junit.Assert.fail;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.HashSet;
+import java.util.Set;
 
 import org.antlr.runtime.RecognitionException;
 import org.apache.chemistry.opencmis.commons.PropertyIds;
@@ -591,6 +593,52 @@ public class EvalQueryTest extends AbstractServiceTest {
         log.debug("...Stop testOrderByBool.");
     }
 
+    @Test
+    public void testOrderByWithPaging() {
+        log.debug("Start testOrderByWithPaging...");
+        String statement = "SELECT * FROM " + COMPLEX_TYPE + " ORDER BY " + PROP_ID_INT;
+        ObjectList res = doQuery(statement, 2, 1);
+        assertEquals(2, res.getObjects().size());
+        assertEquals(5, res.getNumItems().intValue());
+        assertTrue(res.hasMoreItems());
+        assertTrue(resultContainsAtPos("beta", 0, res));
+        assertTrue(resultContainsAtPos("gamma", 1, res));
+
+        statement = "SELECT * FROM " + COMPLEX_TYPE + " ORDER BY " + PROP_ID_INT + " DESC";
+        res = doQuery(statement, 2, 4);
+        assertEquals(1, res.getObjects().size());
+        assertEquals(5, res.getNumItems().intValue());
+        assertFalse(res.hasMoreItems());
+        assertTrue(resultContainsAtPos("alpha", 0, res));
+        log.debug("...Stop testOrderByWithPaging.");
+    }
+
+    @Test
+    public void testPagingWithoutOrderBy() {
+        log.debug("Start testPagingWithoutOrderBy...");
+        String statement = "SELECT * FROM " + COMPLEX_TYPE;
+        Set<String> names = new HashSet<String>();
+        int skipCount = 0;
+        boolean hasMoreItems = true;
+        while (hasMoreItems) {
+            ObjectList res = doQuery(statement, 2, skipCount);
+            hasMoreItems = res.hasMoreItems();
+            if (hasMoreItems) {
+                assertEquals(2, res.getObjects().size());
+            } else {
+                // the last page knows the total number of matches
+                assertEquals(5, res.getNumItems().intValue());
+            }
+            for (ObjectData od : res.getObjects()) {
+                names.add((String) od.getProperties().getProperties().get(PropertyIds.NAME).getFirstValue());
+            }
+            skipCount += 2;
+        }
+        assertEquals(6, skipCount);
+        assertEquals(5, names.size());
+        log.debug("...Stop testPagingWithoutOrderBy.");
+    }
+
     // reported JIRA issue CMIS-510
     @Test
     public void testOrderBySystemProperties() {
@@ -1163,6 +1211,12 @@ public class EvalQueryTest extends AbstractServiceTest {
         return res;
     }
 
+    private ObjectList doQuery(String queryString, int maxItems, int skipCount) {
+        log.debug("\nExecuting query: " + queryString + ", maxItems " + maxItems + ", skipCount " + skipCount);
+        return fDiscSvc.query(fRepositoryId, queryString, false, false, IncludeRelationships.NONE, null,
+                BigInteger.valueOf(maxItems), BigInteger.valueOf(skipCount), null);
+    }
+
     private ObjectList doQueryAllVersions(String queryString) {
         log.debug("\nExecuting query: " + queryString);
         ObjectList res = fDiscSvc.query(fRepositoryId, queryString, true, false, IncludeRelationships.NONE, null, null,
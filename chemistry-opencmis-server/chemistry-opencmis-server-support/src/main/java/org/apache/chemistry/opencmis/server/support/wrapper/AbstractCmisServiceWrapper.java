@@ -46,6 +46,7 @@ import org.apache.chemistry.opencmis.commons.enums.VersioningState;
 import org.apache.chemistry.opencmis.commons.server.CallContext;
 import org.apache.chemistry.opencmis.commons.server.CmisService;
 import org.apache.chemistry.opencmis.commons.server.ObjectInfo;
+import org.apache.chemistry.opencmis.commons.server.ObjectInfoBatchCmisService;
 import org.apache.chemistry.opencmis.commons.server.ProgressControlCmisService;
 import org.apache.chemistry.opencmis.commons.spi.Holder;
 
@@ -56,7 +57,8 @@ import org.apache.chemistry.opencmis.commons.spi.Holder;
  * derived from this class and must provide a constructor that takes a
  * {@link CmisService} object as the sole parameter.
  */
-public abstract class AbstractCmisServiceWrapper implements CallContextAwareCmisService, ProgressControlCmisService {
+public abstract class AbstractCmisServiceWrapper implements CallContextAwareCmisService, ProgressControlCmisService,
+        ObjectInfoBatchCmisService {
 
     private CmisService service;
     private CallContext context;
@@ -471,6 +473,15 @@ public abstract class AbstractCmisServiceWrapper implements CallContextAwareCmis
         return service.getObjectInfo(repositoryId, objectId);
     }
 
+    @Override
+    public void collectObjectInfos(String repositoryId, String parentId, List<ObjectData> objects, String filter,
+            IncludeRelationships includeRelationships, String renditionFilter) {
+        if (service instanceof ObjectInfoBatchCmisService) {
+            ((ObjectInfoBatchCmisService) service).collectObjectInfos(repositoryId, parentId, objects, filter,
+                    includeRelationships, renditionFilter);
+        }
+    }
+
     @Override
     public void close() {
         service.close();